@@ -5,7 +5,10 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import application.services.ContentIndexService;
 import application.services.DatabaseService;
+import application.services.DocumentService;
+import application.services.LogService;
 import application.services.NetworkService;
 import application.utils.DiagnosticUtils;
 
@@ -42,6 +45,12 @@ public class DocumentManagementApp extends Application {
             // Initialisation du service réseau
             NetworkService.getInstance().initialize();
             
+            // Construction de l'index de recherche des documents (en arrière-plan)
+            Thread indexation = new Thread(() -> DocumentService.getInstance().initialiserIndexRecherche(),
+                                           "index-recherche-documents");
+            indexation.setDaemon(true);
+            indexation.start();
+            
             System.out.println("Services initialisés avec succès");
         } catch (Exception e) {
             System.err.println("Erreur lors de l'initialisation des services: " + e.getMessage());
@@ -75,6 +84,8 @@ public class DocumentManagementApp extends Application {
         primaryStage.setOnCloseRequest(event -> {
             try {
                 NetworkService.getInstance().shutdown();
+                ContentIndexService.getInstance().arreter();
+                LogService.getInstance().arreter();
                 DatabaseService.getInstance().close();
             } catch (Exception e) {
                 System.err.println("Erreur lors de la fermeture: " + e.getMessage());
@@ -9,11 +9,13 @@ import javafx.scene.control.Label;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import application.models.Courrier.StatutCourrier;
 import application.models.User;
 import application.services.*;
 import application.utils.SessionManager;
 
 import java.net.URL;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 /**
@@ -73,13 +75,25 @@ public class AccueilController implements Initializable {
     }
     
     /**
-     * Charge les statistiques
+     * Charge les statistiques (compteurs pré-agrégés, quelques lignes lues)
      */
     private void loadStatistics() {
         try {
+            CompteursActiviteService compteurs = CompteursActiviteService.getInstance();
+            
             // Documents
-            int totalDocuments = documentService.getAllDocuments().size();
-            statDocuments.setText(String.valueOf(totalDocuments));
+            statDocuments.setText(String.valueOf(compteurs.getTotal(CompteursActiviteService.DOCUMENTS)));
+            
+            // Courriers par statut
+            Map<String, Long> courriers = compteurs.getTotaux("courriers.");
+            long totalCourriers = courriers.values().stream().mapToLong(Long::longValue).sum();
+            if (statCourriersTotal != null) {
+                statCourriersTotal.setText(String.valueOf(totalCourriers));
+            }
+            if (statCourriersEnCours != null) {
+                statCourriersEnCours.setText(String.valueOf(courriers.getOrDefault(
+                    CompteursActiviteService.courriers(StatutCourrier.EN_COURS.name()), 0L)));
+            }
             
         } catch (Exception e) {
             System.err.println("Erreur lors du chargement des statistiques: " + e.getMessage());
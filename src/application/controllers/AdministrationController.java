@@ -2,12 +2,23 @@ package application.controllers;
 
 import application.models.User;
 import application.services.DatabaseService;
+import application.services.CacheEntites;
+import application.services.CompteursActiviteService;
+import application.services.MetriquesBaseService;
+import application.services.NetworkService;
 import application.services.NetworkStorageService;
+import application.services.RegistreStockageService;
+import application.services.RetentionLogsService;
+import application.services.VerificationIntegriteService;
+import application.services.ExportLogsService;
+import application.services.VerificationIntegriteService.Anomalie;
 import application.services.NotificationCourrierService;
 import application.services.LogService;
 import application.utils.SessionManager;
+import application.utils.TachesArrierePlan;
 import application.utils.AlertUtils;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -18,6 +29,7 @@ import javafx.stage.DirectoryChooser;
 
 import java.io.File;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -49,10 +61,18 @@ public class AdministrationController {
     @FXML private CheckBox chkServeurDistant;
     @FXML private Button btnSauvegarderConfig;
     @FXML private Button btnTesterConnexion;
+    @FXML private Button btnReconcilierStockage;
     @FXML private Label lblStatutServeur;
     @FXML private Label lblEspaceDisponible;
     @FXML private Label lblNombreFichiers;
     @FXML private Label lblTailleTotale;
+    @FXML private Label lblAvancementVerification;
+    @FXML private TableView<Anomalie> tableAnomalies;
+    @FXML private TableColumn<Anomalie, String> colAnomalieCode;
+    @FXML private TableColumn<Anomalie, String> colAnomalieType;
+    @FXML private TableColumn<Anomalie, String> colAnomalieChemin;
+    @FXML private TableColumn<Anomalie, String> colAnomalieDate;
+    @FXML private Button btnActualiserAnomalies;
     @FXML private ProgressBar progressBarEspace;
     @FXML private VBox panelServeurLocal;
     @FXML private VBox panelServeurDistant;
@@ -73,6 +93,7 @@ public class AdministrationController {
     @FXML private Button btnRechercherLogs;
     @FXML private Button btnExporterLogs;
     @FXML private Button btnViderLogs;
+    @FXML private Button btnPartitionnerLogs;
     @FXML private Label lblTotalLogs;
     
     // Onglet Connexions
@@ -119,6 +140,11 @@ public class AdministrationController {
     @FXML private Label lblTotalDossiers;
     @FXML private Label lblEspaceUtilise;
     
+    // Onglet Performances base de données
+    @FXML private TextArea txtMetriquesBase;
+    @FXML private Button btnActualiserMetriques;
+    @FXML private Button btnReinitialiserMetriques;
+    
     @FXML private ComboBox<User> cmbResponsableCourrier;
     @FXML private Button btnDefinirResponsable;
     @FXML private Button btnSupprimerResponsable;
@@ -156,6 +182,9 @@ public class AdministrationController {
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     
+    // Lecture des logs hors du thread JavaFX (chargement et recherche partagent le canal)
+    private final TachesArrierePlan.Canal canalLogs = TachesArrierePlan.canal("administration.logs");
+    
     // ==================== INITIALISATION ====================
     
     @FXML
@@ -178,6 +207,7 @@ public class AdministrationController {
         initialiserOngletLogs();
         initialiserOngletConnexions();
         initialiserOngletStatistiques();
+        initialiserOngletPerformances();
         initialiserOngletResponsable();
         initialiserOngletCodesConfidentiels();
         
@@ -673,6 +703,29 @@ public class AdministrationController {
         if (btnTesterConnexion != null) {
             btnTesterConnexion.setOnAction(e -> testerConnexionServeur());
         }
+        
+        if (btnReconcilierStockage != null) {
+            btnReconcilierStockage.setOnAction(e -> {
+                if (networkStorageService.reconcilierRegistre()) {
+                    showSuccess("Inventaire du stockage lancé en arrière-plan");
+                } else {
+                    AlertUtils.showWarning("Un inventaire est déjà en cours (ou le serveur est inactif)");
+                }
+                chargerStatistiquesServeur();
+            });
+        }
+        
+        if (tableAnomalies != null) {
+            colAnomalieCode.setCellValueFactory(new PropertyValueFactory<>("codeDocument"));
+            colAnomalieType.setCellValueFactory(data -> new SimpleStringProperty(
+                libelleAnomalie(data.getValue().getType())));
+            colAnomalieChemin.setCellValueFactory(new PropertyValueFactory<>("chemin"));
+            colAnomalieDate.setCellValueFactory(new PropertyValueFactory<>("detecteeLe"));
+        }
+        
+        if (btnActualiserAnomalies != null) {
+            btnActualiserAnomalies.setOnAction(e -> chargerAnomaliesStockage());
+        }
     }
     
     /**
@@ -741,6 +794,7 @@ public class AdministrationController {
             
             // Charger les statistiques
             chargerStatistiquesServeur();
+            chargerAnomaliesStockage();
             
         } catch (SQLException e) {
             System.err.println("Erreur chargement configuration: " + e.getMessage());
@@ -763,12 +817,17 @@ public class AdministrationController {
         }
         
         if (lblNombreFichiers != null) {
-            lblNombreFichiers.setText(String.format("%,d fichiers", stats.getOrDefault("nombreFichiers", 0)));
+            String texte = String.format("%,d fichiers", stats.getOrDefault("nombreFichiers", 0));
+            if (Boolean.TRUE.equals(stats.get("reconciliationEnCours"))) {
+                texte += " (inventaire en cours…)";
+            }
+            lblNombreFichiers.setText(texte);
         }
         
         if (lblTailleTotale != null) {
             long taille = (long) stats.getOrDefault("tailleTotale", 0L);
             lblTailleTotale.setText(formatTaille(taille));
+            lblTailleTotale.setTooltip(new Tooltip(formaterRepartitionStockage(stats)));
         }
         
         if (lblEspaceDisponible != null) {
@@ -797,6 +856,57 @@ public class AdministrationController {
         }
     }
     
+    /**
+     * Charge les anomalies relevées par la vérification d'intégrité
+     */
+    private void chargerAnomaliesStockage() {
+        if (tableAnomalies == null) return;
+        
+        VerificationIntegriteService verification = VerificationIntegriteService.getInstance();
+        TachesArrierePlan.executer("administration.anomalies",
+            () -> Map.entry(verification.getAvancement(), verification.getAnomalies(500)),
+            resultat -> {
+                tableAnomalies.setItems(FXCollections.observableArrayList(resultat.getValue()));
+                if (lblAvancementVerification != null) {
+                    lblAvancementVerification.setText((verification.isActive() ? "" : "(vérification désactivée) ") +
+                        resultat.getKey() + " — " + resultat.getValue().size() + " anomalie(s)");
+                }
+            },
+            e -> System.err.println("Erreur chargement anomalies: " + e.getMessage()));
+    }
+    
+    private String libelleAnomalie(String type) {
+        if (type == null) return "";
+        switch (type) {
+            case VerificationIntegriteService.ANOMALIE_DIFFERENT: return "⚠ Altéré";
+            case VerificationIntegriteService.ANOMALIE_MANQUANT: return "❌ Manquant";
+            case VerificationIntegriteService.ANOMALIE_ILLISIBLE: return "❌ Illisible";
+            default: return type;
+        }
+    }
+    
+    /**
+     * Détail du registre de stockage par année et par extension (infobulle)
+     */
+    @SuppressWarnings("unchecked")
+    private String formaterRepartitionStockage(Map<String, Object> stats) {
+        StringBuilder sb = new StringBuilder("Par année :\n");
+        Map<String, RegistreStockageService.Compteur> parAnnee =
+            (Map<String, RegistreStockageService.Compteur>) stats.getOrDefault("parAnnee", Map.of());
+        parAnnee.forEach((annee, c) -> sb.append(String.format("  %-8s %,10d fichiers  %s%n",
+            annee, c.getNombreFichiers(), formatTaille(c.getTaille()))));
+        
+        sb.append("Par extension :\n");
+        Map<String, RegistreStockageService.Compteur> parExtension =
+            (Map<String, RegistreStockageService.Compteur>) stats.getOrDefault("parExtension", Map.of());
+        parExtension.forEach((extension, c) -> sb.append(String.format("  %-8s %,10d fichiers  %s%n",
+            extension.isEmpty() ? "(aucune)" : extension, c.getNombreFichiers(), formatTaille(c.getTaille()))));
+        
+        Object derniere = stats.get("derniereReconciliation");
+        sb.append("Dernier inventaire complet : ").append(derniere != null ? derniere : "jamais");
+        return sb.toString();
+    }
+    
     /**
      * Parcourir pour sélectionner le répertoire serveur
      */
@@ -1252,99 +1362,39 @@ public class AdministrationController {
         if (btnViderLogs != null) {
             btnViderLogs.setOnAction(e -> viderLogsAnciens());
         }
+        
+        if (btnPartitionnerLogs != null) {
+            btnPartitionnerLogs.setOnAction(e -> partitionnerLogs());
+        }
     }
     
     /**
      * Charge les logs d'activité
      */
     private void chargerLogs() {
-        List<LogEntry> logs = new ArrayList<>();
-        
         String query = "SELECT la.*, u.nom, u.prenom, u.code FROM logs_activite la " +
                       "LEFT JOIN users u ON la.user_id = u.id " +
                       "ORDER BY la.timestamp DESC LIMIT 1000";
         
-        try (Connection conn = databaseService.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            while (rs.next()) {
-                LogEntry log = new LogEntry();
+        canalLogs.soumettre(() -> lireLogs(query, List.of()),
+            logs -> {
+                tableLogs.setItems(FXCollections.observableArrayList(logs));
                 
-                Timestamp timestamp = rs.getTimestamp("timestamp");
-                if (timestamp != null) {
-                    log.setDate(timestamp.toLocalDateTime().format(DATE_TIME_FORMATTER));
+                if (lblTotalLogs != null) {
+                    lblTotalLogs.setText(logs.size() + " entrées chargées");
                 }
-                
-                String code = rs.getString("code");
-                String nom = rs.getString("nom");
-                String prenom = rs.getString("prenom");
-                log.setUtilisateur(code != null ? code + " - " + prenom + " " + nom : "Système");
-                
-                log.setAction(rs.getString("action"));
-                log.setDetails(rs.getString("details"));
-                log.setIpAddress(rs.getString("ip_address"));
-                
-                String statut = rs.getString("statut");
-                log.setStatut(statut != null ? statut : "info");
-                
-                logs.add(log);
-            }
-            
-            tableLogs.setItems(FXCollections.observableArrayList(logs));
-            
-            if (lblTotalLogs != null) {
-                lblTotalLogs.setText(logs.size() + " entrées chargées");
-            }
-            
-        } catch (SQLException e) {
-            System.err.println("Erreur chargement logs: " + e.getMessage());
-        }
+            },
+            e -> System.err.println("Erreur chargement logs: " + e.getMessage()));
     }
     
     /**
-     * Recherche dans les logs
+     * Lit les entrées de logs_activite (appelé hors du thread JavaFX)
      */
-    private void rechercherLogs() {
+    private List<LogEntry> lireLogs(String query, List<Object> params) throws SQLException {
         List<LogEntry> logs = new ArrayList<>();
         
-        StringBuilder query = new StringBuilder(
-            "SELECT la.*, u.nom, u.prenom, u.code FROM logs_activite la " +
-            "LEFT JOIN users u ON la.user_id = u.id WHERE 1=1");
-        
-        List<Object> params = new ArrayList<>();
-        
-        // Filtre par dates
-        if (dateDebutLogs != null && dateDebutLogs.getValue() != null) {
-            query.append(" AND DATE(la.timestamp) >= ?");
-            params.add(Date.valueOf(dateDebutLogs.getValue()));
-        }
-        
-        if (dateFinLogs != null && dateFinLogs.getValue() != null) {
-            query.append(" AND DATE(la.timestamp) <= ?");
-            params.add(Date.valueOf(dateFinLogs.getValue()));
-        }
-        
-        // Filtre par type d'action
-        if (cmbTypeAction != null && !"Tous".equals(cmbTypeAction.getValue())) {
-            String action = cmbTypeAction.getValue().toLowerCase().replace(" ", "_");
-            query.append(" AND la.action LIKE ?");
-            params.add("%" + action + "%");
-        }
-        
-        // Filtre par recherche textuelle
-        if (txtRechercheLog != null && !txtRechercheLog.getText().trim().isEmpty()) {
-            query.append(" AND (la.details LIKE ? OR u.nom LIKE ? OR u.prenom LIKE ?)");
-            String recherche = "%" + txtRechercheLog.getText().trim() + "%";
-            params.add(recherche);
-            params.add(recherche);
-            params.add(recherche);
-        }
-        
-        query.append(" ORDER BY la.timestamp DESC LIMIT 1000");
-        
         try (Connection conn = databaseService.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             
             for (int i = 0; i < params.size(); i++) {
                 stmt.setObject(i + 1, params.get(i));
@@ -1374,54 +1424,105 @@ public class AdministrationController {
                     logs.add(log);
                 }
             }
-            
-            tableLogs.setItems(FXCollections.observableArrayList(logs));
-            
-            if (lblTotalLogs != null) {
-                lblTotalLogs.setText(logs.size() + " résultats trouvés");
-            }
-            
-            AlertUtils.showInfo(logs.size() + " entrées correspondantes trouvées");
-            
-        } catch (SQLException e) {
-            System.err.println("Erreur recherche logs: " + e.getMessage());
-            AlertUtils.showError("Erreur", "Erreur lors de la recherche dans les logs");
         }
+        
+        return logs;
     }
     
     /**
-     * Exporte les logs vers un fichier CSV
+     * Recherche dans les logs
      */
-    private void exporterLogs() {
-        try {
-            String nomFichier = "logs_export_" + 
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv";
-            
-            File fichier = new File(System.getProperty("user.home") + File.separator + nomFichier);
-            
-            try (java.io.PrintWriter writer = new java.io.PrintWriter(fichier)) {
-                // En-têtes
-                writer.println("Date,Utilisateur,Action,Détails,Adresse IP,Statut");
+    private void rechercherLogs() {
+        List<Object> params = new ArrayList<>();
+        StringBuilder query = new StringBuilder(
+            "SELECT la.*, u.nom, u.prenom, u.code FROM logs_activite la " +
+            "LEFT JOIN users u ON la.user_id = u.id" + ExportLogsService.clauseFiltre(filtreLogs(), params));
+        
+        query.append(" ORDER BY la.timestamp DESC LIMIT 1000");
+        
+        canalLogs.soumettre(() -> lireLogs(query.toString(), params),
+            logs -> {
+                tableLogs.setItems(FXCollections.observableArrayList(logs));
                 
-                // Données
-                for (LogEntry log : tableLogs.getItems()) {
-                    writer.printf("\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\"%n",
-                        log.getDate(),
-                        log.getUtilisateur(),
-                        log.getAction(),
-                        log.getDetails(),
-                        log.getIpAddress(),
-                        log.getStatut());
+                if (lblTotalLogs != null) {
+                    lblTotalLogs.setText(logs.size() + " résultats trouvés");
                 }
-            }
-            
-            showSuccess("✅ Logs exportés avec succès !\n\nFichier: " + fichier.getAbsolutePath());
-            logService.logAction("export_logs", "Export des logs vers " + nomFichier);
-            
-        } catch (Exception e) {
-            System.err.println("Erreur export logs: " + e.getMessage());
-            AlertUtils.showError("Erreur", "Impossible d'exporter les logs");
+                
+                AlertUtils.showInfo(logs.size() + " entrées correspondantes trouvées");
+            },
+            e -> {
+                System.err.println("Erreur recherche logs: " + e.getMessage());
+                AlertUtils.showError("Erreur", "Erreur lors de la recherche dans les logs");
+            });
+    }
+    
+    /**
+     * Exporte en flux tous les logs correspondant aux filtres (CSV ou JSON, gzip)
+     */
+    private void exporterLogs() {
+        ChoiceDialog<String> choix = new ChoiceDialog<>("CSV", "CSV", "JSON (une ligne par entrée)");
+        choix.setTitle("Exporter les logs");
+        choix.setHeaderText("Tous les logs correspondant aux filtres seront exportés (fichier compressé gzip)");
+        choix.setContentText("Format :");
+        
+        String formatChoisi = choix.showAndWait().orElse(null);
+        if (formatChoisi == null) return;
+        
+        ExportLogsService.Format format = formatChoisi.startsWith("CSV")
+            ? ExportLogsService.Format.CSV : ExportLogsService.Format.JSON;
+        String nomFichier = "logs_export_" + 
+            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + format.getExtension();
+        File fichier = new File(System.getProperty("user.home") + File.separator + nomFichier);
+        ExportLogsService.Filtre filtre = filtreLogs();
+        
+        btnExporterLogs.setDisable(true);
+        if (lblTotalLogs != null) {
+            lblTotalLogs.setText("Export en cours…");
         }
+        
+        // Export en flux hors du thread JavaFX ; l'avancement est affiché toutes les 10 000 lignes
+        TachesArrierePlan.executer("administration.export-logs",
+            () -> ExportLogsService.getInstance().exporter(filtre, format, fichier.toPath(),
+                lignes -> Platform.runLater(() -> {
+                    if (lblTotalLogs != null) {
+                        lblTotalLogs.setText(String.format("Export en cours… %,d lignes", lignes));
+                    }
+                })),
+            lignes -> {
+                btnExporterLogs.setDisable(false);
+                if (lblTotalLogs != null) {
+                    lblTotalLogs.setText(String.format("%,d lignes exportées", lignes));
+                }
+                showSuccess("✅ Logs exportés avec succès !\n\n" + String.format("%,d", lignes) +
+                           " lignes\nFichier: " + fichier.getAbsolutePath());
+                logService.logAction("export_logs", "Export de " + lignes + " logs vers " + nomFichier);
+            },
+            e -> {
+                btnExporterLogs.setDisable(false);
+                System.err.println("Erreur export logs: " + e.getMessage());
+                AlertUtils.showError("Erreur", "Impossible d'exporter les logs");
+            });
+    }
+    
+    /**
+     * Critères saisis dans l'onglet des logs (recherche et export)
+     */
+    private ExportLogsService.Filtre filtreLogs() {
+        ExportLogsService.Filtre filtre = new ExportLogsService.Filtre();
+        
+        if (dateDebutLogs != null) {
+            filtre.debut(dateDebutLogs.getValue());
+        }
+        if (dateFinLogs != null) {
+            filtre.fin(dateFinLogs.getValue());
+        }
+        if (cmbTypeAction != null && cmbTypeAction.getValue() != null && !"Tous".equals(cmbTypeAction.getValue())) {
+            filtre.action(cmbTypeAction.getValue().toLowerCase().replace(" ", "_"));
+        }
+        if (txtRechercheLog != null) {
+            filtre.recherche(txtRechercheLog.getText());
+        }
+        return filtre;
     }
     
     /**
@@ -1434,23 +1535,62 @@ public class AdministrationController {
         confirm.setContentText("Cette action supprimera tous les logs de plus de 3 mois.\n\n" +
                               "Voulez-vous continuer ?");
         
-        if (confirm.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
-            try {
-                String query = "DELETE FROM logs_activite WHERE timestamp < DATE_SUB(NOW(), INTERVAL 3 MONTH)";
-                
-                try (Connection conn = databaseService.getConnection();
-                     Statement stmt = conn.createStatement()) {
-                    
-                    int deleted = stmt.executeUpdate(query);
-                    showSuccess(deleted + " entrées supprimées");
-                    logService.logAction("vidage_logs", deleted + " logs supprimés (> 3 mois)");
-                    chargerLogs();
-                }
-                
-            } catch (SQLException e) {
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
+        }
+        
+        btnViderLogs.setDisable(true);
+        
+        // Partitions expirées supprimées, reste par lots : hors du thread JavaFX
+        TachesArrierePlan.executer("administration.purge-logs",
+            () -> RetentionLogsService.getInstance().purger(LocalDateTime.now().minusMonths(3)),
+            deleted -> {
+                btnViderLogs.setDisable(false);
+                showSuccess(deleted + " entrées supprimées");
+                logService.logAction("vidage_logs", deleted + " logs supprimés (> 3 mois)");
+                chargerLogs();
+            },
+            e -> {
+                btnViderLogs.setDisable(false);
+                System.err.println("Erreur vidage logs: " + e.getMessage());
                 AlertUtils.showError("Erreur", "Impossible de vider les logs");
-            }
+            });
+    }
+    
+    /**
+     * Convertit la table des logs en partitions mensuelles (purge instantanée par mois)
+     * Action explicite : la table est copiée et les écritures de logs attendent pendant la conversion.
+     */
+    private void partitionnerLogs() {
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("Confirmation");
+        confirm.setHeaderText("Partitionner les logs par mois");
+        confirm.setContentText("La table des logs va être copiée et réorganisée par mois.\n" +
+                              "Pendant la conversion, l'enregistrement des logs est suspendu sur tous les postes.\n\n" +
+                              "À faire de préférence en dehors des heures d'utilisation. Voulez-vous continuer ?");
+        
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
         }
+        
+        btnPartitionnerLogs.setDisable(true);
+        
+        TachesArrierePlan.executer("administration.partitions-logs",
+            () -> RetentionLogsService.getInstance().convertirEnPartitions(),
+            lignes -> {
+                btnPartitionnerLogs.setDisable(false);
+                if (lignes > 0) {
+                    showSuccess("Logs partitionnés par mois (" + lignes + " entrées converties)");
+                    logService.logAction("partitionnement_logs", lignes + " logs convertis en partitions mensuelles");
+                } else {
+                    showSuccess("Les logs sont déjà partitionnés par mois");
+                }
+            },
+            e -> {
+                btnPartitionnerLogs.setDisable(false);
+                System.err.println("Erreur partitionnement logs: " + e.getMessage());
+                AlertUtils.showError("Erreur", "Impossible de partitionner les logs :\n" + e.getMessage());
+            });
     }
     
     // ==================== GESTION DES CONNEXIONS ====================
@@ -1553,25 +1693,17 @@ public class AdministrationController {
      */
     private void chargerStatistiquesConnexions() {
         try {
-            String query = "SELECT " +
-                          "SUM(CASE WHEN action = 'connexion' THEN 1 ELSE 0 END) as reussies, " +
-                          "SUM(CASE WHEN action = 'tentative_connexion' THEN 1 ELSE 0 END) as echouees " +
-                          "FROM logs_activite " +
-                          "WHERE action IN ('connexion', 'tentative_connexion') " +
-                          "AND DATE(timestamp) = CURDATE()";
+            // Compteurs du jour pré-agrégés : deux lignes lues quel que soit le volume de logs
+            CompteursActiviteService compteurs = CompteursActiviteService.getInstance();
+            LocalDate aujourdhui = LocalDate.now();
             
-            try (Connection conn = databaseService.getConnection();
-                 Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                
-                if (rs.next()) {
-                    if (lblConnexionsReussies != null) {
-                        lblConnexionsReussies.setText(String.valueOf(rs.getInt("reussies")));
-                    }
-                    if (lblConnexionsEchouees != null) {
-                        lblConnexionsEchouees.setText(String.valueOf(rs.getInt("echouees")));
-                    }
-                }
+            if (lblConnexionsReussies != null) {
+                lblConnexionsReussies.setText(String.valueOf(
+                    compteurs.getJour(CompteursActiviteService.logs("connexion"), aujourdhui)));
+            }
+            if (lblConnexionsEchouees != null) {
+                lblConnexionsEchouees.setText(String.valueOf(
+                    compteurs.getJour(CompteursActiviteService.logs("tentative_connexion"), aujourdhui)));
             }
             
         } catch (SQLException e) {
@@ -1743,13 +1875,10 @@ public class AdministrationController {
                 }
             }
             
-            // Total documents
-            query = "SELECT COUNT(*) as total FROM documents WHERE statut != 'supprime'";
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(query)) {
-                if (rs.next() && lblTotalDocuments != null) {
-                    lblTotalDocuments.setText(String.format("%,d", rs.getInt("total")));
-                }
+            // Total documents (compteur pré-agrégé)
+            if (lblTotalDocuments != null) {
+                lblTotalDocuments.setText(String.format("%,d",
+                    CompteursActiviteService.getInstance().getTotal(CompteursActiviteService.DOCUMENTS)));
             }
             
             // Total dossiers
@@ -1776,6 +1905,34 @@ public class AdministrationController {
         }
     }
     
+    // ==================== PERFORMANCES BASE DE DONNÉES ====================
+    
+    /**
+     * Initialise l'onglet des métriques SQL (latences, pool, requêtes lentes)
+     */
+    private void initialiserOngletPerformances() {
+        if (btnActualiserMetriques != null) {
+            btnActualiserMetriques.setOnAction(e -> chargerMetriquesBase());
+        }
+        
+        if (btnReinitialiserMetriques != null) {
+            btnReinitialiserMetriques.setOnAction(e -> {
+                MetriquesBaseService.getInstance().reinitialiser();
+                chargerMetriquesBase();
+            });
+        }
+        
+        chargerMetriquesBase();
+    }
+    
+    private void chargerMetriquesBase() {
+        if (txtMetriquesBase == null) return;
+        txtMetriquesBase.setText(MetriquesBaseService.getInstance().getInstantane().formater(50)
+                + "\n" + CacheEntites.rapport()
+                + "\n" + NetworkService.getInstance().rapportEmission()
+                + "\n" + TachesArrierePlan.rapport());
+    }
+    
     // ==================== CLASSES INTERNES ====================
     
     /**
@@ -11,7 +11,9 @@ import application.services.CourrierService;
 import application.services.DocumentService;
 import application.services.LogService;
 import application.services.NotificationCourrierService;
+import application.services.SynchronisationService.Changements;
 import application.utils.SessionManager;
+import application.utils.TachesArrierePlan;
 
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -24,7 +26,11 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.Timer;
@@ -40,7 +46,7 @@ import java.util.concurrent.TimeUnit;
 /**
  * Contrôleur pour la gestion des courriers avec système de notifications
  */
-public class CourrierController {
+public class CourrierController implements VueSynchronisable {
     
     // ==================== COMPOSANTS FXML - GÉNÉRAL ====================
     
@@ -110,6 +116,12 @@ public class CourrierController {
     
     private ScheduledExecutorService scheduler;
     
+    // Lectures hors du thread JavaFX : chaque demande remplace la précédente du même canal
+    private final TachesArrierePlan.Canal canalCourriers = TachesArrierePlan.canal("courriers.liste");
+    private final TachesArrierePlan.Canal canalNotifications = TachesArrierePlan.canal("courriers.notifications");
+    private final TachesArrierePlan.Canal canalBadge = TachesArrierePlan.canal("courriers.badge");
+    private final TachesArrierePlan.Canal canalStatistiques = TachesArrierePlan.canal("courriers.statistiques");
+    
     private Timer refreshTimer;
     
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
@@ -140,8 +152,6 @@ public class CourrierController {
         mettreAJourStatistiques();
         afficherBadgeNotifications();
         
-        demarrerRafraichissementAutomatique();
-        
         // Rafraîchissement automatique toutes les 30 secondes
         demarrerRafraichissementAutomatique();
         
@@ -406,20 +416,22 @@ public class CourrierController {
      * Charge tous les courriers
      */
     private void chargerCourriers() {
-        try {
-            List<Courrier> listeCourriers = courrierService.rechercherCourriers("");
-            
-            courriers.clear();
-            courriers.addAll(listeCourriers);
-            
-            appliquerFiltres();
-            
-            System.out.println("✓ " + listeCourriers.size() + " courrier(s) chargé(s)");
-            
-        } catch (Exception e) {
-            System.err.println("Erreur chargement courriers: " + e.getMessage());
-            AlertUtils.showError("Erreur lors du chargement des courriers");
-        }
+        canalCourriers.soumettre(() -> courrierService.rechercherCourriers(""),
+            listeCourriers -> {
+                remplacerCourriers(listeCourriers);
+                System.out.println("✓ " + listeCourriers.size() + " courrier(s) chargé(s)");
+            },
+            e -> {
+                System.err.println("Erreur chargement courriers: " + e.getMessage());
+                AlertUtils.showError("Erreur lors du chargement des courriers");
+            });
+    }
+    
+    private void remplacerCourriers(List<Courrier> listeCourriers) {
+        courriers.clear();
+        courriers.addAll(listeCourriers);
+        
+        appliquerFiltres();
     }
     
     /**
@@ -429,41 +441,42 @@ public class CourrierController {
         User currentUser = getCurrentUser();
         if (currentUser == null) return;
         
-        try {
-            boolean seulementNonLus = radioNonLus != null && radioNonLus.isSelected();
-            
-            // Utiliser la nouvelle méthode qui retourne les infos complètes
-            List<CourrierNotificationInfo> infosNotifications = 
-                notificationService.getCourriersNotifiesAvecInfos(currentUser.getId(), seulementNonLus);
-            
-            // Créer les objets CourrierNotification pour l'affichage
-            notifications.clear();
-            
-            for (CourrierNotificationInfo info : infosNotifications) {
-                CourrierNotification notif = new CourrierNotification(info.getCourrier());
-                notif.setLu(info.isLu());
-                notif.setDateNotification(info.getDateNotification());
-                notif.setDateLecture(info.getDateLecture());
-                
-                notifications.add(notif);
-            }
-            
-            tableauNotifications.setItems(notifications);
+        boolean seulementNonLus = radioNonLus != null && radioNonLus.isSelected();
+        
+        // Utiliser la nouvelle méthode qui retourne les infos complètes
+        canalNotifications.soumettre(
+            () -> notificationService.getCourriersNotifiesAvecInfos(currentUser.getId(), seulementNonLus),
+            infosNotifications -> afficherCourriersNotifies(infosNotifications, seulementNonLus),
+            e -> {
+                System.err.println("Erreur chargement courriers notifiés: " + e.getMessage());
+                e.printStackTrace();
+            });
+    }
+    
+    private void afficherCourriersNotifies(List<CourrierNotificationInfo> infosNotifications, boolean seulementNonLus) {
+        // Créer les objets CourrierNotification pour l'affichage
+        notifications.clear();
+        
+        for (CourrierNotificationInfo info : infosNotifications) {
+            CourrierNotification notif = new CourrierNotification(info.getCourrier());
+            notif.setLu(info.isLu());
+            notif.setDateNotification(info.getDateNotification());
+            notif.setDateLecture(info.getDateLecture());
             
-            if (labelInfoNotifications != null) {
-                String texte = notifications.size() + " notification(s)";
-                if (seulementNonLus) {
-                    texte += " non lue(s)";
-                }
-                labelInfoNotifications.setText(texte);
+            notifications.add(notif);
+        }
+        
+        tableauNotifications.setItems(notifications);
+        
+        if (labelInfoNotifications != null) {
+            String texte = notifications.size() + " notification(s)";
+            if (seulementNonLus) {
+                texte += " non lue(s)";
             }
-            
-            System.out.println("✓ " + infosNotifications.size() + " courrier(s) notifié(s) chargé(s)");
-            
-        } catch (Exception e) {
-            System.err.println("Erreur chargement courriers notifiés: " + e.getMessage());
-            e.printStackTrace();
+            labelInfoNotifications.setText(texte);
         }
+        
+        System.out.println("✓ " + infosNotifications.size() + " courrier(s) notifié(s) chargé(s)");
     }
     
     /**
@@ -473,29 +486,28 @@ public class CourrierController {
         User currentUser = getCurrentUser();
         if (currentUser == null) return;
         
-        try {
-            int nbNonLus = notificationService.compterCourriersNonLus(currentUser.getId());
-            
-            if (badgeNotifications != null && labelBadgeNotifications != null) {
-                if (nbNonLus > 0) {
-                    badgeNotifications.setVisible(true);
-                    badgeNotifications.setManaged(true);
-                    labelBadgeNotifications.setText(String.valueOf(nbNonLus));
-                    
-                    // Animation clic sur le badge
-                    badgeNotifications.setOnMouseClicked(e -> {
-                        tabPaneCourrier.getSelectionModel().select(tabNotifications);
-                    });
-                    
-                    System.out.println("🔔 " + nbNonLus + " nouveau(x) courrier(s) non lu(s)");
-                } else {
-                    badgeNotifications.setVisible(false);
-                    badgeNotifications.setManaged(false);
-                }
+        canalBadge.soumettre(() -> notificationService.compterCourriersNonLus(currentUser.getId()),
+            this::afficherBadge,
+            e -> System.err.println("Erreur affichage badge: " + e.getMessage()));
+    }
+    
+    private void afficherBadge(int nbNonLus) {
+        if (badgeNotifications != null && labelBadgeNotifications != null) {
+            if (nbNonLus > 0) {
+                badgeNotifications.setVisible(true);
+                badgeNotifications.setManaged(true);
+                labelBadgeNotifications.setText(String.valueOf(nbNonLus));
+                
+                // Animation clic sur le badge
+                badgeNotifications.setOnMouseClicked(e -> {
+                    tabPaneCourrier.getSelectionModel().select(tabNotifications);
+                });
+                
+                System.out.println("🔔 " + nbNonLus + " nouveau(x) courrier(s) non lu(s)");
+            } else {
+                badgeNotifications.setVisible(false);
+                badgeNotifications.setManaged(false);
             }
-            
-        } catch (Exception e) {
-            System.err.println("Erreur affichage badge: " + e.getMessage());
         }
     }
     
@@ -530,20 +542,19 @@ public class CourrierController {
      * Met à jour les statistiques
      */
     private void mettreAJourStatistiques() {
-        try {
-            int nouveaux = courrierService.getCourriersByStatut(StatutCourrier.NOUVEAU).size();
-            int enCours = courrierService.getCourriersByStatut(StatutCourrier.EN_COURS).size();
-            int traites = courrierService.getCourriersByStatut(StatutCourrier.TRAITE).size();
-            int archives = courrierService.getCourriersByStatut(StatutCourrier.ARCHIVE).size();
-            
-            if (statNouveaux != null) statNouveaux.setText(String.valueOf(nouveaux));
-            if (statEnCours != null) statEnCours.setText(String.valueOf(enCours));
-            if (statTraites != null) statTraites.setText(String.valueOf(traites));
-            if (statArchives != null) statArchives.setText(String.valueOf(archives));
-            
-        } catch (Exception e) {
-            System.err.println("Erreur mise à jour statistiques: " + e.getMessage());
-        }
+        canalStatistiques.soumettre(() -> new int[] {
+                courrierService.getCourriersByStatut(StatutCourrier.NOUVEAU).size(),
+                courrierService.getCourriersByStatut(StatutCourrier.EN_COURS).size(),
+                courrierService.getCourriersByStatut(StatutCourrier.TRAITE).size(),
+                courrierService.getCourriersByStatut(StatutCourrier.ARCHIVE).size()
+            },
+            nombres -> {
+                if (statNouveaux != null) statNouveaux.setText(String.valueOf(nombres[0]));
+                if (statEnCours != null) statEnCours.setText(String.valueOf(nombres[1]));
+                if (statTraites != null) statTraites.setText(String.valueOf(nombres[2]));
+                if (statArchives != null) statArchives.setText(String.valueOf(nombres[3]));
+            },
+            e -> System.err.println("Erreur mise à jour statistiques: " + e.getMessage()));
     }
     
     // ==================== ACTIONS ====================
@@ -1008,20 +1019,16 @@ public class CourrierController {
             return;
         }
         
-        try {
-            List<Courrier> resultats = courrierService.rechercherCourriers(recherche);
-            
-            courriers.clear();
-            courriers.addAll(resultats);
-            
-            appliquerFiltres();
-            
-            AlertUtils.showInfo(resultats.size() + " courrier(s) trouvé(s)");
-            
-        } catch (Exception e) {
-            System.err.println("Erreur recherche: " + e.getMessage());
-            AlertUtils.showError("Erreur lors de la recherche");
-        }
+        // Même canal que le chargement complet : le dernier demandé l'emporte
+        canalCourriers.soumettre(() -> courrierService.rechercherCourriers(recherche),
+            resultats -> {
+                remplacerCourriers(resultats);
+                AlertUtils.showInfo(resultats.size() + " courrier(s) trouvé(s)");
+            },
+            e -> {
+                System.err.println("Erreur recherche: " + e.getMessage());
+                AlertUtils.showError("Erreur lors de la recherche");
+            });
     }
     
     @FXML
@@ -1033,10 +1040,56 @@ public class CourrierController {
         AlertUtils.showInfo("Liste actualisée");
     }
     
+    /**
+     * Fusionne les courriers modifiés sur d'autres postes sans recharger la vue
+     * Pendant une recherche, seules les lignes déjà affichées sont mises à jour
+     */
+    @Override
+    public void appliquerChangements(Changements changements) {
+        if (changements.isNotificationsModifiees()) {
+            afficherBadgeNotifications();
+            if (tabPaneCourrier != null && tabPaneCourrier.getSelectionModel().getSelectedItem() == tabNotifications) {
+                chargerCourriersNotifies();
+            }
+        }
+        
+        if (changements.getCourriers().isEmpty()) return;
+        
+        boolean rechercheActive = champRecherche != null && !champRecherche.getText().trim().isEmpty();
+        
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < courriers.size(); i++) {
+            positions.put(courriers.get(i).getId(), i);
+        }
+        
+        List<Courrier> nouveaux = new ArrayList<>();
+        for (Courrier courrier : changements.getCourriers()) {
+            Integer position = positions.get(courrier.getId());
+            if (position != null) {
+                courriers.set(position, courrier);
+            } else if (!rechercheActive) {
+                nouveaux.add(courrier);
+            }
+        }
+        
+        if (!nouveaux.isEmpty()) {
+            Collections.reverse(nouveaux);
+            courriers.addAll(0, nouveaux);
+        }
+        
+        appliquerFiltres();
+        mettreAJourStatistiques();
+        afficherBadgeNotifications();
+    }
+    
     public void cleanup() {
         if (scheduler != null && !scheduler.isShutdown()) {
             scheduler.shutdownNow();
         }
+        canalCourriers.annuler();
+        canalNotifications.annuler();
+        canalBadge.annuler();
+        canalStatistiques.annuler();
     }
     
     // ==================== MÉTHODES UTILITAIRES ====================
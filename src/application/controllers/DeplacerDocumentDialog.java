@@ -6,6 +6,7 @@ import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
+import application.models.ArborescenceDossiers;
 import application.models.Document;
 import application.models.Dossier;
 import application.services.DossierService;
@@ -161,7 +162,7 @@ public class DeplacerDocumentDialog extends Dialog<Dossier> {
      */
     private void chargerDossiers() {
         try {
-            List<Dossier> dossiers = dossierService.getAllDossiers();
+            List<Dossier> dossiers = dossierService.getArborescence().getTous();
             
             // Filtrer les dossiers système non pertinents et le dossier actuel
             dossiers = dossiers.stream()
@@ -182,16 +183,16 @@ public class DeplacerDocumentDialog extends Dialog<Dossier> {
      */
     private void construireArborescence() {
         try {
-            List<Dossier> dossiers = dossierService.getAllDossiers();
+            ArborescenceDossiers arborescence = dossierService.getArborescence();
             Dossier racine = new Dossier();
             racine.setId(0);
             racine.setNomDossier("Tous les dossiers");
             racine.setIcone("🏢");
             
-            TreeItem<Dossier> rootItem = new TreeItem<>(racine);
+            // Dossiers système et dossier actuel exclus (avec leur sous-arbre)
+            TreeItem<Dossier> rootItem = new DossierTreeItem(racine, arborescence, this::estDestinationPossible);
             rootItem.setExpanded(true);
             
-            construireArborescenceRecursive(rootItem, null, dossiers);
             arborescenceDossiers.setRoot(rootItem);
             
             arborescenceDossiers.setCellFactory(tv -> new TreeCell<Dossier>() {
@@ -215,24 +216,11 @@ public class DeplacerDocumentDialog extends Dialog<Dossier> {
         }
     }
     
-    private void construireArborescenceRecursive(TreeItem<Dossier> parent, Integer parentId, List<Dossier> dossiers) {
-        for (Dossier d : dossiers) {
-            if (d.getCodeDossier().equals("ROOT") || d.getCodeDossier().equals("CORBEILLE")) {
-                continue;
-            }
-            
-            if (document.getDossierId() != null && d.getId() == document.getDossierId()) {
-                continue;
-            }
-            
-            boolean estEnfant = (parentId == null && d.getDossierParentId() == null) ||
-                               (parentId != null && d.getDossierParentId() != null && d.getDossierParentId().equals(parentId));
-            if (estEnfant) {
-                TreeItem<Dossier> item = new TreeItem<>(d);
-                parent.getChildren().add(item);
-                construireArborescenceRecursive(item, d.getId(), dossiers);
-            }
+    private boolean estDestinationPossible(Dossier d) {
+        if (d.getCodeDossier().equals("ROOT") || d.getCodeDossier().equals("CORBEILLE")) {
+            return false;
         }
+        return document.getDossierId() == null || d.getId() != document.getDossierId();
     }
     
     /**
@@ -226,7 +226,7 @@ public class DocumentFormDialog extends Dialog<Document> {
     private void loadDossiers() {
         try {
             DossierService dossierService = DossierService.getInstance();
-            List<Dossier> dossiers = dossierService.getAllDossiers();
+            List<Dossier> dossiers = dossierService.getArborescence().getTous();
             
             // Filtrer les dossiers système non pertinents
             dossiers = dossiers.stream()
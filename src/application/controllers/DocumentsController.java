@@ -1,6 +1,8 @@
 package application.controllers;
 
+import application.models.ArborescenceDossiers;
 import application.models.Document;
+import application.models.PageDocuments;
 import application.models.Dossier;
 import application.models.PartageInfo;
 import application.models.User;
@@ -8,13 +10,18 @@ import application.services.DocumentService;
 import application.services.DossierService;
 import application.services.NetworkStorageService;
 import application.utils.SessionManager;
+import application.utils.TachesArrierePlan;
 import application.utils.AlertUtils;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
+import javafx.scene.Node;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
@@ -30,13 +37,20 @@ import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 
 import application.controllers.DeplacerDocumentDialog;
 import application.controllers.PartagerDocumentDialog;
 import application.controllers.DossierFormDialog;
 import application.services.LogService;
+import application.services.SynchronisationService.Changements;
 import application.utils.IconeUtils;
 import application.services.ConfidentialCodeService;
 import application.services.ConfidentialCodeService.ActionType;
@@ -48,7 +62,7 @@ import application.services.ConfidentialCodeService.ActionType;
  * - Barre de recherche de dossiers  
  * - Modification du nom d'un dossier via menu contextuel
  */
-public class DocumentsController {
+public class DocumentsController implements VueSynchronisable {
     
     // ==================== COMPOSANTS FXML ====================
     
@@ -122,6 +136,23 @@ public class DocumentsController {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
     private ConfidentialCodeService confidentialCodeService;
     private static final String DOSSIER_CONFIDENTIEL_CODE = "CONFIDENTIEL";
+    private boolean selectionArbreConfiguree = false;
+    
+    // Pagination à curseur du tableau des documents
+    private static final double SEUIL_PAGE_SUIVANTE = 0.85;
+    private ScrollBar barreDefilementDocuments;
+    private PageDocuments.Curseur curseurDocuments;
+    private Integer dossierListe;
+    private boolean dernierePageAtteinte = true;
+    private boolean chargementPageEnCours = false;
+    
+    // Lectures hors du thread JavaFX : chaque demande remplace la précédente du même canal
+    private static final long DELAI_SAISIE_MS = 250;
+    private final TachesArrierePlan.Canal canalArborescence = TachesArrierePlan.canal("documents.arborescence");
+    private final TachesArrierePlan.Canal canalRechercheDossiers = TachesArrierePlan.canal("documents.recherche-dossiers");
+    private final TachesArrierePlan.Canal canalRechercheDocuments = TachesArrierePlan.canal("documents.recherche");
+    private final TachesArrierePlan.Canal canalPages = TachesArrierePlan.canal("documents.page");
+    private final TachesArrierePlan.Canal canalComptage = TachesArrierePlan.canal("documents.comptage");
     
     // ==================== INITIALISATION ====================
     
@@ -136,6 +167,7 @@ public class DocumentsController {
         confidentialCodeService = ConfidentialCodeService.getInstance();
         
         configurerColonnesTableau();
+        configurerChargementAuDefilement();
         configurerSelectionDocument();
         configurerFilAriane();
         configurerBoutons();
@@ -170,40 +202,44 @@ public class DocumentsController {
     }
     
     /**
-     * Recherche de dossiers en temps réel
+     * Recherche de dossiers en temps réel (lancée après une pause de saisie)
      */
     private void rechercherDossiers(String recherche) {
         if (recherche == null || recherche.trim().isEmpty()) {
             // Recharger l'arborescence complète
+            canalRechercheDossiers.annuler();
             chargerArborescence();
             return;
         }
         
-        try {
-            List<Dossier> resultats = dossierService.rechercherDossiers(recherche);
-            
-            // Construire une arborescence filtrée
-            Dossier racine = new Dossier();
-            racine.setId(0);
-            racine.setNomDossier("📁 Résultats (" + resultats.size() + ")");
-            racine.setIcone("🔍");
-            
-            TreeItem<Dossier> rootItem = new TreeItem<>(racine);
-            rootItem.setExpanded(true);
-            
-            // Ajouter les résultats comme enfants directs
-            for (Dossier d : resultats) {
-                TreeItem<Dossier> item = new TreeItem<>(d);
-                rootItem.getChildren().add(item);
-            }
-            
-            arborescenceDossiers.setRoot(rootItem);
-            
-            System.out.println("🔍 Recherche dossiers: " + resultats.size() + " résultat(s)");
-            
-        } catch (Exception e) {
-            System.err.println("Erreur recherche dossiers: " + e.getMessage());
+        canalRechercheDossiers.soumettreDiffere(DELAI_SAISIE_MS,
+            () -> dossierService.rechercherDossiers(recherche),
+            this::afficherResultatsDossiers,
+            e -> System.err.println("Erreur recherche dossiers: " + e.getMessage()));
+    }
+    
+    private void afficherResultatsDossiers(List<Dossier> resultats) {
+        // L'arborescence complète demandée avant la recherche ne doit pas la remplacer
+        canalArborescence.annuler();
+        
+        // Construire une arborescence filtrée
+        Dossier racine = new Dossier();
+        racine.setId(0);
+        racine.setNomDossier("📁 Résultats (" + resultats.size() + ")");
+        racine.setIcone("🔍");
+        
+        TreeItem<Dossier> rootItem = new TreeItem<>(racine);
+        rootItem.setExpanded(true);
+        
+        // Ajouter les résultats comme enfants directs
+        for (Dossier d : resultats) {
+            TreeItem<Dossier> item = new TreeItem<>(d);
+            rootItem.getChildren().add(item);
         }
+        
+        arborescenceDossiers.setRoot(rootItem);
+        
+        System.out.println("🔍 Recherche dossiers: " + resultats.size() + " résultat(s)");
     }
     
     /**
@@ -222,32 +258,34 @@ public class DocumentsController {
     
     /**
      * Recherche de documents en temps réel
+     * Lancée après une pause de saisie ; une frappe plus récente annule la recherche précédente.
      */
     private void rechercherDocuments(String recherche) {
         if (recherche == null || recherche.trim().isEmpty()) {
             // Recharger les documents du dossier actuel ou tous
             if (dossierActuel != null && dossierActuel.getId() > 0) {
-                List<Document> docs = documentService.getDocumentsByDossier(dossierActuel.getId());
-                tableauDocuments.setItems(FXCollections.observableArrayList(docs));
+                afficherListePaginee(dossierActuel.getId());
             } else {
                 chargerDocuments();
             }
             return;
         }
         
-        try {
-            List<Document> resultats = documentService.rechercherDocuments(recherche);
-            tableauDocuments.setItems(FXCollections.observableArrayList(resultats));
-            
-            if (labelNombreDocuments != null) {
-                labelNombreDocuments.setText("(" + resultats.size() + " résultat(s))");
-            }
-            
-            System.out.println("🔍 Recherche documents: " + resultats.size() + " résultat(s)");
-            
-        } catch (Exception e) {
-            System.err.println("Erreur recherche documents: " + e.getMessage());
+        canalRechercheDocuments.soumettreDiffere(DELAI_SAISIE_MS,
+            () -> documentService.rechercherDocuments(recherche),
+            this::afficherResultatsDocuments,
+            e -> System.err.println("Erreur recherche documents: " + e.getMessage()));
+    }
+    
+    private void afficherResultatsDocuments(List<Document> resultats) {
+        arreterPagination();
+        tableauDocuments.setItems(FXCollections.observableArrayList(resultats));
+        
+        if (labelNombreDocuments != null) {
+            labelNombreDocuments.setText("(" + resultats.size() + " résultat(s))");
         }
+        
+        System.out.println("🔍 Recherche documents: " + resultats.size() + " résultat(s)");
     }
     
     /**
@@ -527,6 +565,13 @@ public class DocumentsController {
     private void construireCheminDossier(Dossier dossier) {
         if (dossier == null || dossier.getId() == 0) return;
         
+        // Chemin résolu en mémoire depuis l'arborescence partagée
+        List<Dossier> chemin = dossierService.getArborescence().getChemin(dossier.getId());
+        if (!chemin.isEmpty()) {
+            cheminDossiers.addAll(chemin);
+            return;
+        }
+        
         if (dossier.getDossierParentId() != null && dossier.getDossierParentId() > 0) {
             Dossier parent = dossierService.getDossierById(dossier.getDossierParentId());
             if (parent != null) {
@@ -1052,24 +1097,36 @@ public class DocumentsController {
     
     /**
      * Charge l'arborescence des dossiers
+     * L'arborescence partagée de DossierService est lue hors du thread JavaFX et indexée en un
+     * passage ; les nœuds ne créent leurs enfants qu'au dépliage. Les dossiers dépliés sont conservés.
      */
     private void chargerArborescence() {
         if (arborescenceDossiers == null) return;
         
+        canalArborescence.soumettre(dossierService::getArborescence, this::afficherArborescence,
+            e -> System.err.println("Erreur arborescence: " + e.getMessage()));
+    }
+    
+    private void afficherArborescence(ArborescenceDossiers arborescence) {
         try {
-            List<Dossier> dossiers = dossierService.getAllDossiers();
-            tousLesDossiers = new ArrayList<>(dossiers); // Conserver pour la recherche
+            // Relevés au moment de l'affichage : l'utilisateur a pu déplier pendant la lecture
+            Set<Integer> deplies = new HashSet<>();
+            if (arborescenceDossiers.getRoot() != null) {
+                collecterDeplies(arborescenceDossiers.getRoot(), deplies);
+            }
+            
+            tousLesDossiers = new ArrayList<>(arborescence.getTous()); // Conserver pour la recherche
             
             Dossier racine = new Dossier();
             racine.setId(0);
             racine.setNomDossier("📁 Racine");
             racine.setIcone("📁");
             
-            TreeItem<Dossier> rootItem = new TreeItem<>(racine);
+            TreeItem<Dossier> rootItem = new DossierTreeItem(racine, arborescence);
             rootItem.setExpanded(true);
             
-            construireArborescenceRecursive(rootItem, null, dossiers);
             arborescenceDossiers.setRoot(rootItem);
+            redeplier(rootItem, deplies);
             
             arborescenceDossiers.setCellFactory(tv -> new TreeCell<Dossier>() {
                 @Override
@@ -1078,31 +1135,48 @@ public class DocumentsController {
                     if (empty || item == null) {
                         setText(null);
                     } else {
-                        setText(IconeUtils.formatterNomDossier(item));
+                        // Nombre de documents du sous-arbre, précalculé
+                        int nombre = item.getId() > 0 ? arborescence.getNombreDocumentsSousArbre(item.getId()) : 0;
+                        setText(IconeUtils.formatterNomDossier(item) + (nombre > 0 ? " (" + nombre + ")" : ""));
                     }
                 }
             });
             
-            arborescenceDossiers.getSelectionModel().selectedItemProperty().addListener(
-                (obs, old, newVal) -> {
-                    if (newVal != null && newVal.getValue() != null) {
-                        selectionnerDossier(newVal.getValue());
+            // Un seul écouteur, même si l'arborescence est reconstruite par la synchronisation
+            if (!selectionArbreConfiguree) {
+                arborescenceDossiers.getSelectionModel().selectedItemProperty().addListener(
+                    (obs, old, newVal) -> {
+                        if (newVal != null && newVal.getValue() != null) {
+                            selectionnerDossier(newVal.getValue());
+                        }
                     }
-                }
-            );
+                );
+                selectionArbreConfiguree = true;
+            }
         } catch (Exception e) {
             System.err.println("Erreur arborescence: " + e.getMessage());
         }
     }
     
-    private void construireArborescenceRecursive(TreeItem<Dossier> parent, Integer parentId, List<Dossier> dossiers) {
-        for (Dossier d : dossiers) {
-            boolean estEnfant = (parentId == null && d.getDossierParentId() == null) ||
-                               (parentId != null && d.getDossierParentId() != null && d.getDossierParentId().equals(parentId));
-            if (estEnfant) {
-                TreeItem<Dossier> item = new TreeItem<>(d);
-                parent.getChildren().add(item);
-                construireArborescenceRecursive(item, d.getId(), dossiers);
+    /**
+     * Relève les dossiers dépliés, sans charger les nœuds jamais ouverts
+     */
+    private void collecterDeplies(TreeItem<Dossier> item, Set<Integer> deplies) {
+        if (!item.isExpanded()) return;
+        if (item.getValue() != null) {
+            deplies.add(item.getValue().getId());
+        }
+        if (item instanceof DossierTreeItem && !((DossierTreeItem) item).isEnfantsCharges()) return;
+        for (TreeItem<Dossier> enfant : item.getChildren()) {
+            collecterDeplies(enfant, deplies);
+        }
+    }
+    
+    private void redeplier(TreeItem<Dossier> item, Set<Integer> deplies) {
+        for (TreeItem<Dossier> enfant : item.getChildren()) {
+            if (enfant.getValue() != null && deplies.contains(enfant.getValue().getId())) {
+                enfant.setExpanded(true);
+                redeplier(enfant, deplies);
             }
         }
     }
@@ -1141,13 +1215,7 @@ public class DocumentsController {
         }
         
         if (dossier.getId() > 0) {
-            List<Document> docs = documentService.getDocumentsByDossier(dossier.getId());
-            if (tableauDocuments != null) {
-                tableauDocuments.setItems(FXCollections.observableArrayList(docs));
-            }
-            if (labelNombreDocuments != null) {
-                labelNombreDocuments.setText("(" + docs.size() + " documents)");
-            }
+            afficherListePaginee(dossier.getId());
         }
     }
     
@@ -1155,12 +1223,233 @@ public class DocumentsController {
      * Charge tous les documents
      */
     private void chargerDocuments() {
-        try {
-            if (tableauDocuments != null) {
-                tableauDocuments.setItems(FXCollections.observableArrayList(documentService.getAllDocuments()));
+        afficherListePaginee(null);
+    }
+    
+    // ==================== PAGINATION DU TABLEAU ====================
+    
+    /**
+     * Repart de la première page pour un dossier (ou tous les documents si null)
+     * Les pages suivantes sont lues au défilement, le total est compté en arrière-plan.
+     */
+    private void afficherListePaginee(Integer dossierId) {
+        if (tableauDocuments == null) return;
+        
+        // Une recherche encore en cours ne doit pas remplacer cette liste
+        canalRechercheDocuments.annuler();
+        canalPages.annuler();
+        dossierListe = dossierId;
+        curseurDocuments = null;
+        dernierePageAtteinte = false;
+        chargementPageEnCours = false;
+        
+        tableauDocuments.setItems(FXCollections.observableArrayList());
+        chargerPageSuivante();
+        compterDocumentsEnArrierePlan();
+    }
+    
+    /**
+     * Abandonne la liste paginée en cours (résultats de recherche affichés à la place)
+     */
+    private void arreterPagination() {
+        canalPages.annuler();
+        canalComptage.annuler();
+        dernierePageAtteinte = true;
+        chargementPageEnCours = false;
+    }
+    
+    /**
+     * Lit la page suivante hors du thread JavaFX puis l'ajoute au tableau
+     * Une page de la liste précédente (canal annulé par un changement de liste) est ignorée.
+     */
+    private void chargerPageSuivante() {
+        if (chargementPageEnCours || dernierePageAtteinte) return;
+        chargementPageEnCours = true;
+        
+        final Integer dossierId = dossierListe;
+        final PageDocuments.Curseur curseur = curseurDocuments;
+        final int taillePage = documentService.getTaillePage();
+        
+        canalPages.soumettre(() -> documentService.getPageDocuments(dossierId, curseur, taillePage),
+            this::ajouterPage,
+            e -> {
+                System.err.println("Erreur chargement page de documents: " + e.getMessage());
+                chargementPageEnCours = false;
+            });
+    }
+    
+    private void ajouterPage(PageDocuments page) {
+        ObservableList<Document> lignes = tableauDocuments.getItems();
+        
+        // Un document modifié pendant le défilement a pu être ajouté en tête par la synchronisation
+        Set<Integer> presents = new HashSet<>();
+        for (Document doc : lignes) {
+            presents.add(doc.getId());
+        }
+        List<Document> nouveaux = new ArrayList<>(page.getDocuments().size());
+        for (Document doc : page.getDocuments()) {
+            if (presents.add(doc.getId())) {
+                nouveaux.add(doc);
             }
-        } catch (Exception e) {
-            System.err.println("Erreur: " + e.getMessage());
+        }
+        lignes.addAll(nouveaux);
+        
+        curseurDocuments = page.getCurseurSuivant();
+        dernierePageAtteinte = page.isDerniere();
+        chargementPageEnCours = false;
+        
+        // Tant que le tableau ne défile pas, il n'y aura pas d'événement de défilement : compléter
+        if (!dernierePageAtteinte && (barreDefilementDocuments == null || !barreDefilementDocuments.isVisible())) {
+            chargerPageSuivante();
+        }
+    }
+    
+    /**
+     * Compte les documents de la liste affichée sans bloquer l'interface
+     */
+    private void compterDocumentsEnArrierePlan() {
+        if (labelNombreDocuments == null) return;
+        
+        final Integer dossierId = dossierListe;
+        
+        canalComptage.soumettre(() -> documentService.compterDocuments(dossierId),
+            total -> labelNombreDocuments.setText("(" + total + " documents)"),
+            e -> System.err.println("Erreur comptage documents: " + e.getMessage()));
+    }
+    
+    /**
+     * Charge la page suivante quand la barre de défilement approche du bas du tableau
+     * La barre n'existe qu'une fois le skin du tableau créé.
+     */
+    private void configurerChargementAuDefilement() {
+        if (tableauDocuments == null) return;
+        
+        tableauDocuments.skinProperty().addListener((obs, ancien, skin) -> {
+            if (skin != null) {
+                Platform.runLater(this::attacherBarreDefilement);
+            }
+        });
+    }
+    
+    private void attacherBarreDefilement() {
+        if (barreDefilementDocuments != null) return;
+        
+        for (Node noeud : tableauDocuments.lookupAll(".scroll-bar")) {
+            if (noeud instanceof ScrollBar && ((ScrollBar) noeud).getOrientation() == Orientation.VERTICAL) {
+                barreDefilementDocuments = (ScrollBar) noeud;
+                barreDefilementDocuments.valueProperty().addListener((obs, ancien, valeur) -> {
+                    double max = barreDefilementDocuments.getMax();
+                    if (max > 0 && valeur.doubleValue() >= max * SEUIL_PAGE_SUIVANTE) {
+                        chargerPageSuivante();
+                    }
+                });
+                break;
+            }
+        }
+    }
+    
+    // ==================== SYNCHRONISATION DIFFÉRENTIELLE ====================
+    
+    /**
+     * Fusionne les documents et dossiers modifiés sur d'autres postes sans recharger la vue
+     */
+    @Override
+    public void appliquerChangements(Changements changements) {
+        if (!changements.getDossiersRetires().isEmpty()) {
+            chargerArborescence();
+        } else if (!changements.getDossiers().isEmpty()) {
+            fusionnerDossiers(changements.getDossiers());
+        }
+        if (tableauDocuments != null &&
+            (!changements.getDocuments().isEmpty() || !changements.getDocumentsRetires().isEmpty())) {
+            fusionnerDocuments(changements.getDocuments(), changements.getDocumentsRetires());
+        }
+    }
+    
+    /**
+     * Remplace, ajoute ou retire les lignes du tableau concernées
+     * Pendant une recherche, seules les lignes déjà affichées sont mises à jour
+     */
+    private void fusionnerDocuments(List<Document> modifies, Set<Integer> retires) {
+        boolean rechercheActive = champRechercheDoc != null && !champRechercheDoc.getText().trim().isEmpty();
+        Integer dossierAffiche = dossierActuel != null && dossierActuel.getId() > 0 ? dossierActuel.getId() : null;
+        
+        ObservableList<Document> lignes = tableauDocuments.getItems();
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < lignes.size(); i++) {
+            positions.put(lignes.get(i).getId(), i);
+        }
+        
+        List<Document> ajouts = new ArrayList<>();
+        Set<Integer> aRetirer = new HashSet<>(retires);
+        
+        for (Document doc : modifies) {
+            boolean visible = !"supprime".equalsIgnoreCase(doc.getStatut()) &&
+                             (dossierAffiche == null || dossierAffiche.equals(doc.getDossierId()));
+            Integer position = positions.get(doc.getId());
+            
+            if (position != null) {
+                if (visible) {
+                    lignes.set(position, doc);
+                } else {
+                    aRetirer.add(doc.getId());
+                }
+            } else if (visible && !rechercheActive) {
+                ajouts.add(doc);
+            }
+        }
+        
+        if (!aRetirer.isEmpty()) {
+            lignes.removeIf(d -> aRetirer.contains(d.getId()));
+        }
+        
+        if (!ajouts.isEmpty()) {
+            // Delta en ordre croissant de modification, le tableau en ordre décroissant
+            Collections.reverse(ajouts);
+            lignes.addAll(0, ajouts);
+        }
+        
+        if (!rechercheActive && (!ajouts.isEmpty() || !aRetirer.isEmpty())) {
+            // Le tableau ne contient que les pages lues : le total vient de la base
+            compterDocumentsEnArrierePlan();
+        }
+    }
+    
+    /**
+     * Met à jour les dossiers renommés en place ; reconstruit l'arborescence si un dossier
+     * est nouveau ou a changé de parent
+     */
+    private void fusionnerDossiers(List<Dossier> modifies) {
+        if (arborescenceDossiers == null || arborescenceDossiers.getRoot() == null) return;
+        
+        Map<Integer, TreeItem<Dossier>> items = new HashMap<>();
+        indexerArborescence(arborescenceDossiers.getRoot(), items);
+        
+        for (Dossier dossier : modifies) {
+            TreeItem<Dossier> item = items.get(dossier.getId());
+            TreeItem<Dossier> parent = item != null ? item.getParent() : null;
+            Integer parentActuel = parent != null && parent.getValue().getId() > 0 ? parent.getValue().getId() : null;
+            
+            if (item == null || !Objects.equals(parentActuel, dossier.getDossierParentId())) {
+                chargerArborescence();
+                return;
+            }
+            
+            item.setValue(dossier);
+        }
+        
+        for (Dossier dossier : modifies) {
+            tousLesDossiers.replaceAll(d -> d.getId() == dossier.getId() ? dossier : d);
+        }
+    }
+    
+    private void indexerArborescence(TreeItem<Dossier> item, Map<Integer, TreeItem<Dossier>> items) {
+        // Les nœuds jamais dépliés seront construits à jour : inutile de les charger
+        if (item instanceof DossierTreeItem && !((DossierTreeItem) item).isEnfantsCharges()) return;
+        
+        for (TreeItem<Dossier> enfant : item.getChildren()) {
+            items.put(enfant.getValue().getId(), enfant);
+            indexerArborescence(enfant, items);
         }
     }
     
@@ -1,5 +1,6 @@
 package application.controllers;
 
+import application.models.ArborescenceDossiers;
 import application.models.Dossier;
 import application.services.DossierService;
 import application.utils.IconeUtils;
@@ -8,7 +9,6 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.geometry.Insets;
 
-import java.util.List;
 
 /**
  * Dialogue pour sélectionner un dossier d'archivage
@@ -71,7 +71,7 @@ public class DossierSelectorDialog extends Dialog<Integer> {
      */
     private void chargerArborescence() {
         try {
-            List<Dossier> dossiers = dossierService.getAllDossiers();
+            ArborescenceDossiers arborescence = dossierService.getArborescence();
             
             // Racine
             Dossier racine = new Dossier();
@@ -79,10 +79,10 @@ public class DossierSelectorDialog extends Dialog<Integer> {
             racine.setNomDossier("📁 Racine");
             racine.setIcone("📁");
             
-            TreeItem<Dossier> rootItem = new TreeItem<>(racine);
+            // Enfants créés au dépliage
+            TreeItem<Dossier> rootItem = new DossierTreeItem(racine, arborescence);
             rootItem.setExpanded(true);
             
-            construireArborescenceRecursive(rootItem, null, dossiers);
             arborescenceDossiers.setRoot(rootItem);
             
             // Affichage personnalisé
@@ -105,23 +105,6 @@ public class DossierSelectorDialog extends Dialog<Integer> {
         }
     }
     
-    /**
-     * Construit l'arborescence récursivement
-     */
-    private void construireArborescenceRecursive(TreeItem<Dossier> parent, Integer parentId, List<Dossier> dossiers) {
-        for (Dossier d : dossiers) {
-            boolean estEnfant = (parentId == null && d.getDossierParentId() == null) ||
-                               (parentId != null && d.getDossierParentId() != null && 
-                                d.getDossierParentId().equals(parentId));
-            
-            if (estEnfant) {
-                TreeItem<Dossier> item = new TreeItem<>(d);
-                parent.getChildren().add(item);
-                construireArborescenceRecursive(item, d.getId(), dossiers);
-            }
-        }
-    }
-    
     /**
      * Valide la sélection
      */
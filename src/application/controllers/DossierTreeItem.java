@@ -0,0 +1,79 @@
+package application.controllers;
+
+import application.models.ArborescenceDossiers;
+import application.models.Dossier;
+
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Nœud d'arborescence de dossiers à chargement paresseux
+ * Les enfants ne sont créés qu'au premier dépliage (ou premier accès à getChildren()),
+ * à partir de l'index parent -> enfants de ArborescenceDossiers.
+ */
+public class DossierTreeItem extends TreeItem<Dossier> {
+
+    private final ArborescenceDossiers arborescence;
+    private final Predicate<Dossier> filtre;
+    private final int cleEnfants;
+
+    private boolean enfantsCharges = false;
+    private Boolean feuille;
+
+    /**
+     * @param dossier Dossier affiché (un dossier d'id 0 représente la racine virtuelle)
+     * @param filtre Dossiers à afficher ; un dossier exclu masque aussi son sous-arbre
+     */
+    public DossierTreeItem(Dossier dossier, ArborescenceDossiers arborescence, Predicate<Dossier> filtre) {
+        super(dossier);
+        this.arborescence = arborescence;
+        this.filtre = filtre != null ? filtre : d -> true;
+        this.cleEnfants = dossier != null ? dossier.getId() : 0;
+    }
+
+    public DossierTreeItem(Dossier dossier, ArborescenceDossiers arborescence) {
+        this(dossier, arborescence, null);
+    }
+
+    @Override
+    public boolean isLeaf() {
+        if (enfantsCharges) {
+            return super.getChildren().isEmpty();
+        }
+        if (feuille == null) {
+            feuille = arborescence.getEnfants(cleEnfants).stream().noneMatch(filtre);
+        }
+        return feuille;
+    }
+
+    @Override
+    public ObservableList<TreeItem<Dossier>> getChildren() {
+        if (!enfantsCharges) {
+            enfantsCharges = true;
+
+            List<TreeItem<Dossier>> enfants = new ArrayList<>();
+            for (Dossier enfant : arborescence.getEnfants(cleEnfants)) {
+                if (filtre.test(enfant)) {
+                    enfants.add(new DossierTreeItem(enfant, arborescence, filtre));
+                }
+            }
+            super.getChildren().setAll(enfants);
+        }
+        return super.getChildren();
+    }
+
+    /**
+     * Indique si les enfants ont déjà été créés (permet de parcourir l'arbre sans le charger)
+     */
+    public boolean isEnfantsCharges() {
+        return enfantsCharges;
+    }
+
+    public ArborescenceDossiers getArborescence() {
+        return arborescence;
+    }
+}
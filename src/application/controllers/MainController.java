@@ -13,6 +13,7 @@ import javafx.stage.Stage;
 import application.models.User;
 import application.services.AuthenticationService;
 import application.services.NetworkService;
+import application.services.SynchronisationService;
 import application.utils.SessionManager;
 import application.utils.AlertUtils;
 import java.io.IOException;
@@ -20,6 +21,9 @@ import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ResourceBundle;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Contrôleur principal de l'application - VERSION avec support Courrier
@@ -46,6 +50,7 @@ public class MainController implements Initializable {
     private User currentUser;
     private AuthenticationService authService;
     private String currentView = "";
+    private ScheduledExecutorService synchronisationExecutor;
     
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -290,6 +295,9 @@ public class MainController implements Initializable {
             );
             
             if (confirm) {
+                if (synchronisationExecutor != null) {
+                    synchronisationExecutor.shutdownNow();
+                }
                 SessionManager.getInstance().clearSession();
                 returnToLogin();
                 System.out.println("Déconnexion effectuée avec succès");
@@ -347,28 +355,13 @@ public class MainController implements Initializable {
         timeUpdater.setDaemon(true);
         timeUpdater.start();
 
-        // 2. Rafraîchissement automatique toutes les 30 secondes
-        Thread autoRefresh = new Thread(() -> {
-            while (true) {
-                try {
-                    Thread.sleep(30_000);
-                    Platform.runLater(() -> {
-                        if (currentView != null && !currentView.isEmpty()) {
-                            loadView(currentView);
-                            if (statusLabel != null) {
-                                statusLabel.setText("🔄 Synchronisé à " +
-                                    java.time.LocalDateTime.now().format(
-                                        java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss")));
-                            }
-                        }
-                    });
-                } catch (InterruptedException e) {
-                    break;
-                }
-            }
+        // 2. Synchronisation différentielle toutes les 30 secondes (seules les lignes modifiées sont lues)
+        synchronisationExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "synchronisation-delta");
+            t.setDaemon(true);
+            return t;
         });
-        autoRefresh.setDaemon(true);
-        autoRefresh.start();
+        synchronisationExecutor.scheduleWithFixedDelay(this::synchroniser, 0, 30, TimeUnit.SECONDS);
 
         // 3. Écoute des notifications réseau en temps réel
         try {
@@ -378,27 +371,35 @@ public class MainController implements Initializable {
                 new application.services.NetworkService.WorkflowUpdateListener() {
                     @Override
                     public void onWorkflowUpdate(int courrierId, String serviceCode) {
+                        synchroniserMaintenant();
                         Platform.runLater(() -> {
-                            if ("courrier".equals(currentView)) loadView("courrier");
                             if (statusLabel != null)
                                 statusLabel.setText("📬 Courrier #" + courrierId + " mis à jour");
                         });
                     }
                     @Override
                     public void onWorkflowComplete(int courrierId) {
+                        synchroniserMaintenant();
                         Platform.runLater(() -> {
-                            if ("courrier".equals(currentView)) loadView("courrier");
                             if (statusLabel != null)
                                 statusLabel.setText("✅ Courrier #" + courrierId + " traité");
                         });
                     }
                     @Override
                     public void onRefreshRequest() {
-                        Platform.runLater(() -> {
-                            if (currentView != null && !currentView.isEmpty()) {
-                                loadView(currentView);
-                            }
-                        });
+                        SynchronisationService.getInstance().demanderRechargementComplet();
+                        synchroniserMaintenant();
+                    }
+                    @Override
+                    public void onInvalidation(NetworkService.Invalidation invalidation) {
+                        // Seules les lignes concernées sont relues puis fusionnées dans la vue
+                        SynchronisationService.getInstance().enregistrerInvalidation(invalidation);
+                        synchroniserMaintenant();
+                    }
+                    @Override
+                    public void onInvalidationsPerdues(String emetteur, long nombre) {
+                        // Le delta sur date_modification rattrape les messages perdus
+                        synchroniserMaintenant();
                     }
                 }
             );
@@ -408,6 +409,54 @@ public class MainController implements Initializable {
         }
     }
     
+    /**
+     * Déclenche un cycle de synchronisation sans attendre le prochain passage périodique
+     */
+    private void synchroniserMaintenant() {
+        if (synchronisationExecutor != null && !synchronisationExecutor.isShutdown()) {
+            synchronisationExecutor.execute(this::synchroniser);
+        }
+    }
+    
+    /**
+     * Cycle de synchronisation : lecture des changements hors thread JavaFX, puis application à la vue
+     * La vue n'est rechargée que si elle ne sait pas fusionner les changements ou si un écart est détecté
+     */
+    private void synchroniser() {
+        SynchronisationService.Changements changements;
+        try {
+            changements = SynchronisationService.getInstance().detecterChangements();
+        } catch (Exception e) {
+            System.err.println("⚠ Erreur synchronisation: " + e.getMessage());
+            return;
+        }
+        
+        if (changements.isVide()) return;
+        
+        Platform.runLater(() -> {
+            if (currentView == null || currentView.isEmpty() || contentArea == null) return;
+            
+            Node vue = contentArea.getCenter();
+            Object controller = vue != null ? vue.getProperties().get("controller") : null;
+            
+            if (changements.isRechargementComplet()) {
+                System.out.println("🔄 Rechargement complet (" + changements.getRaison() + ")");
+                loadView(currentView);
+            } else if (controller instanceof VueSynchronisable) {
+                ((VueSynchronisable) controller).appliquerChangements(changements);
+            } else if (!"administration".equals(currentView)) {
+                // Vues de synthèse (accueil) : rechargées seulement quand quelque chose a changé
+                loadView(currentView);
+            }
+            
+            if (statusLabel != null) {
+                statusLabel.setText("🔄 Synchronisé à " +
+                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")) +
+                    (changements.isRechargementComplet() ? "" : " (" + changements.getNombre() + " modification(s))"));
+            }
+        });
+    }
+    
     /**
      * Met à jour l'affichage de l'heure actuelle
      */
@@ -0,0 +1,14 @@
+package application.controllers;
+
+import application.services.SynchronisationService.Changements;
+
+/**
+ * Vue capable d'intégrer les changements de la synchronisation différentielle
+ * sans être rechargée (les lignes modifiées sont fusionnées dans les listes existantes)
+ *
+ * Appelée sur le thread JavaFX par MainController.
+ */
+public interface VueSynchronisable {
+    
+    void appliquerChangements(Changements changements);
+}
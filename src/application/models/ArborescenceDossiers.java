@@ -0,0 +1,144 @@
+package application.models;
+
+import java.util.*;
+
+/**
+ * Arborescence des dossiers actifs, construite en un seul passage
+ *
+ * - Index parent -> enfants (l'ordre de la liste source est conservé)
+ * - Nombre de documents de chaque sous-arbre (dossier + descendants), précalculé
+ *
+ * Instantané immuable : partagé entre les vues par DossierService, il est reconstruit
+ * (et non modifié) quand un dossier change.
+ */
+public class ArborescenceDossiers {
+
+    // Clé des dossiers sans parent dans l'index des enfants
+    private static final int RACINE = 0;
+
+    private final List<Dossier> tous;
+    private final Map<Integer, Dossier> parId;
+    private final Map<Integer, List<Dossier>> enfantsParParent;
+    private final Map<Integer, Integer> documentsSousArbre;
+
+    private ArborescenceDossiers(List<Dossier> tous, Map<Integer, Dossier> parId,
+                                 Map<Integer, List<Dossier>> enfantsParParent,
+                                 Map<Integer, Integer> documentsSousArbre) {
+        this.tous = tous;
+        this.parId = parId;
+        this.enfantsParParent = enfantsParParent;
+        this.documentsSousArbre = documentsSousArbre;
+    }
+
+    /**
+     * Construit l'arborescence à partir de la liste des dossiers actifs
+     */
+    public static ArborescenceDossiers construire(List<Dossier> dossiers) {
+        Map<Integer, Dossier> parId = new HashMap<>(dossiers.size() * 2);
+        Map<Integer, List<Dossier>> enfantsParParent = new HashMap<>();
+
+        for (Dossier dossier : dossiers) {
+            parId.put(dossier.getId(), dossier);
+        }
+
+        // Un dossier dont le parent n'est pas actif n'est rattaché nulle part (comme auparavant)
+        for (Dossier dossier : dossiers) {
+            Integer parentId = dossier.getDossierParentId();
+            if (parentId == null) {
+                enfantsParParent.computeIfAbsent(RACINE, k -> new ArrayList<>()).add(dossier);
+            } else if (parId.containsKey(parentId)) {
+                enfantsParParent.computeIfAbsent(parentId, k -> new ArrayList<>()).add(dossier);
+            }
+        }
+
+        return new ArborescenceDossiers(Collections.unmodifiableList(new ArrayList<>(dossiers)), parId,
+            enfantsParParent, calculerDocumentsSousArbres(enfantsParParent, dossiers.size()));
+    }
+
+    /**
+     * Parcours en profondeur itératif (post-ordre) : chaque dossier n'est visité qu'une fois
+     */
+    private static Map<Integer, Integer> calculerDocumentsSousArbres(Map<Integer, List<Dossier>> enfantsParParent,
+                                                                      int nombreDossiers) {
+        Map<Integer, Integer> documentsSousArbre = new HashMap<>(nombreDossiers * 2);
+        Deque<Dossier> pile = new ArrayDeque<>(enfantsParParent.getOrDefault(RACINE, List.of()));
+        List<Dossier> ordre = new ArrayList<>(nombreDossiers);
+        Set<Integer> visites = new HashSet<>();
+
+        while (!pile.isEmpty()) {
+            Dossier dossier = pile.pop();
+            if (!visites.add(dossier.getId())) continue; // protège d'un cycle en base
+            ordre.add(dossier);
+            for (Dossier enfant : enfantsParParent.getOrDefault(dossier.getId(), List.of())) {
+                pile.push(enfant);
+            }
+        }
+
+        // Les enfants apparaissent après leur parent : parcours inverse = enfants d'abord
+        for (int i = ordre.size() - 1; i >= 0; i--) {
+            Dossier dossier = ordre.get(i);
+            int total = dossier.getNombreDocuments();
+            for (Dossier enfant : enfantsParParent.getOrDefault(dossier.getId(), List.of())) {
+                total += documentsSousArbre.getOrDefault(enfant.getId(), 0);
+            }
+            documentsSousArbre.put(dossier.getId(), total);
+        }
+
+        return documentsSousArbre;
+    }
+
+    /**
+     * Tous les dossiers, dans l'ordre de chargement
+     */
+    public List<Dossier> getTous() {
+        return tous;
+    }
+
+    public Dossier getDossier(int id) {
+        return parId.get(id);
+    }
+
+    public List<Dossier> getRacines() {
+        return getEnfants(RACINE);
+    }
+
+    /**
+     * Enfants directs d'un dossier (0 pour les dossiers racines)
+     */
+    public List<Dossier> getEnfants(int dossierId) {
+        List<Dossier> enfants = enfantsParParent.get(dossierId);
+        return enfants != null ? Collections.unmodifiableList(enfants) : Collections.emptyList();
+    }
+
+    public boolean aDesEnfants(int dossierId) {
+        return enfantsParParent.containsKey(dossierId);
+    }
+
+    /**
+     * Nombre de documents du dossier et de tous ses sous-dossiers
+     */
+    public int getNombreDocumentsSousArbre(int dossierId) {
+        return documentsSousArbre.getOrDefault(dossierId, 0);
+    }
+
+    /**
+     * Chemin depuis la racine jusqu'au dossier inclus (vide si inconnu)
+     */
+    public List<Dossier> getChemin(int dossierId) {
+        LinkedList<Dossier> chemin = new LinkedList<>();
+        Set<Integer> visites = new HashSet<>();
+        Dossier courant = parId.get(dossierId);
+
+        while (courant != null && visites.add(courant.getId())) {
+            chemin.addFirst(courant);
+            Integer parentId = courant.getDossierParentId();
+            courant = parentId != null ? parId.get(parentId) : null;
+        }
+
+        return chemin;
+    }
+
+    public int getNombreDossiers() {
+        return tous.size();
+    }
+}
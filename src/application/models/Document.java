@@ -331,6 +331,45 @@ public class Document {
         return String.format("%.1f %s", taille, unites[uniteIndex]);
     }
     
+    /**
+     * Copie champ par champ (DocumentService ne rend jamais l'instance de son cache)
+     */
+    public Document copier() {
+        Document copie = new Document();
+        copie.id = id;
+        copie.codeDocument = codeDocument;
+        copie.dossierId = dossierId;
+        copie.titre = titre;
+        copie.typeDocument = typeDocument;
+        copie.cheminFichier = cheminFichier;
+        copie.cheminServeur = cheminServeur;
+        copie.tailleFichier = tailleFichier;
+        copie.extension = extension;
+        copie.mimeType = mimeType;
+        copie.description = description;
+        copie.motsCles = motsCles;
+        copie.nomAuteur = nomAuteur;
+        copie.creePar = creePar;
+        copie.modifiePar = modifiePar;
+        copie.statut = statut;
+        copie.version = version;
+        copie.hashFichier = hashFichier;
+        copie.confidentiel = confidentiel;
+        copie.archive = archive;
+        copie.dateArchivage = dateArchivage;
+        copie.dateCreation = dateCreation;
+        copie.dateModification = dateModification;
+        copie.dateExpiration = dateExpiration;
+        copie.createurNom = createurNom;
+        copie.createurService = createurService;
+        copie.modificateurNom = modificateurNom;
+        copie.nomDossier = nomDossier;
+        copie.codeDossierParent = codeDossierParent;
+        copie.cheminDossier = cheminDossier;
+        copie.iconeDossier = iconeDossier;
+        return copie;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
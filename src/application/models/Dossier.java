@@ -199,6 +199,31 @@ public class Dossier {
         return icone + " " + nomDossier;
     }
     
+    /**
+     * Copie champ par champ (DossierService ne rend jamais l'instance de son cache)
+     */
+    public Dossier copier() {
+        Dossier copie = new Dossier();
+        copie.id = id;
+        copie.codeDossier = codeDossier;
+        copie.nomDossier = nomDossier;
+        copie.dossierParentId = dossierParentId;
+        copie.cheminComplet = cheminComplet;
+        copie.description = description;
+        copie.icone = icone;
+        copie.ordreAffichage = ordreAffichage;
+        copie.actif = actif;
+        copie.systeme = systeme;
+        copie.creePar = creePar;
+        copie.dateCreation = dateCreation;
+        copie.dateModification = dateModification;
+        copie.nombreDocuments = nombreDocuments;
+        copie.nombreSousDossiers = nombreSousDossiers;
+        copie.nomDossierParent = nomDossierParent;
+        copie.niveauHierarchie = niveauHierarchie;
+        return copie;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,73 @@
+package application.models;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Page de documents lue par pagination à curseur (date_modification, id)
+ *
+ * Le curseur désigne la dernière ligne de la page : la page suivante commence
+ * strictement après elle dans l'ordre (date_modification DESC, id DESC).
+ * Contrairement à OFFSET, le coût de lecture ne dépend pas de la profondeur de page.
+ */
+public class PageDocuments {
+
+    private final List<Document> documents;
+    private final Curseur curseurSuivant;
+    private final boolean derniere;
+
+    public PageDocuments(List<Document> documents, Curseur curseurSuivant, boolean derniere) {
+        this.documents = Collections.unmodifiableList(documents);
+        this.curseurSuivant = curseurSuivant;
+        this.derniere = derniere;
+    }
+
+    public List<Document> getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Curseur à passer pour lire la page suivante (null si la page est vide)
+     */
+    public Curseur getCurseurSuivant() {
+        return curseurSuivant;
+    }
+
+    public boolean isDerniere() {
+        return derniere;
+    }
+
+    // ==================== CURSEUR ====================
+
+    /**
+     * Position dans la liste : couple (date_modification, id) de la dernière ligne lue
+     */
+    public static class Curseur {
+
+        private final LocalDateTime dateModification;
+        private final int id;
+
+        public Curseur(LocalDateTime dateModification, int id) {
+            this.dateModification = dateModification;
+            this.id = id;
+        }
+
+        public static Curseur apres(Document document) {
+            return new Curseur(document.getDateModification(), document.getId());
+        }
+
+        public LocalDateTime getDateModification() {
+            return dateModification;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return dateModification + "#" + id;
+        }
+    }
+}
@@ -1,7 +1,16 @@
 package application.models;
 
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Énumération des permissions disponibles dans le système
+ *
+ * Un ensemble de permissions se représente aussi par un masque long (bit = ordinal()) :
+ * une vérification est un simple ET, sans allocation. Le masque n'est jamais enregistré
+ * (la base garde les noms) : l'ordre des constantes peut changer librement, dans la limite de 64.
  */
 public enum Permission {
     // Permissions générales
@@ -75,11 +84,69 @@ public enum Permission {
     private final String nom;
     private final String description;
     
+    // Nom enum et nom complet -> permission (résolution sans exception)
+    private static final Map<String, Permission> PAR_NOM = new HashMap<>();
+    
+    static {
+        if (values().length > Long.SIZE) {
+            throw new IllegalStateException("Plus de " + Long.SIZE + " permissions : le masque long ne suffit plus");
+        }
+        for (Permission permission : values()) {
+            PAR_NOM.put(permission.name(), permission);
+            PAR_NOM.putIfAbsent(permission.nom, permission);
+        }
+    }
+    
     Permission(String nom, String description) {
         this.nom = nom;
         this.description = description;
     }
     
+    /**
+     * Bit de la permission dans un masque
+     */
+    public long masque() {
+        return 1L << ordinal();
+    }
+    
+    /**
+     * Masque d'un ensemble de permissions
+     */
+    public static long masque(Collection<Permission> permissions) {
+        long masque = 0L;
+        if (permissions != null) {
+            for (Permission permission : permissions) {
+                if (permission != null) {
+                    masque |= permission.masque();
+                }
+            }
+        }
+        return masque;
+    }
+    
+    /**
+     * Ensemble des permissions d'un masque
+     */
+    public static EnumSet<Permission> depuisMasque(long masque) {
+        EnumSet<Permission> permissions = EnumSet.noneOf(Permission.class);
+        for (Permission permission : values()) {
+            if ((masque & permission.masque()) != 0) {
+                permissions.add(permission);
+            }
+        }
+        return permissions;
+    }
+    
+    /**
+     * Permission par nom enum ou nom complet (exact), sinon sans tenir compte de la casse
+     */
+    public static Permission resoudre(String valeur) {
+        if (valeur == null) return null;
+        
+        Permission permission = PAR_NOM.get(valeur);
+        return permission != null ? permission : PAR_NOM.get(valeur.trim().toUpperCase());
+    }
+    
     public String getNom() {
         return nom;
     }
@@ -106,15 +173,7 @@ public enum Permission {
      * Retourne la permission par son nom enum ou son nom complet
      */
     public static Permission fromString(String value) {
-        if (value == null) return null;
-        
-        // Essayer d'abord par le nom enum
-        try {
-            return valueOf(value.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            // Essayer par le nom complet
-            return getByName(value);
-        }
+        return resoudre(value);
     }
     
     /**
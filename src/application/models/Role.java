@@ -6,19 +6,19 @@ import java.util.stream.Collectors;
 
 /**
  * Modèle représentant un rôle utilisateur avec ses permissions
+ * Les permissions sont gardées en masque (voir Permission.masque()) : hasPermission() est un ET.
  */
 public class Role {
     private int id;
     private String code;
     private String nom;
     private String description;
-    private Set<Permission> permissions;
+    private long permissions;
     private boolean actif;
     private LocalDateTime dateCreation;
     
     // Constructeurs
     public Role() {
-        this.permissions = new HashSet<>();
         this.actif = true;
         this.dateCreation = LocalDateTime.now();
     }
@@ -68,23 +68,34 @@ public class Role {
     }
     
     public Set<Permission> getPermissions() {
-        return new HashSet<>(permissions);
+        return Permission.depuisMasque(permissions);
     }
     
     public void setPermissions(Set<Permission> permissions) {
-        this.permissions = permissions != null ? new HashSet<>(permissions) : new HashSet<>();
+        this.permissions = Permission.masque(permissions);
+    }
+    
+    /**
+     * Masque des permissions (bit = Permission.ordinal())
+     */
+    public long getMasquePermissions() {
+        return permissions;
+    }
+    
+    public void setMasquePermissions(long masque) {
+        this.permissions = masque;
     }
     
     /**
      * Définit les permissions depuis une liste de noms (pour compatibilité)
      */
     public void setPermissionsFromNames(Set<String> permissionNames) {
-        this.permissions = new HashSet<>();
+        this.permissions = 0L;
         if (permissionNames != null) {
             for (String name : permissionNames) {
                 Permission perm = Permission.getByName(name);
                 if (perm != null) {
-                    this.permissions.add(perm);
+                    this.permissions |= perm.masque();
                 }
             }
         }
@@ -94,7 +105,7 @@ public class Role {
      * Retourne les noms des permissions (pour compatibilité)
      */
     public Set<String> getPermissionNames() {
-        return permissions.stream()
+        return getPermissions().stream()
                 .map(Permission::name)
                 .collect(Collectors.toSet());
     }
@@ -122,7 +133,7 @@ public class Role {
      */
     public void addPermission(Permission permission) {
         if (permission != null) {
-            permissions.add(permission);
+            permissions |= permission.masque();
         }
     }
     
@@ -131,16 +142,7 @@ public class Role {
      */
     public void addPermission(String permissionName) {
         if (permissionName != null && !permissionName.isEmpty()) {
-            try {
-                Permission perm = Permission.valueOf(permissionName.toUpperCase());
-                permissions.add(perm);
-            } catch (IllegalArgumentException e) {
-                // Essayer par nom
-                Permission perm = Permission.getByName(permissionName);
-                if (perm != null) {
-                    permissions.add(perm);
-                }
-            }
+            addPermission(Permission.resoudre(permissionName));
         }
     }
     
@@ -149,7 +151,7 @@ public class Role {
      */
     public void removePermission(Permission permission) {
         if (permission != null) {
-            permissions.remove(permission);
+            permissions &= ~permission.masque();
         }
     }
     
@@ -158,15 +160,7 @@ public class Role {
      */
     public void removePermission(String permissionName) {
         if (permissionName != null) {
-            try {
-                Permission perm = Permission.valueOf(permissionName.toUpperCase());
-                permissions.remove(perm);
-            } catch (IllegalArgumentException e) {
-                Permission perm = Permission.getByName(permissionName);
-                if (perm != null) {
-                    permissions.remove(perm);
-                }
-            }
+            removePermission(Permission.resoudre(permissionName));
         }
     }
     
@@ -174,22 +168,21 @@ public class Role {
      * Vérifie si le rôle a une permission spécifique (enum)
      */
     public boolean hasPermission(Permission permission) {
-        return permission != null && permissions.contains(permission);
+        return permission != null && (permissions & permission.masque()) != 0;
     }
     
     /**
      * Vérifie si le rôle a une permission spécifique (String)
      */
     public boolean hasPermission(String permissionName) {
-        if (permissionName == null) return false;
-        
-        try {
-            Permission perm = Permission.valueOf(permissionName.toUpperCase());
-            return permissions.contains(perm);
-        } catch (IllegalArgumentException e) {
-            Permission perm = Permission.getByName(permissionName);
-            return perm != null && permissions.contains(perm);
-        }
+        return hasPermission(Permission.resoudre(permissionName));
+    }
+    
+    /**
+     * Vérifie si le rôle a toutes les permissions du masque
+     */
+    public boolean hasAllPermissions(long masque) {
+        return (permissions & masque) == masque;
     }
     
     /**
@@ -264,7 +257,7 @@ public class Role {
      * Retourne le nombre de permissions
      */
     public int getPermissionCount() {
-        return permissions.size();
+        return Long.bitCount(permissions);
     }
     
     /**
@@ -286,6 +279,21 @@ public class Role {
                code.equalsIgnoreCase("DIRECTEUR");
     }
     
+    /**
+     * Copie champ par champ (voir User.copier)
+     */
+    public Role copier() {
+        Role copie = new Role();
+        copie.id = id;
+        copie.code = code;
+        copie.nom = nom;
+        copie.description = description;
+        copie.permissions = permissions;
+        copie.actif = actif;
+        copie.dateCreation = dateCreation;
+        return copie;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -305,7 +313,7 @@ public class Role {
                 "id=" + id +
                 ", code='" + code + '\'' +
                 ", nom='" + nom + '\'' +
-                ", permissions=" + permissions.size() +
+                ", permissions=" + getPermissionCount() +
                 '}';
     }
     
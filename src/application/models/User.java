@@ -145,6 +145,27 @@ public class User {
         return prenom + " " + nom;
     }
     
+    /**
+     * Copie champ par champ, rôle compris (cache des utilisateurs de DatabaseService)
+     */
+    public User copier() {
+        User copie = new User();
+        copie.id = id;
+        copie.code = code;
+        copie.password = password;
+        copie.nom = nom;
+        copie.prenom = prenom;
+        copie.email = email;
+        copie.role = role != null ? role.copier() : null;
+        copie.actif = actif;
+        copie.dateCreation = dateCreation;
+        copie.dernierAcces = dernierAcces;
+        copie.sessionToken = sessionToken;
+        copie.serviceCode = serviceCode;
+        copie.niveauAutorite = niveauAutorite;
+        return copie;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
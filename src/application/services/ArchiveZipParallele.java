@@ -0,0 +1,437 @@
+package application.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Écriture d'une archive zip standard avec compression parallèle
+ *
+ * ZipOutputStream compresse sur le thread qui écrit : une sauvegarde de plusieurs centaines de Go
+ * n'utilise qu'un cœur. Ici le contenu est découpé en blocs de 1 Mo compressés en parallèle sur un
+ * ForkJoinPool (même principe que pigz) : chaque bloc est un flux deflate brut terminé par un
+ * SYNC_FLUSH, amorcé avec les 32 Ko qui le précèdent, et la concaténation des blocs forme un flux
+ * deflate unique lisible par n'importe quel outil zip.
+ *
+ * - Les formats déjà compressés (pdf, jpg, docx...) sont stockés sans compression
+ * - Une entrée qui ne gagne rien à la compression est stockée telle quelle
+ * - ZIP64 dès que l'archive, une entrée ou le nombre d'entrées dépasse les limites du zip classique
+ *
+ * Réglages (config/database.properties) :
+ *   sauvegarde.compression.niveau  (0-9, 6 par défaut ; 0 : aucune compression)
+ *   sauvegarde.compression.threads (nombre de processeurs par défaut)
+ */
+public class ArchiveZipParallele {
+
+    private static final int BLOC = 1024 * 1024;
+    private static final int DICTIONNAIRE = 32 * 1024;
+
+    private static final int METHODE_STOCKEE = 0;
+    private static final int METHODE_DEFLATE = 8;
+    private static final int DRAPEAU_UTF8 = 0x0800;
+    private static final long LIMITE_32 = 0xFFFFFFFFL;
+
+    // Formats déjà compressés : les recompresser coûte du temps sans gagner de place
+    private static final Set<String> EXTENSIONS_COMPRESSEES = Set.of(
+        "pdf", "jpg", "jpeg", "png", "gif", "webp", "heic", "tif", "tiff",
+        "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub",
+        "zip", "7z", "rar", "gz", "bz2", "xz", "jar",
+        "mp3", "mp4", "m4a", "avi", "mov", "mkv", "ogg");
+
+    private final FileChannel canal;
+    private final ForkJoinPool pool;
+    private final int niveau;
+    private final int threads;
+    private final List<EntreeCentrale> entrees = new ArrayList<>();
+    private final int heureDos;
+    private final int dateDos;
+    private long position = 0;
+
+    /**
+     * Entrée compressée hors du verrou de l'archive, prête à être écrite
+     */
+    public static class EntreePreparee {
+        private final String nom;
+        private final int methode;
+        private final long crc;
+        private final long tailleOriginale;
+        private final List<byte[]> donnees;
+        private final long tailleCompressee;
+
+        private EntreePreparee(String nom, int methode, long crc, long tailleOriginale, List<byte[]> donnees) {
+            this.nom = nom;
+            this.methode = methode;
+            this.crc = crc;
+            this.tailleOriginale = tailleOriginale;
+            this.donnees = donnees;
+            this.tailleCompressee = donnees.stream().mapToLong(b -> b.length).sum();
+        }
+    }
+
+    private static class EntreeCentrale {
+        final byte[] nom;
+        final int methode;
+        final long crc;
+        final long tailleCompressee;
+        final long tailleOriginale;
+        final long decalage;
+
+        EntreeCentrale(byte[] nom, int methode, long crc, long tailleCompressee, long tailleOriginale, long decalage) {
+            this.nom = nom;
+            this.methode = methode;
+            this.crc = crc;
+            this.tailleCompressee = tailleCompressee;
+            this.tailleOriginale = tailleOriginale;
+            this.decalage = decalage;
+        }
+    }
+
+    public ArchiveZipParallele(Path fichier) throws IOException {
+        this(fichier, lireEntier("sauvegarde.compression.niveau", Deflater.DEFAULT_COMPRESSION),
+             lireEntier("sauvegarde.compression.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public ArchiveZipParallele(Path fichier, int niveau, int threads) throws IOException {
+        this.niveau = niveau < 0 || niveau > 9 ? 6 : niveau;
+        this.threads = Math.max(1, threads);
+        this.pool = new ForkJoinPool(this.threads);
+        this.canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                      StandardOpenOption.TRUNCATE_EXISTING);
+
+        LocalDateTime maintenant = LocalDateTime.now();
+        this.heureDos = (maintenant.getHour() << 11) | (maintenant.getMinute() << 5) | (maintenant.getSecond() / 2);
+        this.dateDos = (Math.max(0, maintenant.getYear() - 1980) << 9) | (maintenant.getMonthValue() << 5) | maintenant.getDayOfMonth();
+    }
+
+    private static int lireEntier(String cle, int defaut) {
+        try {
+            return Integer.parseInt(DatabaseService.getPropriete(cle, String.valueOf(defaut)).trim());
+        } catch (NumberFormatException e) {
+            return defaut;
+        }
+    }
+
+    public int getNiveau() { return niveau; }
+    public int getThreads() { return threads; }
+
+    /**
+     * Stocker sans compression (niveau 0 ou format déjà compressé)
+     */
+    boolean doitStocker(String nom) {
+        if (niveau == 0) return true;
+        int point = nom.lastIndexOf('.');
+        return point > nom.lastIndexOf('/') && EXTENSIONS_COMPRESSEES.contains(nom.substring(point + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // ==================== ENTRÉES EN MÉMOIRE ====================
+
+    /**
+     * Compresse une entrée en mémoire (appelable depuis plusieurs threads sans verrou)
+     * Les blocs d'une grosse entrée sont compressés en parallèle sur le pool.
+     */
+    public EntreePreparee preparer(String nom, byte[] contenu) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(contenu);
+
+        if (doitStocker(nom)) {
+            return new EntreePreparee(nom, METHODE_STOCKEE, crc.getValue(), contenu.length, List.of(contenu));
+        }
+
+        List<byte[]> blocs;
+        if (contenu.length <= BLOC) {
+            blocs = List.of(deflaterBloc(contenu, 0, contenu.length, null, true));
+        } else {
+            List<Callable<byte[]>> taches = new ArrayList<>();
+            for (int debut = 0; debut < contenu.length; debut += BLOC) {
+                int d = debut;
+                int longueur = Math.min(BLOC, contenu.length - d);
+                boolean dernier = d + longueur == contenu.length;
+                byte[] dictionnaire = d == 0 ? null : Arrays.copyOfRange(contenu, Math.max(0, d - DICTIONNAIRE), d);
+                taches.add(() -> deflaterBloc(contenu, d, longueur, dictionnaire, dernier));
+            }
+            blocs = new ArrayList<>(taches.size());
+            for (Future<byte[]> resultat : pool.invokeAll(taches)) {
+                blocs.add(attendre(resultat));
+            }
+        }
+
+        EntreePreparee deflatee = new EntreePreparee(nom, METHODE_DEFLATE, crc.getValue(), contenu.length, blocs);
+        if (deflatee.tailleCompressee >= contenu.length) {
+            return new EntreePreparee(nom, METHODE_STOCKEE, crc.getValue(), contenu.length, List.of(contenu));
+        }
+        return deflatee;
+    }
+
+    public synchronized void ecrire(EntreePreparee entree) throws IOException {
+        byte[] nom = entree.nom.getBytes(StandardCharsets.UTF_8);
+        boolean zip64 = entree.tailleOriginale >= LIMITE_32 || entree.tailleCompressee >= LIMITE_32;
+        long decalage = position;
+
+        ecrireEnTeteLocal(nom, entree.methode, entree.crc, entree.tailleCompressee, entree.tailleOriginale, zip64);
+        for (byte[] bloc : entree.donnees) {
+            ecrireOctets(ByteBuffer.wrap(bloc));
+        }
+        entrees.add(new EntreeCentrale(nom, entree.methode, entree.crc, entree.tailleCompressee,
+                                       entree.tailleOriginale, decalage));
+    }
+
+    // ==================== ENTRÉES EN FLUX ====================
+
+    /**
+     * Écrit un gros fichier en flux : les blocs lus sont compressés en parallèle par fenêtres,
+     * puis écrits dans l'ordre ; l'en-tête local est complété une fois la taille connue.
+     */
+    public synchronized void ecrire(String nomEntree, InputStream in) throws IOException {
+        byte[] nom = nomEntree.getBytes(StandardCharsets.UTF_8);
+        boolean stocker = doitStocker(nomEntree);
+        int methode = stocker ? METHODE_STOCKEE : METHODE_DEFLATE;
+        long decalage = position;
+
+        // Taille inconnue à l'avance : en-tête ZIP64 réservé, complété à la fin
+        ecrireEnTeteLocal(nom, methode, 0, 0, 0, true);
+
+        CRC32 crc = new CRC32();
+        long tailleOriginale = 0;
+        long tailleCompressee = 0;
+
+        if (stocker) {
+            byte[] tampon = new byte[BLOC];
+            int lus;
+            while ((lus = in.readNBytes(tampon, 0, tampon.length)) > 0) {
+                crc.update(tampon, 0, lus);
+                ecrireOctets(ByteBuffer.wrap(tampon, 0, lus));
+                tailleOriginale += lus;
+            }
+            tailleCompressee = tailleOriginale;
+        } else {
+            ArrayDeque<Future<byte[]>> fenetre = new ArrayDeque<>();
+            byte[] courant = in.readNBytes(BLOC);
+            byte[] dictionnaire = null;
+
+            while (true) {
+                byte[] suivant = courant.length < BLOC ? new byte[0] : in.readNBytes(BLOC);
+                boolean dernier = suivant.length == 0;
+
+                crc.update(courant);
+                tailleOriginale += courant.length;
+
+                byte[] bloc = courant;
+                byte[] dico = dictionnaire;
+                fenetre.add(pool.submit(() -> deflaterBloc(bloc, 0, bloc.length, dico, dernier)));
+
+                if (fenetre.size() >= threads * 2) {
+                    tailleCompressee += ecrireOctets(ByteBuffer.wrap(attendre(fenetre.poll())));
+                }
+                if (dernier) break;
+
+                dictionnaire = Arrays.copyOfRange(courant, Math.max(0, courant.length - DICTIONNAIRE), courant.length);
+                courant = suivant;
+            }
+            while (!fenetre.isEmpty()) {
+                tailleCompressee += ecrireOctets(ByteBuffer.wrap(attendre(fenetre.poll())));
+            }
+        }
+
+        // Compléter le CRC (décalage 14) et les tailles du champ ZIP64 (après le nom)
+        ByteBuffer crcBuf = tampon(4);
+        crcBuf.putInt((int) crc.getValue()).flip();
+        canal.write(crcBuf, decalage + 14);
+
+        ByteBuffer tailles = tampon(16);
+        tailles.putLong(tailleOriginale).putLong(tailleCompressee).flip();
+        canal.write(tailles, decalage + 30 + nom.length + 4);
+
+        entrees.add(new EntreeCentrale(nom, methode, crc.getValue(), tailleCompressee, tailleOriginale, decalage));
+    }
+
+    // ==================== FINALISATION ====================
+
+    /**
+     * Écrit le répertoire central et ferme l'archive
+     */
+    public synchronized void terminer() throws IOException {
+        try {
+            long debutRepertoire = position;
+
+            for (EntreeCentrale e : entrees) {
+                boolean tailleGrande = e.tailleOriginale >= LIMITE_32 || e.tailleCompressee >= LIMITE_32;
+                boolean decalageGrand = e.decalage >= LIMITE_32;
+                int extra = (tailleGrande ? 16 : 0) + (decalageGrand ? 8 : 0);
+                boolean zip64 = extra > 0;
+
+                ByteBuffer buf = tampon(46 + e.nom.length + (zip64 ? 4 + extra : 0));
+                buf.putInt(0x02014b50)
+                   .putShort((short) 45)
+                   .putShort((short) (zip64 ? 45 : 20))
+                   .putShort((short) DRAPEAU_UTF8)
+                   .putShort((short) e.methode)
+                   .putShort((short) heureDos)
+                   .putShort((short) dateDos)
+                   .putInt((int) e.crc)
+                   .putInt((int) (tailleGrande ? LIMITE_32 : e.tailleCompressee))
+                   .putInt((int) (tailleGrande ? LIMITE_32 : e.tailleOriginale))
+                   .putShort((short) e.nom.length)
+                   .putShort((short) (zip64 ? 4 + extra : 0))
+                   .putShort((short) 0)
+                   .putShort((short) 0)
+                   .putShort((short) 0)
+                   .putInt(0)
+                   .putInt((int) (decalageGrand ? LIMITE_32 : e.decalage))
+                   .put(e.nom);
+                if (zip64) {
+                    buf.putShort((short) 0x0001).putShort((short) extra);
+                    if (tailleGrande) buf.putLong(e.tailleOriginale).putLong(e.tailleCompressee);
+                    if (decalageGrand) buf.putLong(e.decalage);
+                }
+                buf.flip();
+                ecrireOctets(buf);
+            }
+
+            long tailleRepertoire = position - debutRepertoire;
+            boolean zip64 = entrees.size() >= 0xFFFF || debutRepertoire >= LIMITE_32 || tailleRepertoire >= LIMITE_32;
+
+            if (zip64) {
+                long debutFin64 = position;
+                ByteBuffer fin64 = tampon(56 + 20);
+                fin64.putInt(0x06064b50).putLong(44)
+                     .putShort((short) 45).putShort((short) 45)
+                     .putInt(0).putInt(0)
+                     .putLong(entrees.size()).putLong(entrees.size())
+                     .putLong(tailleRepertoire).putLong(debutRepertoire);
+                fin64.putInt(0x07064b50).putInt(0).putLong(debutFin64).putInt(1);
+                fin64.flip();
+                ecrireOctets(fin64);
+            }
+
+            ByteBuffer fin = tampon(22);
+            fin.putInt(0x06054b50)
+               .putShort((short) 0).putShort((short) 0)
+               .putShort((short) Math.min(entrees.size(), 0xFFFF))
+               .putShort((short) Math.min(entrees.size(), 0xFFFF))
+               .putInt((int) Math.min(tailleRepertoire, LIMITE_32))
+               .putInt((int) Math.min(debutRepertoire, LIMITE_32))
+               .putShort((short) 0);
+            fin.flip();
+            ecrireOctets(fin);
+
+            canal.force(true);
+        } finally {
+            fermer();
+        }
+    }
+
+    /**
+     * Ferme l'archive sans la terminer (sauvegarde abandonnée)
+     */
+    public synchronized void fermer() {
+        pool.shutdownNow();
+        try {
+            canal.close();
+        } catch (IOException e) {
+            // Archive abandonnée
+        }
+    }
+
+    // ==================== FORMAT ZIP ====================
+
+    private void ecrireEnTeteLocal(byte[] nom, int methode, long crc, long tailleCompressee,
+                                   long tailleOriginale, boolean zip64) throws IOException {
+        ByteBuffer buf = tampon(30 + nom.length + (zip64 ? 20 : 0));
+        buf.putInt(0x04034b50)
+           .putShort((short) (zip64 ? 45 : 20))
+           .putShort((short) DRAPEAU_UTF8)
+           .putShort((short) methode)
+           .putShort((short) heureDos)
+           .putShort((short) dateDos)
+           .putInt((int) crc)
+           .putInt((int) (zip64 ? LIMITE_32 : tailleCompressee))
+           .putInt((int) (zip64 ? LIMITE_32 : tailleOriginale))
+           .putShort((short) nom.length)
+           .putShort((short) (zip64 ? 20 : 0))
+           .put(nom);
+        if (zip64) {
+            buf.putShort((short) 0x0001).putShort((short) 16).putLong(tailleOriginale).putLong(tailleCompressee);
+        }
+        buf.flip();
+        ecrireOctets(buf);
+    }
+
+    private long ecrireOctets(ByteBuffer buf) throws IOException {
+        long ecrits = 0;
+        while (buf.hasRemaining()) {
+            ecrits += canal.write(buf);
+        }
+        position += ecrits;
+        return ecrits;
+    }
+
+    private static ByteBuffer tampon(int taille) {
+        return ByteBuffer.allocate(taille).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // ==================== COMPRESSION ====================
+
+    /**
+     * Compresse un bloc en deflate brut ; hors dernier bloc, le flux se termine par un SYNC_FLUSH
+     * (aligné sur l'octet, sans marque de fin) pour pouvoir être concaténé au bloc suivant
+     */
+    private byte[] deflaterBloc(byte[] donnees, int debut, int longueur, byte[] dictionnaire, boolean dernier) {
+        Deflater deflater = new Deflater(niveau, true);
+        try {
+            if (dictionnaire != null && dictionnaire.length > 0) {
+                deflater.setDictionary(dictionnaire);
+            }
+            deflater.setInput(donnees, debut, longueur);
+
+            ByteArrayOutputStream sortie = new ByteArrayOutputStream(longueur / 2 + 64);
+            byte[] tampon = new byte[64 * 1024];
+
+            if (dernier) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(tampon);
+                    sortie.write(tampon, 0, n);
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(tampon, 0, tampon.length, Deflater.SYNC_FLUSH);
+                    sortie.write(tampon, 0, n);
+                } while (n == tampon.length);
+            }
+            return sortie.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] attendre(Future<byte[]> resultat) throws IOException {
+        try {
+            return resultat.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Compression interrompue", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Erreur de compression: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -9,7 +9,15 @@ import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.Base64;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -30,9 +38,27 @@ public class AuthenticationService {
     // Générateur sécurisé pour les tokens
     private final SecureRandom secureRandom = new SecureRandom();
     
+    // Hachages de mots de passe (volontairement coûteux) : pool borné dédié, file bornée.
+    // Une vague de connexions en début de service attend son tour au lieu d'occuper tous les cœurs.
+    private static final long DELAI_VERIFICATION_SECONDES = 30;
+    private final ThreadPoolExecutor poolMotsDePasse;
+    
     private AuthenticationService() {
         this.userService = UserService.getInstance();
         this.networkService = NetworkService.getInstance();
+        
+        int threads = lireEntier("securite.verification.threads",
+                                 Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        AtomicInteger numero = new AtomicInteger();
+        this.poolMotsDePasse = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(lireEntier("securite.verification.file", 32)),
+            r -> {
+                Thread t = new Thread(r, "verification-mdp-" + numero.incrementAndGet());
+                t.setDaemon(true);
+                t.setPriority(Thread.NORM_PRIORITY - 1);
+                return t;
+            });
+        this.poolMotsDePasse.allowCoreThreadTimeOut(true);
     }
     
     public static synchronized AuthenticationService getInstance() {
@@ -84,7 +110,8 @@ public class AuthenticationService {
             }
             
             // Vérification du mot de passe
-            if (!PasswordUtils.verifyPassword(password, user.getPassword())) {
+            String hashStocke = user.getPassword();
+            if (!surPoolMotsDePasse(() -> PasswordUtils.verifyPassword(password, hashStocke))) {
                 logFailedAttempt(normalizedCode);
                 throw new AuthenticationException("Mot de passe incorrect");
             }
@@ -95,6 +122,14 @@ public class AuthenticationService {
                 throw new AuthenticationException("Rôle incorrect pour cet utilisateur");
             }
             
+            // Ancien schéma ou coût inférieur au réglage : rehaché maintenant que le mot de passe
+            // est connu, enregistré avec la connexion (updateUser)
+            if (PasswordUtils.necessiteRehachage(hashStocke)) {
+                user.setPassword(surPoolMotsDePasse(() -> PasswordUtils.hashPassword(password)));
+                System.out.println("✓ Mot de passe rehaché (" + PasswordUtils.getHacheurCourant().getIdentifiant() +
+                                   ") pour l'utilisateur: " + user.getCode());
+            }
+            
             // Authentification réussie
             return handleSuccessfulAuthentication(user);
             
@@ -239,7 +274,8 @@ public class AuthenticationService {
      * Change le mot de passe d'un utilisateur
      */
     public void changePassword(User user, String oldPassword, String newPassword) throws AuthenticationException {
-        if (!PasswordUtils.verifyPassword(oldPassword, user.getPassword())) {
+        String hashStocke = user.getPassword();
+        if (!surPoolMotsDePasse(() -> PasswordUtils.verifyPassword(oldPassword, hashStocke))) {
             throw new AuthenticationException("Ancien mot de passe incorrect");
         }
         
@@ -247,12 +283,48 @@ public class AuthenticationService {
             throw new AuthenticationException("Le nouveau mot de passe ne respecte pas les critères de sécurité");
         }
         
-        String hashedPassword = PasswordUtils.hashPassword(newPassword);
+        String hashedPassword = surPoolMotsDePasse(() -> PasswordUtils.hashPassword(newPassword));
         user.setPassword(hashedPassword);
         userService.updateUser(user);
         
         System.out.println("Mot de passe modifié pour l'utilisateur: " + user.getCode());
     }
+    
+    // ==================== POOL DE HACHAGE ====================
+    
+    /**
+     * Exécute un hachage sur le pool dédié et attend son résultat
+     * File pleine : la connexion est refusée tout de suite plutôt que d'attendre indéfiniment.
+     */
+    private <T> T surPoolMotsDePasse(Callable<T> calcul) throws AuthenticationException {
+        Future<T> resultat;
+        try {
+            resultat = poolMotsDePasse.submit(calcul);
+        } catch (RejectedExecutionException e) {
+            throw new AuthenticationException("Trop de connexions simultanées, réessayez dans quelques secondes");
+        }
+        
+        try {
+            return resultat.get(DELAI_VERIFICATION_SECONDES, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            resultat.cancel(true);
+            throw new AuthenticationException("Vérification du mot de passe trop longue, réessayez");
+        } catch (InterruptedException e) {
+            resultat.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationException("Vérification du mot de passe interrompue");
+        } catch (ExecutionException e) {
+            throw new AuthenticationException("Erreur lors de la vérification du mot de passe", e.getCause());
+        }
+    }
+    
+    private static int lireEntier(String cle, int defaut) {
+        try {
+            return Math.max(1, Integer.parseInt(DatabaseService.getPropriete(cle, String.valueOf(defaut)).trim()));
+        } catch (NumberFormatException e) {
+            return defaut;
+        }
+    }
 }
 
 /**
@@ -4,7 +4,9 @@ import java.io.*;
 import java.nio.file.*;
 import java.sql.*;
 import java.time.LocalDateTime;
-import java.util.zip.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service de sauvegarde des documents sur disques amovibles
@@ -12,6 +14,9 @@ import java.util.zip.*;
 public class BackupService {
     
     private static BackupService instance;
+    
+    // Documents lus par requête pour alimenter le moteur de sauvegarde
+    private static final int TAILLE_PAGE_SOURCES = 500;
     private final DatabaseService databaseService;
     private final NetworkStorageService networkStorageService;
     
@@ -31,20 +36,35 @@ public class BackupService {
      * Crée une sauvegarde complète de tous les documents
      */
     public boolean creerSauvegardeComplete(String cheminDestination, boolean compress, int userId) {
-        return creerSauvegarde("complete", cheminDestination, compress, userId, null);
+        return creerSauvegardeComplete(cheminDestination, compress, userId, null);
+    }
+    
+    public boolean creerSauvegardeComplete(String cheminDestination, boolean compress, int userId,
+                                           Consumer<ProgressionSauvegarde> suivi) {
+        return creerSauvegarde("complete", cheminDestination, compress, userId, null, suivi);
     }
     
     /**
-     * Crée une sauvegarde incrémentale (documents modifiés depuis dernière sauvegarde)
+     * Crée une sauvegarde incrémentale (documents dont le contenu a changé depuis la dernière sauvegarde)
      */
     public boolean creerSauvegardeIncrementale(String cheminDestination, boolean compress, int userId) {
-        LocalDateTime derniereSauvegarde = getDateDerniereSauvegarde();
-        return creerSauvegarde("incrementale", cheminDestination, compress, userId, derniereSauvegarde);
+        return creerSauvegardeIncrementale(cheminDestination, compress, userId, null);
+    }
+    
+    public boolean creerSauvegardeIncrementale(String cheminDestination, boolean compress, int userId,
+                                               Consumer<ProgressionSauvegarde> suivi) {
+        ManifesteSauvegarde precedent = chargerManifestePrecedent(Paths.get(cheminDestination));
+        return creerSauvegarde("incrementale", cheminDestination, compress, userId, precedent, suivi);
     }
     
-    private boolean creerSauvegarde(String type, String cheminDestination, boolean compress, 
-                                   int userId, LocalDateTime depuis) {
+    /**
+     * Les documents sont lus par pages et confiés au moteur, qui les écrit directement dans l'archive
+     * (plus de copie intermédiaire ni de compression en seconde passe)
+     */
+    private boolean creerSauvegarde(String type, String cheminDestination, boolean compress, int userId,
+                                   ManifesteSauvegarde precedent, Consumer<ProgressionSauvegarde> suivi) {
         int sauvegardeId = -1;
+        MoteurSauvegarde moteur = null;
         
         try {
             // Créer l'enregistrement de sauvegarde
@@ -54,10 +74,8 @@ public class BackupService {
                 return false;
             }
             
-            // Récupérer les documents à sauvegarder
-            String query = "SELECT chemin_serveur, code_document FROM documents WHERE statut != 'supprime'";
-            if (depuis != null) {
-                query += " AND date_modification >= ?";
+            if (!networkStorageService.isServeurStorageActif()) {
+                throw new IOException("Serveur de stockage inaccessible");
             }
             
             Path destPath = Paths.get(cheminDestination);
@@ -65,58 +83,46 @@ public class BackupService {
                 Files.createDirectories(destPath);
             }
             
-            // Créer un sous-répertoire avec la date
+            // Nommer la sauvegarde avec la date
             String nomSauvegarde = "backup_" + 
                 LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            Path sauvegardeDir = destPath.resolve(nomSauvegarde);
-            Files.createDirectories(sauvegardeDir);
+            MoteurSauvegarde.Sortie sortie = compress
+                ? MoteurSauvegarde.versZip(destPath.resolve(nomSauvegarde + ".zip"))
+                : MoteurSauvegarde.versRepertoire(destPath.resolve(nomSauvegarde));
             
-            int nombreFichiers = 0;
-            long tailleTotale = 0;
+            moteur = new MoteurSauvegarde(sortie, precedent, lireNombreLecteurs(), suivi);
             
-            try (Connection conn = databaseService.getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(query)) {
-                
-                if (depuis != null) {
-                    stmt.setTimestamp(1, Timestamp.valueOf(depuis));
+            // Lecture par pages de clés : aucun curseur n'est ouvert pendant que soumettre() attend les lecteurs
+            // (un curseur en flux bloqué côté client dépasserait net_write_timeout sur le serveur)
+            int dernierId = 0;
+            List<MoteurSauvegarde.Source> page;
+            do {
+                page = lirePageSources(dernierId);
+                for (MoteurSauvegarde.Source source : page) {
+                    moteur.soumettre(source);
                 }
-                
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        String cheminServeur = rs.getString("chemin_serveur");
-                        String codeDocument = rs.getString("code_document");
-                        
-                        if (cheminServeur != null && networkStorageService.fichierExisteSurServeur(cheminServeur)) {
-                            Path source = Paths.get(cheminServeur);
-                            String nomFichier = source.getFileName().toString();
-                            Path dest = sauvegardeDir.resolve(nomFichier);
-                            
-                            Files.copy(source, dest, StandardCopyOption.REPLACE_EXISTING);
-                            nombreFichiers++;
-                            tailleTotale += Files.size(dest);
-                        }
-                    }
+                if (!page.isEmpty()) {
+                    dernierId = page.get(page.size() - 1).getDocumentId();
                 }
-            }
+            } while (page.size() == TAILLE_PAGE_SOURCES);
             
-            // Compression si demandée
-            Path finalPath = sauvegardeDir;
-            if (compress) {
-                finalPath = compresserSauvegarde(sauvegardeDir);
-                // Supprimer le répertoire non compressé
-                deleteDirectory(sauvegardeDir.toFile());
-            }
+            ManifesteSauvegarde manifeste = moteur.terminer();
+            ProgressionSauvegarde bilan = moteur.getProgression();
             
             // Mettre à jour l'enregistrement
-            terminerSauvegarde(sauvegardeId, nombreFichiers, tailleTotale, finalPath.toString());
+            terminerSauvegarde(sauvegardeId, (int) bilan.getFichiersEcrits(), bilan.getOctetsEcrits(),
+                               sortie.getChemin().toString());
             
-            System.out.println("✓ Sauvegarde " + type + " terminée: " + nombreFichiers + " fichiers");
+            System.out.println("✓ Sauvegarde " + type + " terminée: " + bilan + " (" + manifeste.taille() + " document(s) au manifeste)");
             return true;
             
         } catch (Exception e) {
             System.err.println("✗ Erreur lors de la sauvegarde: " + e.getMessage());
             e.printStackTrace();
             
+            if (moteur != null) {
+                moteur.abandonner();
+            }
             if (sauvegardeId != -1) {
                 marquerSauvegardeErreur(sauvegardeId, e.getMessage());
             }
@@ -125,25 +131,110 @@ public class BackupService {
         }
     }
     
-    private Path compresserSauvegarde(Path source) throws IOException {
-        Path zipPath = Paths.get(source.toString() + ".zip");
+    /**
+     * Documents à sauvegarder dont l'id suit dernierId (au plus TAILLE_PAGE_SOURCES, par id croissant)
+     */
+    private List<MoteurSauvegarde.Source> lirePageSources(int dernierId) throws SQLException {
+        String query = "SELECT id, code_document, chemin_serveur, extension, hash_fichier FROM documents " +
+                      "WHERE statut != 'supprime' AND chemin_serveur IS NOT NULL AND id > ? ORDER BY id LIMIT ?";
+        List<MoteurSauvegarde.Source> sources = new ArrayList<>(TAILLE_PAGE_SOURCES);
+        
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setInt(1, dernierId);
+            stmt.setInt(2, TAILLE_PAGE_SOURCES);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sources.add(new MoteurSauvegarde.Source(
+                        rs.getInt("id"),
+                        rs.getString("code_document"),
+                        rs.getString("chemin_serveur"),
+                        rs.getString("extension"),
+                        rs.getString("hash_fichier")));
+                }
+            }
+        }
+        return sources;
+    }
+    
+    // ==================== VÉRIFICATION / RESTAURATION ====================
+
+    /**
+     * Vérifie une sauvegarde sans rien écrire : entrées corrompues, périmées ou manquantes
+     * @param cheminSauvegarde Archive zip ou répertoire de sauvegarde
+     * @return Le rapport, ou null si la sauvegarde est illisible
+     */
+    public MoteurRestauration.Rapport verifierSauvegarde(String cheminSauvegarde, Consumer<ProgressionSauvegarde> suivi) {
+        return executerRestauration(cheminSauvegarde, true, suivi);
+    }
+
+    /**
+     * Restaure dans le stockage les documents dont le contenu sauvegardé est vérifié
+     * @param cheminSauvegarde Archive zip ou répertoire de sauvegarde
+     * @return Le rapport, ou null si la sauvegarde est illisible
+     */
+    public MoteurRestauration.Rapport restaurerSauvegarde(String cheminSauvegarde, Consumer<ProgressionSauvegarde> suivi) {
+        return executerRestauration(cheminSauvegarde, false, suivi);
+    }
+
+    private MoteurRestauration.Rapport executerRestauration(String cheminSauvegarde, boolean simulation,
+                                                           Consumer<ProgressionSauvegarde> suivi) {
+        try {
+            MoteurRestauration.Rapport rapport =
+                new MoteurRestauration(Paths.get(cheminSauvegarde), simulation, suivi).executer();
+
+            if (rapport.estConforme()) {
+                System.out.println("✓ " + rapport);
+            } else {
+                System.err.println("⚠ " + rapport);
+            }
+            return rapport;
+
+        } catch (IOException | SQLException e) {
+            System.err.println("✗ Erreur lors de la " + (simulation ? "vérification" : "restauration") +
+                              " de la sauvegarde: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private int lireNombreLecteurs() {
+        try {
+            return Math.max(1, Integer.parseInt(DatabaseService.getPropriete("sauvegarde.lecteurs", "4").trim()));
+        } catch (NumberFormatException e) {
+            return 4;
+        }
+    }
+    
+    /**
+     * Manifeste de la dernière sauvegarde terminée dans ce répertoire de destination
+     * Retourne null (sauvegarde complète) si la chaîne ne peut pas être reprise.
+     */
+    private ManifesteSauvegarde chargerManifestePrecedent(Path destPath) {
+        String query = "SELECT chemin_destination FROM sauvegardes WHERE statut = 'termine' " +
+                      "ORDER BY date_fin DESC LIMIT 1";
         
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipPath.toFile()))) {
-            Files.walk(source)
-                .filter(path -> !Files.isDirectory(path))
-                .forEach(path -> {
-                    try {
-                        String zipEntryName = source.relativize(path).toString();
-                        zos.putNextEntry(new ZipEntry(zipEntryName));
-                        Files.copy(path, zos);
-                        zos.closeEntry();
-                    } catch (IOException e) {
-                        System.err.println("Erreur compression: " + e.getMessage());
-                    }
-                });
+        try (Connection conn = databaseService.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            if (rs.next() && rs.getString(1) != null) {
+                Path derniere = Paths.get(rs.getString(1)).toAbsolutePath().normalize();
+                Path manifeste = ManifesteSauvegarde.emplacement(derniere);
+                
+                // Les archives sont désignées par leur nom : la chaîne reste dans un même répertoire
+                if (destPath.toAbsolutePath().normalize().equals(derniere.getParent()) && Files.isRegularFile(manifeste)) {
+                    return ManifesteSauvegarde.lire(manifeste);
+                }
+            }
+        } catch (SQLException | IOException e) {
+            System.err.println("Erreur récupération dernière sauvegarde: " + e.getMessage());
         }
         
-        return zipPath;
+        System.err.println("⚠ Aucun manifeste précédent dans " + destPath + " : sauvegarde complète");
+        return null;
     }
     
     private int creerEnregistrementSauvegarde(String type, String chemin, boolean compress, int userId) {
@@ -204,38 +295,4 @@ public class BackupService {
             System.err.println("Erreur marquage erreur: " + e.getMessage());
         }
     }
-    
-    private LocalDateTime getDateDerniereSauvegarde() {
-        String query = "SELECT MAX(date_fin) FROM sauvegardes WHERE statut = 'termine'";
-        
-        try (Connection conn = databaseService.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            if (rs.next()) {
-                Timestamp ts = rs.getTimestamp(1);
-                return ts != null ? ts.toLocalDateTime() : null;
-            }
-        } catch (SQLException e) {
-            System.err.println("Erreur récupération dernière sauvegarde: " + e.getMessage());
-        }
-        
-        return null;
-    }
-    
-    private void deleteDirectory(File directory) {
-        if (directory.exists()) {
-            File[] files = directory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isDirectory()) {
-                        deleteDirectory(file);
-                    } else {
-                        file.delete();
-                    }
-                }
-            }
-            directory.delete();
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+package application.services;
+
+import application.services.NetworkService.TypeEntite;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache en lecture traversante des entités lues par identifiant (documents, dossiers, utilisateurs)
+ *
+ * - Taille bornée : l'entrée la moins récemment lue est évincée (LRU)
+ * - Durée de vie : une entrée plus vieille que le TTL est relue en base
+ * - Les écritures locales invalident l'entrée ; les invalidations reçues par NetworkService
+ *   invalident la même entrée sur les autres postes (invaliderPartout)
+ * - Une invalidation pendant un chargement empêche de mettre en cache la valeur chargée
+ * - Les entités sont mutables : le cache conserve sa propre copie et rend une copie à chaque lecture
+ *
+ * Réglages (config/database.properties) : cache.actif, cache.<nom>.taille, cache.<nom>.ttl_s
+ */
+public class CacheEntites<V> {
+
+    // Caches créés par les services, pour les invalidations réseau et les statistiques
+    private static final List<CacheEntites<?>> CACHES = new CopyOnWriteArrayList<>();
+
+    private final String nom;
+    private final TypeEntite type;
+    private final boolean actif;
+    private final int capacite;
+    private final long ttlNanos;
+    private final UnaryOperator<V> copie;
+
+    private final LinkedHashMap<Integer, Entree<V>> entrees;
+    private long generation = 0;
+
+    private final LongAdder succes = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Chargement depuis la base d'une entité absente du cache (null si elle n'existe pas)
+     */
+    @FunctionalInterface
+    public interface Chargeur<V> {
+        V charger(int id) throws SQLException;
+    }
+
+    private CacheEntites(String nom, TypeEntite type, int capaciteParDefaut, int ttlSecondesParDefaut,
+                         UnaryOperator<V> copie) {
+        this.nom = nom;
+        this.type = type;
+        this.copie = copie;
+        this.actif = Boolean.parseBoolean(DatabaseService.getPropriete("cache.actif", "true").trim());
+        this.capacite = lireEntier("cache." + nom + ".taille", capaciteParDefaut);
+        this.ttlNanos = lireEntier("cache." + nom + ".ttl_s", ttlSecondesParDefaut) * 1_000_000_000L;
+
+        this.entrees = new LinkedHashMap<>(Math.min(capacite, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entree<V>> plusAncienne) {
+                if (size() > capacite) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Crée un cache et l'inscrit pour les invalidations réseau et les statistiques
+     * @param type Type d'entité des invalidations réseau à appliquer (null : aucune)
+     * @param copie Copie d'une entité (ex. Document::copier)
+     */
+    public static <V> CacheEntites<V> creer(String nom, TypeEntite type, int capaciteParDefaut,
+                                            int ttlSecondesParDefaut, UnaryOperator<V> copie) {
+        CacheEntites<V> cache = new CacheEntites<>(nom, type, capaciteParDefaut, ttlSecondesParDefaut, copie);
+        CACHES.add(cache);
+        return cache;
+    }
+
+    private static int lireEntier(String cle, int valeurParDefaut) {
+        try {
+            return Math.max(1, Integer.parseInt(DatabaseService.getPropriete(cle, String.valueOf(valeurParDefaut)).trim()));
+        } catch (NumberFormatException e) {
+            return valeurParDefaut;
+        }
+    }
+
+    // ==================== LECTURE ====================
+
+    /**
+     * Retourne une copie de l'entité en cache, sinon la charge et en met une copie en cache
+     * Une entité introuvable (null) n'est pas mise en cache.
+     */
+    public V obtenir(int id, Chargeur<V> chargeur) throws SQLException {
+        if (!actif) {
+            return chargeur.charger(id);
+        }
+
+        long generationLue;
+        synchronized (this) {
+            Entree<V> entree = entrees.get(id);
+            if (entree != null) {
+                if (System.nanoTime() - entree.chargeeA < ttlNanos) {
+                    succes.increment();
+                    return copie.apply(entree.valeur);
+                }
+                entrees.remove(id);
+                expirations.increment();
+            }
+            generationLue = generation;
+        }
+
+        // Chargement hors verrou : les autres lectures ne sont pas bloquées par la base
+        echecs.increment();
+        V valeur = chargeur.charger(id);
+
+        if (valeur != null) {
+            // Copie prise avant de rendre la valeur : l'appelant peut la modifier aussitôt
+            V conservee = copie.apply(valeur);
+            synchronized (this) {
+                if (generation == generationLue) {
+                    entrees.put(id, new Entree<>(conservee, System.nanoTime()));
+                }
+            }
+        }
+        return valeur;
+    }
+
+    // ==================== INVALIDATION ====================
+
+    public synchronized void invalider(int id) {
+        generation++;
+        if (entrees.remove(id) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public synchronized void vider() {
+        generation++;
+        invalidations.add(entrees.size());
+        entrees.clear();
+    }
+
+    /**
+     * Invalidation reçue d'un autre poste : retire l'entité des caches de ce type
+     */
+    public static void invaliderPartout(TypeEntite type, int id) {
+        for (CacheEntites<?> cache : CACHES) {
+            if (cache.type == type) {
+                cache.invalider(id);
+            }
+        }
+    }
+
+    /**
+     * Vide tous les caches (rechargement complet demandé, invalidations perdues)
+     */
+    public static void viderTous() {
+        for (CacheEntites<?> cache : CACHES) {
+            cache.vider();
+        }
+    }
+
+    // ==================== STATISTIQUES ====================
+
+    public synchronized int getTaille() {
+        return entrees.size();
+    }
+
+    public double getTauxSucces() {
+        long total = succes.sum() + echecs.sum();
+        return total == 0 ? 0 : (double) succes.sum() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-12s %6d / %-6d succès %8d  échecs %8d  (%5.1f %%)  évictions %6d  expirations %6d  invalidations %6d",
+            nom, getTaille(), capacite, succes.sum(), echecs.sum(), getTauxSucces() * 100,
+            evictions.sum(), expirations.sum(), invalidations.sum());
+    }
+
+    /**
+     * Une ligne par cache (administration, diagnostic)
+     */
+    public static String rapport() {
+        StringBuilder sb = new StringBuilder("== Caches d'entités ==\n");
+        for (CacheEntites<?> cache : CACHES) {
+            sb.append(cache.actif ? cache.toString() : cache.nom + " (désactivé)").append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static class Entree<V> {
+        final V valeur;
+        final long chargeeA;
+
+        Entree(V valeur, long chargeeA) {
+            this.valeur = valeur;
+            this.chargeeA = chargeeA;
+        }
+    }
+}
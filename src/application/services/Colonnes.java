@@ -0,0 +1,102 @@
+package application.services;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Index des colonnes d'un ResultSet, lus une fois dans les métadonnées
+ *
+ * Les noms sont les libellés SQL (alias compris), sans distinction de casse ;
+ * si deux colonnes portent le même libellé, la première l'emporte (comme ResultSet.findColumn).
+ * Les lectures statiques acceptent l'index ABSENTE pour les colonnes optionnelles.
+ */
+public final class Colonnes {
+
+    /**
+     * Index d'une colonne optionnelle absente du ResultSet
+     */
+    public static final int ABSENTE = 0;
+
+    private final Map<String, Integer> index;
+
+    private Colonnes(Map<String, Integer> index) {
+        this.index = index;
+    }
+
+    public static Colonnes de(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int nombre = meta.getColumnCount();
+        Map<String, Integer> index = new HashMap<>(nombre * 2);
+
+        for (int i = 1; i <= nombre; i++) {
+            index.putIfAbsent(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        return new Colonnes(index);
+    }
+
+    /**
+     * Index d'une colonne obligatoire
+     * @throws SQLException si la colonne n'existe pas (erreur de requête, détectée une fois)
+     */
+    public int index(String nom) throws SQLException {
+        Integer i = index.get(nom.toLowerCase(Locale.ROOT));
+        if (i == null) {
+            throw new SQLException("Colonne introuvable: " + nom);
+        }
+        return i;
+    }
+
+    /**
+     * Index d'une colonne optionnelle, ou ABSENTE
+     */
+    public int indexOptionnel(String nom) {
+        return index.getOrDefault(nom.toLowerCase(Locale.ROOT), ABSENTE);
+    }
+
+    public boolean contient(String nom) {
+        return index.containsKey(nom.toLowerCase(Locale.ROOT));
+    }
+
+    // ==================== LECTURES NULLABLES ====================
+
+    /**
+     * Entier nullable (colonne absente ou NULL -> null)
+     */
+    public static Integer entier(ResultSet rs, int colonne) throws SQLException {
+        if (colonne == ABSENTE) return null;
+        int valeur = rs.getInt(colonne);
+        return rs.wasNull() ? null : valeur;
+    }
+
+    public static String chaine(ResultSet rs, int colonne) throws SQLException {
+        return colonne == ABSENTE ? null : rs.getString(colonne);
+    }
+
+    public static LocalDateTime dateHeure(ResultSet rs, int colonne) throws SQLException {
+        if (colonne == ABSENTE) return null;
+        Timestamp valeur = rs.getTimestamp(colonne);
+        return valeur != null ? valeur.toLocalDateTime() : null;
+    }
+
+    public static LocalDate date(ResultSet rs, int colonne) throws SQLException {
+        if (colonne == ABSENTE) return null;
+        Date valeur = rs.getDate(colonne);
+        return valeur != null ? valeur.toLocalDate() : null;
+    }
+
+    /**
+     * Constante d'énumération (NULL ou colonne absente -> null), nom mis en majuscules
+     */
+    public static <E extends Enum<E>> E enumeration(ResultSet rs, int colonne, Class<E> type) throws SQLException {
+        String valeur = chaine(rs, colonne);
+        return valeur != null ? Enum.valueOf(type, valeur.toUpperCase(Locale.ROOT)) : null;
+    }
+}
@@ -0,0 +1,320 @@
+package application.services;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Compteurs d'activité pré-agrégés (table compteurs_activite)
+ *
+ * Les chemins d'écriture incrémentent des compteurs par heure, par jour et un total :
+ * les tableaux de bord lisent quelques lignes au lieu de compter des tables qui grossissent.
+ *
+ * - Événements (heure, jour et total) : documents créés, entrées de courriers dans un statut,
+ *   actions journalisées, tentatives d'accès confidentiel
+ * - Ligne « total » : solde courant pour les documents (hors corbeille) et les courriers par statut,
+ *   cumul depuis l'origine pour les logs (la purge ne le diminue pas) et les accès confidentiels
+ * - Les lignes d'un même envoi sont triées : deux postes verrouillent toujours dans le même ordre
+ * - reconstruire() recalcule tout depuis les tables sources (à l'initialisation si la table est vide)
+ */
+public class CompteursActiviteService {
+
+    private static CompteursActiviteService instance;
+
+    public static final String DOCUMENTS = "documents";
+    public static final String ACCES_REUSSIS = "acces_confidentiels.reussis";
+    public static final String ACCES_REFUSES = "acces_confidentiels.refuses";
+    public static final String ACCES_UTILISATEURS = "acces_confidentiels.utilisateurs";
+
+    public static final String PERIODE_HEURE = "heure";
+    public static final String PERIODE_JOUR = "jour";
+    public static final String PERIODE_TOTAL = "total";
+
+    private static final LocalDateTime DEBUT_TOTAL = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final DatabaseService databaseService;
+
+    private CompteursActiviteService() {
+        this.databaseService = DatabaseService.getInstance();
+    }
+
+    public static synchronized CompteursActiviteService getInstance() {
+        if (instance == null) {
+            instance = new CompteursActiviteService();
+        }
+        return instance;
+    }
+
+    /** Compteur des courriers entrés dans un statut (solde : courriers actuellement dans ce statut) */
+    public static String courriers(String statut) {
+        return "courriers." + statut.toLowerCase();
+    }
+
+    /** Compteur d'une action de logs_activite */
+    public static String logs(String action) {
+        return "logs." + action;
+    }
+
+    // ==================== INCRÉMENTS ====================
+
+    /**
+     * Incréments à appliquer en une seule requête
+     */
+    public static class Increments {
+        private final Map<Cle, Long> valeurs = new TreeMap<>();
+
+        /** Un événement maintenant */
+        public Increments evenement(String metrique) {
+            return evenement(metrique, LocalDateTime.now(), 1);
+        }
+
+        /** n événements à l'instant donné : heure, jour et total */
+        public Increments evenement(String metrique, LocalDateTime instant, long n) {
+            ajouter(new Cle(metrique, PERIODE_HEURE, instant.truncatedTo(ChronoUnit.HOURS)), n);
+            ajouter(new Cle(metrique, PERIODE_JOUR, instant.truncatedTo(ChronoUnit.DAYS)), n);
+            return solde(metrique, n);
+        }
+
+        /** Variation du total seul (ex. un document mis à la corbeille) */
+        public Increments solde(String metrique, long delta) {
+            ajouter(new Cle(metrique, PERIODE_TOTAL, DEBUT_TOTAL), delta);
+            return this;
+        }
+
+        public boolean estVide() {
+            return valeurs.isEmpty();
+        }
+
+        private void ajouter(Cle cle, long delta) {
+            if (delta != 0) {
+                valeurs.merge(cle, delta, Long::sum);
+            }
+        }
+    }
+
+    private record Cle(String metrique, String periode, LocalDateTime debut) implements Comparable<Cle> {
+        @Override
+        public int compareTo(Cle autre) {
+            int c = metrique.compareTo(autre.metrique);
+            if (c == 0) c = periode.compareTo(autre.periode);
+            return c != 0 ? c : debut.compareTo(autre.debut);
+        }
+    }
+
+    /**
+     * Applique les incréments dans la transaction de l'appelant
+     * L'erreur est propagée : la transaction doit être annulée avec l'écriture qu'ils décrivent.
+     */
+    public void appliquer(Connection conn, Increments increments) throws SQLException {
+        if (increments.estVide()) return;
+
+        StringBuilder query = new StringBuilder("INSERT INTO compteurs_activite (metrique, periode, debut, valeur) VALUES ");
+        for (int i = 0; i < increments.valeurs.size(); i++) {
+            query.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        query.append(" ON DUPLICATE KEY UPDATE valeur = valeur + VALUES(valeur)");
+
+        try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            int index = 1;
+            for (Map.Entry<Cle, Long> entree : increments.valeurs.entrySet()) {
+                Cle cle = entree.getKey();
+                stmt.setString(index++, cle.metrique());
+                stmt.setString(index++, cle.periode());
+                stmt.setTimestamp(index++, Timestamp.valueOf(cle.debut()));
+                stmt.setLong(index++, entree.getValue());
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Applique les incréments après une écriture déjà validée
+     * Une erreur est seulement signalée : le compteur s'écarte, reconstruire() le corrige.
+     */
+    public void appliquer(Increments increments) {
+        if (increments.estVide()) return;
+
+        try (Connection conn = databaseService.getConnection()) {
+            appliquer(conn, increments);
+        } catch (SQLException e) {
+            System.err.println("⚠ Erreur mise à jour des compteurs d'activité: " + e.getMessage());
+        }
+    }
+
+    // ==================== LECTURE ====================
+
+    /**
+     * Total (solde ou cumul) d'un compteur, 0 s'il n'existe pas
+     */
+    public long getTotal(String metrique) throws SQLException {
+        return lireValeur(metrique, PERIODE_TOTAL, DEBUT_TOTAL);
+    }
+
+    /**
+     * Nombre d'événements d'un jour
+     */
+    public long getJour(String metrique, LocalDate jour) throws SQLException {
+        return lireValeur(metrique, PERIODE_JOUR, jour.atStartOfDay());
+    }
+
+    /**
+     * Totaux des compteurs commençant par le préfixe (ex. "courriers.")
+     */
+    public Map<String, Long> getTotaux(String prefixe) throws SQLException {
+        String query = "SELECT metrique, valeur FROM compteurs_activite " +
+                      "WHERE metrique LIKE ? AND periode = ? ORDER BY metrique";
+        Map<String, Long> totaux = new LinkedHashMap<>();
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, prefixe.replace("_", "\\_").replace("%", "\\%") + "%");
+            stmt.setString(2, PERIODE_TOTAL);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    totaux.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+        }
+        return totaux;
+    }
+
+    /**
+     * Série d'un compteur sur [debut, fin[ (périodes sans événement absentes)
+     * @param periode PERIODE_HEURE ou PERIODE_JOUR
+     */
+    public Map<LocalDateTime, Long> getSerie(String metrique, String periode,
+                                             LocalDateTime debut, LocalDateTime fin) throws SQLException {
+        String query = "SELECT debut, valeur FROM compteurs_activite " +
+                      "WHERE metrique = ? AND periode = ? AND debut >= ? AND debut < ? ORDER BY debut";
+        Map<LocalDateTime, Long> serie = new LinkedHashMap<>();
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, metrique);
+            stmt.setString(2, Objects.requireNonNull(periode));
+            stmt.setTimestamp(3, Timestamp.valueOf(debut));
+            stmt.setTimestamp(4, Timestamp.valueOf(fin));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    serie.put(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2));
+                }
+            }
+        }
+        return serie;
+    }
+
+    private long lireValeur(String metrique, String periode, LocalDateTime debut) throws SQLException {
+        String query = "SELECT valeur FROM compteurs_activite WHERE metrique = ? AND periode = ? AND debut = ?";
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, metrique);
+            stmt.setString(2, periode);
+            stmt.setTimestamp(3, Timestamp.valueOf(debut));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    // ==================== RECONSTRUCTION ====================
+
+    /**
+     * Reconstruit les compteurs si la table est vide (première installation ou mise à jour)
+     */
+    public void initialiser() {
+        try (Connection conn = databaseService.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1 FROM compteurs_activite LIMIT 1")) {
+
+            if (!rs.next()) {
+                reconstruire();
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠ Compteurs d'activité non initialisés: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recalcule tous les compteurs depuis les tables sources (une transaction)
+     * Les entrées de courriers dans un statut ne sont pas historisées : seule la création
+     * (statut « nouveau ») est reconstituée par heure et par jour ; les soldes sont exacts.
+     */
+    public synchronized void reconstruire() throws SQLException {
+        String heure = "DATE_FORMAT(%s, '%%Y-%%m-%%d %%H:00:00')";
+        String total = "'1970-01-01 00:00:00'";
+
+        String[] requetes = {
+            "DELETE FROM compteurs_activite",
+
+            // Événements par heure
+            "INSERT INTO compteurs_activite (metrique, periode, debut, valeur) " +
+            "SELECT CONCAT('logs.', action), 'heure', " + heure.formatted("timestamp") + " h, COUNT(*) " +
+            "FROM logs_activite GROUP BY action, h",
+
+            "INSERT INTO compteurs_activite (metrique, periode, debut, valeur) " +
+            "SELECT '" + DOCUMENTS + "', 'heure', " + heure.formatted("date_creation") + " h, COUNT(*) " +
+            "FROM documents WHERE date_creation IS NOT NULL GROUP BY h",
+
+            "INSERT INTO compteurs_activite (metrique, periode, debut, valeur) " +
+            "SELECT 'courriers.nouveau', 'heure', " + heure.formatted("date_creation") + " h, COUNT(*) " +
+            "FROM courriers WHERE date_creation IS NOT NULL GROUP BY h",
+
+            "INSERT INTO compteurs_activite (metrique, periode, debut, valeur) " +
+            "SELECT IF(succes, '" + ACCES_REUSSIS + "', '" + ACCES_REFUSES + "') m, 'heure', " +
+            heure.formatted("date_tentative") + " h, COUNT(*) " +
+            "FROM acces_confidentiels_log WHERE date_tentative IS NOT NULL GROUP BY m, h",
+
+            // Jours à partir des heures
+            "INSERT INTO compteurs_activite (metrique, periode, debut, valeur) " +
+            "SELECT metrique, 'jour', DATE(debut) j, SUM(valeur) FROM compteurs_activite " +
+            "WHERE periode = 'heure' GROUP BY metrique, j",
+
+            // Cumuls
+            "INSERT INTO compteurs_activite (metrique, periode, debut, valeur) " +
+            "SELECT metrique, 'total', " + total + ", SUM(valeur) FROM compteurs_activite " +
+            "WHERE periode = 'jour' AND (metrique LIKE 'logs.%' OR metrique LIKE 'acces\\_confidentiels.%') " +
+            "GROUP BY metrique",
+
+            // Soldes
+            "INSERT INTO compteurs_activite (metrique, periode, debut, valeur) " +
+            "SELECT '" + DOCUMENTS + "', 'total', " + total + ", COUNT(*) FROM documents WHERE statut != 'supprime'",
+
+            "INSERT INTO compteurs_activite (metrique, periode, debut, valeur) " +
+            "SELECT CONCAT('courriers.', LOWER(statut)), 'total', " + total + ", COUNT(*) " +
+            "FROM courriers WHERE statut IS NOT NULL GROUP BY LOWER(statut)",
+
+            "INSERT INTO compteurs_activite (metrique, periode, debut, valeur) " +
+            "SELECT '" + ACCES_UTILISATEURS + "', 'total', " + total + ", COUNT(DISTINCT user_id) " +
+            "FROM acces_confidentiels_log"
+        };
+
+        try (Connection conn = databaseService.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (Statement stmt = conn.createStatement()) {
+                for (String requete : requetes) {
+                    stmt.executeUpdate(requete);
+                }
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        System.out.println("✓ Compteurs d'activité reconstruits");
+    }
+}
@@ -10,6 +10,7 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service ÉTENDU de gestion des codes confidentiels
@@ -137,6 +138,13 @@ public class ConfidentialCodeService {
             
             stmt.executeUpdate();
             
+            CompteursActiviteService.Increments increments = new CompteursActiviteService.Increments()
+                .evenement(success ? CompteursActiviteService.ACCES_REUSSIS : CompteursActiviteService.ACCES_REFUSES);
+            if (userId != null && estPremierAcces(conn, userId)) {
+                increments.solde(CompteursActiviteService.ACCES_UTILISATEURS, 1);
+            }
+            CompteursActiviteService.getInstance().appliquer(increments);
+            
             if (success) {
                 System.out.println("📝 Accès confidentiel autorisé: " + actionType.getDescription());
             } else {
@@ -148,6 +156,20 @@ public class ConfidentialCodeService {
         }
     }
     
+    /**
+     * Vrai si la tentative qui vient d'être enregistrée est la première de l'utilisateur
+     */
+    private boolean estPremierAcces(Connection conn, int userId) throws SQLException {
+        String query = "SELECT COUNT(*) FROM (SELECT 1 FROM acces_confidentiels_log WHERE user_id = ? LIMIT 2) t";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+    
     public boolean changeCode(String ancienCode, String nouveauCode, String description) {
         User currentUser = SessionManager.getInstance().getCurrentUser();
         
@@ -390,23 +412,16 @@ public class ConfidentialCodeService {
         
         AccessStatistics stats = new AccessStatistics();
         
-        String query = "SELECT " +
-                      "COUNT(*) as total_tentatives, " +
-                      "SUM(CASE WHEN succes = TRUE THEN 1 ELSE 0 END) as acces_reussis, " +
-                      "SUM(CASE WHEN succes = FALSE THEN 1 ELSE 0 END) as acces_refuses, " +
-                      "COUNT(DISTINCT user_id) as utilisateurs_distincts " +
-                      "FROM acces_confidentiels_log";
-        
-        try (Connection conn = databaseService.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            if (rs.next()) {
-                stats.setTotalTentatives(rs.getInt("total_tentatives"));
-                stats.setAccesReussis(rs.getInt("acces_reussis"));
-                stats.setAccesRefuses(rs.getInt("acces_refuses"));
-                stats.setUtilisateursDistincts(rs.getInt("utilisateurs_distincts"));
-            }
+        // Compteurs pré-agrégés (CompteursActiviteService) : pas de parcours du journal des accès
+        try {
+            Map<String, Long> totaux = CompteursActiviteService.getInstance().getTotaux("acces_confidentiels.");
+            int reussis = totaux.getOrDefault(CompteursActiviteService.ACCES_REUSSIS, 0L).intValue();
+            int refuses = totaux.getOrDefault(CompteursActiviteService.ACCES_REFUSES, 0L).intValue();
+            
+            stats.setTotalTentatives(reussis + refuses);
+            stats.setAccesReussis(reussis);
+            stats.setAccesRefuses(refuses);
+            stats.setUtilisateursDistincts(totaux.getOrDefault(CompteursActiviteService.ACCES_UTILISATEURS, 0L).intValue());
             
         } catch (SQLException e) {
             System.err.println("Erreur récupération statistiques: " + e.getMessage());
@@ -0,0 +1,435 @@
+package application.services;
+
+import application.models.Document;
+import application.utils.TextExtractionUtils;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service d'indexation plein texte du CONTENU des fichiers stockés
+ *
+ * - Extraction du texte dans un pool de workers borné (ne bloque jamais la création d'un document)
+ * - Index inversé (jeton -> document -> fréquence) en mémoire
+ * - Persistance compressée (GZIP + identifiants delta/varint) sur le poste local
+ * - Classement BM25 pour rechercherDocumentsAvance
+ */
+public class ContentIndexService {
+
+    private static ContentIndexService instance;
+
+    private static final int NOMBRE_WORKERS = 2;
+    private static final int TAILLE_FILE_ATTENTE = 256;
+    private static final long DELAI_SAUVEGARDE_SECONDES = 30;
+
+    private static final String DOSSIER_INDEX = "index_contenu";
+    private static final String FICHIER_INDEX = "postings.gz";
+    // Version 2 : les index de version 1 contiennent des blobs indexés sans texte (format non reconnu)
+    private static final int VERSION_FORMAT = 2;
+    // Borne writeUTF (65 535 octets) : 64 caractères font au plus 192 octets en UTF-8 modifié
+    private static final int LONGUEUR_MAX_JETON = 64;
+
+    // Paramètres BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // jeton -> (id document -> fréquence du jeton dans le document)
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+    // id document -> nombre de jetons du document
+    private final Map<Integer, Integer> longueurs = new HashMap<>();
+    // id document -> jetons distincts du document (pour le désindexer sans parcourir le vocabulaire)
+    private final Map<Integer, String[]> jetonsParDocument = new HashMap<>();
+    private long totalJetons = 0;
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService planificateur;
+    private volatile boolean modifie = false;
+    private Path fichierIndex;
+
+    private ContentIndexService() {
+        this.workers = new ThreadPoolExecutor(
+            NOMBRE_WORKERS, NOMBRE_WORKERS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(TAILLE_FILE_ATTENTE),
+            r -> {
+                Thread t = new Thread(r, "indexation-contenu");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sauvegarde-index-contenu");
+            t.setDaemon(true);
+            return t;
+        });
+        this.planificateur.scheduleWithFixedDelay(this::sauvegarderSiModifie,
+            DELAI_SAUVEGARDE_SECONDES, DELAI_SAUVEGARDE_SECONDES, TimeUnit.SECONDS);
+    }
+
+    public static synchronized ContentIndexService getInstance() {
+        if (instance == null) {
+            instance = new ContentIndexService();
+        }
+        return instance;
+    }
+
+    // ==================== CHARGEMENT / SAUVEGARDE ====================
+
+    /**
+     * Charge l'index depuis le disque (à appeler au démarrage)
+     */
+    public void charger() {
+        fichierIndex = resoudreFichierIndex();
+
+        if (!Files.exists(fichierIndex)) {
+            System.out.println("ℹ Aucun index de contenu existant: " + fichierIndex);
+            return;
+        }
+
+        long debut = System.currentTimeMillis();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(fichierIndex), 65536)))) {
+
+            if (in.readInt() != VERSION_FORMAT) {
+                System.err.println("⚠ Format d'index de contenu incompatible - réindexation nécessaire");
+                return;
+            }
+
+            verrou.writeLock().lock();
+            try {
+                postings.clear();
+                longueurs.clear();
+                jetonsParDocument.clear();
+                totalJetons = 0;
+
+                int nombreDocuments = in.readInt();
+                for (int i = 0; i < nombreDocuments; i++) {
+                    int id = in.readInt();
+                    int longueur = in.readInt();
+                    longueurs.put(id, longueur);
+                    totalJetons += longueur;
+                }
+
+                int nombreJetons = in.readInt();
+                for (int i = 0; i < nombreJetons; i++) {
+                    String jeton = in.readUTF();
+                    int taille = lireVarInt(in);
+                    Map<Integer, Integer> liste = new HashMap<>(taille * 2);
+                    int id = 0;
+                    for (int j = 0; j < taille; j++) {
+                        id += lireVarInt(in);
+                        liste.put(id, lireVarInt(in));
+                    }
+                    postings.put(jeton, liste);
+                }
+                
+                // Jetons par document : non persistés, déduits des postings
+                Map<Integer, List<String>> jetons = new HashMap<>();
+                for (Map.Entry<String, Map<Integer, Integer>> e : postings.entrySet()) {
+                    for (Integer id : e.getValue().keySet()) {
+                        jetons.computeIfAbsent(id, k -> new ArrayList<>()).add(e.getKey());
+                    }
+                }
+                for (Map.Entry<Integer, List<String>> e : jetons.entrySet()) {
+                    jetonsParDocument.put(e.getKey(), e.getValue().toArray(new String[0]));
+                }
+            } finally {
+                verrou.writeLock().unlock();
+            }
+
+            System.out.println("✓ Index de contenu chargé: " + longueurs.size() + " document(s) en " +
+                             (System.currentTimeMillis() - debut) + " ms");
+
+        } catch (IOException e) {
+            System.err.println("✗ Erreur chargement index de contenu: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Écrit l'index sur disque (fichier temporaire puis remplacement atomique)
+     */
+    public void sauvegarder() {
+        if (fichierIndex == null) {
+            fichierIndex = resoudreFichierIndex();
+        }
+
+        try {
+            Files.createDirectories(fichierIndex.getParent());
+            Path temporaire = fichierIndex.resolveSibling(FICHIER_INDEX + ".tmp");
+
+            verrou.readLock().lock();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temporaire), 65536)))) {
+
+                out.writeInt(VERSION_FORMAT);
+
+                out.writeInt(longueurs.size());
+                for (Map.Entry<Integer, Integer> e : longueurs.entrySet()) {
+                    out.writeInt(e.getKey());
+                    out.writeInt(e.getValue());
+                }
+
+                out.writeInt(postings.size());
+                for (Map.Entry<String, Map<Integer, Integer>> e : postings.entrySet()) {
+                    out.writeUTF(e.getKey());
+
+                    // Identifiants triés puis encodés en delta pour une meilleure compression
+                    int[] ids = e.getValue().keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+                    ecrireVarInt(out, ids.length);
+                    int precedent = 0;
+                    for (int id : ids) {
+                        ecrireVarInt(out, id - precedent);
+                        ecrireVarInt(out, e.getValue().get(id));
+                        precedent = id;
+                    }
+                }
+                modifie = false;
+            } finally {
+                verrou.readLock().unlock();
+            }
+
+            Files.move(temporaire, fichierIndex, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException e) {
+            System.err.println("✗ Erreur sauvegarde index de contenu: " + e.getMessage());
+        }
+    }
+
+    private void sauvegarderSiModifie() {
+        if (modifie) {
+            sauvegarder();
+        }
+    }
+
+    /**
+     * L'index est propre à chaque poste (ex: ~/Documents/AppDocuments/index_contenu), jamais
+     * sur la racine de stockage partagée : chaque poste réécrit son fichier en entier et les
+     * sauvegardes de plusieurs postes s'écraseraient mutuellement.
+     */
+    private Path resoudreFichierIndex() {
+        Path dossier = Paths.get(System.getProperty("user.home"), "Documents", "AppDocuments", DOSSIER_INDEX);
+        return dossier.resolve(FICHIER_INDEX);
+    }
+
+    // ==================== INDEXATION ====================
+
+    /**
+     * Soumet un fichier à l'indexation en arrière-plan
+     * @param extension Extension d'origine du document : les blobs du stockage dédupliqué n'en ont pas
+     * @return false si la file d'attente est pleine (le document sera rattrapé au prochain démarrage)
+     */
+    public boolean indexerAsync(int documentId, String cheminFichier, String extension) {
+        if (documentId <= 0 || cheminFichier == null || cheminFichier.isEmpty()) {
+            return false;
+        }
+
+        try {
+            workers.execute(() -> indexer(documentId, Paths.get(cheminFichier), extension));
+            return true;
+        } catch (RejectedExecutionException e) {
+            System.err.println("⚠ File d'indexation pleine - document " + documentId + " indexé plus tard");
+            return false;
+        }
+    }
+
+    /**
+     * Met en file les documents actifs qui ne sont pas encore indexés
+     * Appelé depuis un thread d'arrière-plan : attend quand la file est pleine.
+     */
+    public void rattraperDocumentsNonIndexes(List<Document> documents) {
+        int soumis = 0;
+
+        for (Document doc : documents) {
+            if (contient(doc.getId()) || !TextExtractionUtils.estSupporte(doc.getExtension())) {
+                continue;
+            }
+
+            String chemin = doc.getCheminServeur() != null ? doc.getCheminServeur() : doc.getCheminFichier();
+
+            try {
+                while (workers.getQueue().remainingCapacity() == 0) {
+                    Thread.sleep(200);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (indexerAsync(doc.getId(), chemin, doc.getExtension())) {
+                soumis++;
+            }
+        }
+
+        if (soumis > 0) {
+            System.out.println("♻️ " + soumis + " document(s) soumis à l'indexation du contenu");
+        }
+    }
+
+    private void indexer(int documentId, Path fichier, String extension) {
+        try {
+            if (!Files.isRegularFile(fichier)) return;
+
+            String texte = TextExtractionUtils.extraireTexte(fichier, extension);
+
+            Map<String, Integer> frequences = new HashMap<>();
+            int longueur = 0;
+            for (String jeton : DocumentSearchIndex.tokeniser(texte)) {
+                // Les jetons très longs (base64, hachages) ne servent pas à la recherche
+                if (jeton.length() < 2 || jeton.length() > LONGUEUR_MAX_JETON) continue;
+                frequences.merge(jeton, 1, Integer::sum);
+                longueur++;
+            }
+
+            verrou.writeLock().lock();
+            try {
+                retirerSansVerrou(documentId);
+
+                for (Map.Entry<String, Integer> e : frequences.entrySet()) {
+                    postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(documentId, e.getValue());
+                }
+                longueurs.put(documentId, longueur);
+                jetonsParDocument.put(documentId, frequences.keySet().toArray(new String[0]));
+                totalJetons += longueur;
+                modifie = true;
+            } finally {
+                verrou.writeLock().unlock();
+            }
+
+        } catch (Exception e) {
+            System.err.println("✗ Erreur indexation contenu (document " + documentId + "): " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retire un document de l'index (suppression définitive)
+     */
+    public void retirer(int documentId) {
+        verrou.writeLock().lock();
+        try {
+            retirerSansVerrou(documentId);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    private void retirerSansVerrou(int documentId) {
+        Integer longueur = longueurs.remove(documentId);
+        if (longueur == null) return;
+
+        totalJetons -= longueur;
+        String[] jetons = jetonsParDocument.remove(documentId);
+        if (jetons != null) {
+            for (String jeton : jetons) {
+                Map<Integer, Integer> liste = postings.get(jeton);
+                if (liste != null && liste.remove(documentId) != null && liste.isEmpty()) {
+                    postings.remove(jeton);
+                }
+            }
+        }
+        modifie = true;
+    }
+
+    public boolean contient(int documentId) {
+        verrou.readLock().lock();
+        try {
+            return longueurs.containsKey(documentId);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    // ==================== RECHERCHE ====================
+
+    /**
+     * Recherche dans le contenu des fichiers (termes normalisés, sans accents)
+     * @param recherche Texte recherché
+     * @param limite Nombre maximum de résultats
+     * @return id document -> score BM25, trié par score décroissant
+     */
+    public Map<Integer, Double> rechercher(String recherche, int limite) {
+        List<String> termes = DocumentSearchIndex.tokeniser(recherche);
+        Map<Integer, Double> scores = new HashMap<>();
+
+        if (termes.isEmpty()) return new LinkedHashMap<>();
+
+        verrou.readLock().lock();
+        try {
+            int nombreDocuments = longueurs.size();
+            if (nombreDocuments == 0) return new LinkedHashMap<>();
+
+            double longueurMoyenne = (double) totalJetons / nombreDocuments;
+
+            for (String terme : termes) {
+                Map<Integer, Integer> liste = postings.get(terme);
+                if (liste == null) continue;
+
+                double idf = Math.log(1 + (nombreDocuments - liste.size() + 0.5) / (liste.size() + 0.5));
+
+                for (Map.Entry<Integer, Integer> e : liste.entrySet()) {
+                    int tf = e.getValue();
+                    double norme = K1 * (1 - B + B * longueurs.getOrDefault(e.getKey(), 0) / longueurMoyenne);
+                    scores.merge(e.getKey(), idf * (tf * (K1 + 1)) / (tf + norme), Double::sum);
+                }
+            }
+        } finally {
+            verrou.readLock().unlock();
+        }
+
+        Map<Integer, Double> tries = new LinkedHashMap<>();
+        scores.entrySet().stream()
+            .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
+            .limit(limite)
+            .forEach(e -> tries.put(e.getKey(), e.getValue()));
+        return tries;
+    }
+
+    // ==================== ARRÊT ====================
+
+    /**
+     * Arrête les workers et sauvegarde l'index (à appeler à la fermeture)
+     */
+    public void arreter() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        planificateur.shutdownNow();
+        sauvegarder();
+        System.out.println("✓ Index de contenu sauvegardé");
+    }
+
+    // ==================== ENCODAGE ====================
+
+    private static void ecrireVarInt(DataOutputStream out, int valeur) throws IOException {
+        while ((valeur & ~0x7F) != 0) {
+            out.writeByte((valeur & 0x7F) | 0x80);
+            valeur >>>= 7;
+        }
+        out.writeByte(valeur);
+    }
+
+    private static int lireVarInt(DataInputStream in) throws IOException {
+        int valeur = 0;
+        int decalage = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            valeur |= (b & 0x7F) << decalage;
+            decalage += 7;
+        } while ((b & 0x80) != 0);
+        return valeur;
+    }
+}
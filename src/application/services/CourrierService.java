@@ -4,6 +4,8 @@ import application.models.Courrier;
 import application.models.Courrier.StatutCourrier;
 import application.models.Courrier.TypeCourrier;
 import application.models.Courrier.PrioriteCourrier;
+import application.services.NetworkService.Operation;
+import application.services.NetworkService.TypeEntite;
 
 import java.sql.*;
 import java.time.LocalDate;
@@ -109,7 +111,12 @@ public class CourrierService {
                 }
             }
             
+            CompteursActiviteService.getInstance().appliquer(new CompteursActiviteService.Increments()
+                .evenement(CompteursActiviteService.courriers(courrier.getStatut().name())));
+            
             System.out.println("✓ Courrier créé: " + codeCourrier);
+            NetworkService.getInstance().diffuserInvalidation(TypeEntite.COURRIER, courrier.getId(),
+                databaseService.lireDateModification("courriers", courrier.getId()), Operation.CREATION);
             
             if (courrier.getStatut() == StatutCourrier.NOUVEAU) {
                 NotificationCourrierService notificationService = 
@@ -156,9 +163,26 @@ public class CourrierService {
             conn.setAutoCommit(false);
             
             try {
-                // 1. Archiver le document lié
+                // 1. Archiver le courrier, seulement s'il est toujours traité (le statut lu plus haut n'est pas verrouillé)
+                String updateCourrier = "UPDATE courriers SET statut = 'archive', " +
+                                      "date_archivage = NOW(), date_modification = NOW() WHERE id = ? AND statut = ?";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(updateCourrier)) {
+                    stmt.setInt(1, courrierId);
+                    stmt.setString(2, StatutCourrier.TRAITE.name().toLowerCase());
+                    if (stmt.executeUpdate() != 1) {
+                        conn.rollback();
+                        throw new Exception("Le statut du courrier a changé entre-temps : il n'est plus au statut TRAITE");
+                    }
+                }
+                
+                CompteursActiviteService.getInstance().appliquer(conn, new CompteursActiviteService.Increments()
+                    .solde(CompteursActiviteService.courriers(StatutCourrier.TRAITE.name()), -1)
+                    .evenement(CompteursActiviteService.courriers(StatutCourrier.ARCHIVE.name())));
+                
+                // 2. Archiver le document lié
                 String updateDoc = "UPDATE documents SET archive = TRUE, dossier_id = ?, " +
-                                 "date_archivage = NOW() WHERE id = ?";
+                                 "date_archivage = NOW(), date_modification = NOW() WHERE id = ?";
                 
                 try (PreparedStatement stmt = conn.prepareStatement(updateDoc)) {
                     stmt.setInt(1, dossierId);
@@ -166,15 +190,6 @@ public class CourrierService {
                     stmt.executeUpdate();
                 }
                 
-                // 2. Archiver le courrier
-                String updateCourrier = "UPDATE courriers SET statut = 'archive', " +
-                                      "date_archivage = NOW() WHERE id = ?";
-                
-                try (PreparedStatement stmt = conn.prepareStatement(updateCourrier)) {
-                    stmt.setInt(1, courrierId);
-                    stmt.executeUpdate();
-                }
-                
                 // 3. Enregistrer l'activité
                 String insertActivity = "INSERT INTO activites_documents (document_id, user_id, action, details) " +
                                       "VALUES (?, ?, 'archivage', 'Courrier archivé')";
@@ -189,6 +204,15 @@ public class CourrierService {
                 
                 System.out.println("✓ Courrier " + courrier.getCodeCourrier() + " archivé");
                 
+                DocumentService.getInstance().invaliderDocument(courrier.getDocumentId());
+                DossierService.getInstance().invaliderArborescence();
+                
+                NetworkService networkService = NetworkService.getInstance();
+                networkService.diffuserInvalidation(TypeEntite.COURRIER, courrierId,
+                    databaseService.lireDateModification("courriers", courrierId), Operation.MODIFICATION);
+                networkService.diffuserInvalidation(TypeEntite.DOCUMENT, courrier.getDocumentId(),
+                    databaseService.lireDateModification("documents", courrier.getDocumentId()), Operation.MODIFICATION);
+                
                 return true;
                 
             } catch (SQLException e) {
@@ -214,9 +238,7 @@ public class CourrierService {
             stmt.setInt(1, id);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToCourrier(rs);
-                }
+                return RowMapper.lirePremier(rs, MAPPER_COURRIER);
             }
             
         } catch (SQLException e) {
@@ -226,6 +248,28 @@ public class CourrierService {
         return null;
     }
     
+    /**
+     * Récupère les courriers modifiés depuis une date (synchronisation différentielle)
+     */
+    public List<Courrier> getCourriersModifiesDepuis(LocalDateTime depuis, int limite) throws SQLException {
+        List<Courrier> courriers = new ArrayList<>();
+        String query = "SELECT * FROM courriers WHERE date_modification >= ? " +
+                      "ORDER BY date_modification, id LIMIT ?";
+        
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setTimestamp(1, Timestamp.valueOf(depuis));
+            stmt.setInt(2, limite);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                courriers.addAll(RowMapper.lireTout(rs, MAPPER_COURRIER));
+            }
+        }
+        
+        return courriers;
+    }
+    
     /**
      * Récupère les courriers par statut
      */
@@ -239,9 +283,7 @@ public class CourrierService {
             stmt.setString(1, statut.name().toLowerCase());
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    courriers.add(mapResultSetToCourrier(rs));
-                }
+                courriers.addAll(RowMapper.lireTout(rs, MAPPER_COURRIER));
             }
             
         } catch (SQLException e) {
@@ -280,9 +322,7 @@ public class CourrierService {
             stmt.setString(4, pattern);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    courriers.add(mapResultSetToCourrier(rs));
-                }
+                courriers.addAll(RowMapper.lireTout(rs, MAPPER_COURRIER));
             }
             
         } catch (SQLException e) {
@@ -294,18 +334,54 @@ public class CourrierService {
     
     /**
      * Met à jour le statut d'un courrier
+     * L'ancien statut est lu sous verrou pour tenir les compteurs par statut exacts.
      */
     public boolean updateStatut(int courrierId, StatutCourrier nouveauStatut) {
+        String selectQuery = "SELECT statut FROM courriers WHERE id = ? FOR UPDATE";
         String query = "UPDATE courriers SET statut = ?, date_modification = NOW() WHERE id = ?";
+        String statut = nouveauStatut.name().toLowerCase();
         
-        try (Connection conn = databaseService.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = databaseService.getConnection()) {
+            conn.setAutoCommit(false);
             
-            stmt.setString(1, nouveauStatut.name().toLowerCase());
-            stmt.setInt(2, courrierId);
+            try {
+                String ancienStatut;
+                try (PreparedStatement stmt = conn.prepareStatement(selectQuery)) {
+                    stmt.setInt(1, courrierId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return false;
+                        }
+                        ancienStatut = rs.getString(1);
+                    }
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setString(1, statut);
+                    stmt.setInt(2, courrierId);
+                    stmt.executeUpdate();
+                }
+                
+                if (!statut.equalsIgnoreCase(ancienStatut)) {
+                    CompteursActiviteService.Increments increments = new CompteursActiviteService.Increments()
+                        .evenement(CompteursActiviteService.courriers(statut));
+                    if (ancienStatut != null) {
+                        increments.solde(CompteursActiviteService.courriers(ancienStatut), -1);
+                    }
+                    CompteursActiviteService.getInstance().appliquer(conn, increments);
+                }
+                
+                conn.commit();
+                
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
             
-            int rowsAffected = stmt.executeUpdate();
-            return rowsAffected > 0;
+            NetworkService.getInstance().diffuserInvalidation(TypeEntite.COURRIER, courrierId,
+                databaseService.lireDateModification("courriers", courrierId), Operation.MODIFICATION);
+            return true;
             
         } catch (SQLException e) {
             System.err.println("Erreur mise à jour statut: " + e.getMessage());
@@ -315,32 +391,15 @@ public class CourrierService {
     
     /**
      * Génère un code courrier unique: COU-ANNÉE-SÉQUENCE
+     * Séquence réservée par blocs (SequenceService), amorcée une fois depuis les codes existants
      */
     private String genererCodeCourrier() throws SQLException {
         int annee = java.time.Year.now().getValue();
         String prefix = "COU-" + annee + "-";
         
-        String query = "SELECT MAX(CAST(SUBSTRING(code_courrier, ?) AS UNSIGNED)) " +
-                      "FROM courriers WHERE code_courrier LIKE ?";
-        
-        try (Connection conn = databaseService.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setInt(1, prefix.length() + 1);
-            stmt.setString(2, prefix + "%");
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                int sequence = 1;
-                if (rs.next()) {
-                    int maxSeq = rs.getInt(1);
-                    if (!rs.wasNull()) {
-                        sequence = maxSeq + 1;
-                    }
-                }
-                
-                return prefix + String.format("%04d", sequence);
-            }
-        }
+        SequenceService sequences = SequenceService.getInstance();
+        return sequences.prochainCode(prefix, annee,
+            sequences.depuisCodesExistants("courriers", "code_courrier", prefix));
     }
     
     /**
@@ -368,50 +427,57 @@ public class CourrierService {
     }
     
     /**
-     * Convertit un ResultSet en objet Courrier
+     * Conversion des lignes de courriers (c.*) en Courrier (index résolus une fois par requête)
+     * Partagé avec NotificationCourrierService
      */
-    private Courrier mapResultSetToCourrier(ResultSet rs) throws SQLException {
-        Courrier courrier = new Courrier();
-        
-        courrier.setId(rs.getInt("id"));
-        courrier.setCodeCourrier(rs.getString("code_courrier"));
-        courrier.setDocumentId(rs.getInt("document_id"));
-        courrier.setTypeCourrier(TypeCourrier.valueOf(rs.getString("type_courrier")));
-        courrier.setObjet(rs.getString("objet"));
-        courrier.setExpediteur(rs.getString("expediteur"));
-        courrier.setDestinataire(rs.getString("destinataire"));
-        courrier.setReference(rs.getString("reference"));
-        
-        Date dateCourrier = rs.getDate("date_courrier");
-        if (dateCourrier != null) {
-            courrier.setDateCourrier(dateCourrier.toLocalDate());
-        }
-        
-        courrier.setPriorite(PrioriteCourrier.valueOf(rs.getString("priorite")));
-        courrier.setObservations(rs.getString("observations"));
-        courrier.setConfidentiel(rs.getBoolean("confidentiel"));
-        courrier.setStatut(StatutCourrier.valueOf(rs.getString("statut").toUpperCase()));
-        
-        Timestamp dateArchivage = rs.getTimestamp("date_archivage");
-        if (dateArchivage != null) {
-            courrier.setDateArchivage(dateArchivage.toLocalDateTime());
-        }
-        
-        int creePar = rs.getInt("cree_par");
-        if (!rs.wasNull()) {
-            courrier.setCreePar(creePar);
-        }
-        
-        Timestamp dateCreation = rs.getTimestamp("date_creation");
-        if (dateCreation != null) {
-            courrier.setDateCreation(dateCreation.toLocalDateTime());
-        }
+    static final RowMapper<Courrier> MAPPER_COURRIER = colonnes -> {
+        int id = colonnes.index("id");
+        int codeCourrier = colonnes.index("code_courrier");
+        int documentId = colonnes.index("document_id");
+        int typeCourrier = colonnes.index("type_courrier");
+        int objet = colonnes.index("objet");
+        int expediteur = colonnes.index("expediteur");
+        int destinataire = colonnes.index("destinataire");
+        int reference = colonnes.index("reference");
+        int dateCourrier = colonnes.index("date_courrier");
+        int priorite = colonnes.index("priorite");
+        int observations = colonnes.index("observations");
+        int confidentiel = colonnes.index("confidentiel");
+        int statut = colonnes.index("statut");
+        int dateArchivage = colonnes.indexOptionnel("date_archivage");
+        int creePar = colonnes.indexOptionnel("cree_par");
+        int dateCreation = colonnes.index("date_creation");
+        int dateModification = colonnes.indexOptionnel("date_modification");
         
-        Timestamp dateModification = rs.getTimestamp("date_modification");
-        if (dateModification != null) {
-            courrier.setDateModification(dateModification.toLocalDateTime());
-        }
-        
-        return courrier;
-    }
+        return rs -> {
+            Courrier courrier = new Courrier();
+            
+            courrier.setId(rs.getInt(id));
+            courrier.setCodeCourrier(rs.getString(codeCourrier));
+            courrier.setDocumentId(rs.getInt(documentId));
+            courrier.setObjet(rs.getString(objet));
+            courrier.setExpediteur(rs.getString(expediteur));
+            courrier.setDestinataire(rs.getString(destinataire));
+            courrier.setReference(rs.getString(reference));
+            courrier.setDateCourrier(Colonnes.date(rs, dateCourrier));
+            courrier.setObservations(rs.getString(observations));
+            courrier.setConfidentiel(rs.getBoolean(confidentiel));
+            
+            // Les valeurs NULL laissent la valeur par défaut du modèle
+            TypeCourrier type = Colonnes.enumeration(rs, typeCourrier, TypeCourrier.class);
+            if (type != null) courrier.setTypeCourrier(type);
+            PrioriteCourrier prio = Colonnes.enumeration(rs, priorite, PrioriteCourrier.class);
+            if (prio != null) courrier.setPriorite(prio);
+            StatutCourrier stat = Colonnes.enumeration(rs, statut, StatutCourrier.class);
+            if (stat != null) courrier.setStatut(stat);
+            
+            courrier.setDateArchivage(Colonnes.dateHeure(rs, dateArchivage));
+            courrier.setCreePar(Colonnes.entier(rs, creePar));
+            LocalDateTime creation = Colonnes.dateHeure(rs, dateCreation);
+            if (creation != null) courrier.setDateCreation(creation);
+            courrier.setDateModification(Colonnes.dateHeure(rs, dateModification));
+            
+            return courrier;
+        };
+    };
 }
\ No newline at end of file
@@ -15,6 +15,7 @@ import java.io.InputStream;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service de base de données utilisant MySQL + HikariCP (pool de connexions)
@@ -51,6 +52,14 @@ public class DatabaseService {
     private Connection mainConnection;
     private boolean initialized = false;
 
+    // Utilisateurs lus par id (auteurs, destinataires, sessions) ; invalidé par updateUser()
+    private final CacheEntites<User> cacheUtilisateurs =
+            CacheEntites.creer("utilisateurs", NetworkService.TypeEntite.UTILISATEUR, 200, 300, User::copier);
+
+    // Permissions résolues par rôle (JSON lu, masque) ; voir resoudrePermissions()
+    private record PermissionsRole(String json, long masque) {}
+    private final Map<Integer, PermissionsRole> permissionsParRole = new ConcurrentHashMap<>();
+
     // =========================================================================
     // SINGLETON
     // =========================================================================
@@ -91,6 +100,13 @@ public class DatabaseService {
         return props;
     }
 
+    /**
+     * Lit une propriété de config/database.properties (réglages techniques des services)
+     */
+    public static String getPropriete(String cle, String valeurParDefaut) {
+        return DB_PROPS.getProperty(cle, valeurParDefaut);
+    }
+
     // =========================================================================
     // ✅ AJOUT : Initialisation du pool HikariCP
     // =========================================================================
@@ -126,6 +142,12 @@ public class DatabaseService {
         // Nom du pool (visible dans les logs et JMX)
         config.setPoolName("DocumentApp-Pool");
 
+        // Attente, durée d'emprunt et expirations du pool → MetriquesBaseService
+        MetriquesBaseService metriques = MetriquesBaseService.getInstance();
+        if (metriques.isActif()) {
+            config.setMetricsTrackerFactory(metriques);
+        }
+
         dataSource = new HikariDataSource(config);
 
         System.out.println("✓ Pool HikariCP initialisé (" + config.getMaximumPoolSize() + " connexions max)");
@@ -188,6 +210,7 @@ public class DatabaseService {
     /**
      * Retourne une connexion depuis le pool HikariCP.
      * ⚠ TOUJOURS utiliser dans un try-with-resources pour la rendre au pool automatiquement.
+     * La connexion est instrumentée (latence et lignes par requête, voir MetriquesBaseService).
      *
      * Exemple :
      *   try (Connection conn = databaseService.getConnection();
@@ -197,7 +220,42 @@ public class DatabaseService {
         if (dataSource == null || dataSource.isClosed()) {
             throw new SQLException("Pool de connexions non initialisé ou fermé");
         }
-        return dataSource.getConnection(); // Depuis le pool : ~0-1ms au lieu de ~50ms
+        // Depuis le pool : ~0-1ms au lieu de ~50ms
+        return MetriquesBaseService.getInstance().instrumenter(dataSource.getConnection());
+    }
+
+    /**
+     * Date de modification d'une ligne, annoncée comme version dans les invalidations réseau
+     * @param table Table interne (documents, dossiers, courriers), jamais une saisie utilisateur
+     * @return La date, ou null si la ligne n'existe pas ou si la lecture échoue
+     */
+    public LocalDateTime lireDateModification(String table, int id) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT date_modification FROM " + table + " WHERE id = ?")) {
+
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                Timestamp date = rs.next() ? rs.getTimestamp(1) : null;
+                return date != null ? date.toLocalDateTime() : null;
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠ Date de modification illisible (" + table + " #" + id + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Enregistre la suppression d'une ligne partagée, dans la transaction qui la supprime
+     * Les autres postes détectent les suppressions par MAX(date_suppression) au lieu de compter les lignes
+     * @param entite Table interne (documents, dossiers), jamais une saisie utilisateur
+     */
+    public void enregistrerSuppression(Connection conn, String entite, int entiteId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO suppressions (entite, entite_id) VALUES (?, ?)")) {
+            stmt.setString(1, entite);
+            stmt.setInt(2, entiteId);
+            stmt.executeUpdate();
+        }
     }
 
     // =========================================================================
@@ -260,7 +318,158 @@ public class DatabaseService {
                 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
             """);
 
+            // Stockage dédupliqué : un blob par contenu (hash SHA-256) avec compteur de références
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS blobs_stockage (
+                    hash_fichier CHAR(64) PRIMARY KEY,
+                    chemin VARCHAR(500) NOT NULL,
+                    taille BIGINT NOT NULL DEFAULT 0,
+                    nb_references INT NOT NULL DEFAULT 1,
+                    extension VARCHAR(20) NOT NULL DEFAULT '',
+                    date_creation TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+            """);
+
+            // Compteurs des codes documents/courriers, réservés par blocs (SequenceService)
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS sequences_codes (
+                    prefixe VARCHAR(50) NOT NULL,
+                    annee INT NOT NULL,
+                    prochaine_valeur BIGINT NOT NULL,
+                    PRIMARY KEY (prefixe, annee)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+            """);
+
+            // Registre du serveur de stockage, tenu à jour à chaque écriture (RegistreStockageService)
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS registre_stockage (
+                    annee VARCHAR(10) NOT NULL,
+                    extension VARCHAR(20) NOT NULL DEFAULT '',
+                    nb_fichiers BIGINT NOT NULL DEFAULT 0,
+                    taille_totale BIGINT NOT NULL DEFAULT 0,
+                    PRIMARY KEY (annee, extension)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+            """);
+
+            // Fichiers du stockage ne correspondant plus à leur hash (VerificationIntegriteService)
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS anomalies_stockage (
+                    document_id INT PRIMARY KEY,
+                    code_document VARCHAR(100),
+                    chemin VARCHAR(500),
+                    type_anomalie VARCHAR(20) NOT NULL,
+                    hash_attendu CHAR(64),
+                    hash_trouve CHAR(64),
+                    detectee_le TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    INDEX idx_detectee_le (detectee_le)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+            """);
+
+            // Compteurs pré-agrégés (heure, jour, total) lus par les tableaux de bord
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS compteurs_activite (
+                    metrique VARCHAR(120) NOT NULL,
+                    periode VARCHAR(10) NOT NULL,
+                    debut DATETIME NOT NULL,
+                    valeur BIGINT NOT NULL DEFAULT 0,
+                    PRIMARY KEY (metrique, periode, debut)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+            """);
+
+            // Suppressions de documents et de dossiers, lues par SynchronisationService
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS suppressions (
+                    id INT AUTO_INCREMENT PRIMARY KEY,
+                    entite VARCHAR(20) NOT NULL,
+                    entite_id INT NOT NULL,
+                    date_suppression TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    INDEX idx_date_suppression (date_suppression)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+            """);
+            // Un poste absent plus d'un mois recharge tout à sa reconnexion : l'historique plus ancien est inutile
+            stmt.executeUpdate("DELETE FROM suppressions WHERE date_suppression < NOW() - INTERVAL 30 DAY");
+
             System.out.println("✓ Tables MySQL créées/vérifiées avec succès");
+
+            // Pagination à curseur (date_modification, id) de DocumentService.getPageDocuments
+            creerIndexSiAbsent(conn, "documents", "idx_modification_id", "date_modification, id");
+            creerIndexSiAbsent(conn, "documents", "idx_dossier_modification_id", "dossier_id, date_modification, id");
+            // Registre de stockage : un blob est compté dans l'année et l'extension de son premier document
+            if (creerColonneSiAbsente(conn, "blobs_stockage", "extension", "VARCHAR(20) NOT NULL DEFAULT ''")) {
+                try {
+                    stmt.executeUpdate("UPDATE blobs_stockage b JOIN documents d ON d.hash_fichier = b.hash_fichier " +
+                                       "SET b.extension = LOWER(LEFT(COALESCE(d.extension, ''), 20)) WHERE b.extension = ''");
+                    // Les blobs déjà comptés dans la catégorie "blobs" sont répartis par la prochaine réconciliation
+                    stmt.executeUpdate("DELETE FROM config_serveur WHERE cle = 'registre_stockage_reconcilie_le'");
+                } catch (SQLException e) {
+                    System.err.println("⚠ Extensions des blobs non renseignées: " + e.getMessage());
+                }
+            }
+            // MAX(date_modification) de SynchronisationService lu dans l'index
+            creerIndexSiAbsent(conn, "dossiers", "idx_modification_id", "date_modification, id");
+            creerIndexSiAbsent(conn, "courriers", "idx_modification_id", "date_modification, id");
+        }
+
+        // Partitions mensuelles de logs_activite (purge par partition, voir RetentionLogsService) ;
+        // une table encore vide, comme à la première installation, est partitionnée ici
+        RetentionLogsService.getInstance().preparerPartitions();
+        CompteursActiviteService.getInstance().initialiser();
+    }
+
+    /**
+     * Ajoute un index à une table existante s'il n'y est pas encore (DDL en ligne : les écritures continuent)
+     * Une erreur est seulement signalée : la requête concernée reste correcte, mais plus lente.
+     */
+    private void creerIndexSiAbsent(Connection conn, String table, String nom, String colonnes) {
+        String query = "SELECT COUNT(*) FROM information_schema.STATISTICS " +
+                      "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            stmt.setString(2, nom);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    return;
+                }
+            }
+
+            try (Statement ddl = conn.createStatement()) {
+                ddl.executeUpdate("ALTER TABLE " + table + " ADD INDEX " + nom + " (" + colonnes + "), " +
+                                 "ALGORITHM=INPLACE, LOCK=NONE");
+            }
+            System.out.println("✓ Index " + nom + " créé sur " + table);
+
+        } catch (SQLException e) {
+            System.err.println("⚠ Index " + nom + " non créé sur " + table + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ajoute une colonne à une table existante si elle n'y est pas encore
+     * @return true si la colonne vient d'être ajoutée (données existantes à compléter)
+     */
+    private boolean creerColonneSiAbsente(Connection conn, String table, String colonne, String definition) {
+        String query = "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+                      "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            stmt.setString(2, colonne);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    return false;
+                }
+            }
+
+            try (Statement ddl = conn.createStatement()) {
+                ddl.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + colonne + " " + definition);
+            }
+            System.out.println("✓ Colonne " + colonne + " ajoutée à " + table);
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("⚠ Colonne " + colonne + " non ajoutée à " + table + ": " + e.getMessage());
+            return false;
         }
     }
 
@@ -387,6 +596,10 @@ public class DatabaseService {
     }
 
     public User getUserById(int userId) throws SQLException {
+        return cacheUtilisateurs.obtenir(userId, this::lireUtilisateur);
+    }
+
+    private User lireUtilisateur(int userId) throws SQLException {
         String query = """
             SELECT u.*, r.nom as role_nom, r.description as role_desc, r.permissions, r.actif as role_actif
             FROM users u
@@ -423,6 +636,9 @@ public class DatabaseService {
             stmt.setInt(9, user.getId());
             stmt.executeUpdate();
         }
+        cacheUtilisateurs.invalider(user.getId());
+        NetworkService.getInstance().diffuserInvalidation(
+                NetworkService.TypeEntite.UTILISATEUR, user.getId(), null, NetworkService.Operation.MODIFICATION);
     }
 
     public List<Role> getActiveRoles() throws SQLException {
@@ -446,6 +662,8 @@ public class DatabaseService {
             stmt.setString(4, ipAddress);
             stmt.executeUpdate();
         }
+        CompteursActiviteService.getInstance().appliquer(
+            new CompteursActiviteService.Increments().evenement(CompteursActiviteService.logs(action)));
     }
 
     // =========================================================================
@@ -480,8 +698,7 @@ public class DatabaseService {
             role.setDescription(rs.getString("role_desc"));
             role.setActif(rs.getBoolean("role_actif"));
 
-            String permissionsJson = rs.getString("permissions");
-            role.setPermissions(permissionsJson != null ? parsePermissions(permissionsJson) : new HashSet<>());
+            role.setMasquePermissions(resoudrePermissions(role.getId(), rs.getString("permissions")));
 
             user.setRole(role);
         }
@@ -495,25 +712,46 @@ public class DatabaseService {
         role.setDescription(rs.getString("description"));
         role.setActif(rs.getBoolean("actif"));
 
-        String permissionsJson = rs.getString("permissions");
-        role.setPermissions(permissionsJson != null ? parsePermissions(permissionsJson) : new HashSet<>());
+        role.setMasquePermissions(resoudrePermissions(role.getId(), rs.getString("permissions")));
 
         return role;
     }
 
-    private Set<Permission> parsePermissions(String json) {
-        Set<Permission> permissions = new HashSet<>();
-        if (json == null || json.isBlank() || json.equals("[]")) return permissions;
+    /**
+     * Masque des permissions d'un rôle, analysé une fois puis gardé en cache
+     * Le JSON lu est comparé à celui du cache : un rôle modifié (ici ou depuis un autre poste)
+     * est réanalysé au chargement suivant.
+     */
+    private long resoudrePermissions(int roleId, String json) {
+        PermissionsRole resolues = permissionsParRole.get(roleId);
+        if (resolues == null || !Objects.equals(resolues.json(), json)) {
+            resolues = new PermissionsRole(json, parsePermissions(json));
+            permissionsParRole.put(roleId, resolues);
+        }
+        return resolues.masque();
+    }
+
+    /**
+     * Oublie les permissions résolues d'un rôle (après sa modification)
+     */
+    public void invaliderPermissionsRole(int roleId) {
+        permissionsParRole.remove(roleId);
+    }
+
+    private long parsePermissions(String json) {
+        long masque = 0L;
+        if (json == null || json.isBlank() || json.equals("[]")) return masque;
 
         String cleaned = json.replace("[", "").replace("]", "").replace("\"", "");
         for (String permName : cleaned.split(",")) {
-            try {
-                permissions.add(Permission.valueOf(permName.trim()));
-            } catch (IllegalArgumentException e) {
+            Permission permission = Permission.resoudre(permName.trim());
+            if (permission != null) {
+                masque |= permission.masque();
+            } else {
                 System.err.println("Permission inconnue ignorée : " + permName);
             }
         }
-        return permissions;
+        return masque;
     }
 
     // =========================================================================
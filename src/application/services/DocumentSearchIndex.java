@@ -0,0 +1,300 @@
+package application.services;
+
+import application.models.Document;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Index inversé en mémoire des documents actifs
+ * Couvre: code_document, titre, description, mots_cles, extension
+ *
+ * - Les jetons sont normalisés (minuscules, sans accents) : "Réunion" == "reunion"
+ * - Chaque terme de la requête est recherché par préfixe ("budg" trouve "budget")
+ * - Plusieurs termes sont combinés en ET logique ("DIV-2025" = "div" ET "2025")
+ *
+ * Construit une seule fois au démarrage, puis maintenu à jour par DocumentService
+ * (création, modification, suppression, restauration) et par la synchronisation
+ * (changements des autres postes). Une recherche ne touche pas MySQL.
+ */
+public class DocumentSearchIndex {
+
+    private static DocumentSearchIndex instance;
+
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATEURS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // jeton -> ids des documents qui le contiennent (trié pour la recherche par préfixe)
+    private final NavigableMap<String, Set<Integer>> index = new TreeMap<>();
+
+    // id -> document indexé, et id -> jetons (pour pouvoir désindexer)
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final Map<Integer, Set<String>> jetonsParDocument = new HashMap<>();
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+    private volatile boolean pret = false;
+
+    // Mises à jour reçues pendant une construction (id -> document, null = retrait), rejouées sur le nouvel index
+    private Map<Integer, Document> journalConstruction = null;
+
+    private DocumentSearchIndex() {}
+
+    public static synchronized DocumentSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new DocumentSearchIndex();
+        }
+        return instance;
+    }
+
+    // ==================== CONSTRUCTION ====================
+
+    /**
+     * (Re)construit l'index complet à partir des documents chargés par la fonction donnée
+     *
+     * Le chargement et la construction se font hors verrou : les recherches continuent sur l'ancien
+     * index. Les mises à jour reçues entre-temps (indexer / retirer) sont journalisées puis rejouées
+     * sur le nouvel index avant l'échange : elles sont plus récentes que l'instantané chargé.
+     */
+    public void construire(Supplier<? extends Collection<Document>> chargement) {
+        long debut = System.currentTimeMillis();
+
+        verrou.writeLock().lock();
+        try {
+            journalConstruction = new HashMap<>();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+
+        NavigableMap<String, Set<Integer>> nouvelIndex = new TreeMap<>();
+        Map<Integer, Document> nouveauxDocuments = new HashMap<>();
+        Map<Integer, Set<String>> nouveauxJetons = new HashMap<>();
+        int nombre = 0;
+
+        try {
+            Collection<Document> tousLesDocuments = chargement.get();
+            nombre = tousLesDocuments.size();
+            for (Document doc : tousLesDocuments) {
+                indexerDans(nouvelIndex, nouveauxDocuments, nouveauxJetons, doc);
+            }
+        } catch (RuntimeException e) {
+            verrou.writeLock().lock();
+            try {
+                journalConstruction = null;
+            } finally {
+                verrou.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        verrou.writeLock().lock();
+        try {
+            for (Map.Entry<Integer, Document> maj : journalConstruction.entrySet()) {
+                retirerDans(nouvelIndex, nouveauxDocuments, nouveauxJetons, maj.getKey());
+                indexerDans(nouvelIndex, nouveauxDocuments, nouveauxJetons, maj.getValue());
+            }
+            journalConstruction = null;
+
+            index.clear();
+            index.putAll(nouvelIndex);
+            documents.clear();
+            documents.putAll(nouveauxDocuments);
+            jetonsParDocument.clear();
+            jetonsParDocument.putAll(nouveauxJetons);
+
+            pret = true;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+
+        System.out.println("✓ Index de recherche construit: " + nombre +
+                         " document(s), " + nouvelIndex.size() + " jeton(s) en " +
+                         (System.currentTimeMillis() - debut) + " ms");
+    }
+
+    /**
+     * Indique si l'index a été construit et peut servir les recherches
+     */
+    public boolean isPret() {
+        return pret;
+    }
+
+    // ==================== MISE À JOUR ====================
+
+    /**
+     * Ajoute ou remplace un document dans l'index
+     * Un document au statut "supprime" est retiré
+     */
+    public void indexer(Document doc) {
+        if (doc == null) return;
+
+        verrou.writeLock().lock();
+        try {
+            retirerSansVerrou(doc.getId());
+            indexerSansVerrou(doc);
+            if (journalConstruction != null) {
+                journalConstruction.put(doc.getId(), doc);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retire un document de l'index
+     */
+    public void retirer(int documentId) {
+        verrou.writeLock().lock();
+        try {
+            retirerSansVerrou(documentId);
+            if (journalConstruction != null) {
+                journalConstruction.put(documentId, null);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    private void indexerSansVerrou(Document doc) {
+        indexerDans(index, documents, jetonsParDocument, doc);
+    }
+
+    private void retirerSansVerrou(int documentId) {
+        retirerDans(index, documents, jetonsParDocument, documentId);
+    }
+
+    private static void indexerDans(NavigableMap<String, Set<Integer>> index, Map<Integer, Document> documents,
+                                    Map<Integer, Set<String>> jetonsParDocument, Document doc) {
+        if (doc == null || "supprime".equalsIgnoreCase(doc.getStatut())) return;
+
+        Set<String> jetons = new HashSet<>();
+        jetons.addAll(tokeniser(doc.getCodeDocument()));
+        jetons.addAll(tokeniser(doc.getTitre()));
+        jetons.addAll(tokeniser(doc.getDescription()));
+        jetons.addAll(tokeniser(doc.getMotsCles()));
+        jetons.addAll(tokeniser(doc.getExtension()));
+
+        for (String jeton : jetons) {
+            index.computeIfAbsent(jeton, k -> new HashSet<>()).add(doc.getId());
+        }
+
+        documents.put(doc.getId(), doc);
+        jetonsParDocument.put(doc.getId(), jetons);
+    }
+
+    private static void retirerDans(NavigableMap<String, Set<Integer>> index, Map<Integer, Document> documents,
+                                    Map<Integer, Set<String>> jetonsParDocument, int documentId) {
+        Set<String> jetons = jetonsParDocument.remove(documentId);
+        documents.remove(documentId);
+
+        if (jetons == null) return;
+
+        for (String jeton : jetons) {
+            Set<Integer> ids = index.get(jeton);
+            if (ids != null) {
+                ids.remove(documentId);
+                if (ids.isEmpty()) {
+                    index.remove(jeton);
+                }
+            }
+        }
+    }
+
+    // ==================== RECHERCHE ====================
+
+    /**
+     * Recherche les documents dont chaque terme de la requête préfixe au moins un jeton
+     * @param recherche Texte saisi par l'utilisateur
+     * @return Documents correspondants, triés par date de modification décroissante
+     */
+    public List<Document> rechercher(String recherche) {
+        List<String> termes = tokeniser(recherche);
+
+        verrou.readLock().lock();
+        try {
+            Set<Integer> resultat = null;
+
+            for (String terme : termes) {
+                Set<Integer> ids = idsParPrefixe(terme);
+
+                if (resultat == null) {
+                    resultat = ids;
+                } else {
+                    resultat.retainAll(ids);
+                }
+
+                if (resultat.isEmpty()) break;
+            }
+
+            if (resultat == null || resultat.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            List<Document> trouves = new ArrayList<>(resultat.size());
+            for (Integer id : resultat) {
+                Document doc = documents.get(id);
+                if (doc != null) {
+                    trouves.add(doc);
+                }
+            }
+
+            trouves.sort(PAR_DATE_MODIFICATION_DESC);
+            return trouves;
+
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retourne le nombre de documents indexés
+     */
+    public int getNombreDocuments() {
+        verrou.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private Set<Integer> idsParPrefixe(String prefixe) {
+        Set<Integer> ids = new HashSet<>();
+        for (Set<Integer> postings : index.subMap(prefixe, true, prefixe + Character.MAX_VALUE, false).values()) {
+            ids.addAll(postings);
+        }
+        return ids;
+    }
+
+    private static final Comparator<Document> PAR_DATE_MODIFICATION_DESC = Comparator.comparing(
+        Document::getDateModification, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    // ==================== NORMALISATION ====================
+
+    /**
+     * Minuscules et suppression des accents
+     */
+    static String normaliser(String texte) {
+        if (texte == null) return "";
+        String decompose = Normalizer.normalize(texte.trim(), Normalizer.Form.NFD);
+        return DIACRITIQUES.matcher(decompose).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Découpe un texte en jetons normalisés
+     */
+    static List<String> tokeniser(String texte) {
+        List<String> jetons = new ArrayList<>();
+        String normalise = normaliser(texte);
+        if (normalise.isEmpty()) return jetons;
+
+        for (String jeton : SEPARATEURS.split(normalise)) {
+            if (!jeton.isEmpty()) {
+                jetons.add(jeton);
+            }
+        }
+        return jetons;
+    }
+}
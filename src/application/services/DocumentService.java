@@ -1,16 +1,29 @@
 package application.services;
 
 import application.models.Document;
+import application.models.Dossier;
+import application.models.PageDocuments;
 import application.models.User;
+import application.services.NetworkService.Operation;
+import application.services.NetworkService.TypeEntite;
 import application.utils.SessionManager;
+import application.utils.TextExtractionUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.time.Year;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import application.models.User;
 import application.models.StatutDocument;
 
@@ -21,14 +34,23 @@ import application.models.StatutDocument;
 public class DocumentService {
     
     private static DocumentService instance;
+    private static final int MAX_RESULTATS_CONTENU = 500;
     private final DatabaseService databaseService;
     private final NetworkStorageService networkStorageService;
+    private final DocumentSearchIndex searchIndex;
+    private final ContentIndexService contentIndex;
+    private final NetworkService networkService;
+    private final Map<String, PrefixeNomenclature> prefixesNomenclature = new ConcurrentHashMap<>();
+    private final CacheEntites<Document> cacheDocuments = CacheEntites.creer("documents", TypeEntite.DOCUMENT, 2000, 60, Document::copier);
     private SessionManager sessionManager;
     private String cheminStockageLocal;
     
     private DocumentService() {
         this.databaseService = DatabaseService.getInstance();
         this.networkStorageService = NetworkStorageService.getInstance();
+        this.searchIndex = DocumentSearchIndex.getInstance();
+        this.contentIndex = ContentIndexService.getInstance();
+        this.networkService = NetworkService.getInstance();
         this.cheminStockageLocal = System.getProperty("user.home") + File.separator + 
                                    "Documents" + File.separator + "AppDocuments";
         initialiserStockageLocal();
@@ -58,9 +80,62 @@ public class DocumentService {
     
     // ==================== NOUVELLE FONCTIONNALITÉ: RECHERCHE DE DOCUMENTS ====================
     
+    /**
+     * Construit l'index de recherche en mémoire (une seule fois, au démarrage)
+     * puis charge l'index de contenu et met en file les fichiers non encore indexés
+     */
+    public void initialiserIndexRecherche() {
+        if (searchIndex.isPret()) return;
+        
+        List<Document> documents = new ArrayList<>();
+        searchIndex.construire(() -> {
+            documents.addAll(getAllDocuments());
+            return documents;
+        });
+        
+        contentIndex.charger();
+        contentIndex.rattraperDocumentsNonIndexes(documents);
+    }
+    
+    /**
+     * Reconstruit l'index de recherche (rechargement complet demandé par la synchronisation)
+     * Les mises à jour concurrentes pendant la reconstruction sont conservées par l'index.
+     */
+    public void reconstruireIndexRecherche() {
+        if (!searchIndex.isPret()) return;
+        searchIndex.construire(this::getAllDocuments);
+    }
+    
+    /**
+     * Applique aux caches et aux index les changements faits par d'autres postes
+     * (invalidations reçues et delta de synchronisation)
+     * @param modifies Documents relus en base (au statut "supprime" s'ils sont à la corbeille)
+     * @param retires Documents supprimés définitivement
+     */
+    public void appliquerChangementsDistants(Collection<Document> modifies, Collection<Integer> retires) {
+        for (Document doc : modifies) {
+            cacheDocuments.invalider(doc.getId());
+            searchIndex.indexer(doc);
+            
+            // L'index de contenu est propre au poste : un document ajouté ailleurs y entre ici
+            if (!"supprime".equalsIgnoreCase(doc.getStatut()) && !contentIndex.contient(doc.getId()) &&
+                TextExtractionUtils.estSupporte(doc.getExtension())) {
+                contentIndex.indexerAsync(doc.getId(),
+                    doc.getCheminServeur() != null ? doc.getCheminServeur() : doc.getCheminFichier(),
+                    doc.getExtension());
+            }
+        }
+        for (Integer documentId : retires) {
+            cacheDocuments.invalider(documentId);
+            searchIndex.retirer(documentId);
+            contentIndex.retirer(documentId);
+        }
+    }
+    
     /**
      * Recherche avancée de documents
      * Recherche dans: code, titre, description, mots-clés, nom de fichier
+     * Utilise l'index en mémoire s'il est prêt, sinon la requête SQL
      * @param recherche Terme de recherche
      * @return Liste des documents correspondants
      */
@@ -69,6 +144,12 @@ public class DocumentService {
             return getAllDocuments();
         }
         
+        if (searchIndex.isPret()) {
+            List<Document> resultats = searchIndex.rechercher(recherche);
+            System.out.println("🔍 Recherche '" + recherche + "' (index): " + resultats.size() + " résultat(s)");
+            return resultats;
+        }
+        
         List<Document> documents = new ArrayList<>();
         String query = "SELECT * FROM v_documents_complets WHERE statut != 'supprime' AND (" +
                       "code_document LIKE ? OR " +
@@ -89,9 +170,7 @@ public class DocumentService {
             stmt.setString(5, pattern);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    documents.add(mapResultSetToDocument(rs));
-                }
+                documents.addAll(RowMapper.lireTout(rs, MAPPER_DOCUMENT));
             }
             
             System.out.println("🔍 Recherche '" + recherche + "': " + documents.size() + " résultat(s)");
@@ -105,6 +184,7 @@ public class DocumentService {
     
     /**
      * Recherche de documents avec filtres avancés
+     * Les documents dont le CONTENU correspond sont inclus et classés par pertinence
      * @param recherche Terme de recherche
      * @param typeDocument Type de document (null pour tous)
      * @param dossierId ID du dossier (null pour tous)
@@ -119,15 +199,26 @@ public class DocumentService {
         queryBuilder.append("SELECT * FROM v_documents_complets WHERE statut != 'supprime' ");
         
         List<Object> params = new ArrayList<>();
+        Map<Integer, Double> scoresContenu = new HashMap<>();
         
-        // Recherche textuelle
+        // Recherche textuelle (métadonnées + contenu des fichiers)
         if (recherche != null && !recherche.trim().isEmpty()) {
-            queryBuilder.append("AND (code_document LIKE ? OR titre LIKE ? OR description LIKE ? OR mots_cles LIKE ?) ");
+            scoresContenu = contentIndex.rechercher(recherche, MAX_RESULTATS_CONTENU);
+            
+            queryBuilder.append("AND (code_document LIKE ? OR titre LIKE ? OR description LIKE ? OR mots_cles LIKE ?");
             String pattern = "%" + recherche + "%";
             params.add(pattern);
             params.add(pattern);
             params.add(pattern);
             params.add(pattern);
+            
+            if (!scoresContenu.isEmpty()) {
+                queryBuilder.append(" OR id IN (")
+                            .append(String.join(",", Collections.nCopies(scoresContenu.size(), "?")))
+                            .append(")");
+                params.addAll(scoresContenu.keySet());
+            }
+            queryBuilder.append(") ");
         }
         
         // Filtre par type
@@ -166,9 +257,12 @@ public class DocumentService {
             }
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    documents.add(mapResultSetToDocument(rs));
-                }
+                documents.addAll(RowMapper.lireTout(rs, MAPPER_DOCUMENT));
+            }
+            
+            // Classement par pertinence du contenu (tri stable : à score égal, ordre par date conservé)
+            if (!scoresContenu.isEmpty()) {
+                classerParPertinence(documents, recherche, scoresContenu);
             }
             
             System.out.println("🔍 Recherche avancée: " + documents.size() + " résultat(s)");
@@ -180,6 +274,27 @@ public class DocumentService {
         return documents;
     }
     
+    /**
+     * Trie les résultats par score de contenu ; une correspondance dans le titre ou le code
+     * reçoit le meilleur score de contenu pour rester en tête
+     */
+    private void classerParPertinence(List<Document> documents, String recherche, Map<Integer, Double> scoresContenu) {
+        double meilleurScore = scoresContenu.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        String termeNormalise = DocumentSearchIndex.normaliser(recherche);
+        Map<Integer, Double> scores = new HashMap<>();
+        
+        for (Document doc : documents) {
+            double score = scoresContenu.getOrDefault(doc.getId(), 0.0);
+            String entete = DocumentSearchIndex.normaliser(doc.getTitre() + " " + doc.getCodeDocument());
+            if (entete.contains(termeNormalise)) {
+                score += meilleurScore;
+            }
+            scores.put(doc.getId(), score);
+        }
+        
+        documents.sort(Comparator.comparingDouble((Document d) -> scores.get(d.getId())).reversed());
+    }
+    
     /**
      * Recherche de documents par extension
      * @param extension Extension du fichier (ex: "pdf", "docx")
@@ -196,9 +311,7 @@ public class DocumentService {
             stmt.setString(1, extension);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    documents.add(mapResultSetToDocument(rs));
-                }
+                documents.addAll(RowMapper.lireTout(rs, MAPPER_DOCUMENT));
             }
             
         } catch (SQLException e) {
@@ -226,9 +339,7 @@ public class DocumentService {
             stmt.setTimestamp(2, dateFin);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    documents.add(mapResultSetToDocument(rs));
-                }
+                documents.addAll(RowMapper.lireTout(rs, MAPPER_DOCUMENT));
             }
             
         } catch (SQLException e) {
@@ -270,28 +381,42 @@ public class DocumentService {
             document.setCodeDocument("DOC-" + System.currentTimeMillis());
         }
         
-        // Calculer le hash du fichier
-        String hashFichier = networkStorageService.calculerHashFichier(fichier);
-        document.setHashFichier(hashFichier);
-        
         // Extraire informations du fichier
-        document.setTailleFichier(fichier.length());
         document.setExtension(getExtension(fichier.getName()));
         document.setMimeType(getMimeType(fichier));
         
-        // Copier localement
-        String cheminLocal = copierFichierLocal(fichier, document.getCodeDocument());
-        document.setCheminFichier(cheminLocal);
-        
-        // Stocker sur serveur réseau
-        String cheminServeur = networkStorageService.stockerFichierServeur(
-            new File(cheminLocal), 
+        // Une seule lecture du fichier : hash SHA-256 + copie locale + copie serveur
+        NetworkStorageService.ResultatIngestion ingestion = networkStorageService.ingererFichier(
+            fichier,
+            resoudreCheminLocal(fichier, document.getCodeDocument()),
             document.getCodeDocument()
         );
+        
+        String cheminLocal = ingestion.getCheminLocal();
+        String cheminServeur = ingestion.getCheminServeur();
+        document.setHashFichier(ingestion.getHashFichier());
+        document.setTailleFichier(ingestion.getTaille());
+        document.setCheminFichier(cheminLocal);
         document.setCheminServeur(cheminServeur);
         
-        // Insérer en base
-        insertDocument(document, userId);
+        // Insérer en base ; en cas d'échec, rendre la référence de blob prise par l'ingestion
+        try {
+            insertDocument(document, userId);
+        } catch (Exception e) {
+            if (networkStorageService.estCheminBlob(cheminServeur)) {
+                networkStorageService.libererBlob(ingestion.getHashFichier());
+            }
+            try {
+                Files.deleteIfExists(Paths.get(cheminLocal));
+            } catch (IOException suppression) {
+                System.err.println("⚠ Copie locale non supprimée: " + suppression.getMessage());
+            }
+            throw e;
+        }
+        rafraichirIndex(document.getId(), Operation.CREATION);
+        
+        // Indexation du contenu en arrière-plan (ne bloque pas la création), depuis la copie locale
+        contentIndex.indexerAsync(document.getId(), cheminLocal, document.getExtension());
         
         // Enregistrer l'activité
         enregistrerActivite(document.getId(), userId, "creation", 
@@ -305,10 +430,43 @@ public class DocumentService {
     /**
      * Génère un code document avec nomenclature automatique
      * Format: INITIALES-ANNÉE-SÉQUENCE (ex: DIV-2025-0001)
+     * La séquence vient d'un bloc réservé (SequenceService) : pas de requête par document
      */
     private String genererCodeDocumentNomenclature(int dossierId) throws SQLException {
         int annee = Year.now().getValue();
+        String prefixe = getPrefixeNomenclature(dossierId, annee);
+        
+        SequenceService sequences = SequenceService.getInstance();
+        return sequences.prochainCode(prefixe, annee,
+            sequences.depuisCodesExistants("documents", "code_document", prefixe));
+    }
+    
+    /**
+     * Préfixe INITIALES-ANNÉE- d'un dossier, tel que calculé par la fonction SQL de nomenclature
+     * Mis en cache par dossier ; recalculé si le dossier a été modifié depuis (renommage)
+     */
+    private String getPrefixeNomenclature(int dossierId, int annee) throws SQLException {
+        Dossier dossier = DossierService.getInstance().getArborescence().getDossier(dossierId);
+        LocalDateTime version = dossier != null ? dossier.getDateModification() : null;
+        String cle = dossierId + "|" + annee;
+        
+        PrefixeNomenclature connu = prefixesNomenclature.get(cle);
+        if (connu != null && Objects.equals(connu.version, version)) {
+            return connu.prefixe;
+        }
+        
+        String code = appelerFonctionNomenclature(dossierId, annee);
+        int separateur = code.lastIndexOf('-');
+        if (separateur < 0) {
+            throw new SQLException("Code de nomenclature inattendu: " + code);
+        }
         
+        String prefixe = code.substring(0, separateur + 1);
+        prefixesNomenclature.put(cle, new PrefixeNomenclature(prefixe, version));
+        return prefixe;
+    }
+    
+    private String appelerFonctionNomenclature(int dossierId, int annee) throws SQLException {
         String query = "SELECT generer_code_document_nomenclature(?, ?)";
         
         try (Connection conn = databaseService.getConnection();
@@ -327,18 +485,24 @@ public class DocumentService {
         throw new SQLException("Impossible de générer le code document");
     }
     
+    private static class PrefixeNomenclature {
+        final String prefixe;
+        final LocalDateTime version;
+        
+        PrefixeNomenclature(String prefixe, LocalDateTime version) {
+            this.prefixe = prefixe;
+            this.version = version;
+        }
+    }
+    
     /**
-     * Copie un fichier vers le stockage local
+     * Calcule le chemin du fichier dans le stockage local
      */
-    private String copierFichierLocal(File fichierSource, String codeDocument) throws IOException {
+    private Path resoudreCheminLocal(File fichierSource, String codeDocument) {
         String extension = getExtension(fichierSource.getName());
         String nomFichier = codeDocument + (extension.isEmpty() ? "" : "." + extension);
         
-        Path destination = Paths.get(cheminStockageLocal, nomFichier);
-        
-        Files.copy(fichierSource.toPath(), destination, StandardCopyOption.REPLACE_EXISTING);
-        
-        return destination.toString();
+        return Paths.get(cheminStockageLocal, nomFichier);
     }
     
     /**
@@ -383,6 +547,9 @@ public class DocumentService {
                 }
             }
         }
+        
+        CompteursActiviteService.getInstance().appliquer(
+            new CompteursActiviteService.Increments().evenement(CompteursActiviteService.DOCUMENTS));
     }
     
     /**
@@ -419,6 +586,7 @@ public class DocumentService {
             if (result) {
                 enregistrerActivite(document.getId(), userId, "modification", 
                                   "Document modifié");
+                rafraichirIndex(document.getId(), Operation.MODIFICATION);
             }
             
             return result;
@@ -437,13 +605,12 @@ public class DocumentService {
         String query = "SELECT * FROM v_documents_complets WHERE statut != 'supprime' " +
                       "ORDER BY date_modification DESC";
         
+        // Lecture en flux : le pilote ne garde pas une seconde copie de tout le résultat
         try (Connection conn = databaseService.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
+             PreparedStatement stmt = OptionsLecture.flux().preparer(conn, query);
+             ResultSet rs = stmt.executeQuery()) {
             
-            while (rs.next()) {
-                documents.add(mapResultSetToDocument(rs));
-            }
+            RowMapper.parcourir(rs, MAPPER_DOCUMENT, documents::add);
             
         } catch (SQLException e) {
             System.err.println("Erreur récupération documents: " + e.getMessage());
@@ -453,22 +620,35 @@ public class DocumentService {
     }
     
     /**
-     * Récupère un document par son ID
+     * Récupère les documents modifiés depuis une date (y compris ceux passés au statut "supprime")
+     * Utilisé par la synchronisation différentielle, ordre croissant de modification
      */
-    public Document getDocumentById(int id) {
-        String query = "SELECT * FROM v_documents_complets WHERE id = ?";
+    public List<Document> getDocumentsModifiesDepuis(LocalDateTime depuis, int limite) throws SQLException {
+        List<Document> documents = new ArrayList<>();
+        String query = "SELECT * FROM v_documents_complets WHERE date_modification >= ? " +
+                      "ORDER BY date_modification, id LIMIT ?";
         
         try (Connection conn = databaseService.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
-            stmt.setInt(1, id);
+            stmt.setTimestamp(1, Timestamp.valueOf(depuis));
+            stmt.setInt(2, limite);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToDocument(rs);
-                }
+                documents.addAll(RowMapper.lireTout(rs, MAPPER_DOCUMENT));
             }
-            
+        }
+        
+        return documents;
+    }
+    
+    /**
+     * Récupère un document par son ID (cache en lecture traversante, invalidé à chaque écriture)
+     * L'instance rendue est une copie : la modifier ne change pas le cache
+     */
+    public Document getDocumentById(int id) {
+        try {
+            return cacheDocuments.obtenir(id, this::lireDocument);
         } catch (SQLException e) {
             System.err.println("Erreur récupération document: " + e.getMessage());
         }
@@ -476,6 +656,27 @@ public class DocumentService {
         return null;
     }
     
+    private Document lireDocument(int id) throws SQLException {
+        String query = "SELECT * FROM v_documents_complets WHERE id = ?";
+        
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setInt(1, id);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return RowMapper.lirePremier(rs, MAPPER_DOCUMENT);
+            }
+        }
+    }
+    
+    /**
+     * Retire un document du cache (écriture faite hors de ce service, ex. archivage d'un courrier)
+     */
+    public void invaliderDocument(int documentId) {
+        cacheDocuments.invalider(documentId);
+    }
+    
     /**
      * Récupère les documents d'un dossier
      */
@@ -490,24 +691,118 @@ public class DocumentService {
             stmt.setInt(1, dossierId);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    documents.add(mapResultSetToDocument(rs));
-                }
+                documents.addAll(RowMapper.lireTout(rs, MAPPER_DOCUMENT));
             }
             
         } catch (SQLException e) {
             System.err.println("Erreur récupération documents du dossier: " + e.getMessage());
         }
-        
+
         return documents;
     }
+
+    // ==================== PAGINATION ====================
+
+    /**
+     * Taille de page du tableau des documents (documents.page.taille, 200 par défaut)
+     */
+    public int getTaillePage() {
+        try {
+            int taille = Integer.parseInt(DatabaseService.getPropriete("documents.page.taille", "200").trim());
+            return Math.max(10, Math.min(taille, 5000));
+        } catch (NumberFormatException e) {
+            return 200;
+        }
+    }
+
+    /**
+     * Lit une page de documents actifs, du plus récemment modifié au plus ancien
+     *
+     * Pagination à curseur sur (date_modification, id) : la page reprend après la dernière
+     * ligne lue au lieu de sauter OFFSET lignes, le coût est donc le même quelle que soit la page.
+     * S'appuie sur les index (date_modification, id) et (dossier_id, date_modification, id) de documents,
+     * créés au démarrage par DatabaseService.
+     *
+     * @param dossierId Dossier à lister, ou null pour tous les documents
+     * @param apres Curseur de la page précédente, ou null pour la première page
+     */
+    public PageDocuments getPageDocuments(Integer dossierId, PageDocuments.Curseur apres, int taillePage) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT * FROM v_documents_complets WHERE statut != 'supprime' ");
+        if (dossierId != null) {
+            query.append("AND dossier_id = ? ");
+        }
+        // MySQL trie les NULL en dernier en ordre décroissant : les documents sans date_modification
+        // forment la fin de la liste, parcourue par id
+        if (apres != null && apres.getDateModification() != null) {
+            query.append("AND (date_modification < ? OR (date_modification = ? AND id < ?) OR date_modification IS NULL) ");
+        } else if (apres != null) {
+            query.append("AND date_modification IS NULL AND id < ? ");
+        }
+        query.append("ORDER BY date_modification DESC, id DESC LIMIT ?");
+
+        List<Document> documents = new ArrayList<>(taillePage + 1);
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+
+            int index = 1;
+            if (dossierId != null) {
+                stmt.setInt(index++, dossierId);
+            }
+            if (apres != null && apres.getDateModification() != null) {
+                Timestamp date = Timestamp.valueOf(apres.getDateModification());
+                stmt.setTimestamp(index++, date);
+                stmt.setTimestamp(index++, date);
+                stmt.setInt(index++, apres.getId());
+            } else if (apres != null) {
+                stmt.setInt(index++, apres.getId());
+            }
+            // Une ligne de plus pour savoir s'il reste une page
+            stmt.setInt(index, taillePage + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                documents.addAll(RowMapper.lireTout(rs, MAPPER_DOCUMENT));
+            }
+        }
+
+        boolean derniere = documents.size() <= taillePage;
+        if (!derniere) {
+            documents.remove(documents.size() - 1);
+        }
+
+        PageDocuments.Curseur suivant = documents.isEmpty() ? apres
+            : PageDocuments.Curseur.apres(documents.get(documents.size() - 1));
+
+        return new PageDocuments(documents, suivant, derniere);
+    }
+
+    /**
+     * Nombre de documents actifs (d'un dossier, ou de tous si dossierId est null)
+     */
+    public int compterDocuments(Integer dossierId) throws SQLException {
+        String query = dossierId != null
+            ? "SELECT COUNT(*) FROM documents WHERE statut != 'supprime' AND dossier_id = ?"
+            : "SELECT COUNT(*) FROM documents WHERE statut != 'supprime'";
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            if (dossierId != null) {
+                stmt.setInt(1, dossierId);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
     
     /**
      * Supprime un document (mise à la corbeille)
      */
     public boolean supprimerDocument(int documentId, int userId) {
         String query = "UPDATE documents SET statut = 'supprime', modifie_par = ?, " +
-                      "date_modification = NOW() WHERE id = ?";
+                      "date_modification = NOW() WHERE id = ? AND statut != 'supprime'";
         
         try (Connection conn = databaseService.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -520,6 +815,9 @@ public class DocumentService {
             if (result) {
                 enregistrerActivite(documentId, userId, "suppression", 
                                   "Document mis à la corbeille");
+                CompteursActiviteService.getInstance().appliquer(
+                    new CompteursActiviteService.Increments().solde(CompteursActiviteService.DOCUMENTS, -1));
+                rafraichirIndex(documentId, Operation.MODIFICATION);
             }
             
             return result;
@@ -535,7 +833,7 @@ public class DocumentService {
      */
     public boolean restaurerDocument(int documentId, int userId) {
         String query = "UPDATE documents SET statut = 'actif', modifie_par = ?, " +
-                      "date_modification = NOW() WHERE id = ?";
+                      "date_modification = NOW() WHERE id = ? AND statut = 'supprime'";
         
         try (Connection conn = databaseService.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -548,6 +846,9 @@ public class DocumentService {
             if (result) {
                 enregistrerActivite(documentId, userId, "restauration", 
                                   "Document restauré");
+                CompteursActiviteService.getInstance().appliquer(
+                    new CompteursActiviteService.Increments().solde(CompteursActiviteService.DOCUMENTS, 1));
+                rafraichirIndex(documentId, Operation.MODIFICATION);
             }
             
             return result;
@@ -600,6 +901,13 @@ public class DocumentService {
                     stmt.setInt(1, documentId);
                     stmt.executeUpdate();
                 }
+                databaseService.enregistrerSuppression(conn, "documents", documentId);
+                
+                // Un document de la corbeille est déjà sorti du compteur
+                if (!"supprime".equalsIgnoreCase(doc.getStatut())) {
+                    CompteursActiviteService.getInstance().appliquer(conn,
+                        new CompteursActiviteService.Increments().solde(CompteursActiviteService.DOCUMENTS, -1));
+                }
                 
                 // Supprimer le fichier physique si possible
                 try {
@@ -613,6 +921,17 @@ public class DocumentService {
                 
                 conn.commit();
                 
+                // Stockage dédupliqué : le blob n'est supprimé qu'avec sa dernière référence
+                if (networkStorageService.estCheminBlob(doc.getCheminServeur())) {
+                    networkStorageService.libererBlob(doc.getHashFichier());
+                }
+                cacheDocuments.invalider(documentId);
+                searchIndex.retirer(documentId);
+                contentIndex.retirer(documentId);
+                DossierService.getInstance().invaliderArborescence();
+                networkService.diffuserInvalidation(TypeEntite.DOCUMENT, documentId, doc.getDateModification(),
+                    Operation.SUPPRESSION);
+                
                 System.out.println("Document supprimé définitivement: " + doc.getCodeDocument());
                 return true;
                 
@@ -646,6 +965,7 @@ public class DocumentService {
             if (rowsAffected > 0) {
                 enregistrerActivite(documentId, userId, "deplacement", 
                                   "Document déplacé vers dossier ID: " + nouveauDossierId);
+                rafraichirIndex(documentId, Operation.MODIFICATION);
                 return true;
             }
             
@@ -671,9 +991,7 @@ public class DocumentService {
             stmt.setInt(1, limite);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    documents.add(mapResultSetToDocument(rs));
-                }
+                documents.addAll(RowMapper.lireTout(rs, MAPPER_DOCUMENT));
             }
             
         } catch (SQLException e) {
@@ -699,9 +1017,7 @@ public class DocumentService {
             stmt.setInt(1, userId);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    documents.add(mapResultSetToDocument(rs));
-                }
+                documents.addAll(RowMapper.lireTout(rs, MAPPER_DOCUMENT));
             }
             
         } catch (SQLException e) {
@@ -775,69 +1091,88 @@ public class DocumentService {
     }
     
     /**
-     * Convertit un ResultSet en objet Document
+     * Recharge un document depuis la vue, met à jour l'index de recherche
+     * et annonce le changement aux autres postes
      */
-    private Document mapResultSetToDocument(ResultSet rs) throws SQLException {
-        Document doc = new Document();
-        
-        doc.setId(rs.getInt("id"));
-        doc.setCodeDocument(rs.getString("code_document"));
-        
-        int dossierId = rs.getInt("dossier_id");
-        if (!rs.wasNull()) {
-            doc.setDossierId(dossierId);
-        }
-        
-        doc.setTitre(rs.getString("titre"));
-        doc.setTypeDocument(rs.getString("type_document"));
-        doc.setCheminFichier(rs.getString("chemin_fichier"));
-        doc.setCheminServeur(rs.getString("chemin_serveur"));
-        doc.setTailleFichier(rs.getLong("taille_fichier"));
-        doc.setExtension(rs.getString("extension"));
-        doc.setMimeType(rs.getString("mime_type"));
-        doc.setDescription(rs.getString("description"));
-        doc.setMotsCles(rs.getString("mots_cles"));
-        doc.setHashFichier(rs.getString("hash_fichier"));
-        doc.setConfidentiel(rs.getBoolean("confidentiel"));
-        doc.setStatut(rs.getString("statut").toUpperCase());
-        
-        int creePar = rs.getInt("cree_par");
-        if (!rs.wasNull()) {
-            doc.setCreePar(creePar);
-        }
-        
-        int modifiePar = rs.getInt("modifie_par");
-        if (!rs.wasNull()) {
-            doc.setModifiePar(modifiePar);
-        }
-        
-        Timestamp dateCreation = rs.getTimestamp("date_creation");
-        if (dateCreation != null) {
-            doc.setDateCreation(dateCreation.toLocalDateTime());
-        }
-        
-        Timestamp dateModification = rs.getTimestamp("date_modification");
-        if (dateModification != null) {
-            doc.setDateModification(dateModification.toLocalDateTime());
+    private void rafraichirIndex(int documentId, Operation operation) {
+        cacheDocuments.invalider(documentId);
+        Document doc = getDocumentById(documentId);
+        if (doc != null) {
+            searchIndex.indexer(doc);
+        } else {
+            searchIndex.retirer(documentId);
         }
+        // Les nombres de documents par dossier ont changé
+        DossierService.getInstance().invaliderArborescence();
+        networkService.diffuserInvalidation(TypeEntite.DOCUMENT, documentId,
+            doc != null ? doc.getDateModification() : null, operation);
+    }
+    
+    /**
+     * Conversion des lignes de v_documents_complets en Document (index résolus une fois par requête)
+     * nom_auteur est optionnel : absent de la vue, il vaut "Utilisateur"
+     */
+    private static final RowMapper<Document> MAPPER_DOCUMENT = colonnes -> {
+        int id = colonnes.index("id");
+        int codeDocument = colonnes.index("code_document");
+        int dossierId = colonnes.index("dossier_id");
+        int titre = colonnes.index("titre");
+        int typeDocument = colonnes.index("type_document");
+        int cheminFichier = colonnes.index("chemin_fichier");
+        int cheminServeur = colonnes.index("chemin_serveur");
+        int tailleFichier = colonnes.index("taille_fichier");
+        int extension = colonnes.index("extension");
+        int mimeType = colonnes.index("mime_type");
+        int description = colonnes.index("description");
+        int motsCles = colonnes.index("mots_cles");
+        int hashFichier = colonnes.index("hash_fichier");
+        int confidentiel = colonnes.index("confidentiel");
+        int statut = colonnes.index("statut");
+        int creePar = colonnes.index("cree_par");
+        int modifiePar = colonnes.index("modifie_par");
+        int dateCreation = colonnes.index("date_creation");
+        int dateModification = colonnes.index("date_modification");
+        int nomDossier = colonnes.index("nom_dossier");
+        int iconeDossier = colonnes.index("icone_dossier");
+        int nomAuteur = colonnes.indexOptionnel("nom_auteur");
+        int version = colonnes.index("version_actuelle");
         
-        // Informations supplémentaires de la vue
-        doc.setNomDossier(rs.getString("nom_dossier"));
-        doc.setIconeDossier(rs.getString("icone_dossier"));
-        
-        // Gestion de nom_auteur (peut ne pas exister dans la vue)
-        try {
-            doc.setNomAuteur(rs.getString("nom_auteur"));
-        } catch (SQLException e) {
-            // Si la colonne n'existe pas, utiliser une valeur par défaut
-            doc.setNomAuteur("Utilisateur");
+        if (nomAuteur == Colonnes.ABSENTE) {
             System.out.println("⚠️ Colonne 'nom_auteur' non disponible dans la vue SQL");
         }
         
-        doc.setVersion(rs.getInt("version_actuelle"));
-        
-        return doc;
-    }
+        return rs -> {
+            Document doc = new Document();
+            
+            doc.setId(rs.getInt(id));
+            doc.setCodeDocument(rs.getString(codeDocument));
+            doc.setDossierId(Colonnes.entier(rs, dossierId));
+            doc.setTitre(rs.getString(titre));
+            doc.setTypeDocument(rs.getString(typeDocument));
+            doc.setCheminFichier(rs.getString(cheminFichier));
+            doc.setCheminServeur(rs.getString(cheminServeur));
+            doc.setTailleFichier(rs.getLong(tailleFichier));
+            doc.setExtension(rs.getString(extension));
+            doc.setMimeType(rs.getString(mimeType));
+            doc.setDescription(rs.getString(description));
+            doc.setMotsCles(rs.getString(motsCles));
+            doc.setHashFichier(rs.getString(hashFichier));
+            doc.setConfidentiel(rs.getBoolean(confidentiel));
+            doc.setStatut(rs.getString(statut).toUpperCase());
+            doc.setCreePar(Colonnes.entier(rs, creePar));
+            doc.setModifiePar(Colonnes.entier(rs, modifiePar));
+            doc.setDateCreation(Colonnes.dateHeure(rs, dateCreation));
+            doc.setDateModification(Colonnes.dateHeure(rs, dateModification));
+            
+            // Informations supplémentaires de la vue
+            doc.setNomDossier(rs.getString(nomDossier));
+            doc.setIconeDossier(rs.getString(iconeDossier));
+            doc.setNomAuteur(nomAuteur != Colonnes.ABSENTE ? rs.getString(nomAuteur) : "Utilisateur");
+            doc.setVersion(rs.getInt(version));
+            
+            return doc;
+        };
+    };
     
     /**
      * Extrait l'extension d'un nom de fichier
@@ -1,9 +1,13 @@
 package application.services;
 
+import application.models.ArborescenceDossiers;
 import application.models.Dossier;
 import application.models.User;
+import application.services.NetworkService.Operation;
+import application.services.NetworkService.TypeEntite;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +19,16 @@ public class DossierService {
     private static DossierService instance;
     private final DatabaseService databaseService;
     
+    // Arborescence partagée entre les vues (null = à recharger)
+    private volatile ArborescenceDossiers arborescence;
+    
+    // Incrémentée à chaque invalidation : un chargement commencé avant n'est pas conservé (comme CacheEntites)
+    private long generationArborescence = 0;
+    private final Object verrouArborescence = new Object();
+    
+    // Dossiers lus par id ; vidé avec l'arborescence (la vue porte les nombres de documents)
+    private final CacheEntites<Dossier> cacheDossiers = CacheEntites.creer("dossiers", TypeEntite.DOSSIER, 500, 60, Dossier::copier);
+    
     private DossierService() {
         this.databaseService = DatabaseService.getInstance();
     }
@@ -83,6 +97,9 @@ public class DossierService {
         
         // Insérer en base
         insertDossier(dossier, user.getId());
+        invaliderArborescence();
+        NetworkService.getInstance().diffuserInvalidation(TypeEntite.DOSSIER, dossier.getId(),
+            databaseService.lireDateModification("dossiers", dossier.getId()), Operation.CREATION);
         
         System.out.println("✓ Dossier créé: " + dossier.getCodeDossier());
         
@@ -147,13 +164,29 @@ public class DossierService {
         }
         
         // Suppression (marquer comme inactif)
-        String query = "UPDATE dossiers SET actif = FALSE WHERE id = ?";
-        
-        try (Connection conn = databaseService.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        String query = "UPDATE dossiers SET actif = FALSE, date_modification = NOW() WHERE id = ?";
+        
+        try (Connection conn = databaseService.getConnection()) {
+            conn.setAutoCommit(false);
+            boolean supprime;
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, dossierId);
+                supprime = stmt.executeUpdate() > 0;
+                if (supprime) {
+                    databaseService.enregistrerSuppression(conn, "dossiers", dossierId);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
             
-            stmt.setInt(1, dossierId);
-            return stmt.executeUpdate() > 0;
+            if (supprime) {
+                invaliderArborescence();
+                NetworkService.getInstance().diffuserInvalidation(TypeEntite.DOSSIER, dossierId,
+                    databaseService.lireDateModification("dossiers", dossierId), Operation.SUPPRESSION);
+            }
+            return supprime;
             
         } catch (SQLException e) {
             System.err.println("Erreur suppression dossier: " + e.getMessage());
@@ -162,9 +195,19 @@ public class DossierService {
     }
     
     /**
-     * Récupère un dossier par son ID
+     * Récupère un dossier par son ID (cache en lecture traversante)
      */
     public Dossier getDossierById(int id) {
+        try {
+            return cacheDossiers.obtenir(id, this::lireDossier);
+        } catch (SQLException e) {
+            System.err.println("Erreur récupération dossier: " + e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    private Dossier lireDossier(int id) throws SQLException {
         String query = "SELECT * FROM v_arborescence_dossiers WHERE id = ?";
         
         try (Connection conn = databaseService.getConnection();
@@ -173,16 +216,9 @@ public class DossierService {
             stmt.setInt(1, id);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToDossier(rs);
-                }
+                return RowMapper.lirePremier(rs, MAPPER_DOSSIER);
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Erreur récupération dossier: " + e.getMessage());
         }
-        
-        return null;
     }
     
     public boolean updateDossier(Dossier dossier) throws Exception {
@@ -207,7 +243,14 @@ public class DossierService {
             stmt.setInt(4, dossier.getOrdreAffichage());
             stmt.setInt(5, dossier.getId());
             
-            return stmt.executeUpdate() > 0;
+            boolean modifie = stmt.executeUpdate() > 0;
+            
+            if (modifie) {
+                invaliderArborescence();
+                NetworkService.getInstance().diffuserInvalidation(TypeEntite.DOSSIER, dossier.getId(),
+                    databaseService.lireDateModification("dossiers", dossier.getId()), Operation.MODIFICATION);
+            }
+            return modifie;
             
         } catch (SQLException e) {
             System.err.println("Erreur mise à jour dossier: " + e.getMessage());
@@ -226,9 +269,7 @@ public class DossierService {
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
-            while (rs.next()) {
-                dossiers.add(mapResultSetToDossier(rs));
-            }
+            dossiers.addAll(RowMapper.lireTout(rs, MAPPER_DOSSIER));
             
         } catch (SQLException e) {
             System.err.println("Erreur récupération dossiers: " + e.getMessage());
@@ -237,6 +278,69 @@ public class DossierService {
         return dossiers;
     }
     
+    /**
+     * Arborescence des dossiers actifs, chargée une seule fois et partagée entre les vues
+     * (explorateur, sélecteurs, formulaires). Rechargée après invaliderArborescence().
+     * Une arborescence chargée pendant une invalidation est retournée à l'appelant mais pas conservée.
+     */
+    public ArborescenceDossiers getArborescence() {
+        ArborescenceDossiers courante = arborescence;
+        if (courante == null) {
+            synchronized (this) {
+                courante = arborescence;
+                if (courante == null) {
+                    long generationLue;
+                    synchronized (verrouArborescence) {
+                        generationLue = generationArborescence;
+                    }
+                    
+                    courante = ArborescenceDossiers.construire(getAllDossiers());
+                    
+                    synchronized (verrouArborescence) {
+                        if (generationArborescence == generationLue) {
+                            arborescence = courante;
+                        }
+                    }
+                }
+            }
+        }
+        return courante;
+    }
+    
+    /**
+     * Force le rechargement de l'arborescence partagée et des dossiers en cache au prochain accès
+     * (dossier modifié ici ou sur un autre poste, nombre de documents changé)
+     */
+    public void invaliderArborescence() {
+        synchronized (verrouArborescence) {
+            generationArborescence++;
+            arborescence = null;
+        }
+        cacheDossiers.vider();
+    }
+    
+    /**
+     * Récupère les dossiers actifs modifiés depuis une date (synchronisation différentielle)
+     */
+    public List<Dossier> getDossiersModifiesDepuis(LocalDateTime depuis, int limite) throws SQLException {
+        List<Dossier> dossiers = new ArrayList<>();
+        String query = "SELECT * FROM v_arborescence_dossiers WHERE date_modification >= ? " +
+                      "ORDER BY date_modification, id LIMIT ?";
+        
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setTimestamp(1, Timestamp.valueOf(depuis));
+            stmt.setInt(2, limite);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                dossiers.addAll(RowMapper.lireTout(rs, MAPPER_DOSSIER));
+            }
+        }
+        
+        return dossiers;
+    }
+    
     /**
      * Récupère les dossiers racines (sans parent)
      */
@@ -249,9 +353,7 @@ public class DossierService {
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
-            while (rs.next()) {
-                dossiers.add(mapResultSetToDossier(rs));
-            }
+            dossiers.addAll(RowMapper.lireTout(rs, MAPPER_DOSSIER));
             
         } catch (SQLException e) {
             System.err.println("Erreur récupération dossiers racines: " + e.getMessage());
@@ -274,9 +376,7 @@ public class DossierService {
             stmt.setInt(1, parentId);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    dossiers.add(mapResultSetToDossier(rs));
-                }
+                dossiers.addAll(RowMapper.lireTout(rs, MAPPER_DOSSIER));
             }
             
         } catch (SQLException e) {
@@ -303,9 +403,7 @@ public class DossierService {
             stmt.setString(2, pattern);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    dossiers.add(mapResultSetToDossier(rs));
-                }
+                dossiers.addAll(RowMapper.lireTout(rs, MAPPER_DOSSIER));
             }
             
         } catch (SQLException e) {
@@ -340,48 +438,51 @@ public class DossierService {
     }
     
     /**
-     * Convertit un ResultSet en objet Dossier
+     * Conversion des lignes de v_arborescence_dossiers en Dossier (index résolus une fois par requête)
      */
-    private Dossier mapResultSetToDossier(ResultSet rs) throws SQLException {
-        Dossier dossier = new Dossier();
-        
-        dossier.setId(rs.getInt("id"));
-        dossier.setCodeDossier(rs.getString("code_dossier"));
-        dossier.setNomDossier(rs.getString("nom_dossier"));
-        
-        int parentId = rs.getInt("dossier_parent_id");
-        if (!rs.wasNull()) {
-            dossier.setDossierParentId(parentId);
-        }
-        
-        dossier.setCheminComplet(rs.getString("chemin_complet"));
-        dossier.setDescription(rs.getString("description"));
-        dossier.setIcone(rs.getString("icone"));
-        dossier.setOrdreAffichage(rs.getInt("ordre_affichage"));
-        dossier.setActif(rs.getBoolean("actif"));
-        dossier.setSysteme(rs.getBoolean("systeme"));
-        
-        int creePar = rs.getInt("cree_par");
-        if (!rs.wasNull()) {
-            dossier.setCreePar(creePar);
-        }
-        
-        Timestamp dateCreation = rs.getTimestamp("date_creation");
-        if (dateCreation != null) {
-            dossier.setDateCreation(dateCreation.toLocalDateTime());
-        }
-        
-        Timestamp dateModification = rs.getTimestamp("date_modification");
-        if (dateModification != null) {
-            dossier.setDateModification(dateModification.toLocalDateTime());
-        }
-        
-        // Informations supplémentaires de la vue
-        dossier.setNombreDocuments(rs.getInt("nombre_documents"));
-        dossier.setNombreSousDossiers(rs.getInt("nombre_sous_dossiers"));
-        dossier.setNomDossierParent(rs.getString("nom_dossier_parent"));
-        dossier.setNiveauHierarchie(rs.getInt("niveau_hierarchie"));
-        
-        return dossier;
-    }
+    private static final RowMapper<Dossier> MAPPER_DOSSIER = colonnes -> {
+        int id = colonnes.index("id");
+        int codeDossier = colonnes.index("code_dossier");
+        int nomDossier = colonnes.index("nom_dossier");
+        int dossierParentId = colonnes.index("dossier_parent_id");
+        int cheminComplet = colonnes.index("chemin_complet");
+        int description = colonnes.index("description");
+        int icone = colonnes.index("icone");
+        int ordreAffichage = colonnes.index("ordre_affichage");
+        int actif = colonnes.index("actif");
+        int systeme = colonnes.index("systeme");
+        int creePar = colonnes.index("cree_par");
+        int dateCreation = colonnes.index("date_creation");
+        int dateModification = colonnes.index("date_modification");
+        int nombreDocuments = colonnes.index("nombre_documents");
+        int nombreSousDossiers = colonnes.index("nombre_sous_dossiers");
+        int nomDossierParent = colonnes.index("nom_dossier_parent");
+        int niveauHierarchie = colonnes.index("niveau_hierarchie");
+        
+        return rs -> {
+            Dossier dossier = new Dossier();
+            
+            dossier.setId(rs.getInt(id));
+            dossier.setCodeDossier(rs.getString(codeDossier));
+            dossier.setNomDossier(rs.getString(nomDossier));
+            dossier.setDossierParentId(Colonnes.entier(rs, dossierParentId));
+            dossier.setCheminComplet(rs.getString(cheminComplet));
+            dossier.setDescription(rs.getString(description));
+            dossier.setIcone(rs.getString(icone));
+            dossier.setOrdreAffichage(rs.getInt(ordreAffichage));
+            dossier.setActif(rs.getBoolean(actif));
+            dossier.setSysteme(rs.getBoolean(systeme));
+            dossier.setCreePar(Colonnes.entier(rs, creePar));
+            dossier.setDateCreation(Colonnes.dateHeure(rs, dateCreation));
+            dossier.setDateModification(Colonnes.dateHeure(rs, dateModification));
+            
+            // Informations supplémentaires de la vue
+            dossier.setNombreDocuments(rs.getInt(nombreDocuments));
+            dossier.setNombreSousDossiers(rs.getInt(nombreSousDossiers));
+            dossier.setNomDossierParent(rs.getString(nomDossierParent));
+            dossier.setNiveauHierarchie(rs.getInt(niveauHierarchie));
+            
+            return dossier;
+        };
+    };
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+package application.services;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export des logs d'activité en flux, directement depuis la base
+ *
+ * Les lignes sont lues une à une (OptionsLecture.flux()) et écrites aussitôt dans un fichier
+ * compressé gzip : la mémoire utilisée ne dépend pas du nombre de lignes, une année de logs
+ * s'exporte sans être chargée.
+ *
+ * - CSV (RFC 4180 : champs entre guillemets si nécessaire, guillemets doublés ; une valeur
+ *   commençant par = + - @ est préfixée d'une apostrophe pour ne pas être évaluée par un tableur)
+ * - JSON : un objet par ligne (NDJSON)
+ * - Le fichier est écrit sous un nom temporaire puis renommé : un export interrompu ne laisse
+ *   pas de fichier incomplet
+ */
+public class ExportLogsService {
+
+    private static ExportLogsService instance;
+
+    private static final int INTERVALLE_PROGRESSION = 10_000;
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final DatabaseService databaseService;
+
+    private ExportLogsService() {
+        this.databaseService = DatabaseService.getInstance();
+    }
+
+    public static synchronized ExportLogsService getInstance() {
+        if (instance == null) {
+            instance = new ExportLogsService();
+        }
+        return instance;
+    }
+
+    public enum Format {
+        CSV(".csv.gz"),
+        JSON(".ndjson.gz");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() { return extension; }
+    }
+
+    /**
+     * Critères de sélection des logs (null : pas de filtre)
+     */
+    public static class Filtre {
+        private LocalDate debut;
+        private LocalDate fin;
+        private String utilisateur;
+        private String action;
+        private String recherche;
+
+        /** Premier jour inclus */
+        public Filtre debut(LocalDate debut) { this.debut = debut; return this; }
+
+        /** Dernier jour inclus */
+        public Filtre fin(LocalDate fin) { this.fin = fin; return this; }
+
+        /** Code exact de l'utilisateur */
+        public Filtre utilisateur(String code) { this.utilisateur = vide(code) ? null : code.trim(); return this; }
+
+        /** Partie du nom de l'action (ex. "connexion") */
+        public Filtre action(String action) { this.action = vide(action) ? null : action.trim(); return this; }
+
+        /** Texte cherché dans les détails et le nom de l'utilisateur */
+        public Filtre recherche(String recherche) { this.recherche = vide(recherche) ? null : recherche.trim(); return this; }
+
+        private static boolean vide(String valeur) {
+            return valeur == null || valeur.trim().isEmpty();
+        }
+    }
+
+    // ==================== REQUÊTE ====================
+
+    /**
+     * Clause WHERE des critères (alias la : logs_activite, u : users)
+     * Les bornes de dates portent directement sur la.timestamp pour utiliser idx_timestamp.
+     */
+    public static String clauseFiltre(Filtre filtre, List<Object> params) {
+        StringBuilder clause = new StringBuilder(" WHERE 1=1");
+
+        if (filtre.debut != null) {
+            clause.append(" AND la.timestamp >= ?");
+            params.add(Timestamp.valueOf(filtre.debut.atStartOfDay()));
+        }
+        if (filtre.fin != null) {
+            clause.append(" AND la.timestamp < ?");
+            params.add(Timestamp.valueOf(filtre.fin.plusDays(1).atStartOfDay()));
+        }
+        if (filtre.utilisateur != null) {
+            clause.append(" AND u.code = ?");
+            params.add(filtre.utilisateur);
+        }
+        if (filtre.action != null) {
+            clause.append(" AND la.action LIKE ?");
+            params.add("%" + filtre.action + "%");
+        }
+        if (filtre.recherche != null) {
+            clause.append(" AND (la.details LIKE ? OR u.nom LIKE ? OR u.prenom LIKE ?)");
+            String recherche = "%" + filtre.recherche + "%";
+            params.add(recherche);
+            params.add(recherche);
+            params.add(recherche);
+        }
+        return clause.toString();
+    }
+
+    // ==================== EXPORT ====================
+
+    /**
+     * Exporte les logs correspondant au filtre, du plus ancien au plus récent
+     *
+     * @param destination Fichier à créer (l'extension du format est ajoutée si absente)
+     * @param progression Reçoit le nombre de lignes écrites toutes les 10 000 lignes (peut être null)
+     * @return Le nombre de lignes exportées
+     */
+    public long exporter(Filtre filtre, Format format, Path destination, LongConsumer progression)
+            throws IOException, SQLException {
+
+        Path fichier = destination.getFileName().toString().endsWith(format.getExtension())
+            ? destination
+            : destination.resolveSibling(destination.getFileName() + format.getExtension());
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".part");
+
+        List<Object> params = new ArrayList<>();
+        String query = "SELECT la.timestamp, u.code, u.nom, u.prenom, la.action, la.details, la.ip_address, la.statut " +
+                      "FROM logs_activite la LEFT JOIN users u ON la.user_id = u.id" +
+                      clauseFiltre(filtre, params) + " ORDER BY la.timestamp, la.id";
+
+        long lignes = 0;
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = OptionsLecture.flux().preparer(conn, query)) {
+
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery();
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(Files.newOutputStream(temporaire), 64 * 1024), StandardCharsets.UTF_8), 64 * 1024)) {
+
+                if (format == Format.CSV) {
+                    writer.write("Date,Code utilisateur,Utilisateur,Action,Détails,Adresse IP,Statut\r\n");
+                }
+
+                while (rs.next()) {
+                    Timestamp ts = rs.getTimestamp(1);
+                    String date = ts != null ? ts.toLocalDateTime().format(FORMAT_DATE) : "";
+                    String code = rs.getString(2);
+                    String utilisateur = nomComplet(rs.getString(3), rs.getString(4));
+
+                    if (format == Format.CSV) {
+                        ecrireCsv(writer, date, code, utilisateur, rs.getString(5), rs.getString(6),
+                                  rs.getString(7), rs.getString(8));
+                    } else {
+                        ecrireJson(writer, date, code, utilisateur, rs.getString(5), rs.getString(6),
+                                   rs.getString(7), rs.getString(8));
+                    }
+
+                    lignes++;
+                    if (progression != null && lignes % INTERVALLE_PROGRESSION == 0) {
+                        progression.accept(lignes);
+                    }
+                }
+            }
+
+            Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException | SQLException e) {
+            Files.deleteIfExists(temporaire);
+            throw e;
+        }
+
+        if (progression != null) {
+            progression.accept(lignes);
+        }
+        System.out.println("✓ Export des logs: " + lignes + " ligne(s) vers " + fichier);
+        return lignes;
+    }
+
+    private static String nomComplet(String nom, String prenom) {
+        if (nom == null && prenom == null) return "Système";
+        return ((prenom != null ? prenom : "") + " " + (nom != null ? nom : "")).trim();
+    }
+
+    // ==================== FORMATS ====================
+
+    private static void ecrireCsv(Writer writer, String... champs) throws IOException {
+        for (int i = 0; i < champs.length; i++) {
+            if (i > 0) writer.write(',');
+            writer.write(echapperCsv(champs[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    static String echapperCsv(String valeur) {
+        if (valeur == null || valeur.isEmpty()) return "";
+
+        // Injection de formule : la valeur reste lisible mais n'est pas évaluée par le tableur
+        char premier = valeur.charAt(0);
+        if (premier == '=' || premier == '+' || premier == '-' || premier == '@') {
+            valeur = "'" + valeur;
+        }
+
+        boolean guillemets = false;
+        for (int i = 0; i < valeur.length() && !guillemets; i++) {
+            char c = valeur.charAt(i);
+            guillemets = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return guillemets ? "\"" + valeur.replace("\"", "\"\"") + "\"" : valeur;
+    }
+
+    private static void ecrireJson(Writer writer, String date, String code, String utilisateur, String action,
+                                   String details, String ip, String statut) throws IOException {
+        // JsonWriter écrit directement dans writer ; non fermé, la fermeture fermerait le fichier
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject()
+            .name("date").value(date)
+            .name("code_utilisateur").value(code)
+            .name("utilisateur").value(utilisateur)
+            .name("action").value(action)
+            .name("details").value(details)
+            .name("ip").value(ip)
+            .name("statut").value(statut)
+            .endObject();
+        writer.write('\n');
+    }
+}
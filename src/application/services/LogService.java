@@ -2,23 +2,79 @@ package application.services;
 
 import application.models.User;
 import application.utils.SessionManager;
+import javafx.application.Platform;
 
 import java.net.InetAddress;
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Service de gestion des logs d'activité - VERSION AMÉLIORÉE
  * Enregistre toutes les actions importantes des utilisateurs
  * AJOUT: Méthodes pour dossiers et documents avec signatures simplifiées
+ *
+ * Écriture asynchrone : logAction() ne fait que déposer l'entrée dans une file bornée sans verrou ;
+ * un unique thread d'écriture la vide par lots JDBC (rewriteBatchedStatements) quand le lot est
+ * plein ou que le délai est écoulé. Réglages dans config/database.properties :
+ *   logs.file.capacite=10000      (taille maximale de la file)
+ *   logs.lot.taille=200           (entrées par lot)
+ *   logs.lot.delai_ms=1000        (délai maximal avant écriture)
+ *   logs.file.pleine=rejeter      (rejeter | rejeter_ancien | bloquer)
+ *   logs.file.attente_ms=200      (attente maximale en mode bloquer, jamais sur le thread JavaFX)
  */
 public class LogService {
     
     private static LogService instance;
     private final DatabaseService databaseService;
     
+    /**
+     * Comportement quand la file est pleine
+     */
+    public enum PolitiqueFilePleine {
+        REJETER,        // Abandonner (et compter) la nouvelle entrée
+        REJETER_ANCIEN, // Abandonner la plus ancienne entrée en attente
+        BLOQUER         // Attendre une place (au plus attenteMaxMs), puis rejeter ; rejeter sur le thread JavaFX
+    }
+    
+    private static final int MAX_TENTATIVES_ECRITURE = 3;
+    
+    private final int capaciteFile;
+    private final int tailleLot;
+    private final long delaiLotMs;
+    private final PolitiqueFilePleine politique;
+    private final long attenteMaxMs;
+    
+    private final ConcurrentLinkedQueue<EntreeLog> file = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tailleFile = new AtomicInteger();
+    private final AtomicLong nombreEcrits = new AtomicLong();
+    private final AtomicLong nombreRejetes = new AtomicLong();
+    
+    private final Thread ecrivain;
+    private volatile boolean actif = true;
+    
+    // Résolue une seule fois, par le thread d'écriture (getLocalHost peut bloquer plusieurs secondes)
+    private volatile String adresseIPLocale;
+    
     private LogService() {
         this.databaseService = DatabaseService.getInstance();
+        
+        this.capaciteFile = lireEntier("logs.file.capacite", 10_000);
+        this.tailleLot = Math.min(lireEntier("logs.lot.taille", 200), capaciteFile);
+        this.delaiLotMs = lireEntier("logs.lot.delai_ms", 1000);
+        this.attenteMaxMs = lireEntier("logs.file.attente_ms", 200);
+        this.politique = lirePolitique(DatabaseService.getPropriete("logs.file.pleine", "rejeter"));
+        
+        this.ecrivain = new Thread(this::boucleEcriture, "journal-activite");
+        this.ecrivain.setDaemon(true);
+        this.ecrivain.start();
     }
     
     public static synchronized LogService getInstance() {
@@ -43,9 +99,7 @@ public class LogService {
             User currentUser = SessionManager.getInstance().getCurrentUser();
             Integer userId = currentUser != null ? currentUser.getId() : null;
             
-            String ipAddress = getLocalIPAddress();
-            
-            insertLog(userId, action, details, ipAddress, statut);
+            insertLog(userId, action, details, statut);
             
         } catch (Exception e) {
             System.err.println("Erreur lors de l'enregistrement du log: " + e.getMessage());
@@ -60,10 +114,9 @@ public class LogService {
      */
     public void logConnexion(User user) {
         try {
-            String ipAddress = getLocalIPAddress();
             String details = "Connexion réussie - Rôle: " + user.getRole().getNom();
             
-            insertLog(user.getId(), "connexion", details, ipAddress, "succes");
+            insertLog(user.getId(), "connexion", details, "succes");
             
             System.out.println("✓ Connexion enregistrée pour: " + user.getCode());
             
@@ -77,10 +130,9 @@ public class LogService {
      */
     public void logTentativeConnexionEchouee(String code, String raison) {
         try {
-            String ipAddress = getLocalIPAddress();
             String details = "Tentative échouée pour l'utilisateur: " + code + " - Raison: " + raison;
             
-            insertLog(null, "tentative_connexion", details, ipAddress, "echec");
+            insertLog(null, "tentative_connexion", details, "echec");
             
             System.out.println("✗ Tentative de connexion échouée enregistrée: " + code);
             
@@ -94,10 +146,9 @@ public class LogService {
      */
     public void logDeconnexion(User user) {
         try {
-            String ipAddress = getLocalIPAddress();
             String details = "Déconnexion - Session terminée";
             
-            insertLog(user.getId(), "deconnexion", details, ipAddress, "info");
+            insertLog(user.getId(), "deconnexion", details, "info");
             
             System.out.println("✓ Déconnexion enregistrée pour: " + user.getCode());
             
@@ -294,47 +345,276 @@ public class LogService {
         logAction("export", details, "info");
     }
     
-    // ==================== MÉTHODES PRIVÉES ====================
+    // ==================== ÉCRITURE ASYNCHRONE ====================
+    
+    /**
+     * Entrée en attente d'écriture (utilisateur et horodatage figés au moment de l'action)
+     */
+    private static final class EntreeLog {
+        final Integer userId;
+        final String action;
+        final String details;
+        final String statut;
+        final Timestamp timestamp;
+        
+        EntreeLog(Integer userId, String action, String details, String statut) {
+            this.userId = userId;
+            this.action = action;
+            this.details = details;
+            this.statut = statut;
+            this.timestamp = Timestamp.valueOf(LocalDateTime.now());
+        }
+    }
+    
+    /**
+     * Dépose un log dans la file d'écriture (ne touche pas la base de données)
+     */
+    private void insertLog(Integer userId, String action, String details, String statut) {
+        if (!actif) {
+            nombreRejetes.incrementAndGet();
+            return;
+        }
+        
+        if (!reserverPlace()) {
+            if (nombreRejetes.incrementAndGet() % 1000 == 1) {
+                System.err.println("⚠ File des logs pleine - entrées abandonnées: " + nombreRejetes.get());
+            }
+            return;
+        }
+        
+        file.offer(new EntreeLog(userId, action, details, statut));
+        
+        if (tailleFile.get() >= tailleLot) {
+            LockSupport.unpark(ecrivain);
+        }
+    }
+    
+    /**
+     * Réserve une place dans la file selon la politique configurée
+     * @return false si l'entrée doit être abandonnée
+     */
+    private boolean reserverPlace() {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(attenteMaxMs);
+        
+        while (true) {
+            int taille = tailleFile.get();
+            if (taille < capaciteFile) {
+                if (tailleFile.compareAndSet(taille, taille + 1)) {
+                    return true;
+                }
+                continue;
+            }
+            
+            switch (politique) {
+                case REJETER:
+                    return false;
+                    
+                case REJETER_ANCIEN:
+                    // La place libérée est reprise directement par la nouvelle entrée
+                    if (file.poll() != null) {
+                        nombreRejetes.incrementAndGet();
+                        return true;
+                    }
+                    break;
+                    
+                case BLOQUER:
+                    // L'interface ne doit jamais attendre le journal
+                    if (Platform.isFxApplicationThread() || System.nanoTime() >= limite) {
+                        return false;
+                    }
+                    LockSupport.unpark(ecrivain);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    break;
+            }
+        }
+    }
+    
+    /**
+     * Boucle du thread d'écriture : un lot dès que la file en contient assez, sinon à chaque délai
+     */
+    private void boucleEcriture() {
+        List<EntreeLog> lot = new ArrayList<>(tailleLot);
+        int tentatives = 0;
+        
+        while (actif || !file.isEmpty() || !lot.isEmpty()) {
+            if (actif && lot.isEmpty() && tailleFile.get() < tailleLot) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(delaiLotMs));
+            }
+            
+            while (lot.size() < tailleLot) {
+                EntreeLog entree = file.poll();
+                if (entree == null) break;
+                tailleFile.decrementAndGet();
+                lot.add(entree);
+            }
+            
+            if (lot.isEmpty()) continue;
+            
+            try {
+                ecrireLot(lot);
+                nombreEcrits.addAndGet(lot.size());
+                lot.clear();
+                tentatives = 0;
+                
+            } catch (SQLException e) {
+                // ecrireLot a déjà retiré du lot les entrées validées : seul le reste est réessayé
+                if (lot.isEmpty()) {
+                    tentatives = 0;
+                    continue;
+                }
+                // Base indisponible (pool pas encore initialisé, coupure réseau) : on réessaie au cycle suivant
+                if (++tentatives >= MAX_TENTATIVES_ECRITURE || !actif) {
+                    System.err.println("Erreur insertion logs (" + lot.size() + " entrée(s) perdue(s)): " + e.getMessage());
+                    nombreRejetes.addAndGet(lot.size());
+                    lot.clear();
+                    tentatives = 0;
+                } else if (actif) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(delaiLotMs));
+                }
+            }
+        }
+    }
     
     /**
-     * Insère un log dans la base de données
+     * Insère un lot de logs en une seule requête JDBC
+     * En cas d'échec partiel, les entrées déjà validées sont retirées du lot avant de relancer
+     * l'exception, pour que la nouvelle tentative ne les insère pas une seconde fois
      */
-    private void insertLog(Integer userId, String action, String details, String ipAddress, String statut) {
+    private void ecrireLot(List<EntreeLog> lot) throws SQLException {
         String query = "INSERT INTO logs_activite (user_id, action, details, ip_address, statut, timestamp) " +
                       "VALUES (?, ?, ?, ?, ?, ?)";
+        String ipAddress = getLocalIPAddress();
         
         try (Connection conn = databaseService.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
-            if (userId != null) {
-                stmt.setInt(1, userId);
-            } else {
-                stmt.setNull(1, Types.INTEGER);
+            for (EntreeLog entree : lot) {
+                if (entree.userId != null) {
+                    stmt.setInt(1, entree.userId);
+                } else {
+                    stmt.setNull(1, Types.INTEGER);
+                }
+                
+                stmt.setString(2, entree.action);
+                stmt.setString(3, entree.details);
+                stmt.setString(4, ipAddress);
+                stmt.setString(5, entree.statut);
+                stmt.setTimestamp(6, entree.timestamp);
+                stmt.addBatch();
             }
             
-            stmt.setString(2, action);
-            stmt.setString(3, details);
-            stmt.setString(4, ipAddress);
-            stmt.setString(5, statut);
-            stmt.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
-            
-            stmt.executeUpdate();
-            
-        } catch (SQLException e) {
-            System.err.println("Erreur insertion log: " + e.getMessage());
-            // Ne pas propager l'erreur pour ne pas bloquer l'application
+            try {
+                stmt.executeBatch();
+            } catch (BatchUpdateException e) {
+                List<EntreeLog> validees = retirerValidees(lot, e.getUpdateCounts());
+                if (!validees.isEmpty()) {
+                    nombreEcrits.addAndGet(validees.size());
+                    appliquerCompteurs(validees);
+                }
+                throw e;
+            }
         }
+        
+        appliquerCompteurs(lot);
     }
     
     /**
-     * Récupère l'adresse IP locale
+     * Retire du lot les entrées que le pilote déclare exécutées (auto-commit : elles sont validées)
+     * Les entrées sans compte rendu (au-delà du tableau) n'ont pas été exécutées et restent à écrire
+     */
+    private static List<EntreeLog> retirerValidees(List<EntreeLog> lot, int[] comptes) {
+        List<EntreeLog> validees = new ArrayList<>();
+        List<EntreeLog> restantes = new ArrayList<>();
+        for (int i = 0; i < lot.size(); i++) {
+            if (comptes != null && i < comptes.length && comptes[i] != Statement.EXECUTE_FAILED) {
+                validees.add(lot.get(i));
+            } else {
+                restantes.add(lot.get(i));
+            }
+        }
+        lot.clear();
+        lot.addAll(restantes);
+        return validees;
+    }
+    
+    /**
+     * Met à jour les compteurs d'activité des entrées écrites
+     */
+    private void appliquerCompteurs(List<EntreeLog> ecrites) {
+        // Les logs sont déjà écrits : une erreur de compteur ne doit pas faire réessayer le lot
+        CompteursActiviteService.Increments increments = new CompteursActiviteService.Increments();
+        for (EntreeLog entree : ecrites) {
+            increments.evenement(CompteursActiviteService.logs(entree.action), entree.timestamp.toLocalDateTime(), 1);
+        }
+        CompteursActiviteService.getInstance().appliquer(increments);
+    }
+    
+    /**
+     * Récupère l'adresse IP locale (résolue une seule fois)
      */
     private String getLocalIPAddress() {
+        String adresse = adresseIPLocale;
+        if (adresse == null) {
+            try {
+                adresse = InetAddress.getLocalHost().getHostAddress();
+            } catch (Exception e) {
+                adresse = "0.0.0.0";
+            }
+            adresseIPLocale = adresse;
+        }
+        return adresse;
+    }
+    
+    /**
+     * Demande l'écriture immédiate des logs en attente (sans attendre la fin)
+     */
+    public void vider() {
+        LockSupport.unpark(ecrivain);
+    }
+    
+    /**
+     * Arrête le thread d'écriture après avoir écrit toutes les entrées en attente
+     * À appeler avant la fermeture du pool de connexions
+     */
+    public void arreter() {
+        actif = false;
+        LockSupport.unpark(ecrivain);
+        
         try {
-            InetAddress inetAddress = InetAddress.getLocalHost();
-            return inetAddress.getHostAddress();
-        } catch (Exception e) {
-            return "0.0.0.0";
+            ecrivain.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        System.out.println("✓ Journal d'activité arrêté - " + nombreEcrits.get() + " log(s) écrit(s), " +
+                         nombreRejetes.get() + " rejeté(s)");
+    }
+    
+    public int getTailleFile() {
+        return tailleFile.get();
+    }
+    
+    public long getNombreEcrits() {
+        return nombreEcrits.get();
+    }
+    
+    public long getNombreRejetes() {
+        return nombreRejetes.get();
+    }
+    
+    private static int lireEntier(String cle, int valeurParDefaut) {
+        try {
+            return Math.max(1, Integer.parseInt(DatabaseService.getPropriete(cle, String.valueOf(valeurParDefaut)).trim()));
+        } catch (NumberFormatException e) {
+            return valeurParDefaut;
+        }
+    }
+    
+    private static PolitiqueFilePleine lirePolitique(String valeur) {
+        try {
+            return PolitiqueFilePleine.valueOf(valeur.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return PolitiqueFilePleine.REJETER;
         }
     }
     
@@ -357,19 +637,12 @@ public class LogService {
     }
     
     /**
-     * Nettoie les anciens logs
+     * Nettoie les anciens logs (partitions expirées puis lots de clés, voir RetentionLogsService)
      */
     public int nettoyerLogsAnciens(int nombreJours) {
-        String query = "DELETE FROM logs_activite WHERE timestamp < DATE_SUB(NOW(), INTERVAL ? DAY)";
-        
-        try (Connection conn = databaseService.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setInt(1, nombreJours);
-            int deleted = stmt.executeUpdate();
-            
-            System.out.println("✓ " + deleted + " logs supprimés (> " + nombreJours + " jours)");
-            return deleted;
+        try {
+            long deleted = RetentionLogsService.getInstance().purger(LocalDateTime.now().minusDays(nombreJours));
+            return (int) Math.min(Integer.MAX_VALUE, deleted);
             
         } catch (SQLException e) {
             System.err.println("Erreur nettoyage logs: " + e.getMessage());
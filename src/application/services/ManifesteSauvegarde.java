@@ -0,0 +1,162 @@
+package application.services;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manifeste d'une sauvegarde : pour chaque document actif, le hash du contenu sauvegardé
+ * et l'archive qui le contient
+ *
+ * Le manifeste est cumulatif : une sauvegarde incrémentale reprend les entrées inchangées de
+ * la précédente (avec leur archive d'origine), il décrit donc toujours l'état complet.
+ * Une chaîne de sauvegardes vit dans un même répertoire de destination ; les archives sont
+ * désignées par leur nom dans ce répertoire.
+ *
+ * Format texte UTF-8, une ligne par document, champs séparés par des tabulations :
+ *   document_id  code_document  hash  taille  archive  entree
+ */
+public class ManifesteSauvegarde {
+
+    public static final String ENTETE = "# manifeste-sauvegarde v1";
+
+    // Nom du manifeste dans une archive zip ou un répertoire de sauvegarde
+    public static final String NOM_DANS_ARCHIVE = "manifeste.tsv";
+
+    // Suffixe du manifeste posé à côté d'une archive zip (lu sans ouvrir l'archive)
+    public static final String SUFFIXE = ".manifeste.tsv";
+
+    private final Map<Integer, Entree> entrees = new ConcurrentHashMap<>();
+
+    /**
+     * Document présent dans la sauvegarde
+     */
+    public static class Entree {
+        private final int documentId;
+        private final String codeDocument;
+        private final String hash;
+        private final long taille;
+        private final String archive;
+        private final String nomEntree;
+
+        public Entree(int documentId, String codeDocument, String hash, long taille, String archive, String nomEntree) {
+            this.documentId = documentId;
+            this.codeDocument = codeDocument;
+            this.hash = hash;
+            this.taille = taille;
+            this.archive = archive;
+            this.nomEntree = nomEntree;
+        }
+
+        public int getDocumentId() { return documentId; }
+        public String getCodeDocument() { return codeDocument; }
+        public String getHash() { return hash; }
+        public long getTaille() { return taille; }
+        public String getArchive() { return archive; }
+        public String getNomEntree() { return nomEntree; }
+    }
+
+    public void ajouter(Entree entree) {
+        entrees.put(entree.getDocumentId(), entree);
+    }
+
+    public Entree getEntree(int documentId) {
+        return entrees.get(documentId);
+    }
+
+    public Collection<Entree> getEntrees() {
+        return Collections.unmodifiableCollection(entrees.values());
+    }
+
+    public int taille() {
+        return entrees.size();
+    }
+
+    /**
+     * Contenu déjà sauvegardé pour ce document (même hash)
+     */
+    public boolean estInchange(int documentId, String hash) {
+        if (hash == null || hash.isEmpty()) return false;
+        Entree entree = entrees.get(documentId);
+        return entree != null && hash.equalsIgnoreCase(entree.getHash());
+    }
+
+    // ==================== LECTURE / ÉCRITURE ====================
+
+    /**
+     * Emplacement du manifeste d'une sauvegarde (archive zip ou répertoire)
+     */
+    public static Path emplacement(Path sauvegarde) {
+        return Files.isDirectory(sauvegarde)
+            ? sauvegarde.resolve(NOM_DANS_ARCHIVE)
+            : sauvegarde.resolveSibling(sauvegarde.getFileName() + SUFFIXE);
+    }
+
+    public static ManifesteSauvegarde lire(Path fichier) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+            return lire(reader);
+        }
+    }
+
+    public static ManifesteSauvegarde lire(BufferedReader reader) throws IOException {
+        ManifesteSauvegarde manifeste = new ManifesteSauvegarde();
+        String ligne = reader.readLine();
+
+        if (ligne == null || !ligne.startsWith(ENTETE)) {
+            throw new IOException("Manifeste de sauvegarde invalide (en-tête absent)");
+        }
+
+        int numero = 1;
+        while ((ligne = reader.readLine()) != null) {
+            numero++;
+            if (ligne.isEmpty() || ligne.startsWith("#")) continue;
+
+            String[] champs = ligne.split("\t", -1);
+            if (champs.length != 6) {
+                throw new IOException("Manifeste de sauvegarde invalide, ligne " + numero);
+            }
+            try {
+                manifeste.ajouter(new Entree(Integer.parseInt(champs[0]), champs[1], champs[2],
+                    Long.parseLong(champs[3]), champs[4], champs[5]));
+            } catch (NumberFormatException e) {
+                throw new IOException("Manifeste de sauvegarde invalide, ligne " + numero, e);
+            }
+        }
+        return manifeste;
+    }
+
+    public void ecrire(Path fichier) throws IOException {
+        try (OutputStream out = Files.newOutputStream(fichier)) {
+            ecrire(out);
+        }
+    }
+
+    /**
+     * Écrit le manifeste dans le flux sans le fermer (entrée d'archive zip)
+     */
+    public void ecrire(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(ENTETE);
+        writer.write('\n');
+
+        for (Entree e : entrees.values()) {
+            writer.write(e.getDocumentId() + "\t" + nettoyer(e.getCodeDocument()) + "\t" + e.getHash() + "\t" +
+                         e.getTaille() + "\t" + e.getArchive() + "\t" + e.getNomEntree() + "\n");
+        }
+        writer.flush();
+    }
+
+    private static String nettoyer(String valeur) {
+        return valeur == null ? "" : valeur.replace('\t', ' ').replace('\n', ' ');
+    }
+}
@@ -0,0 +1,658 @@
+package application.services;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Métriques des requêtes SQL et du pool de connexions
+ *
+ * - Les connexions rendues par DatabaseService.getConnection() sont enveloppées : chaque appel
+ *   execute* enregistre sa latence (histogramme), ses erreurs, les lignes modifiées et les lignes lues.
+ *   Les lignes lues sont comptées dans un entier du ResultSet enveloppé (next) et reportées une seule
+ *   fois à sa fermeture ; un SQL n'est normalisé qu'une fois, puis retrouvé par son texte exact
+ * - Le pool HikariCP alimente le temps d'attente d'une connexion, la durée d'emprunt et les expirations
+ * - Une requête plus lente que metriques.requete_lente_ms (500 par défaut) est journalisée
+ *   et conservée dans l'historique des requêtes lentes
+ * - getInstantane() fournit une copie cohérente pour l'administration et DiagnosticUtils
+ *
+ * Réglages (config/database.properties) : metriques.actives, metriques.requete_lente_ms
+ */
+public class MetriquesBaseService implements MetricsTrackerFactory {
+
+    private static MetriquesBaseService instance;
+
+    // Bornes supérieures des classes de l'histogramme (ms) ; la dernière classe est ouverte
+    private static final long[] BORNES_MS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+    private static final int MAX_REQUETES_SUIVIES = 500;
+    private static final int MAX_SQL_MEMORISES = 2000;
+    private static final int MAX_REQUETES_LENTES = 50;
+    private static final String AUTRES_REQUETES = "(autres requêtes)";
+
+    private static final Pattern LITTERAUX_CHAINE = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'");
+    private static final Pattern LITTERAUX_NOMBRE = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern ESPACES = Pattern.compile("\\s+");
+
+    private final boolean actif;
+    private final long seuilLentNanos;
+
+    private final Map<String, StatistiquesRequete> requetes = new ConcurrentHashMap<>();
+    // SQL tel qu'écrit par l'application -> statistiques (évite de normaliser à chaque requête préparée)
+    private final Map<String, StatistiquesRequete> parSql = new ConcurrentHashMap<>();
+    private final Deque<RequeteLente> requetesLentes = new ArrayDeque<>();
+
+    // Pool
+    private final Histogramme attentePool = new Histogramme();
+    private final Histogramme empruntConnexion = new Histogramme();
+    private final LongAdder expirationsPool = new LongAdder();
+    private final LongAdder connexionsCreees = new LongAdder();
+    private volatile PoolStats statsPool;
+    private volatile String nomPool;
+
+    private volatile LocalDateTime depuis = LocalDateTime.now();
+
+    private MetriquesBaseService() {
+        this.actif = Boolean.parseBoolean(DatabaseService.getPropriete("metriques.actives", "true").trim());
+        this.seuilLentNanos = lireSeuilLent() * 1_000_000L;
+    }
+
+    public static synchronized MetriquesBaseService getInstance() {
+        if (instance == null) {
+            instance = new MetriquesBaseService();
+        }
+        return instance;
+    }
+
+    private static long lireSeuilLent() {
+        try {
+            return Math.max(1, Long.parseLong(DatabaseService.getPropriete("metriques.requete_lente_ms", "500").trim()));
+        } catch (NumberFormatException e) {
+            return 500;
+        }
+    }
+
+    public boolean isActif() {
+        return actif;
+    }
+
+    // ==================== INSTRUMENTATION JDBC ====================
+
+    /**
+     * Enveloppe une connexion du pool (retournée telle quelle si les métriques sont désactivées)
+     */
+    public Connection instrumenter(Connection connexion) {
+        if (!actif || connexion == null) {
+            return connexion;
+        }
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            new ConnexionInstrumentee(connexion));
+    }
+
+    private class ConnexionInstrumentee implements InvocationHandler {
+        private final Connection cible;
+
+        ConnexionInstrumentee(Connection cible) {
+            this.cible = cible;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method methode, Object[] args) throws Throwable {
+            switch (methode.getName()) {
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                default: break;
+            }
+
+            Object resultat = appeler(cible, methode, args);
+
+            switch (methode.getName()) {
+                case "prepareStatement":
+                    return envelopper(resultat, PreparedStatement.class, (String) args[0]);
+                case "prepareCall":
+                    return envelopper(resultat, CallableStatement.class, (String) args[0]);
+                case "createStatement":
+                    // SQL connu seulement à l'exécution
+                    return envelopper(resultat, Statement.class, null);
+                default:
+                    return resultat;
+            }
+        }
+    }
+
+    private Object envelopper(Object statement, Class<?> type, String sqlPrepare) {
+        return Proxy.newProxyInstance(
+            type.getClassLoader(),
+            new Class<?>[]{type},
+            new StatementInstrumente((Statement) statement, sqlPrepare));
+    }
+
+    private class StatementInstrumente implements InvocationHandler {
+        private final Statement cible;
+        private final String sqlPrepare;
+        // Résolues à la première exécution puis réutilisées par les exécutions suivantes (lots, boucles)
+        private StatistiquesRequete statsPreparees;
+        // Statistiques de la dernière exécution et résultat en cours de lecture
+        private StatistiquesRequete statsCourantes;
+        private ResultSetInstrumente lectureCourante;
+
+        StatementInstrumente(Statement cible, String sqlPrepare) {
+            this.cible = cible;
+            this.sqlPrepare = sqlPrepare;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method methode, Object[] args) throws Throwable {
+            String nom = methode.getName();
+            switch (nom) {
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                default: break;
+            }
+
+            if (!nom.startsWith("execute")) {
+                if (nom.equals("close")) {
+                    // Fermer le statement ferme son ResultSet sans passer par l'enveloppe
+                    terminerLecture();
+                } else if (nom.equals("getResultSet")) {
+                    Object resultat = appeler(cible, methode, args);
+                    return statsCourantes != null ? lire(resultat) : resultat;
+                }
+                return appeler(cible, methode, args);
+            }
+
+            // Statement simple : le SQL est le premier argument ; requête préparée : connu d'avance
+            StatistiquesRequete stats;
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                stats = statistiques((String) args[0]);
+            } else if (sqlPrepare != null) {
+                if (statsPreparees == null) {
+                    statsPreparees = statistiques(sqlPrepare);
+                }
+                stats = statsPreparees;
+            } else {
+                return appeler(cible, methode, args);
+            }
+
+            // Une nouvelle exécution ferme le résultat précédent
+            terminerLecture();
+            statsCourantes = stats;
+
+            long debut = System.nanoTime();
+            Object resultat;
+            try {
+                resultat = appeler(cible, methode, args);
+            } catch (SQLException e) {
+                stats.erreurs.increment();
+                enregistrerLatence(stats, System.nanoTime() - debut);
+                throw e;
+            }
+            enregistrerLatence(stats, System.nanoTime() - debut);
+
+            if (resultat instanceof ResultSet) {
+                return lire(resultat);
+            } else if (resultat instanceof Integer || resultat instanceof Long) {
+                long lignes = ((Number) resultat).longValue();
+                if (lignes > 0) stats.lignes.add(lignes);
+            } else if (resultat instanceof int[]) {
+                for (int n : (int[]) resultat) if (n > 0) stats.lignes.add(n);
+            } else if (resultat instanceof long[]) {
+                for (long n : (long[]) resultat) if (n > 0) stats.lignes.add(n);
+            }
+            return resultat;
+        }
+
+        private Object lire(Object resultSet) {
+            if (resultSet == null) {
+                return null;
+            }
+            lectureCourante = new ResultSetInstrumente((ResultSet) resultSet, statsCourantes);
+            return Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                lectureCourante);
+        }
+
+        private void terminerLecture() {
+            if (lectureCourante != null) {
+                lectureCourante.comptabiliser();
+                lectureCourante = null;
+            }
+        }
+    }
+
+    /**
+     * Compte les lignes lues : seul next() est examiné, le reste est délégué sans traitement
+     */
+    private static class ResultSetInstrumente implements InvocationHandler {
+        private final ResultSet cible;
+        private final StatistiquesRequete stats;
+        private long lues;
+        private boolean comptabilise;
+
+        ResultSetInstrumente(ResultSet cible, StatistiquesRequete stats) {
+            this.cible = cible;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method methode, Object[] args) throws Throwable {
+            switch (methode.getName()) {
+                case "next": {
+                    Object resultat = appeler(cible, methode, args);
+                    if (Boolean.TRUE.equals(resultat)) lues++;
+                    return resultat;
+                }
+                case "close":
+                    comptabiliser();
+                    return appeler(cible, methode, args);
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                default:
+                    return appeler(cible, methode, args);
+            }
+        }
+
+        void comptabiliser() {
+            if (!comptabilise) {
+                comptabilise = true;
+                if (lues > 0) stats.lignesLues.add(lues);
+            }
+        }
+    }
+
+    private static Object appeler(Object cible, Method methode, Object[] args) throws Throwable {
+        try {
+            return methode.invoke(cible, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void enregistrerLatence(StatistiquesRequete stats, long nanos) {
+        stats.latence.enregistrer(nanos);
+
+        if (nanos >= seuilLentNanos) {
+            long ms = nanos / 1_000_000;
+            System.err.println("⚠ Requête lente (" + ms + " ms): " + abreger(stats.sql, 200));
+            synchronized (requetesLentes) {
+                requetesLentes.addFirst(new RequeteLente(LocalDateTime.now(), stats.sql, ms));
+                while (requetesLentes.size() > MAX_REQUETES_LENTES) {
+                    requetesLentes.removeLast();
+                }
+            }
+        }
+    }
+
+    /**
+     * Statistiques d'une requête, identifiée par son SQL normalisé (littéraux remplacés par ?)
+     */
+    private StatistiquesRequete statistiques(String sql) {
+        StatistiquesRequete stats = parSql.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+
+        String cle = normaliser(sql);
+        stats = requetes.get(cle);
+        if (stats == null) {
+            // Borne la mémoire si l'application génère beaucoup de SQL dynamique
+            if (requetes.size() >= MAX_REQUETES_SUIVIES) {
+                cle = AUTRES_REQUETES;
+            }
+            stats = requetes.computeIfAbsent(cle, StatistiquesRequete::new);
+        }
+        if (parSql.size() < MAX_SQL_MEMORISES) {
+            parSql.put(sql, stats);
+        }
+        return stats;
+    }
+
+    static String normaliser(String sql) {
+        if (sql == null) return "";
+        String s = LITTERAUX_CHAINE.matcher(sql).replaceAll("?");
+        s = LITTERAUX_NOMBRE.matcher(s).replaceAll("?");
+        return ESPACES.matcher(s).replaceAll(" ").trim();
+    }
+
+    private static String abreger(String texte, int max) {
+        return texte.length() <= max ? texte : texte.substring(0, max - 1) + "…";
+    }
+
+    // ==================== POOL HIKARICP ====================
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.nomPool = poolName;
+        this.statsPool = poolStats;
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long millis) {
+                connexionsCreees.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long nanos) {
+                attentePool.enregistrer(nanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long millis) {
+                empruntConnexion.enregistrer(millis * 1_000_000L);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                expirationsPool.increment();
+                System.err.println("⚠ Pool " + poolName + " : délai d'obtention de connexion dépassé");
+            }
+        };
+    }
+
+    // ==================== INSTANTANÉ ====================
+
+    /**
+     * Copie des métriques à l'instant présent, requêtes triées par temps total décroissant
+     */
+    public Instantane getInstantane() {
+        List<StatRequete> stats = new ArrayList<>(requetes.size());
+        for (StatistiquesRequete s : requetes.values()) {
+            if (s.latence.getNombre() > 0 || s.erreurs.sum() > 0) {
+                stats.add(new StatRequete(s));
+            }
+        }
+        stats.sort(Comparator.comparingDouble(StatRequete::getTotalMs).reversed());
+
+        List<RequeteLente> lentes;
+        synchronized (requetesLentes) {
+            lentes = new ArrayList<>(requetesLentes);
+        }
+
+        PoolStats pool = statsPool;
+        return new Instantane(depuis, stats, lentes, nomPool,
+            pool != null ? pool.getActiveConnections() : -1,
+            pool != null ? pool.getIdleConnections() : -1,
+            pool != null ? pool.getTotalConnections() : -1,
+            pool != null ? pool.getMaxConnections() : -1,
+            pool != null ? pool.getPendingThreads() : -1,
+            attentePool.getMoyenneMs(), attentePool.getPercentileMs(0.95), attentePool.getMaxMs(),
+            empruntConnexion.getMoyenneMs(), empruntConnexion.getMaxMs(),
+            expirationsPool.sum(), connexionsCreees.sum());
+    }
+
+    /**
+     * Remet les compteurs à zéro (le suivi du pool continue)
+     */
+    public void reinitialiser() {
+        parSql.clear();
+        requetes.clear();
+        synchronized (requetesLentes) {
+            requetesLentes.clear();
+        }
+        attentePool.reinitialiser();
+        empruntConnexion.reinitialiser();
+        expirationsPool.reset();
+        connexionsCreees.reset();
+        depuis = LocalDateTime.now();
+    }
+
+    // ==================== STRUCTURES ====================
+
+    /**
+     * Histogramme de durées à classes fixes, sans verrou
+     */
+    static class Histogramme {
+        private final AtomicLongArray classes = new AtomicLongArray(BORNES_MS.length + 1);
+        private final LongAdder nombre = new LongAdder();
+        private final LongAdder sommeNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void enregistrer(long nanos) {
+            long ms = nanos / 1_000_000;
+            int i = 0;
+            while (i < BORNES_MS.length && ms >= BORNES_MS[i]) i++;
+            classes.incrementAndGet(i);
+            nombre.increment();
+            sommeNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        long getNombre() {
+            return nombre.sum();
+        }
+
+        double getTotalMs() {
+            return sommeNanos.sum() / 1_000_000.0;
+        }
+
+        double getMoyenneMs() {
+            long n = nombre.sum();
+            return n == 0 ? 0 : getTotalMs() / n;
+        }
+
+        double getMaxMs() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+
+        /**
+         * Percentile approché : borne supérieure de la classe qui le contient
+         */
+        double getPercentileMs(double p) {
+            long n = nombre.sum();
+            if (n == 0) return 0;
+            long rang = (long) Math.ceil(p * n);
+            long cumul = 0;
+            for (int i = 0; i < classes.length(); i++) {
+                cumul += classes.get(i);
+                if (cumul >= rang) {
+                    return i < BORNES_MS.length ? Math.min(BORNES_MS[i], getMaxMs()) : getMaxMs();
+                }
+            }
+            return getMaxMs();
+        }
+
+        void reinitialiser() {
+            for (int i = 0; i < classes.length(); i++) classes.set(i, 0);
+            nombre.reset();
+            sommeNanos.reset();
+            maxNanos.set(0);
+        }
+    }
+
+    private static class StatistiquesRequete {
+        final String sql;
+        final Histogramme latence = new Histogramme();
+        final LongAdder lignes = new LongAdder();
+        final LongAdder lignesLues = new LongAdder();
+        final LongAdder erreurs = new LongAdder();
+
+        StatistiquesRequete(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * Statistiques figées d'une requête
+     */
+    public static class StatRequete {
+        private final String sql;
+        private final long executions;
+        private final long erreurs;
+        private final long lignes;
+        private final long lignesLues;
+        private final double totalMs;
+        private final double moyenneMs;
+        private final double p95Ms;
+        private final double p99Ms;
+        private final double maxMs;
+
+        StatRequete(StatistiquesRequete s) {
+            this.sql = s.sql;
+            this.executions = s.latence.getNombre();
+            this.erreurs = s.erreurs.sum();
+            this.lignes = s.lignes.sum();
+            this.lignesLues = s.lignesLues.sum();
+            this.totalMs = s.latence.getTotalMs();
+            this.moyenneMs = s.latence.getMoyenneMs();
+            this.p95Ms = s.latence.getPercentileMs(0.95);
+            this.p99Ms = s.latence.getPercentileMs(0.99);
+            this.maxMs = s.latence.getMaxMs();
+        }
+
+        public String getSql() { return sql; }
+        public long getExecutions() { return executions; }
+        public long getErreurs() { return erreurs; }
+        public long getLignes() { return lignes; }
+        public long getLignesLues() { return lignesLues; }
+        public double getTotalMs() { return totalMs; }
+        public double getMoyenneMs() { return moyenneMs; }
+        public double getP95Ms() { return p95Ms; }
+        public double getP99Ms() { return p99Ms; }
+        public double getMaxMs() { return maxMs; }
+    }
+
+    public static class RequeteLente {
+        private final LocalDateTime date;
+        private final String sql;
+        private final long dureeMs;
+
+        RequeteLente(LocalDateTime date, String sql, long dureeMs) {
+            this.date = date;
+            this.sql = sql;
+            this.dureeMs = dureeMs;
+        }
+
+        public LocalDateTime getDate() { return date; }
+        public String getSql() { return sql; }
+        public long getDureeMs() { return dureeMs; }
+    }
+
+    /**
+     * Instantané des métriques (valeurs -1 pour le pool : pool non encore initialisé)
+     */
+    public static class Instantane {
+        private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+        private final LocalDateTime depuis;
+        private final List<StatRequete> requetes;
+        private final List<RequeteLente> requetesLentes;
+        private final String nomPool;
+        private final int connexionsActives;
+        private final int connexionsInactives;
+        private final int connexionsTotal;
+        private final int connexionsMax;
+        private final int threadsEnAttente;
+        private final double attenteMoyenneMs;
+        private final double attenteP95Ms;
+        private final double attenteMaxMs;
+        private final double empruntMoyenMs;
+        private final double empruntMaxMs;
+        private final long expirations;
+        private final long connexionsCreees;
+
+        Instantane(LocalDateTime depuis, List<StatRequete> requetes, List<RequeteLente> requetesLentes,
+                   String nomPool, int connexionsActives, int connexionsInactives, int connexionsTotal,
+                   int connexionsMax, int threadsEnAttente, double attenteMoyenneMs, double attenteP95Ms,
+                   double attenteMaxMs, double empruntMoyenMs, double empruntMaxMs,
+                   long expirations, long connexionsCreees) {
+            this.depuis = depuis;
+            this.requetes = Collections.unmodifiableList(requetes);
+            this.requetesLentes = Collections.unmodifiableList(requetesLentes);
+            this.nomPool = nomPool;
+            this.connexionsActives = connexionsActives;
+            this.connexionsInactives = connexionsInactives;
+            this.connexionsTotal = connexionsTotal;
+            this.connexionsMax = connexionsMax;
+            this.threadsEnAttente = threadsEnAttente;
+            this.attenteMoyenneMs = attenteMoyenneMs;
+            this.attenteP95Ms = attenteP95Ms;
+            this.attenteMaxMs = attenteMaxMs;
+            this.empruntMoyenMs = empruntMoyenMs;
+            this.empruntMaxMs = empruntMaxMs;
+            this.expirations = expirations;
+            this.connexionsCreees = connexionsCreees;
+        }
+
+        public LocalDateTime getDepuis() { return depuis; }
+        public List<StatRequete> getRequetes() { return requetes; }
+        public List<RequeteLente> getRequetesLentes() { return requetesLentes; }
+        public String getNomPool() { return nomPool; }
+        public int getConnexionsActives() { return connexionsActives; }
+        public int getConnexionsInactives() { return connexionsInactives; }
+        public int getConnexionsTotal() { return connexionsTotal; }
+        public int getConnexionsMax() { return connexionsMax; }
+        public int getThreadsEnAttente() { return threadsEnAttente; }
+        public double getAttenteMoyenneMs() { return attenteMoyenneMs; }
+        public double getAttenteP95Ms() { return attenteP95Ms; }
+        public double getAttenteMaxMs() { return attenteMaxMs; }
+        public double getEmpruntMoyenMs() { return empruntMoyenMs; }
+        public double getEmpruntMaxMs() { return empruntMaxMs; }
+        public long getExpirations() { return expirations; }
+        public long getConnexionsCreees() { return connexionsCreees; }
+
+        /**
+         * Rapport texte : pool, requêtes les plus coûteuses, dernières requêtes lentes
+         */
+        public String formater(int nombreRequetes) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Métriques depuis le ").append(depuis.format(FORMAT_DATE)).append('\n');
+
+            sb.append("\n== Pool ").append(nomPool != null ? nomPool : "(non initialisé)").append(" ==\n");
+            if (connexionsTotal >= 0) {
+                sb.append(String.format("Connexions : %d actives, %d inactives, %d / %d ouvertes, %d thread(s) en attente%n",
+                    connexionsActives, connexionsInactives, connexionsTotal, connexionsMax, threadsEnAttente));
+            }
+            sb.append(String.format("Attente d'une connexion : moy %.2f ms, p95 %.0f ms, max %.1f ms%n",
+                attenteMoyenneMs, attenteP95Ms, attenteMaxMs));
+            sb.append(String.format("Durée d'emprunt : moy %.1f ms, max %.0f ms%n", empruntMoyenMs, empruntMaxMs));
+            sb.append(String.format("Expirations : %d, connexions créées : %d%n", expirations, connexionsCreees));
+
+            sb.append("\n== Requêtes (temps total décroissant) ==\n");
+            sb.append(String.format("%8s %6s %10s %10s %9s %8s %8s %8s  %s%n",
+                "Exéc.", "Err.", "Lignes l.", "Lignes m.", "Total ms", "Moy ms", "p95 ms", "Max ms", "SQL"));
+            int n = 0;
+            for (StatRequete r : requetes) {
+                if (n++ >= nombreRequetes) break;
+                sb.append(String.format("%8d %6d %10d %10d %9.0f %8.2f %8.0f %8.1f  %s%n",
+                    r.getExecutions(), r.getErreurs(), r.getLignesLues(), r.getLignes(), r.getTotalMs(),
+                    r.getMoyenneMs(), r.getP95Ms(), r.getMaxMs(), abreger(r.getSql(), 120)));
+            }
+            if (requetes.isEmpty()) {
+                sb.append("(aucune requête enregistrée)\n");
+            }
+
+            sb.append("\n== Requêtes lentes récentes ==\n");
+            for (RequeteLente l : requetesLentes) {
+                sb.append(l.getDate().format(FORMAT_DATE)).append("  ")
+                  .append(l.getDureeMs()).append(" ms  ")
+                  .append(abreger(l.getSql(), 120)).append('\n');
+            }
+            if (requetesLentes.isEmpty()) {
+                sb.append("(aucune)\n");
+            }
+
+            return sb.toString();
+        }
+    }
+}
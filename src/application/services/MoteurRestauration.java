@@ -0,0 +1,643 @@
+package application.services;
+
+import application.services.NetworkService.Operation;
+import application.services.NetworkService.TypeEntite;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Vérification et restauration d'une sauvegarde créée par MoteurSauvegarde
+ *
+ * - Le manifeste de la sauvegarde désigne, pour chaque document, l'archive et l'entrée qui le
+ *   contiennent (une sauvegarde incrémentale renvoie aux archives précédentes du même répertoire)
+ * - Chaque archive zip est lue une seule fois, en flux ; les entrées jusqu'à SEUIL_LECTURE_MEMOIRE
+ *   sont confiées à un pool d'écrivains (restauration.ecrivains, 4 par défaut), les plus grosses
+ *   sont traitées en flux par le lecteur
+ * - Chaque contenu est contrôlé contre le hash du manifeste (archive endommagée) puis contre le
+ *   hash_fichier actuel du document (sauvegarde périmée) ; rien n'est écrit sans ce double contrôle
+ * - Restauration : écriture atomique (.part puis renommage) dans le stockage, fichier déjà intact
+ *   laissé en place, documents.chemin_serveur relié au fichier restauré s'il a changé
+ * - Simulation (vérification seule) : mêmes contrôles, aucune écriture
+ */
+public class MoteurRestauration {
+
+    private static final int SEUIL_LECTURE_MEMOIRE = 16 * 1024 * 1024;
+    private static final long INTERVALLE_PROGRESSION_MS = 500;
+
+    private final Path sauvegarde;
+    private final boolean simulation;
+    private final Consumer<ProgressionSauvegarde> suivi;
+    private final DatabaseService databaseService;
+    private final NetworkStorageService stockage;
+
+    private final Rapport rapport;
+    private final Map<Integer, DocumentActif> documents = new HashMap<>();
+    // Fichier cible -> écriture par le premier document qui l'a réservé (true : fichier en place)
+    private final Map<Path, CompletableFuture<Boolean>> ciblesReservees = new ConcurrentHashMap<>();
+    private final Map<Integer, String> nouveauxChemins = new ConcurrentHashMap<>();
+
+    private final long debut = System.currentTimeMillis();
+    private final AtomicLong dernierSuivi = new AtomicLong();
+    private final LongAdder traites = new LongAdder();
+    private final LongAdder octetsLus = new LongAdder();
+    private final LongAdder octetsEcrits = new LongAdder();
+
+    /**
+     * Bilan d'une vérification ou d'une restauration
+     */
+    public static class Rapport {
+        private final boolean simulation;
+        private final LongAdder verifies = new LongAdder();
+        private final LongAdder restaures = new LongAdder();
+        private final LongAdder intacts = new LongAdder();
+        private final LongAdder ignores = new LongAdder();
+        private final List<String> corrompus = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> nonConformes = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> manquants = Collections.synchronizedList(new ArrayList<>());
+        private int relies;
+        private long dureeMs;
+
+        Rapport(boolean simulation) {
+            this.simulation = simulation;
+        }
+
+        public boolean isSimulation() { return simulation; }
+        public long getVerifies() { return verifies.sum(); }
+        public long getRestaures() { return restaures.sum(); }
+        public long getIntacts() { return intacts.sum(); }
+        public long getIgnores() { return ignores.sum(); }
+        public int getRelies() { return relies; }
+        public long getDureeMs() { return dureeMs; }
+
+        /** Contenu de l'archive différent du manifeste (archive endommagée) */
+        public List<String> getCorrompus() { return new ArrayList<>(corrompus); }
+
+        /** Contenu sauvegardé différent du hash_fichier actuel du document */
+        public List<String> getNonConformes() { return new ArrayList<>(nonConformes); }
+
+        /** Document actif absent de la sauvegarde, ou entrée introuvable */
+        public List<String> getManquants() { return new ArrayList<>(manquants); }
+
+        public boolean estConforme() {
+            return corrompus.isEmpty() && nonConformes.isEmpty() && manquants.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d vérifié(s), %d restauré(s), %d intact(s), %d relié(s), " +
+                                 "%d corrompu(s), %d non conforme(s), %d manquant(s), %d ignoré(s) en %d s",
+                simulation ? "Vérification" : "Restauration", getVerifies(), getRestaures(), getIntacts(), relies,
+                corrompus.size(), nonConformes.size(), manquants.size(), getIgnores(), dureeMs / 1000);
+        }
+    }
+
+    private static class DocumentActif {
+        final int id;
+        final String code;
+        final String chemin;
+        final String extension;
+        final String hash;
+
+        DocumentActif(int id, String code, String chemin, String extension, String hash) {
+            this.id = id;
+            this.code = code;
+            this.chemin = chemin;
+            this.extension = extension;
+            this.hash = hash != null && !hash.isEmpty() ? hash.toLowerCase() : null;
+        }
+    }
+
+    /**
+     * @param sauvegarde Archive zip ou répertoire de sauvegarde
+     * @param simulation true : vérification seule, aucune écriture
+     */
+    public MoteurRestauration(Path sauvegarde, boolean simulation, Consumer<ProgressionSauvegarde> suivi) {
+        this.sauvegarde = sauvegarde.toAbsolutePath().normalize();
+        this.simulation = simulation;
+        this.suivi = suivi;
+        this.databaseService = DatabaseService.getInstance();
+        this.stockage = NetworkStorageService.getInstance();
+        this.rapport = new Rapport(simulation);
+    }
+
+    // ==================== EXÉCUTION ====================
+
+    public Rapport executer() throws IOException, SQLException {
+        if (!simulation && !stockage.isServeurStorageActif()) {
+            throw new IOException("Serveur de stockage inaccessible");
+        }
+
+        ManifesteSauvegarde manifeste = lireManifeste(sauvegarde);
+        chargerDocuments();
+
+        // Regrouper par archive puis par entrée (plusieurs documents peuvent partager une entrée)
+        Map<String, Map<String, List<ManifesteSauvegarde.Entree>>> parArchive = new LinkedHashMap<>();
+        Set<Integer> sauvegardes = new HashSet<>();
+
+        for (ManifesteSauvegarde.Entree entree : manifeste.getEntrees()) {
+            sauvegardes.add(entree.getDocumentId());
+            if (!documents.containsKey(entree.getDocumentId())) {
+                // Document supprimé depuis la sauvegarde
+                rapport.ignores.increment();
+                continue;
+            }
+            parArchive.computeIfAbsent(entree.getArchive(), a -> new LinkedHashMap<>())
+                      .computeIfAbsent(entree.getNomEntree(), n -> new ArrayList<>())
+                      .add(entree);
+        }
+
+        for (DocumentActif doc : documents.values()) {
+            if (!sauvegardes.contains(doc.id)) {
+                rapport.manquants.add(doc.code + " : absent de la sauvegarde");
+            }
+        }
+
+        int nombreEcrivains = lireNombreEcrivains();
+        AtomicInteger numero = new AtomicInteger();
+        ExecutorService ecrivains = Executors.newFixedThreadPool(nombreEcrivains, r -> {
+            Thread t = new Thread(r, "restauration-ecrivain-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Semaphore places = new Semaphore(nombreEcrivains * 2);
+
+        try {
+            Path repertoire = sauvegarde.getParent();
+            for (Map.Entry<String, Map<String, List<ManifesteSauvegarde.Entree>>> archive : parArchive.entrySet()) {
+                parcourirArchive(repertoire.resolve(archive.getKey()), archive.getValue(), ecrivains, places);
+            }
+
+            ecrivains.shutdown();
+            while (!ecrivains.awaitTermination(1, TimeUnit.SECONDS)) {
+                signalerProgression(false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Restauration interrompue", e);
+        } finally {
+            ecrivains.shutdownNow();
+        }
+
+        if (!simulation) {
+            relierDocuments();
+        }
+
+        rapport.dureeMs = System.currentTimeMillis() - debut;
+        signalerProgression(true);
+        return rapport;
+    }
+
+    private int lireNombreEcrivains() {
+        try {
+            return Math.max(1, Integer.parseInt(DatabaseService.getPropriete("restauration.ecrivains", "4").trim()));
+        } catch (NumberFormatException e) {
+            return 4;
+        }
+    }
+
+    /**
+     * Manifeste posé à côté de l'archive, ou à défaut celui contenu dans l'archive
+     */
+    static ManifesteSauvegarde lireManifeste(Path sauvegarde) throws IOException {
+        Path manifeste = ManifesteSauvegarde.emplacement(sauvegarde);
+        if (Files.isRegularFile(manifeste)) {
+            return ManifesteSauvegarde.lire(manifeste);
+        }
+
+        if (Files.isRegularFile(sauvegarde)) {
+            try (ZipFile zip = new ZipFile(sauvegarde.toFile())) {
+                ZipEntry entree = zip.getEntry(ManifesteSauvegarde.NOM_DANS_ARCHIVE);
+                if (entree != null) {
+                    try (BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(zip.getInputStream(entree), StandardCharsets.UTF_8))) {
+                        return ManifesteSauvegarde.lire(reader);
+                    }
+                }
+            }
+        }
+        throw new IOException("Manifeste introuvable pour la sauvegarde " + sauvegarde);
+    }
+
+    private void chargerDocuments() throws SQLException {
+        String query = "SELECT id, code_document, chemin_serveur, extension, hash_fichier FROM documents " +
+                      "WHERE statut != 'supprime'";
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = OptionsLecture.flux().preparer(conn, query);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                DocumentActif doc = new DocumentActif(rs.getInt("id"), rs.getString("code_document"),
+                    rs.getString("chemin_serveur"), rs.getString("extension"), rs.getString("hash_fichier"));
+                documents.put(doc.id, doc);
+            }
+        }
+    }
+
+    // ==================== LECTURE DES ARCHIVES ====================
+
+    private void parcourirArchive(Path archive, Map<String, List<ManifesteSauvegarde.Entree>> entrees,
+                                  ExecutorService ecrivains, Semaphore places) throws InterruptedException {
+        if (Files.isDirectory(archive)) {
+            // Sauvegarde non compressée : chaque fichier se lit indépendamment
+            for (Map.Entry<String, List<ManifesteSauvegarde.Entree>> e : entrees.entrySet()) {
+                Path fichier = archive.resolve(e.getKey());
+                List<ManifesteSauvegarde.Entree> groupe = e.getValue();
+                places.acquire();
+                ecrivains.execute(() -> {
+                    try {
+                        if (!Files.isRegularFile(fichier)) {
+                            signalerManquants(groupe, "entrée introuvable dans " + archive.getFileName());
+                        } else if (Files.size(fichier) <= SEUIL_LECTURE_MEMOIRE) {
+                            traiterContenu(groupe, Files.readAllBytes(fichier));
+                        } else {
+                            try (InputStream in = Files.newInputStream(fichier)) {
+                                traiterFlux(groupe, in);
+                            }
+                        }
+                    } catch (EcritureImpossible ex) {
+                        signalerEchec(groupe, ex.getMessage());
+                    } catch (IOException ex) {
+                        signalerCorrompus(groupe, ex.getMessage());
+                    } finally {
+                        places.release();
+                    }
+                });
+            }
+            return;
+        }
+
+        if (!Files.isRegularFile(archive)) {
+            entrees.values().forEach(groupe -> signalerManquants(groupe, "archive introuvable: " + archive.getFileName()));
+            return;
+        }
+
+        Map<String, List<ManifesteSauvegarde.Entree>> restantes = new HashMap<>(entrees);
+
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(archive))) {
+            ZipEntry entreeZip;
+            while ((entreeZip = zip.getNextEntry()) != null) {
+                List<ManifesteSauvegarde.Entree> groupe = restantes.remove(entreeZip.getName());
+                if (groupe == null) continue;
+
+                if (groupe.get(0).getTaille() <= SEUIL_LECTURE_MEMOIRE) {
+                    byte[] contenu = zip.readAllBytes();
+                    places.acquire();
+                    ecrivains.execute(() -> {
+                        try {
+                            traiterContenu(groupe, contenu);
+                        } catch (IOException ex) {
+                            System.err.println("❌ Restauration " + groupe.get(0).getCodeDocument() + ": " + ex.getMessage());
+                            signalerEchec(groupe, ex.getMessage());
+                        } finally {
+                            places.release();
+                        }
+                    });
+                } else {
+                    try {
+                        traiterFlux(groupe, zip);
+                    } catch (EcritureImpossible ex) {
+                        signalerEchec(groupe, ex.getMessage());
+                    } catch (IOException ex) {
+                        signalerCorrompus(groupe, ex.getMessage());
+                        throw ex;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Archive tronquée ou illisible : les entrées non atteintes sont perdues
+            System.err.println("❌ Archive illisible " + archive.getFileName() + ": " + e.getMessage());
+            restantes.values().forEach(groupe -> signalerCorrompus(groupe, "archive illisible: " + e.getMessage()));
+            return;
+        }
+
+        restantes.values().forEach(groupe -> signalerManquants(groupe, "entrée absente de " + archive.getFileName()));
+    }
+
+    // ==================== CONTRÔLE ET ÉCRITURE ====================
+
+    /**
+     * Contenu lu en mémoire : contrôle puis écriture vers chaque document conforme
+     */
+    private void traiterContenu(List<ManifesteSauvegarde.Entree> groupe, byte[] contenu) throws IOException {
+        octetsLus.add(contenu.length);
+        String hash = MoteurSauvegarde.hacher(contenu);
+
+        for (DocumentActif doc : controler(groupe, hash)) {
+            restaurer(doc, hash, contenu.length, cible -> Files.write(cible, contenu));
+        }
+    }
+
+    /**
+     * Gros contenu lu en flux : écrit dans un fichier temporaire pendant le calcul du hash,
+     * rendu visible seulement si le contrôle réussit
+     */
+    private void traiterFlux(List<ManifesteSauvegarde.Entree> groupe, InputStream in) throws IOException {
+        ManifesteSauvegarde.Entree reference = groupe.get(0);
+        MessageDigest digest = MoteurSauvegarde.sha256();
+        DigestInputStream lecture = new DigestInputStream(in, digest);
+
+        List<DocumentActif> attendus = simulation ? List.of() : controler(groupe, reference.getHash(), false);
+        Path temporaire = null;
+        long taille;
+
+        if (attendus.isEmpty()) {
+            taille = lecture.transferTo(OutputStream.nullOutputStream());
+        } else {
+            Path premiere;
+            try {
+                premiere = stockage.resoudreDestinationRestauration(attendus.get(0).chemin, attendus.get(0).code,
+                    attendus.get(0).extension, reference.getHash());
+            } catch (IOException e) {
+                throw new EcritureImpossible(e);
+            }
+            temporaire = premiere.resolveSibling(premiere.getFileName() + "." + UUID.randomUUID() + ".part");
+            try (OutputStream out = Files.newOutputStream(temporaire)) {
+                taille = lecture.transferTo(out);
+            } catch (IOException e) {
+                Files.deleteIfExists(temporaire);
+                throw e;
+            }
+        }
+        octetsLus.add(taille);
+
+        String hash = NetworkStorageService.versHexadecimal(digest.digest());
+        try {
+            // Le fichier temporaire vérifié est déplacé vers la première cible, copié vers les suivantes
+            Path[] origine = {temporaire};
+            boolean[] deplace = {false};
+            for (DocumentActif doc : controler(groupe, hash)) {
+                boolean deplacer = !deplace[0];
+                Path cible = restaurer(doc, hash, taille, part -> {
+                    if (deplacer) {
+                        Files.move(origine[0], part, StandardCopyOption.REPLACE_EXISTING);
+                        deplace[0] = true;
+                    } else {
+                        Files.copy(origine[0], part, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                });
+                if (deplacer && deplace[0]) {
+                    origine[0] = cible;
+                }
+            }
+        } finally {
+            if (temporaire != null) {
+                Files.deleteIfExists(temporaire);
+            }
+        }
+    }
+
+    private List<DocumentActif> controler(List<ManifesteSauvegarde.Entree> groupe, String hash) {
+        return controler(groupe, hash, true);
+    }
+
+    /**
+     * Documents du groupe dont le contenu peut être restauré
+     * @param signaler false : simple pré-sélection, sans rien compter
+     */
+    private List<DocumentActif> controler(List<ManifesteSauvegarde.Entree> groupe, String hash, boolean signaler) {
+        List<DocumentActif> conformes = new ArrayList<>();
+
+        for (ManifesteSauvegarde.Entree entree : groupe) {
+            DocumentActif doc = documents.get(entree.getDocumentId());
+            String attendu = entree.getHash() != null ? entree.getHash().toLowerCase() : null;
+
+            if (signaler) traites.increment();
+
+            if (!hash.equals(attendu)) {
+                if (signaler) rapport.corrompus.add(doc.code + " : contenu différent du manifeste");
+            } else if (doc.hash != null && !doc.hash.equals(hash)) {
+                if (signaler) rapport.nonConformes.add(doc.code + " : la sauvegarde ne correspond pas au hash_fichier actuel");
+            } else {
+                if (signaler) rapport.verifies.increment();
+                conformes.add(doc);
+            }
+        }
+
+        if (signaler) signalerProgression(false);
+        return simulation && signaler ? List.of() : conformes;
+    }
+
+    @FunctionalInterface
+    private interface Ecriture {
+        void ecrire(Path cible) throws IOException;
+    }
+
+    /**
+     * @return Le fichier du stockage correspondant au document
+     */
+    private Path restaurer(DocumentActif doc, String hash, long taille, Ecriture ecriture) throws IOException {
+        Path cible;
+        try {
+            cible = stockage.resoudreDestinationRestauration(doc.chemin, doc.code, doc.extension, hash);
+        } catch (IOException e) {
+            throw new EcritureImpossible(e);
+        }
+        boolean nouveauLien = !cible.toString().equals(doc.chemin);
+
+        // Le document n'est relié à sa nouvelle cible (relierDocuments) qu'une fois le fichier en place :
+        // après l'écriture réussie, ou si le fichier existe déjà
+        // Un même fichier (blob partagé) n'est écrit qu'une fois : les documents suivants attendent son écriture
+        CompletableFuture<Boolean> reservation = new CompletableFuture<>();
+        CompletableFuture<Boolean> enCours = ciblesReservees.putIfAbsent(cible, reservation);
+        if (enCours != null) {
+            if (!attendre(enCours)) {
+                rapport.manquants.add(doc.code + " : non restauré (écriture du fichier partagé échouée)");
+                return cible;
+            }
+            rapport.intacts.increment();
+            lierFichierExistant(doc, cible, hash, nouveauLien);
+            return cible;
+        }
+
+        boolean enPlace = false;
+        try {
+            if (estIntact(cible, taille, hash)) {
+                rapport.intacts.increment();
+                lierFichierExistant(doc, cible, hash, nouveauLien);
+                enPlace = true;
+                return cible;
+            }
+
+            long ancienneTaille = Files.exists(cible) ? Files.size(cible) : -1;
+            Path temporaire = cible.resolveSibling(cible.getFileName() + "." + UUID.randomUUID() + ".part");
+            try {
+                ecriture.ecrire(temporaire);
+                Files.move(temporaire, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(temporaire);
+                throw new EcritureImpossible(e);
+            }
+            enPlace = true;
+
+            stockage.enregistrerRestauration(cible, ancienneTaille, taille, hash, doc.extension, nouveauLien);
+            if (nouveauLien) {
+                nouveauxChemins.put(doc.id, cible.toString());
+            }
+            rapport.restaures.increment();
+            octetsEcrits.add(taille);
+            return cible;
+
+        } finally {
+            reservation.complete(enPlace);
+        }
+    }
+
+    /**
+     * Attend l'écriture d'un fichier réservé par un autre document
+     * @return true si le fichier est en place
+     */
+    private static boolean attendre(CompletableFuture<Boolean> ecriture) throws IOException {
+        try {
+            return ecriture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("restauration interrompue");
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Relie le document à un fichier déjà en place (intact, ou écrit pour un autre document)
+     */
+    private void lierFichierExistant(DocumentActif doc, Path cible, String hash, boolean nouveauLien) throws IOException {
+        if (nouveauLien && Files.isRegularFile(cible)) {
+            long existante = Files.size(cible);
+            stockage.enregistrerRestauration(cible, existante, existante, hash, doc.extension, true);
+            nouveauxChemins.put(doc.id, cible.toString());
+        }
+    }
+
+    /**
+     * Fichier déjà présent avec le bon contenu (la taille est comparée avant de relire)
+     */
+    private boolean estIntact(Path cible, long taille, String hash) {
+        try {
+            return Files.isRegularFile(cible) && Files.size(cible) == taille
+                && hash.equals(MoteurSauvegarde.hacher(cible));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Relie les documents à leur fichier restauré (chemin_serveur modifié)
+     */
+    private void relierDocuments() throws SQLException {
+        if (nouveauxChemins.isEmpty()) return;
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "UPDATE documents SET chemin_serveur = ?, date_modification = NOW() WHERE id = ?")) {
+
+            for (Map.Entry<Integer, String> lien : nouveauxChemins.entrySet()) {
+                stmt.setString(1, lien.getValue());
+                stmt.setInt(2, lien.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        DocumentService documentService = DocumentService.getInstance();
+        NetworkService networkService = NetworkService.getInstance();
+        for (Integer documentId : nouveauxChemins.keySet()) {
+            documentService.invaliderDocument(documentId);
+            networkService.diffuserInvalidation(TypeEntite.DOCUMENT, documentId,
+                databaseService.lireDateModification("documents", documentId), Operation.MODIFICATION);
+        }
+        rapport.relies = nouveauxChemins.size();
+    }
+
+    // ==================== ANOMALIES ====================
+
+    /**
+     * Échec d'écriture dans le stockage (distinct d'une archive illisible)
+     */
+    private static class EcritureImpossible extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        EcritureImpossible(IOException cause) {
+            super("écriture impossible: " + cause.getMessage(), cause);
+        }
+    }
+
+    private void signalerManquants(List<ManifesteSauvegarde.Entree> groupe, String raison) {
+        for (ManifesteSauvegarde.Entree entree : groupe) {
+            traites.increment();
+            rapport.manquants.add(entree.getCodeDocument() + " : " + raison);
+        }
+    }
+
+    private void signalerCorrompus(List<ManifesteSauvegarde.Entree> groupe, String raison) {
+        for (ManifesteSauvegarde.Entree entree : groupe) {
+            traites.increment();
+            rapport.corrompus.add(entree.getCodeDocument() + " : " + raison);
+        }
+    }
+
+    private void signalerEchec(List<ManifesteSauvegarde.Entree> groupe, String raison) {
+        for (ManifesteSauvegarde.Entree entree : groupe) {
+            rapport.manquants.add(entree.getCodeDocument() + " : non restauré (" + raison + ")");
+        }
+    }
+
+    // ==================== PROGRESSION ====================
+
+    private void signalerProgression(boolean fin) {
+        if (suivi == null) return;
+
+        long maintenant = System.currentTimeMillis();
+        long precedent = dernierSuivi.get();
+        if (!fin && (maintenant - precedent < INTERVALLE_PROGRESSION_MS
+                     || !dernierSuivi.compareAndSet(precedent, maintenant))) {
+            return;
+        }
+
+        try {
+            suivi.accept(new ProgressionSauvegarde(traites.sum(), rapport.getRestaures(), rapport.getIntacts(),
+                rapport.manquants.size(), octetsLus.sum(), octetsEcrits.sum(),
+                System.currentTimeMillis() - debut, fin));
+        } catch (Exception e) {
+            System.err.println("Erreur suivi de restauration: " + e.getMessage());
+        }
+    }
+}
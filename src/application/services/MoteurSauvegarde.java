@@ -0,0 +1,473 @@
+package application.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Moteur de sauvegarde : lecture parallèle bornée, écriture en flux dans l'archive
+ *
+ * - Un pool de lecteurs (sauvegarde.lecteurs, 4 par défaut) lit les fichiers du serveur pendant
+ *   que l'archive s'écrit ; les fichiers jusqu'à SEUIL_LECTURE_MEMOIRE sont lus en mémoire par
+ *   le lecteur, les plus gros sont copiés en flux par le lecteur qui tient l'archive.
+ *   La mémoire reste bornée : au plus (lecteurs x seuil) octets en transit.
+ * - Un document dont le hash figure déjà dans le manifeste précédent n'est pas relu : son entrée
+ *   (et l'archive qui le contient) est reprise telle quelle.
+ * - Un même contenu (même hash) n'est écrit qu'une fois par archive.
+ * - L'archive zip est écrite sous un nom temporaire puis renommée : une sauvegarde interrompue
+ *   ne laisse pas d'archive d'apparence valide.
+ */
+public class MoteurSauvegarde {
+
+    private static final int SEUIL_LECTURE_MEMOIRE = 16 * 1024 * 1024;
+    private static final long INTERVALLE_PROGRESSION_MS = 500;
+    private static final String REPERTOIRE_DOCUMENTS = "documents/";
+
+    private final Sortie sortie;
+    private final ManifesteSauvegarde precedent;
+    private final ManifesteSauvegarde manifeste = new ManifesteSauvegarde();
+    private final Consumer<ProgressionSauvegarde> suivi;
+    private final ExecutorService lecteurs;
+    private final Semaphore places;
+    private final AtomicInteger enCours = new AtomicInteger();
+    private final AtomicReference<IOException> erreurSortie = new AtomicReference<>();
+
+    // Entrée déjà écrite dans cette archive pour chaque hash
+    private final Map<String, String> entreesParHash = new ConcurrentHashMap<>();
+
+    private final long debut = System.currentTimeMillis();
+    private final AtomicLong dernierSuivi = new AtomicLong();
+    private final LongAdder traites = new LongAdder();
+    private final LongAdder ecrits = new LongAdder();
+    private final LongAdder inchanges = new LongAdder();
+    private final LongAdder manquants = new LongAdder();
+    private final LongAdder octetsLus = new LongAdder();
+    private final LongAdder octetsEcrits = new LongAdder();
+
+    /**
+     * Document à sauvegarder
+     */
+    public static class Source {
+        private final int documentId;
+        private final String codeDocument;
+        private final String cheminServeur;
+        private final String extension;
+        private final String hashConnu;
+
+        public Source(int documentId, String codeDocument, String cheminServeur, String extension, String hashConnu) {
+            this.documentId = documentId;
+            this.codeDocument = codeDocument;
+            this.cheminServeur = cheminServeur;
+            this.extension = extension;
+            this.hashConnu = hashConnu != null && !hashConnu.isEmpty() ? hashConnu.toLowerCase() : null;
+        }
+
+        public int getDocumentId() {
+            return documentId;
+        }
+    }
+
+    /**
+     * @param precedent Manifeste de la sauvegarde précédente (vide pour une sauvegarde complète)
+     * @param suivi Reçoit l'avancement au plus toutes les 500 ms, puis le bilan final (peut être null)
+     */
+    public MoteurSauvegarde(Sortie sortie, ManifesteSauvegarde precedent, int nombreLecteurs,
+                            Consumer<ProgressionSauvegarde> suivi) {
+        this.sortie = sortie;
+        this.precedent = precedent != null ? precedent : new ManifesteSauvegarde();
+        this.suivi = suivi;
+
+        int n = Math.max(1, nombreLecteurs);
+        AtomicInteger numero = new AtomicInteger();
+        this.lecteurs = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, "sauvegarde-lecteur-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // Au plus deux fichiers en attente par lecteur : la liste des documents n'est jamais entièrement en mémoire
+        this.places = new Semaphore(n * 2);
+    }
+
+    // ==================== SOUMISSION ====================
+
+    /**
+     * Confie un document aux lecteurs (bloque tant que la file est pleine)
+     * @throws IOException si l'écriture de l'archive a déjà échoué
+     */
+    public void soumettre(Source source) throws IOException {
+        verifierSortie();
+
+        try {
+            places.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Sauvegarde interrompue", e);
+        }
+
+        enCours.incrementAndGet();
+        lecteurs.execute(() -> {
+            try {
+                if (erreurSortie.get() == null) {
+                    traiter(source);
+                }
+            } catch (IOException e) {
+                erreurSortie.compareAndSet(null, e);
+            } finally {
+                places.release();
+                enCours.decrementAndGet();
+                traites.increment();
+                signalerProgression(false);
+            }
+        });
+    }
+
+    /**
+     * Attend les lecteurs, écrit le manifeste et finalise l'archive
+     */
+    public ManifesteSauvegarde terminer() throws IOException {
+        lecteurs.shutdown();
+        try {
+            while (!lecteurs.awaitTermination(1, TimeUnit.SECONDS)) {
+                signalerProgression(false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandonner();
+            throw new IOException("Sauvegarde interrompue", e);
+        }
+
+        verifierSortie();
+        sortie.terminer(manifeste);
+        signalerProgression(true);
+        return manifeste;
+    }
+
+    /**
+     * Arrête les lecteurs et supprime l'archive incomplète
+     */
+    public void abandonner() {
+        lecteurs.shutdownNow();
+        try {
+            lecteurs.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sortie.abandonner();
+    }
+
+    public ProgressionSauvegarde getProgression() {
+        return instantane(enCours.get() == 0 && lecteurs.isTerminated());
+    }
+
+    private void verifierSortie() throws IOException {
+        IOException erreur = erreurSortie.get();
+        if (erreur != null) {
+            throw new IOException("Écriture de la sauvegarde impossible: " + erreur.getMessage(), erreur);
+        }
+    }
+
+    // ==================== LECTURE ====================
+
+    private void traiter(Source source) throws IOException {
+        // Contenu inchangé depuis la sauvegarde précédente : le fichier n'est même pas lu
+        if (precedent.estInchange(source.documentId, source.hashConnu)) {
+            reprendre(source);
+            return;
+        }
+
+        Path fichier = source.cheminServeur != null ? Path.of(source.cheminServeur) : null;
+        if (fichier == null || !Files.isRegularFile(fichier)) {
+            manquer(source, "fichier introuvable sur le serveur");
+            return;
+        }
+
+        long taille;
+        byte[] contenu = null;
+        String hash;
+
+        try {
+            taille = Files.size(fichier);
+            if (taille <= SEUIL_LECTURE_MEMOIRE) {
+                contenu = Files.readAllBytes(fichier);
+                taille = contenu.length;
+                hash = hacher(contenu);
+            } else {
+                hash = source.hashConnu != null ? source.hashConnu : hacher(fichier);
+            }
+            octetsLus.add(taille);
+        } catch (IOException e) {
+            manquer(source, e.getMessage());
+            return;
+        }
+
+        if (source.hashConnu != null && !source.hashConnu.equals(hash)) {
+            System.err.println("⚠ Sauvegarde: " + source.codeDocument + " ne correspond plus au hash enregistré");
+        }
+
+        if (precedent.estInchange(source.documentId, hash)) {
+            reprendre(source);
+            return;
+        }
+
+        // Même contenu déjà écrit dans cette archive (documents partageant un blob)
+        String nomEntree = nomEntree(source);
+        String existante = entreesParHash.putIfAbsent(hash, nomEntree);
+        if (existante != null) {
+            manifeste.ajouter(new ManifesteSauvegarde.Entree(source.documentId, source.codeDocument,
+                hash, taille, sortie.getNomArchive(), existante));
+            return;
+        }
+
+        try {
+            if (contenu != null) {
+                sortie.ecrire(nomEntree, contenu);
+            } else {
+                sortie.ecrire(nomEntree, fichier);
+            }
+        } catch (IOException e) {
+            // Erreur côté archive (disque plein, support retiré) : fatale pour toute la sauvegarde
+            erreurSortie.compareAndSet(null, e);
+            throw e;
+        }
+
+        ecrits.increment();
+        octetsEcrits.add(taille);
+        manifeste.ajouter(new ManifesteSauvegarde.Entree(source.documentId, source.codeDocument,
+            hash, taille, sortie.getNomArchive(), nomEntree));
+    }
+
+    private void reprendre(Source source) {
+        manifeste.ajouter(precedent.getEntree(source.documentId));
+        inchanges.increment();
+    }
+
+    /**
+     * Fichier illisible : la sauvegarde continue ; la dernière copie connue reste au manifeste
+     */
+    private void manquer(Source source, String raison) {
+        manquants.increment();
+        System.err.println("⚠ Sauvegarde: " + source.codeDocument + " ignoré (" + raison + ")");
+
+        ManifesteSauvegarde.Entree ancienne = precedent.getEntree(source.documentId);
+        if (ancienne != null) {
+            manifeste.ajouter(ancienne);
+        }
+    }
+
+    private static String nomEntree(Source source) {
+        String code = source.codeDocument != null ? source.codeDocument : "document-" + source.documentId;
+        String nom = code.replaceAll("[\\\\/:*?\"<>|]", "_");
+        return REPERTOIRE_DOCUMENTS + nom + (source.extension != null && !source.extension.isEmpty()
+            ? "." + source.extension.toLowerCase() : "");
+    }
+
+    // ==================== HASH ====================
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    static String hacher(byte[] contenu) {
+        return NetworkStorageService.versHexadecimal(sha256().digest(contenu));
+    }
+
+    static String hacher(Path fichier) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(fichier), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return NetworkStorageService.versHexadecimal(digest.digest());
+    }
+
+    // ==================== PROGRESSION ====================
+
+    private void signalerProgression(boolean fin) {
+        if (suivi == null) return;
+
+        long maintenant = System.currentTimeMillis();
+        long precedentSuivi = dernierSuivi.get();
+        if (!fin && (maintenant - precedentSuivi < INTERVALLE_PROGRESSION_MS
+                     || !dernierSuivi.compareAndSet(precedentSuivi, maintenant))) {
+            return;
+        }
+
+        try {
+            suivi.accept(instantane(fin));
+        } catch (Exception e) {
+            System.err.println("Erreur suivi de sauvegarde: " + e.getMessage());
+        }
+    }
+
+    private ProgressionSauvegarde instantane(boolean terminee) {
+        return new ProgressionSauvegarde(traites.sum(), ecrits.sum(), inchanges.sum(), manquants.sum(),
+            octetsLus.sum(), octetsEcrits.sum(), System.currentTimeMillis() - debut, terminee);
+    }
+
+    // ==================== SORTIES ====================
+
+    /**
+     * Destination des fichiers sauvegardés
+     */
+    public interface Sortie extends Closeable {
+
+        /** Nom de l'archive dans le répertoire de destination (référencé par le manifeste) */
+        String getNomArchive();
+
+        /** Emplacement final de la sauvegarde */
+        Path getChemin();
+
+        void ecrire(String nomEntree, byte[] contenu) throws IOException;
+
+        void ecrire(String nomEntree, Path fichier) throws IOException;
+
+        /** Écrit le manifeste et rend la sauvegarde visible sous son nom définitif */
+        void terminer(ManifesteSauvegarde manifeste) throws IOException;
+
+        /** Supprime ce qui a été écrit */
+        void abandonner();
+
+        @Override
+        default void close() throws IOException {
+            abandonner();
+        }
+    }
+
+    public static Sortie versZip(Path archive) throws IOException {
+        return new SortieZip(archive);
+    }
+
+    public static Sortie versRepertoire(Path repertoire) throws IOException {
+        return new SortieRepertoire(repertoire);
+    }
+
+    /**
+     * Archive zip unique : les lecteurs compressent leurs fichiers en parallèle (ArchiveZipParallele),
+     * seule l'écriture dans l'archive est séquentielle
+     */
+    static class SortieZip implements Sortie {
+        private final Path archive;
+        private final Path temporaire;
+        private final ArchiveZipParallele zip;
+        private boolean terminee = false;
+
+        SortieZip(Path archive) throws IOException {
+            this.archive = archive;
+            this.temporaire = archive.resolveSibling(archive.getFileName() + ".part");
+            this.zip = new ArchiveZipParallele(temporaire);
+        }
+
+        @Override
+        public String getNomArchive() {
+            return archive.getFileName().toString();
+        }
+
+        @Override
+        public Path getChemin() {
+            return archive;
+        }
+
+        @Override
+        public void ecrire(String nomEntree, byte[] contenu) throws IOException {
+            zip.ecrire(zip.preparer(nomEntree, contenu));
+        }
+
+        @Override
+        public void ecrire(String nomEntree, Path fichier) throws IOException {
+            try (InputStream in = Files.newInputStream(fichier)) {
+                zip.ecrire(nomEntree, in);
+            }
+        }
+
+        @Override
+        public synchronized void terminer(ManifesteSauvegarde manifeste) throws IOException {
+            ByteArrayOutputStream contenu = new ByteArrayOutputStream();
+            manifeste.ecrire(contenu);
+            zip.ecrire(zip.preparer(ManifesteSauvegarde.NOM_DANS_ARCHIVE, contenu.toByteArray()));
+            zip.terminer();
+
+            Files.move(temporaire, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            manifeste.ecrire(ManifesteSauvegarde.emplacement(archive));
+            terminee = true;
+        }
+
+        @Override
+        public synchronized void abandonner() {
+            if (terminee) return;
+            zip.fermer();
+            try {
+                Files.deleteIfExists(temporaire);
+            } catch (IOException e) {
+                System.err.println("⚠ Archive incomplète non supprimée: " + temporaire);
+            }
+        }
+    }
+
+    /**
+     * Copie simple dans un répertoire ; les lecteurs écrivent en parallèle
+     */
+    static class SortieRepertoire implements Sortie {
+        private final Path repertoire;
+        private boolean terminee = false;
+
+        SortieRepertoire(Path repertoire) throws IOException {
+            this.repertoire = repertoire;
+            Files.createDirectories(repertoire.resolve(REPERTOIRE_DOCUMENTS));
+        }
+
+        @Override
+        public String getNomArchive() {
+            return repertoire.getFileName().toString();
+        }
+
+        @Override
+        public Path getChemin() {
+            return repertoire;
+        }
+
+        @Override
+        public void ecrire(String nomEntree, byte[] contenu) throws IOException {
+            Files.write(repertoire.resolve(nomEntree), contenu);
+        }
+
+        @Override
+        public void ecrire(String nomEntree, Path fichier) throws IOException {
+            Files.copy(fichier, repertoire.resolve(nomEntree), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        @Override
+        public void terminer(ManifesteSauvegarde manifeste) throws IOException {
+            // Le manifeste en dernier : sa présence signale une copie complète
+            manifeste.ecrire(ManifesteSauvegarde.emplacement(repertoire));
+            terminee = true;
+        }
+
+        @Override
+        public void abandonner() {
+            if (terminee) return;
+            System.err.println("⚠ Sauvegarde incomplète laissée sans manifeste: " + repertoire);
+        }
+    }
+}
@@ -2,14 +2,30 @@ package application.services;
 
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import application.models.User;
 
 /**
  * Service de communication réseau pour synchroniser les mises à jour entre instances
+ *
+ * Messages multicast (texte, champs séparés par "|") :
+ * - WORKFLOW_UPDATE|courrierId|serviceCode, WORKFLOW_COMPLETE|courrierId
+ * - REFRESH_REQUEST : rechargement complet demandé à tous les postes
+ * - USER_LOGIN / USER_LOGOUT
+ * - INVALIDATION|emetteur|sequence|type|id|version|operation : une entité a changé
+ *   (la séquence, propre à chaque émetteur, permet de détecter les messages perdus)
+ *
+ * Émission regroupée : les notifications sont retenues pendant une courte fenêtre
+ * (reseau.regroupement_ms dans config/database.properties), les doublons sont éliminés
+ * et plusieurs messages sont envoyés dans un même datagramme (une ligne par message).
+ * Au-delà de reseau.seuil_rafraichissement invalidations dans une fenêtre, un seul
+ * REFRESH_REQUEST est envoyé à la place.
  */
 public class NetworkService {
     private static NetworkService instance;
@@ -17,6 +33,10 @@ public class NetworkService {
     private static final int MULTICAST_PORT = 9876;
     private static final String MULTICAST_GROUP = "230.0.0.1";
     
+    // Taille utile d'un datagramme sans fragmentation IP (MTU Ethernet)
+    private static final int TAILLE_MAX_DATAGRAMME = 1400;
+    private static final String REFRESH_REQUEST = "REFRESH_REQUEST";
+    
     private MulticastSocket multicastSocket;
     private InetAddress group;
     private ExecutorService executorService;
@@ -25,10 +45,47 @@ public class NetworkService {
     
     private List<WorkflowUpdateListener> listeners;
     
+    // Identifiant de cette instance et numéro de séquence des invalidations émises
+    private final String identifiantEmetteur = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong sequenceEmission = new AtomicLong();
+    
+    // Dernière séquence reçue par émetteur (détection des trous)
+    private final Map<String, Long> sequencesRecues = new ConcurrentHashMap<>();
+    
+    // Émission regroupée (accès sous verrouEmission)
+    private final long fenetreRegroupementMs;
+    private final int seuilRafraichissement;
+    private final ScheduledExecutorService emetteur;
+    private final Object verrouEmission = new Object();
+    private final Map<String, String> messagesEnAttente = new LinkedHashMap<>();
+    private final Map<String, Invalidation> invalidationsEnAttente = new LinkedHashMap<>();
+    private boolean rafraichissementEnAttente = false;
+    private boolean emissionPlanifiee = false;
+    
+    private final AtomicLong messagesEmis = new AtomicLong();
+    private final AtomicLong datagrammesEmis = new AtomicLong();
+    private final AtomicLong messagesSupprimes = new AtomicLong();
+    
     private NetworkService() {
         listeners = new CopyOnWriteArrayList<>();
         executorService = Executors.newSingleThreadExecutor();
         initialized = false;
+        
+        fenetreRegroupementMs = lireEntier("reseau.regroupement_ms", 250);
+        seuilRafraichissement = lireEntier("reseau.seuil_rafraichissement", 500);
+        emetteur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "multicast-emission");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    private static int lireEntier(String cle, int valeurParDefaut) {
+        try {
+            return Math.max(0, Integer.parseInt(DatabaseService.getPropriete(cle, String.valueOf(valeurParDefaut)).trim()));
+        } catch (NumberFormatException e) {
+            return valeurParDefaut;
+        }
     }
     
     public static synchronized NetworkService getInstance() {
@@ -95,15 +152,20 @@ public class NetworkService {
      */
     private void startListening() {
         executorService.submit(() -> {
-            byte[] buffer = new byte[1024];
+            byte[] buffer = new byte[8192];
             
             while (running) {
                 try {
                     DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
                     multicastSocket.receive(packet);
                     
-                    String message = new String(packet.getData(), 0, packet.getLength());
-                    handleIncomingMessage(message);
+                    // Un datagramme peut regrouper plusieurs messages (un par ligne)
+                    String contenu = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+                    for (String message : contenu.split("\n")) {
+                        if (!message.isEmpty()) {
+                            handleIncomingMessage(message);
+                        }
+                    }
                     
                 } catch (IOException e) {
                     if (running) {
@@ -134,7 +196,7 @@ public class NetworkService {
                 LocalDateTime.now().toString()
             );
             
-            byte[] buffer = message.getBytes();
+            byte[] buffer = message.getBytes(StandardCharsets.UTF_8);
             DatagramPacket packet = new DatagramPacket(
                 buffer, buffer.length, group, MULTICAST_PORT
             );
@@ -168,7 +230,7 @@ public class NetworkService {
                 LocalDateTime.now().toString()
             );
             
-            byte[] buffer = message.getBytes();
+            byte[] buffer = message.getBytes(StandardCharsets.UTF_8);
             DatagramPacket packet = new DatagramPacket(
                 buffer, buffer.length, group, MULTICAST_PORT
             );
@@ -189,9 +251,6 @@ public class NetworkService {
     private void handleIncomingMessage(String message) {
         try {
             String[] parts = message.split("\\|");
-            
-            if (parts.length < 2) return;
-            
             String messageType = parts[0];
             
             switch (messageType) {
@@ -211,9 +270,16 @@ public class NetworkService {
                     break;
                     
                 case "REFRESH_REQUEST":
+                    CacheEntites.viderTous();
                     notifyRefreshRequestToListeners();
                     break;
                     
+                case "INVALIDATION":
+                    if (parts.length >= 7) {
+                        traiterInvalidation(Invalidation.depuisMessage(parts));
+                    }
+                    break;
+                    
                 case "USER_LOGIN":
                     if (parts.length >= 3) {
                         String userCode = parts[1];
@@ -248,7 +314,7 @@ public class NetworkService {
         }
         
         String message = "WORKFLOW_UPDATE|" + courrierId + "|" + serviceCode;
-        sendMulticastMessage(message);
+        planifierEmission(message);
     }
     
     /**
@@ -261,7 +327,7 @@ public class NetworkService {
         }
         
         String message = "WORKFLOW_COMPLETE|" + courrierId;
-        sendMulticastMessage(message);
+        planifierEmission(message);
     }
     
     /**
@@ -273,26 +339,281 @@ public class NetworkService {
             return;
         }
         
-        String message = "REFRESH_REQUEST";
-        sendMulticastMessage(message);
+        planifierEmission(REFRESH_REQUEST);
+    }
+    
+    // ==================== INVALIDATIONS TYPÉES ====================
+    
+    /**
+     * Types d'entités pouvant être invalidées
+     */
+    public enum TypeEntite {
+        DOCUMENT, DOSSIER, COURRIER, NOTIFICATION, UTILISATEUR
+    }
+    
+    /**
+     * Nature du changement
+     * SUPPRESSION signifie que la ligne a disparu (suppression définitive, dossier désactivé) ;
+     * une mise à la corbeille est une MODIFICATION (le statut change)
+     */
+    public enum Operation {
+        CREATION, MODIFICATION, SUPPRESSION
     }
     
     /**
-     * Envoie un message via multicast
+     * Message d'invalidation d'une entité
      */
-    private void sendMulticastMessage(String message) {
+    public static final class Invalidation {
+        private final String emetteur;
+        private final long sequence;
+        private final TypeEntite type;
+        private final int entiteId;
+        private final long version;
+        private final Operation operation;
+        
+        Invalidation avecSequence(long numero) {
+            return new Invalidation(emetteur, numero, type, entiteId, version, operation);
+        }
+        
+        Invalidation(String emetteur, long sequence, TypeEntite type, int entiteId, long version, Operation operation) {
+            this.emetteur = emetteur;
+            this.sequence = sequence;
+            this.type = type;
+            this.entiteId = entiteId;
+            this.version = version;
+            this.operation = operation;
+        }
+        
+        static Invalidation depuisMessage(String[] parts) {
+            return new Invalidation(
+                parts[1],
+                Long.parseLong(parts[2]),
+                TypeEntite.valueOf(parts[3]),
+                Integer.parseInt(parts[4]),
+                Long.parseLong(parts[5]),
+                Operation.valueOf(parts[6])
+            );
+        }
+        
+        String versMessage() {
+            return "INVALIDATION|" + emetteur + "|" + sequence + "|" + type + "|" + entiteId + "|" + version + "|" + operation;
+        }
+        
+        public String getEmetteur() { return emetteur; }
+        public long getSequence() { return sequence; }
+        public TypeEntite getType() { return type; }
+        public int getEntiteId() { return entiteId; }
+        /** Date de modification de l'entité en millisecondes (0 si inconnue) */
+        public long getVersion() { return version; }
+        public Operation getOperation() { return operation; }
+        
+        @Override
+        public String toString() {
+            return operation + " " + type + " #" + entiteId + " (v" + version + ", " + emetteur + "/" + sequence + ")";
+        }
+    }
+    
+    /**
+     * Annonce aux autres postes qu'une entité a changé
+     * Sans effet si le service n'est pas initialisé (pas de réseau : les autres postes
+     * rattraperont le changement par la synchronisation différentielle)
+     *
+     * @param dateModification Date de modification de l'entité (sert de version), peut être null
+     */
+    public void diffuserInvalidation(TypeEntite type, int entiteId, LocalDateTime dateModification, Operation operation) {
+        if (!initialized || entiteId <= 0) return;
+        
+        long version = dateModification != null ? dateModification.toInstant(ZoneOffset.UTC).toEpochMilli() : 0;
+        
+        // La séquence n'est attribuée qu'à l'envoi : une invalidation fusionnée ne crée pas de trou
+        Invalidation invalidation = new Invalidation(identifiantEmetteur, 0, type, entiteId, version, operation);
+        String cle = type + "|" + entiteId;
+        
+        synchronized (verrouEmission) {
+            Invalidation precedente = invalidationsEnAttente.get(cle);
+            if (precedente != null) {
+                messagesSupprimes.incrementAndGet();
+                if (precedente.getOperation() == Operation.SUPPRESSION) {
+                    return;
+                }
+                if (operation != Operation.SUPPRESSION && precedente.getVersion() > version) {
+                    invalidation = precedente;
+                }
+            }
+            invalidationsEnAttente.put(cle, invalidation);
+            planifierEnvoiSansVerrou();
+        }
+    }
+    
+    /**
+     * Contrôle la séquence de l'émetteur puis transmet l'invalidation aux listeners
+     */
+    private void traiterInvalidation(Invalidation invalidation) {
+        // Le multicast renvoie nos propres messages : déjà appliqués localement
+        if (identifiantEmetteur.equals(invalidation.getEmetteur())) return;
+        
+        Long precedente = sequencesRecues.get(invalidation.getEmetteur());
+        
+        if (precedente != null && invalidation.getSequence() <= precedente) {
+            return; // doublon ou message retardé
+        }
+        sequencesRecues.put(invalidation.getEmetteur(), invalidation.getSequence());
+        
+        // Avant les listeners : leurs relectures par id ne doivent pas servir l'ancienne valeur
+        CacheEntites.invaliderPartout(invalidation.getType(), invalidation.getEntiteId());
+        
+        if (precedente != null && invalidation.getSequence() > precedente + 1) {
+            long perdues = invalidation.getSequence() - precedente - 1;
+            System.out.println("⚠️ " + perdues + " invalidation(s) perdue(s) depuis " + invalidation.getEmetteur());
+            // Les entités concernées sont inconnues
+            CacheEntites.viderTous();
+            
+            for (WorkflowUpdateListener listener : listeners) {
+                try {
+                    listener.onInvalidationsPerdues(invalidation.getEmetteur(), perdues);
+                } catch (Exception e) {
+                    System.err.println("Erreur lors de la notification du listener: " + e.getMessage());
+                }
+            }
+        }
+        
+        for (WorkflowUpdateListener listener : listeners) {
+            try {
+                listener.onInvalidation(invalidation);
+            } catch (Exception e) {
+                System.err.println("Erreur lors de la notification du listener: " + e.getMessage());
+            }
+        }
+    }
+    
+    public String getIdentifiantEmetteur() {
+        return identifiantEmetteur;
+    }
+    
+    // ==================== ÉMISSION REGROUPÉE ====================
+    
+    /**
+     * Place un message dans la fenêtre de regroupement (un message identique en attente est ignoré)
+     */
+    private void planifierEmission(String message) {
+        synchronized (verrouEmission) {
+            if (REFRESH_REQUEST.equals(message)) {
+                if (rafraichissementEnAttente) {
+                    messagesSupprimes.incrementAndGet();
+                }
+                rafraichissementEnAttente = true;
+            } else if (messagesEnAttente.putIfAbsent(message, message) != null) {
+                messagesSupprimes.incrementAndGet();
+            }
+            planifierEnvoiSansVerrou();
+        }
+    }
+    
+    private void planifierEnvoiSansVerrou() {
+        if (emissionPlanifiee) return;
+        emissionPlanifiee = true;
+        
+        try {
+            emetteur.schedule(this::emettreMessagesEnAttente, fenetreRegroupementMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            emissionPlanifiee = false;
+        }
+    }
+    
+    /**
+     * Envoie les messages accumulés pendant la fenêtre, regroupés en datagrammes
+     */
+    private void emettreMessagesEnAttente() {
+        List<String> messages = new ArrayList<>();
+        
+        synchronized (verrouEmission) {
+            emissionPlanifiee = false;
+            
+            int enAttente = messagesEnAttente.size() + invalidationsEnAttente.size();
+            
+            // Un rafraîchissement complet rend inutiles les autres notifications de la fenêtre
+            if (rafraichissementEnAttente || invalidationsEnAttente.size() > seuilRafraichissement) {
+                messages.add(REFRESH_REQUEST);
+                messagesSupprimes.addAndGet(enAttente - (rafraichissementEnAttente ? 0 : 1));
+            } else {
+                messages.addAll(messagesEnAttente.values());
+                for (Invalidation invalidation : invalidationsEnAttente.values()) {
+                    messages.add(invalidation.avecSequence(sequenceEmission.incrementAndGet()).versMessage());
+                }
+            }
+            
+            messagesEnAttente.clear();
+            invalidationsEnAttente.clear();
+            rafraichissementEnAttente = false;
+        }
+        
+        if (messages.isEmpty() || multicastSocket == null || multicastSocket.isClosed()) return;
+        
+        StringBuilder datagramme = new StringBuilder();
+        int nombreDansDatagramme = 0;
+        
+        for (String message : messages) {
+            if (nombreDansDatagramme > 0 &&
+                datagramme.length() + 1 + message.length() > TAILLE_MAX_DATAGRAMME) {
+                envoyerDatagramme(datagramme.toString(), nombreDansDatagramme);
+                datagramme.setLength(0);
+                nombreDansDatagramme = 0;
+            }
+            if (nombreDansDatagramme > 0) {
+                datagramme.append('\n');
+            }
+            datagramme.append(message);
+            nombreDansDatagramme++;
+        }
+        
+        envoyerDatagramme(datagramme.toString(), nombreDansDatagramme);
+    }
+    
+    /**
+     * Envoie un datagramme multicast
+     */
+    private void envoyerDatagramme(String contenu, int nombreMessages) {
         try {
-            byte[] data = message.getBytes();
+            byte[] data = contenu.getBytes(StandardCharsets.UTF_8);
             DatagramPacket packet = new DatagramPacket(data, data.length, group, MULTICAST_PORT);
             multicastSocket.send(packet);
             
-            System.out.println("📡 Message envoyé: " + message);
+            messagesEmis.addAndGet(nombreMessages);
+            datagrammesEmis.incrementAndGet();
+            
+            System.out.println("📡 " + nombreMessages + " message(s) envoyé(s) en un datagramme" +
+                             (nombreMessages == 1 ? ": " + contenu : ""));
             
         } catch (IOException e) {
             System.err.println("❌ Erreur lors de l'envoi du message: " + e.getMessage());
         }
     }
     
+    /**
+     * Statistiques d'émission : messages envoyés, datagrammes, messages supprimés par regroupement
+     */
+    public Map<String, Long> getStatistiquesEmission() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("messagesEmis", messagesEmis.get());
+        stats.put("datagrammesEmis", datagrammesEmis.get());
+        stats.put("messagesSupprimes", messagesSupprimes.get());
+        return stats;
+    }
+    
+    /**
+     * Rapport texte des statistiques d'émission (diagnostic, administration)
+     */
+    public String rapportEmission() {
+        Map<String, Long> stats = getStatistiquesEmission();
+        long emis = stats.get("messagesEmis");
+        long datagrammes = stats.get("datagrammesEmis");
+        return "== Émission multicast ==\n" +
+               "Messages émis : " + emis + "\n" +
+               "Datagrammes envoyés : " + datagrammes +
+               (datagrammes > 0 ? String.format(" (%.1f message(s) par datagramme)", (double) emis / datagrammes) : "") + "\n" +
+               "Messages supprimés par regroupement : " + stats.get("messagesSupprimes") + "\n";
+    }
+    
     /**
      * Ajoute un listener pour les mises à jour du workflow
      */
@@ -343,6 +664,10 @@ public class NetworkService {
      * Ferme le service réseau
      */
     public void shutdown() {
+        // Envoyer ce qui reste dans la fenêtre de regroupement avant de fermer la socket
+        emetteur.shutdownNow();
+        emettreMessagesEnAttente();
+        
         running = false;
         initialized = false;
         
@@ -365,7 +690,8 @@ public class NetworkService {
                 executorService.shutdownNow();
             }
             
-            System.out.println("✅ NetworkService arrêté");
+            System.out.println("✅ NetworkService arrêté - " + messagesEmis.get() + " message(s) émis en " +
+                             datagrammesEmis.get() + " datagramme(s), " + messagesSupprimes.get() + " supprimé(s)");
             
         } catch (IOException | InterruptedException e) {
             System.err.println("❌ Erreur lors de l'arrêt du NetworkService: " + e.getMessage());
@@ -390,6 +716,17 @@ public class NetworkService {
          * Appelé quand une demande de rafraîchissement est reçue
          */
         void onRefreshRequest();
+        
+        /**
+         * Appelé quand une entité a été modifiée sur un autre poste
+         * (permet de ne mettre à jour que les lignes concernées)
+         */
+        default void onInvalidation(Invalidation invalidation) {}
+        
+        /**
+         * Appelé quand des invalidations d'un émetteur ont été perdues (trou dans la séquence)
+         */
+        default void onInvalidationsPerdues(String emetteur, long nombre) {}
     }
     
     /**
@@ -3,10 +3,13 @@ package application.services;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.sql.*;
 import java.util.HashMap;
@@ -19,8 +22,15 @@ import java.util.Map;
 public class NetworkStorageService {
     
     private static NetworkStorageService instance;
+    
+    // Taille du tampon direct utilisé pour l'ingestion en flux (mémoire constante)
+    private static final int TAILLE_TAMPON_INGESTION = 1024 * 1024;
+    // Un tampon direct par thread, réutilisé d'un fichier à l'autre (allocation coûteuse, libérée tardivement)
+    private static final ThreadLocal<ByteBuffer> TAMPONS_INGESTION =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(TAILLE_TAMPON_INGESTION));
     private final DatabaseService databaseService;
     private final LogService logService;
+    private final RegistreStockageService registre;
     
     private String serveurStorageChemin;
     private boolean serveurStorageActif;
@@ -29,10 +39,12 @@ public class NetworkStorageService {
     private String serveurPort;
     private String serveurUtilisateur;
     private String serveurMotDePasse;
+    private boolean stockageDeduplique;
     
     private NetworkStorageService() {
         this.databaseService = DatabaseService.getInstance();
         this.logService = LogService.getInstance();
+        this.registre = RegistreStockageService.getInstance();
         chargerConfiguration();
         initialiserStockage();
     }
@@ -57,6 +69,7 @@ public class NetworkStorageService {
         serveurPort = config.getOrDefault("serveur_port", "445");
         serveurUtilisateur = config.getOrDefault("serveur_utilisateur", "");
         serveurMotDePasse = config.getOrDefault("serveur_mot_de_passe", "");
+        stockageDeduplique = Boolean.parseBoolean(config.getOrDefault("stockage_deduplique", "false"));
         
         System.out.println("Configuration serveur de stockage:");
         System.out.println("  - Actif: " + serveurStorageActif);
@@ -67,6 +80,7 @@ public class NetworkStorageService {
         } else {
             System.out.println("  - Chemin: " + serveurStorageChemin);
         }
+        System.out.println("  - Déduplication: " + stockageDeduplique);
     }
     
     /**
@@ -106,9 +120,13 @@ public class NetworkStorageService {
     private void initialiserStockage() {
         if (!serveurStorageActif) {
             System.out.println("⚠️ Serveur de stockage désactivé");
+            VerificationIntegriteService.getInstance().arreter();
             return;
         }
         
+        registre.planifierReconciliation(getRacineServeur());
+        VerificationIntegriteService.getInstance().demarrer(getRacineServeur());
+        
         if (serveurDistant) {
             System.out.println("🌐 Mode serveur distant - Pas d'initialisation locale");
             return;
@@ -227,18 +245,11 @@ public class NetworkStorageService {
      * Stocke un fichier en local
      */
     private String stockerFichierLocal(File fichierSource, String codeDocument) throws IOException {
-        int annee = java.time.Year.now().getValue();
-        Path repertoireAnnee = Paths.get(serveurStorageChemin, String.valueOf(annee));
-        
-        if (!Files.exists(repertoireAnnee)) {
-            Files.createDirectories(repertoireAnnee);
-        }
-        
-        String extension = getExtension(fichierSource.getName());
-        String nomFichier = codeDocument + (extension.isEmpty() ? "" : "." + extension);
-        Path destination = repertoireAnnee.resolve(nomFichier);
+        Path destination = resoudreDestinationServeur(fichierSource.getName(), codeDocument);
+        long ancienneTaille = tailleExistante(destination);
         
         Files.copy(fichierSource.toPath(), destination, StandardCopyOption.REPLACE_EXISTING);
+        enregistrerEcriture(destination, ancienneTaille, Files.size(destination));
         
         return destination.toString();
     }
@@ -247,31 +258,571 @@ public class NetworkStorageService {
      * Stocke un fichier sur un serveur distant
      */
     private String stockerFichierDistant(File fichierSource, String codeDocument) throws IOException {
-        // Construction du chemin réseau Windows (UNC)
-        // Format: \\serveur\partage\dossier\fichier
+        Path destination = resoudreDestinationServeur(fichierSource.getName(), codeDocument);
+        long ancienneTaille = tailleExistante(destination);
         
+        Files.copy(fichierSource.toPath(), destination, StandardCopyOption.REPLACE_EXISTING);
+        enregistrerEcriture(destination, ancienneTaille, Files.size(destination));
+        
+        return destination.toString();
+    }
+    
+    /**
+     * Calcule le chemin de destination sur le serveur (local ou distant) : <racine>/<année>/<code>.<ext>
+     * Crée le répertoire de l'année si nécessaire.
+     */
+    private Path resoudreDestinationServeur(String nomFichierSource, String codeDocument) throws IOException {
         int annee = java.time.Year.now().getValue();
-        String cheminReseau = "\\\\\\" + serveurAdresse + "\\documents\\" + annee;
+        Path repertoireAnnee;
         
-        Path repertoireAnnee = Paths.get(cheminReseau);
+        if (serveurDistant) {
+            // Construction du chemin réseau Windows (UNC)
+            // Format: \\serveur\partage\dossier\fichier
+            String cheminReseau = "\\\\\\" + serveurAdresse + "\\documents\\" + annee;
+            repertoireAnnee = Paths.get(cheminReseau);
+            
+            // Créer le répertoire si nécessaire
+            if (!Files.exists(repertoireAnnee)) {
+                try {
+                    Files.createDirectories(repertoireAnnee);
+                } catch (IOException e) {
+                    System.err.println("⚠️ Impossible de créer le répertoire distant: " + e.getMessage());
+                    // Continue quand même
+                }
+            }
+        } else {
+            repertoireAnnee = Paths.get(serveurStorageChemin, String.valueOf(annee));
+            
+            if (!Files.exists(repertoireAnnee)) {
+                Files.createDirectories(repertoireAnnee);
+            }
+        }
         
-        // Créer le répertoire si nécessaire
-        if (!Files.exists(repertoireAnnee)) {
+        String extension = getExtension(nomFichierSource);
+        String nomFichier = codeDocument + (extension.isEmpty() ? "" : "." + extension);
+        return repertoireAnnee.resolve(nomFichier);
+    }
+    
+    // ==================== INGESTION EN FLUX (UNE SEULE LECTURE) ====================
+    
+    /**
+     * Résultat d'une ingestion : hash SHA-256, taille et chemins écrits
+     */
+    public static class ResultatIngestion {
+        private final String hashFichier;
+        private final long taille;
+        private final String cheminLocal;
+        private final String cheminServeur;
+        
+        ResultatIngestion(String hashFichier, long taille, String cheminLocal, String cheminServeur) {
+            this.hashFichier = hashFichier;
+            this.taille = taille;
+            this.cheminLocal = cheminLocal;
+            this.cheminServeur = cheminServeur;
+        }
+        
+        public String getHashFichier() { return hashFichier; }
+        public long getTaille() { return taille; }
+        public String getCheminLocal() { return cheminLocal; }
+        /** null si le serveur de stockage est inactif ou indisponible */
+        public String getCheminServeur() { return cheminServeur; }
+    }
+    
+    /**
+     * Lit le fichier source UNE seule fois et, dans la même passe :
+     * - calcule son hash SHA-256
+     * - l'écrit dans le stockage local
+     * - l'écrit sur le serveur de stockage (si actif)
+     *
+     * Utilise un tampon direct de taille fixe (un par thread, réutilisé) : la mémoire reste constante
+     * quelle que soit la taille du fichier.
+     * Les copies sont écrites dans des fichiers .part puis renommées une fois complètes : un échec ne laisse
+     * aucun fichier partiel et une version précédente n'est remplacée que par une copie entière.
+     * Un échec côté serveur n'interrompt pas l'ingestion locale (même comportement que stockerFichierServeur).
+     *
+     * En mode déduplication, le hash n'est connu qu'en fin de lecture : la passe n'écrit que la copie locale,
+     * puis le blob n'est copié sur le serveur (transferTo) que s'il n'existe pas déjà.
+     */
+    public ResultatIngestion ingererFichier(File fichierSource, Path destinationLocale, String codeDocument) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 indisponible", e);
+        }
+        
+        Path destinationServeur = null;
+        Path partielServeur = null;
+        FileChannel canalServeur = null;
+        long ancienneTailleServeur = -1;
+        
+        if (serveurStorageActif && !stockageDeduplique) {
             try {
-                Files.createDirectories(repertoireAnnee);
+                destinationServeur = resoudreDestinationServeur(fichierSource.getName(), codeDocument);
+                ancienneTailleServeur = tailleExistante(destinationServeur);
+                partielServeur = fichierPartiel(destinationServeur);
+                canalServeur = FileChannel.open(partielServeur, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
             } catch (IOException e) {
-                System.err.println("⚠️ Impossible de créer le répertoire distant: " + e.getMessage());
-                // Continue quand même
+                System.err.println("❌ Erreur stockage fichier: " + e.getMessage());
+                logService.logErreur("stockage_fichier", e.getMessage());
+                destinationServeur = null;
+                partielServeur = null;
             }
         }
         
-        String extension = getExtension(fichierSource.getName());
-        String nomFichier = codeDocument + (extension.isEmpty() ? "" : "." + extension);
-        Path destination = repertoireAnnee.resolve(nomFichier);
+        Path partielLocal = fichierPartiel(destinationLocale);
+        ByteBuffer tampon = TAMPONS_INGESTION.get();
+        tampon.clear();
+        long taille = 0;
+        boolean complet = false;
         
-        Files.copy(fichierSource.toPath(), destination, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            try (FileChannel source = FileChannel.open(fichierSource.toPath(), StandardOpenOption.READ);
+                 FileChannel canalLocal = FileChannel.open(partielLocal, StandardOpenOption.CREATE_NEW,
+                     StandardOpenOption.WRITE)) {
+                
+                while (source.read(tampon) != -1) {
+                    tampon.flip();
+                    taille += tampon.remaining();
+                    
+                    // 1. Hash
+                    digest.update(tampon.duplicate());
+                    
+                    // 2. Copie serveur (abandonnée proprement en cas d'erreur)
+                    if (canalServeur != null) {
+                        try {
+                            ByteBuffer copie = tampon.duplicate();
+                            while (copie.hasRemaining()) {
+                                canalServeur.write(copie);
+                            }
+                        } catch (IOException e) {
+                            System.err.println("❌ Erreur stockage fichier: " + e.getMessage());
+                            logService.logErreur("stockage_fichier", e.getMessage());
+                            fermerSilencieusement(canalServeur);
+                            supprimerSilencieusement(partielServeur);
+                            canalServeur = null;
+                            destinationServeur = null;
+                            partielServeur = null;
+                        }
+                    }
+                    
+                    // 3. Copie locale
+                    while (tampon.hasRemaining()) {
+                        canalLocal.write(tampon);
+                    }
+                    
+                    tampon.clear();
+                }
+                
+                if (canalServeur != null) {
+                    FileChannel canal = canalServeur;
+                    canalServeur = null;
+                    try {
+                        canal.close();
+                    } catch (IOException e) {
+                        System.err.println("❌ Erreur stockage fichier: " + e.getMessage());
+                        logService.logErreur("stockage_fichier", e.getMessage());
+                        supprimerSilencieusement(partielServeur);
+                        destinationServeur = null;
+                        partielServeur = null;
+                    }
+                }
+            }
+            
+            remplacer(partielLocal, destinationLocale);
+            complet = true;
+            
+        } finally {
+            tampon.clear();
+            if (canalServeur != null) {
+                fermerSilencieusement(canalServeur);
+            }
+            if (!complet) {
+                supprimerSilencieusement(partielLocal);
+                supprimerSilencieusement(partielServeur);
+            }
+        }
         
-        return destination.toString();
+        if (partielServeur != null) {
+            try {
+                remplacer(partielServeur, destinationServeur);
+            } catch (IOException e) {
+                System.err.println("❌ Erreur stockage fichier: " + e.getMessage());
+                logService.logErreur("stockage_fichier", e.getMessage());
+                supprimerSilencieusement(partielServeur);
+                destinationServeur = null;
+            }
+        }
+        
+        String hash = versHexadecimal(digest.digest());
+        
+        if (serveurStorageActif && stockageDeduplique) {
+            destinationServeur = stockerBlob(destinationLocale, hash, taille,
+                RegistreStockageService.extension(fichierSource.getName()));
+        } else if (destinationServeur != null) {
+            enregistrerEcriture(destinationServeur, ancienneTailleServeur, taille);
+        }
+        
+        if (destinationServeur != null) {
+            System.out.println("✓ Fichier stocké sur serveur: " + destinationServeur);
+            logService.logAction("stockage_fichier", "Fichier " + codeDocument + " stocké sur serveur");
+        }
+        
+        return new ResultatIngestion(
+            hash,
+            taille,
+            destinationLocale.toString(),
+            destinationServeur != null ? destinationServeur.toString() : null
+        );
+    }
+    
+    /**
+     * Fichier temporaire unique, dans le même répertoire que la destination (renommage sans copie)
+     */
+    private static Path fichierPartiel(Path destination) {
+        return destination.resolveSibling(destination.getFileName() + "." + java.util.UUID.randomUUID() + ".part");
+    }
+    
+    /**
+     * Met un fichier complet à la place de la destination (atomique si le système de fichiers le permet)
+     */
+    private static void remplacer(Path partiel, Path destination) throws IOException {
+        try {
+            Files.move(partiel, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (java.nio.file.AtomicMoveNotSupportedException e) {
+            Files.move(partiel, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    private static void supprimerSilencieusement(Path fichier) {
+        if (fichier == null) return;
+        try {
+            Files.deleteIfExists(fichier);
+        } catch (IOException e) {
+            System.err.println("⚠ Fichier partiel non supprimé: " + fichier);
+        }
+    }
+    
+    // ==================== STOCKAGE DÉDUPLIQUÉ (ADRESSÉ PAR CONTENU) ====================
+    
+    /**
+     * Racine du serveur de stockage (répertoire local ou partage UNC)
+     */
+    private Path getRacineServeur() {
+        return serveurDistant
+            ? Paths.get("\\\\\\" + serveurAdresse + "\\documents")
+            : Paths.get(serveurStorageChemin);
+    }
+    
+    /**
+     * Chemin d'un blob : <racine>/blobs/ab/cd/abcd...(hash complet)
+     */
+    public Path resoudreCheminBlob(String hash) {
+        return getRacineServeur().resolve("blobs")
+            .resolve(hash.substring(0, 2))
+            .resolve(hash.substring(2, 4))
+            .resolve(hash);
+    }
+    
+    /**
+     * Indique si un chemin serveur désigne un blob du stockage dédupliqué
+     */
+    public boolean estCheminBlob(String cheminServeur) {
+        if (cheminServeur == null || cheminServeur.isEmpty()) return false;
+        try {
+            return Paths.get(cheminServeur).startsWith(getRacineServeur().resolve("blobs"));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Stocke le contenu une seule fois et incrémente son compteur de références.
+     * Si le blob existe déjà, aucune copie n'est faite (réimport quasi gratuit).
+     *
+     * Tout se fait sous le verrou de la ligne blobs_stockage (créée au besoin) : libererBlob, qui supprime
+     * la ligne et le fichier sous le même verrou, ne peut pas retirer le blob entre le test d'existence
+     * et l'incrément de la référence.
+     * @param extension Extension du document, retenue pour le registre si le blob est nouveau
+     * @return Le chemin du blob, ou null en cas d'échec (le document reste disponible en local)
+     */
+    private Path stockerBlob(Path source, String hash, long taille, String extension) {
+        Path blob = resoudreCheminBlob(hash);
+        
+        try (Connection conn = databaseService.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            try {
+                String[] attribution = verrouillerBlob(conn, hash, blob, taille, extension);
+                
+                boolean copie = false;
+                if (!Files.exists(blob)) {
+                    Files.createDirectories(blob.getParent());
+                    Path temporaire = blob.resolveSibling(hash + "." + java.util.UUID.randomUUID() + ".part");
+                    
+                    try {
+                        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                             FileChannel out = FileChannel.open(temporaire, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                            long position = 0;
+                            while (position < taille) {
+                                position += in.transferTo(position, taille - position, out);
+                            }
+                        }
+                        remplacer(temporaire, blob);
+                        copie = true;
+                    } finally {
+                        supprimerSilencieusement(temporaire);
+                    }
+                } else {
+                    System.out.println("♻️ Contenu déjà présent sur le serveur: " + hash.substring(0, 12) + "…");
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE blobs_stockage SET nb_references = nb_references + 1 WHERE hash_fichier = ?")) {
+                    stmt.setString(1, hash);
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                
+                if (copie) {
+                    registre.enregistrer(attribution[0], attribution[1], 1, taille);
+                }
+                return blob;
+                
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+        } catch (IOException | SQLException e) {
+            System.err.println("❌ Erreur stockage blob: " + e.getMessage());
+            logService.logErreur("stockage_fichier", e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Crée la ligne du blob si elle n'existe pas (sans référence) et la verrouille jusqu'à la fin de la transaction
+     */
+    /**
+     * @return Année et extension du blob pour le registre de stockage
+     */
+    private String[] verrouillerBlob(Connection conn, String hash, Path blob, long taille, String extension)
+            throws SQLException {
+        String query = "INSERT INTO blobs_stockage (hash_fichier, chemin, taille, nb_references, extension) VALUES (?, ?, ?, 0, ?) " +
+                      "ON DUPLICATE KEY UPDATE hash_fichier = hash_fichier";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, hash);
+            stmt.setString(2, blob.toString());
+            stmt.setLong(3, taille);
+            stmt.setString(4, extension);
+            stmt.executeUpdate();
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT nb_references, YEAR(date_creation) AS annee, extension FROM blobs_stockage " +
+                "WHERE hash_fichier = ? FOR UPDATE")) {
+            stmt.setString(1, hash);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? attribution(rs) : new String[]{RegistreStockageService.CATEGORIE_BLOBS, ""};
+            }
+        }
+    }
+    
+    /**
+     * Année et extension d'une ligne de blobs_stockage (colonnes annee et extension)
+     */
+    private static String[] attribution(ResultSet rs) throws SQLException {
+        int annee = rs.getInt("annee");
+        return new String[]{
+            rs.wasNull() ? RegistreStockageService.CATEGORIE_BLOBS : String.valueOf(annee),
+            rs.getString("extension")
+        };
+    }
+    
+    /**
+     * @return Année et extension du blob pour le registre de stockage
+     */
+    private String[] incrementerReference(String hash, Path blob, long taille, String extension) throws SQLException {
+        String query = "INSERT INTO blobs_stockage (hash_fichier, chemin, taille, nb_references, extension) VALUES (?, ?, ?, 1, ?) " +
+                      "ON DUPLICATE KEY UPDATE nb_references = nb_references + 1";
+        
+        try (Connection conn = databaseService.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setString(1, hash);
+                stmt.setString(2, blob.toString());
+                stmt.setLong(3, taille);
+                stmt.setString(4, extension);
+                stmt.executeUpdate();
+            }
+            return lireAttributionBlob(conn, hash);
+        }
+    }
+    
+    private String[] lireAttributionBlob(Connection conn, String hash) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT YEAR(date_creation) AS annee, extension FROM blobs_stockage WHERE hash_fichier = ?")) {
+            stmt.setString(1, hash);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? attribution(rs) : new String[]{RegistreStockageService.CATEGORIE_BLOBS, ""};
+            }
+        }
+    }
+    
+    /**
+     * Libère une référence vers un blob ; le fichier est supprimé avec sa dernière référence
+     * @return true si le blob a été supprimé physiquement
+     */
+    public boolean libererBlob(String hash) {
+        if (hash == null || hash.isEmpty()) return false;
+        
+        try (Connection conn = databaseService.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            try {
+                int references;
+                String chemin;
+                String[] attribution;
+                
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT nb_references, chemin, YEAR(date_creation) AS annee, extension FROM blobs_stockage " +
+                        "WHERE hash_fichier = ? FOR UPDATE")) {
+                    stmt.setString(1, hash);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return false;
+                        }
+                        references = rs.getInt("nb_references");
+                        chemin = rs.getString("chemin");
+                        attribution = attribution(rs);
+                    }
+                }
+                
+                if (references > 1) {
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "UPDATE blobs_stockage SET nb_references = nb_references - 1 WHERE hash_fichier = ?")) {
+                        stmt.setString(1, hash);
+                        stmt.executeUpdate();
+                    }
+                    conn.commit();
+                    return false;
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "DELETE FROM blobs_stockage WHERE hash_fichier = ?")) {
+                    stmt.setString(1, hash);
+                    stmt.executeUpdate();
+                }
+                
+                Path fichierBlob = Paths.get(chemin);
+                long tailleBlob = tailleExistante(fichierBlob);
+                boolean supprime = Files.deleteIfExists(fichierBlob);
+                conn.commit();
+                
+                if (supprime) {
+                    registre.enregistrer(attribution[0], attribution[1], -1, -Math.max(0, tailleBlob));
+                }
+                
+                System.out.println("✓ Blob supprimé (dernière référence): " + hash.substring(0, 12) + "…");
+                logService.logAction("suppression_fichier_serveur", "Blob supprimé: " + hash);
+                return true;
+                
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+        } catch (SQLException | IOException e) {
+            System.err.println("❌ Erreur libération blob: " + e.getMessage());
+            logService.logErreur("suppression_fichier_serveur", e.getMessage());
+            return false;
+        }
+    }
+    
+    // ==================== RESTAURATION ====================
+
+    /**
+     * Emplacement où restaurer un document depuis une sauvegarde :
+     * son chemin actuel s'il est sur ce serveur, sinon celui d'un nouveau dépôt (blob en stockage dédupliqué)
+     */
+    public Path resoudreDestinationRestauration(String cheminActuel, String codeDocument, String extension,
+                                                String hash) throws IOException {
+        Path destination = null;
+
+        if (cheminActuel != null && !cheminActuel.isEmpty()) {
+            Path actuel = Paths.get(cheminActuel);
+            if (actuel.startsWith(getRacineServeur())) {
+                destination = actuel;
+            }
+        }
+        if (destination == null && stockageDeduplique && hash != null && hash.length() > 4) {
+            destination = resoudreCheminBlob(hash);
+        }
+        if (destination == null) {
+            String nomFichier = codeDocument + (extension == null || extension.isEmpty() ? "" : "." + extension);
+            return resoudreDestinationServeur(nomFichier, codeDocument);
+        }
+
+        Files.createDirectories(destination.getParent());
+        return destination;
+    }
+
+    /**
+     * Met à jour le registre après la restauration d'un fichier ; un blob nouvellement relié
+     * à un document prend une référence supplémentaire
+     * @param extension Extension du document, retenue pour le registre si le blob n'était pas connu
+     */
+    public void enregistrerRestauration(Path fichier, long ancienneTaille, long nouvelleTaille,
+                                        String hash, String extension, boolean nouveauLien) {
+        if (!estCheminBlob(fichier.toString())) {
+            enregistrerEcriture(fichier, ancienneTaille, nouvelleTaille);
+            return;
+        }
+
+        String[] attribution;
+        try {
+            if (nouveauLien) {
+                attribution = incrementerReference(hash, fichier, nouvelleTaille,
+                    RegistreStockageService.normaliserExtension(extension));
+            } else {
+                try (Connection conn = databaseService.getConnection()) {
+                    attribution = lireAttributionBlob(conn, hash);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠ Blob restauré non enregistré: " + e.getMessage());
+            attribution = new String[]{RegistreStockageService.CATEGORIE_BLOBS, ""};
+        }
+        registre.enregistrer(attribution[0], attribution[1],
+            ancienneTaille < 0 ? 1 : 0, nouvelleTaille - Math.max(0, ancienneTaille));
+    }
+
+    // ==================== REGISTRE ====================
+
+    /**
+     * Taille d'un fichier existant, -1 s'il n'existe pas (écrasement ou création)
+     */
+    private long tailleExistante(Path fichier) {
+        try {
+            return Files.exists(fichier) ? Files.size(fichier) : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+    
+    private void enregistrerEcriture(Path fichier, long ancienneTaille, long nouvelleTaille) {
+        registre.enregistrer(getRacineServeur(), fichier,
+            ancienneTaille < 0 ? 1 : 0, nouvelleTaille - Math.max(0, ancienneTaille));
+    }
+    
+    private void fermerSilencieusement(FileChannel canal) {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            // Ignorer
+        }
     }
     
     /**
@@ -327,19 +878,21 @@ public class NetworkStorageService {
     
     /**
      * Calcule le hash SHA-256 d'un fichier
+     * Lecture en flux avec un tampon fixe (le fichier n'est jamais chargé entièrement en mémoire)
      */
     public String calculerHashFichier(File fichier) {
-        try {
+        try (FileChannel canal = FileChannel.open(fichier.toPath(), StandardOpenOption.READ)) {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] fileBytes = Files.readAllBytes(fichier.toPath());
-            byte[] hashBytes = digest.digest(fileBytes);
+            ByteBuffer tampon = TAMPONS_INGESTION.get();
+            tampon.clear();
             
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
+            while (canal.read(tampon) != -1) {
+                tampon.flip();
+                digest.update(tampon);
+                tampon.clear();
             }
             
-            return sb.toString();
+            return versHexadecimal(digest.digest());
             
         } catch (Exception e) {
             System.err.println("Erreur calcul hash: " + e.getMessage());
@@ -347,6 +900,14 @@ public class NetworkStorageService {
         }
     }
     
+    static String versHexadecimal(byte[] octets) {
+        StringBuilder sb = new StringBuilder(octets.length * 2);
+        for (byte b : octets) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+    
     /**
      * Récupère les statistiques du serveur de stockage
      */
@@ -369,31 +930,26 @@ public class NetworkStorageService {
         }
         
         try {
-            Path storagePath = Paths.get(serveurStorageChemin);
+            // Totaux lus dans le registre : pas de parcours du stockage
+            RegistreStockageService.Compteur totaux = registre.getTotaux();
+            stats.put("nombreFichiers", totaux.getNombreFichiers());
+            stats.put("tailleTotale", totaux.getTaille());
+            stats.put("parAnnee", registre.getRepartitionParAnnee());
+            stats.put("parExtension", registre.getRepartitionParExtension());
             
-            if (Files.exists(storagePath)) {
-                long[] counts = {0, 0};
-                
-                Files.walk(storagePath)
-                    .filter(Files::isRegularFile)
-                    .forEach(path -> {
-                        counts[0]++;
-                        try {
-                            counts[1] += Files.size(path);
-                        } catch (IOException e) {
-                            // Ignorer
-                        }
-                    });
-                
-                stats.put("nombreFichiers", counts[0]);
-                stats.put("tailleTotale", counts[1]);
-                
-                File storage = new File(serveurStorageChemin);
+            // Registre jamais réconcilié (première utilisation) : inventaire en arrière-plan
+            String derniereReconciliation = registre.getDerniereReconciliation();
+            if (derniereReconciliation == null) {
+                registre.lancerReconciliation(getRacineServeur(), true);
+            }
+            stats.put("derniereReconciliation", derniereReconciliation);
+            stats.put("reconciliationEnCours", registre.isReconciliationEnCours());
+            
+            File storage = getRacineServeur().toFile();
+            if (storage.exists()) {
                 stats.put("espaceDisponible", storage.getUsableSpace());
                 stats.put("espaceTotal", storage.getTotalSpace());
             } else {
-                stats.put("nombreFichiers", 0);
-                stats.put("tailleTotale", 0L);
                 stats.put("espaceDisponible", 0L);
                 stats.put("espaceTotal", 0L);
             }
@@ -406,6 +962,15 @@ public class NetworkStorageService {
         return stats;
     }
     
+    /**
+     * Recompte le stockage en arrière-plan et remplace le registre
+     * @return false si une réconciliation est déjà en cours
+     */
+    public boolean reconcilierRegistre() {
+        if (!serveurStorageActif) return false;
+        return registre.lancerReconciliation(getRacineServeur(), false);
+    }
+    
     /**
      * Supprime un fichier du serveur
      */
@@ -418,7 +983,9 @@ public class NetworkStorageService {
             Path path = Paths.get(cheminServeur);
             
             if (Files.exists(path)) {
+                long taille = Files.size(path);
                 Files.delete(path);
+                registre.enregistrer(getRacineServeur(), path, -1, -taille);
                 System.out.println("✓ Fichier supprimé du serveur");
                 logService.logAction("suppression_fichier_serveur", "Fichier supprimé: " + cheminServeur);
                 return true;
@@ -460,4 +1027,8 @@ public class NetworkStorageService {
     public String getServeurAdresse() {
         return serveurAdresse;
     }
+    
+    public boolean isStockageDeduplique() {
+        return stockageDeduplique;
+    }
 }
\ No newline at end of file
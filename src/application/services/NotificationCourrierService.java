@@ -74,9 +74,7 @@ public class NotificationCourrierService {
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
-            if (rs.next()) {
-                return mapResultSetToUser(rs);
-            }
+            return RowMapper.lirePremier(rs, MAPPER_UTILISATEUR);
             
         } catch (SQLException e) {
             System.err.println("Erreur récupération responsable: " + e.getMessage());
@@ -114,6 +112,8 @@ public class NotificationCourrierService {
                 
                 System.out.println("✓ Notification envoyée à " + responsable.getNomComplet() + 
                                  " pour le courrier " + courrier.getCodeCourrier());
+                NetworkService.getInstance().diffuserInvalidation(
+                    NetworkService.TypeEntite.NOTIFICATION, courrier.getId(), null, NetworkService.Operation.CREATION);
                 return true;
             }
             
@@ -149,25 +149,7 @@ public class NotificationCourrierService {
             stmt.setInt(1, userId);
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Courrier courrier = mapResultSetToCourrier(rs);
-                    
-                    CourrierNotificationInfo info = new CourrierNotificationInfo();
-                    info.setCourrier(courrier);
-                    info.setLu(rs.getBoolean("lu"));
-                    
-                    Timestamp dateNotif = rs.getTimestamp("date_notification");
-                    if (dateNotif != null) {
-                        info.setDateNotification(dateNotif.toLocalDateTime());
-                    }
-                    
-                    Timestamp dateLecture = rs.getTimestamp("date_lecture");
-                    if (dateLecture != null) {
-                        info.setDateLecture(dateLecture.toLocalDateTime());
-                    }
-                    
-                    result.add(info);
-                }
+                result.addAll(RowMapper.lireTout(rs, MAPPER_NOTIFICATION));
             }
             
         } catch (SQLException e) {
@@ -217,7 +199,13 @@ public class NotificationCourrierService {
             stmt.setInt(1, courrierId);
             stmt.setInt(2, userId);
             
-            return stmt.executeUpdate() > 0;
+            boolean marque = stmt.executeUpdate() > 0;
+            
+            if (marque) {
+                NetworkService.getInstance().diffuserInvalidation(
+                    NetworkService.TypeEntite.NOTIFICATION, courrierId, null, NetworkService.Operation.MODIFICATION);
+            }
+            return marque;
             
         } catch (SQLException e) {
             System.err.println("Erreur marquage lecture: " + e.getMessage());
@@ -266,10 +254,7 @@ public class NotificationCourrierService {
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
-            while (rs.next()) {
-                User user = mapResultSetToUser(rs);
-                users.add(user);
-            }
+            users.addAll(RowMapper.lireTout(rs, MAPPER_UTILISATEUR));
             
         } catch (SQLException e) {
             System.err.println("Erreur récupération utilisateurs: " + e.getMessage());
@@ -280,74 +265,61 @@ public class NotificationCourrierService {
     
     // Méthodes de mapping
     
-    private User mapResultSetToUser(ResultSet rs) throws SQLException {
-        User user = new User();
-        user.setId(rs.getInt("id"));
-        user.setCode(rs.getString("code"));
-        user.setNom(rs.getString("nom"));
-        user.setPrenom(rs.getString("prenom"));
-        user.setEmail(rs.getString("email"));
-        user.setActif(rs.getBoolean("actif"));
-        
-        // Mapping du rôle si présent
-        try {
-            String roleNom = rs.getString("role_nom");
-            if (roleNom != null) {
+    /**
+     * Utilisateur, avec son rôle si la requête joint roles (role_nom, role_desc)
+     */
+    private static final RowMapper<User> MAPPER_UTILISATEUR = colonnes -> {
+        int id = colonnes.index("id");
+        int code = colonnes.index("code");
+        int nom = colonnes.index("nom");
+        int prenom = colonnes.index("prenom");
+        int email = colonnes.index("email");
+        int actif = colonnes.index("actif");
+        int roleNom = colonnes.indexOptionnel("role_nom");
+        int roleDescription = colonnes.indexOptionnel("role_desc");
+        
+        return rs -> {
+            User user = new User();
+            user.setId(rs.getInt(id));
+            user.setCode(rs.getString(code));
+            user.setNom(rs.getString(nom));
+            user.setPrenom(rs.getString(prenom));
+            user.setEmail(rs.getString(email));
+            user.setActif(rs.getBoolean(actif));
+            
+            // Mapping du rôle si présent
+            String nomRole = Colonnes.chaine(rs, roleNom);
+            if (nomRole != null) {
                 application.models.Role role = new application.models.Role();
-                role.setNom(roleNom);
-                role.setDescription(rs.getString("role_desc"));
+                role.setNom(nomRole);
+                role.setDescription(Colonnes.chaine(rs, roleDescription));
                 user.setRole(role);
             }
-        } catch (SQLException e) {
-            // Rôle optionnel
-        }
-        
-        return user;
-    }
+            
+            return user;
+        };
+    };
     
-    private Courrier mapResultSetToCourrier(ResultSet rs) throws SQLException {
-        Courrier courrier = new Courrier();
-        
-        courrier.setId(rs.getInt("id"));
-        courrier.setCodeCourrier(rs.getString("code_courrier"));
-        courrier.setDocumentId(rs.getInt("document_id"));
-        
-        String typeCourrier = rs.getString("type_courrier");
-        if (typeCourrier != null) {
-            courrier.setTypeCourrier(
-                application.models.Courrier.TypeCourrier.valueOf(typeCourrier));
-        }
-        
-        courrier.setObjet(rs.getString("objet"));
-        courrier.setExpediteur(rs.getString("expediteur"));
-        courrier.setDestinataire(rs.getString("destinataire"));
-        courrier.setReference(rs.getString("reference"));
-        
-        Date dateCourrier = rs.getDate("date_courrier");
-        if (dateCourrier != null) {
-            courrier.setDateCourrier(dateCourrier.toLocalDate());
-        }
-        
-        String priorite = rs.getString("priorite");
-        if (priorite != null) {
-            courrier.setPriorite(
-                application.models.Courrier.PrioriteCourrier.valueOf(priorite));
-        }
-        
-        courrier.setObservations(rs.getString("observations"));
-        courrier.setConfidentiel(rs.getBoolean("confidentiel"));
-        
-        String statut = rs.getString("statut");
-        if (statut != null) {
-            courrier.setStatut(
-                application.models.Courrier.StatutCourrier.valueOf(statut.toUpperCase()));
-        }
-        
-        Timestamp dateCreation = rs.getTimestamp("date_creation");
-        if (dateCreation != null) {
-            courrier.setDateCreation(dateCreation.toLocalDateTime());
-        }
-        
-        return courrier;
-    }
+    /**
+     * Courrier (colonnes c.*) et état de sa notification (lu, dates)
+     */
+    private static final RowMapper<CourrierNotificationInfo> MAPPER_NOTIFICATION = colonnes -> {
+        RowMapper.Lecteur<Courrier> lecteurCourrier = CourrierService.MAPPER_COURRIER.preparer(colonnes);
+        int lu = colonnes.index("lu");
+        int dateNotification = colonnes.index("date_notification");
+        int dateLecture = colonnes.index("date_lecture");
+        
+        return rs -> {
+            CourrierNotificationInfo info = new CourrierNotificationInfo();
+            info.setCourrier(lecteurCourrier.lire(rs));
+            info.setLu(rs.getBoolean(lu));
+            
+            LocalDateTime notifiee = Colonnes.dateHeure(rs, dateNotification);
+            if (notifiee != null) info.setDateNotification(notifiee);
+            LocalDateTime lue = Colonnes.dateHeure(rs, dateLecture);
+            if (lue != null) info.setDateLecture(lue);
+            
+            return info;
+        };
+    };
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package application.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Réglages de lecture d'une requête : taille de lot (fetch size) et mode flux
+ *
+ * - parDefaut() : comportement du pilote (MySQL charge tout le résultat en mémoire)
+ * - tailleLot(n) : indication de taille de lot au pilote
+ * - flux() : lecture ligne par ligne (Connector/J : fetch size Integer.MIN_VALUE sur un
+ *   ResultSet TYPE_FORWARD_ONLY / CONCUR_READ_ONLY) ; la connexion est occupée tant que
+ *   le ResultSet n'est pas fermé, à réserver aux parcours longs (exports, sauvegardes)
+ */
+public final class OptionsLecture {
+
+    private static final OptionsLecture PAR_DEFAUT = new OptionsLecture(0);
+    private static final OptionsLecture FLUX = new OptionsLecture(Integer.MIN_VALUE);
+
+    private final int tailleLot;
+
+    private OptionsLecture(int tailleLot) {
+        this.tailleLot = tailleLot;
+    }
+
+    public static OptionsLecture parDefaut() {
+        return PAR_DEFAUT;
+    }
+
+    public static OptionsLecture tailleLot(int tailleLot) {
+        return new OptionsLecture(Math.max(0, tailleLot));
+    }
+
+    public static OptionsLecture flux() {
+        return FLUX;
+    }
+
+    public boolean isFlux() {
+        return tailleLot == Integer.MIN_VALUE;
+    }
+
+    /**
+     * Prépare une requête en lecture seule, en avant uniquement, avec ces réglages
+     */
+    public PreparedStatement preparer(Connection conn, String sql) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (tailleLot != 0) {
+            stmt.setFetchSize(tailleLot);
+        }
+        return stmt;
+    }
+}
@@ -0,0 +1,52 @@
+package application.services;
+
+/**
+ * Avancement d'une sauvegarde (instantané transmis au suivi de progression)
+ */
+public class ProgressionSauvegarde {
+
+    private final long fichiersTraites;
+    private final long fichiersEcrits;
+    private final long fichiersInchanges;
+    private final long fichiersManquants;
+    private final long octetsLus;
+    private final long octetsEcrits;
+    private final long dureeMs;
+    private final boolean terminee;
+
+    public ProgressionSauvegarde(long fichiersTraites, long fichiersEcrits, long fichiersInchanges,
+                                 long fichiersManquants, long octetsLus, long octetsEcrits,
+                                 long dureeMs, boolean terminee) {
+        this.fichiersTraites = fichiersTraites;
+        this.fichiersEcrits = fichiersEcrits;
+        this.fichiersInchanges = fichiersInchanges;
+        this.fichiersManquants = fichiersManquants;
+        this.octetsLus = octetsLus;
+        this.octetsEcrits = octetsEcrits;
+        this.dureeMs = dureeMs;
+        this.terminee = terminee;
+    }
+
+    public long getFichiersTraites() { return fichiersTraites; }
+    public long getFichiersEcrits() { return fichiersEcrits; }
+    public long getFichiersInchanges() { return fichiersInchanges; }
+    public long getFichiersManquants() { return fichiersManquants; }
+    public long getOctetsLus() { return octetsLus; }
+    public long getOctetsEcrits() { return octetsEcrits; }
+    public long getDureeMs() { return dureeMs; }
+    public boolean isTerminee() { return terminee; }
+
+    /**
+     * Débit de lecture en Mo/s depuis le début de la sauvegarde
+     */
+    public double getDebitMoParSeconde() {
+        return dureeMs == 0 ? 0 : (octetsLus / (1024.0 * 1024.0)) / (dureeMs / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d fichier(s) traité(s) : %d écrit(s), %d inchangé(s), %d manquant(s) — %.1f Mo lus, %.1f Mo/s",
+            fichiersTraites, fichiersEcrits, fichiersInchanges, fichiersManquants,
+            octetsLus / (1024.0 * 1024.0), getDebitMoParSeconde());
+    }
+}
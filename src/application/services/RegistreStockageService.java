@@ -0,0 +1,442 @@
+package application.services;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Registre du serveur de stockage : nombre de fichiers et octets par année et par extension
+ *
+ * Tenu à jour par NetworkStorageService à chaque écriture ou suppression (une requête
+ * INSERT ... ON DUPLICATE KEY UPDATE par opération) : les statistiques de l'administration
+ * se lisent dans la table au lieu de parcourir tout le partage.
+ *
+ * Un blob du stockage dédupliqué est compté dans l'année de sa création et l'extension de son premier
+ * document (colonnes date_creation et extension de blobs_stockage), et non sous blobs/ sans extension.
+ *
+ * Le registre est partagé par tous les postes (table registre_stockage). Une réconciliation
+ * en arrière-plan (thread de basse priorité) parcourt le stockage et remplace le registre :
+ * - automatiquement si le registre n'a jamais été réconcilié (première utilisation)
+ * - périodiquement si stockage.reconciliation.heures > 0 (config/database.properties)
+ * - à la demande depuis l'administration
+ * Un seul poste parcourt le stockage à la fois (verrou nommé MySQL) ; une réconciliation automatique
+ * est abandonnée si un autre poste vient d'en terminer une.
+ * Les écarts éventuels (écriture hors de l'application, opération concurrente d'un scan)
+ * sont corrigés par la réconciliation suivante.
+ */
+public class RegistreStockageService {
+
+    private static RegistreStockageService instance;
+
+    // Catégories hors des répertoires par année
+    public static final String CATEGORIE_BLOBS = "blobs";
+    public static final String CATEGORIE_AUTRES = "autres";
+
+    private static final String CLE_RECONCILIATION = "registre_stockage_reconcilie_le";
+    private static final String VERROU_RECONCILIATION = "registre_stockage.reconciliation";
+
+    private final DatabaseService databaseService;
+    private final AtomicBoolean reconciliationEnCours = new AtomicBoolean(false);
+    private ScheduledExecutorService planificateur;
+
+    private RegistreStockageService() {
+        this.databaseService = DatabaseService.getInstance();
+    }
+
+    public static synchronized RegistreStockageService getInstance() {
+        if (instance == null) {
+            instance = new RegistreStockageService();
+        }
+        return instance;
+    }
+
+    /**
+     * Nombre de fichiers et octets d'une catégorie
+     */
+    public static class Compteur {
+        private long nombreFichiers;
+        private long taille;
+
+        void ajouter(long fichiers, long octets) {
+            nombreFichiers += fichiers;
+            taille += octets;
+        }
+
+        public long getNombreFichiers() { return nombreFichiers; }
+        public long getTaille() { return taille; }
+    }
+
+    // ==================== MISE À JOUR INCRÉMENTALE ====================
+
+    /**
+     * Applique la variation due à une écriture ou une suppression sur le serveur
+     * Ne lève jamais d'exception : un échec du registre ne doit pas faire échouer le stockage.
+     *
+     * @param racine Racine du serveur de stockage
+     * @param fichier Fichier écrit ou supprimé
+     * @param deltaFichiers +1 (création), -1 (suppression), 0 (remplacement)
+     * @param deltaOctets Variation de taille
+     */
+    public void enregistrer(Path racine, Path fichier, long deltaFichiers, long deltaOctets) {
+        enregistrer(categorie(racine, fichier), extension(fichier), deltaFichiers, deltaOctets);
+    }
+
+    /**
+     * Variation attribuée explicitement (blob : année et extension lues dans blobs_stockage)
+     */
+    public void enregistrer(String annee, String extension, long deltaFichiers, long deltaOctets) {
+        if (deltaFichiers == 0 && deltaOctets == 0) return;
+
+        String query = "INSERT INTO registre_stockage (annee, extension, nb_fichiers, taille_totale) VALUES (?, ?, ?, ?) " +
+                      "ON DUPLICATE KEY UPDATE nb_fichiers = GREATEST(0, nb_fichiers + VALUES(nb_fichiers)), " +
+                      "taille_totale = GREATEST(0, taille_totale + VALUES(taille_totale))";
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, annee);
+            stmt.setString(2, extension);
+            stmt.setLong(3, deltaFichiers);
+            stmt.setLong(4, deltaOctets);
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            System.err.println("⚠ Registre de stockage non mis à jour: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Année du fichier (premier répertoire sous la racine), "blobs" ou "autres"
+     */
+    static String categorie(Path racine, Path fichier) {
+        try {
+            Path relatif = racine.relativize(fichier);
+            if (relatif.getNameCount() > 1) {
+                String premier = relatif.getName(0).toString();
+                if (CATEGORIE_BLOBS.equals(premier)) return CATEGORIE_BLOBS;
+                if (premier.matches("\\d{4}")) return premier;
+            }
+        } catch (IllegalArgumentException e) {
+            // Fichier hors de la racine
+        }
+        return CATEGORIE_AUTRES;
+    }
+
+    static String extension(Path fichier) {
+        return extension(fichier.getFileName() != null ? fichier.getFileName().toString() : "");
+    }
+
+    /**
+     * Extension telle que comptée dans le registre (minuscules, "" si absente ou trop longue)
+     */
+    static String extension(String nom) {
+        int point = nom.lastIndexOf('.');
+        if (point <= 0 || point == nom.length() - 1) return "";
+        return normaliserExtension(nom.substring(point + 1));
+    }
+
+    /**
+     * Extension d'un document (colonne documents.extension) telle que comptée dans le registre
+     */
+    static String normaliserExtension(String extension) {
+        if (extension == null) return "";
+        String normalisee = extension.toLowerCase(Locale.ROOT);
+        return normalisee.length() > 20 ? "" : normalisee;
+    }
+
+    // ==================== LECTURE ====================
+
+    /**
+     * Totaux du stockage (une requête, quel que soit le nombre de fichiers)
+     */
+    public Compteur getTotaux() throws SQLException {
+        Compteur totaux = new Compteur();
+        String query = "SELECT COALESCE(SUM(nb_fichiers), 0), COALESCE(SUM(taille_totale), 0) FROM registre_stockage";
+
+        try (Connection conn = databaseService.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+
+            if (rs.next()) {
+                totaux.ajouter(rs.getLong(1), rs.getLong(2));
+            }
+        }
+        return totaux;
+    }
+
+    public Map<String, Compteur> getRepartitionParAnnee() throws SQLException {
+        return getRepartition("annee", "annee DESC");
+    }
+
+    public Map<String, Compteur> getRepartitionParExtension() throws SQLException {
+        return getRepartition("extension", "SUM(taille_totale) DESC");
+    }
+
+    private Map<String, Compteur> getRepartition(String colonne, String ordre) throws SQLException {
+        Map<String, Compteur> repartition = new LinkedHashMap<>();
+        String query = "SELECT " + colonne + ", SUM(nb_fichiers), SUM(taille_totale) FROM registre_stockage " +
+                      "GROUP BY " + colonne + " HAVING SUM(nb_fichiers) > 0 ORDER BY " + ordre;
+
+        try (Connection conn = databaseService.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+
+            while (rs.next()) {
+                Compteur compteur = new Compteur();
+                compteur.ajouter(rs.getLong(2), rs.getLong(3));
+                repartition.put(rs.getString(1), compteur);
+            }
+        }
+        return repartition;
+    }
+
+    /**
+     * Date de la dernière réconciliation complète (null : jamais réconcilié)
+     */
+    public String getDerniereReconciliation() throws SQLException {
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT valeur FROM config_serveur WHERE cle = ?")) {
+
+            stmt.setString(1, CLE_RECONCILIATION);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    public boolean isReconciliationEnCours() {
+        return reconciliationEnCours.get();
+    }
+
+    // ==================== RÉCONCILIATION ====================
+
+    /**
+     * Lance une réconciliation en arrière-plan (sans effet si une réconciliation est déjà en cours)
+     * @param automatique true (première utilisation, planification) : abandonnée si un autre poste
+     *                    a réconcilié le registre pendant la période ; false : demande de l'administration
+     * @return true si la réconciliation a été lancée
+     */
+    public boolean lancerReconciliation(Path racine, boolean automatique) {
+        if (!reconciliationEnCours.compareAndSet(false, true)) {
+            return false;
+        }
+
+        Thread thread = new Thread(() -> {
+            try {
+                reconcilierSousVerrou(racine, automatique);
+            } finally {
+                reconciliationEnCours.set(false);
+            }
+        }, "registre-stockage-reconciliation");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Réconciliation périodique selon stockage.reconciliation.heures (0 : désactivée)
+     */
+    public synchronized void planifierReconciliation(Path racine) {
+        if (planificateur != null) {
+            planificateur.shutdownNow();
+            planificateur = null;
+        }
+
+        long heures = lireIntervalleHeures();
+        if (heures <= 0) return;
+
+        planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "registre-stockage-planification");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        planificateur.scheduleWithFixedDelay(() -> lancerReconciliation(racine, true), heures, heures, TimeUnit.HOURS);
+        System.out.println("✓ Réconciliation du registre de stockage toutes les " + heures + " h");
+    }
+
+    private static long lireIntervalleHeures() {
+        try {
+            return Long.parseLong(DatabaseService.getPropriete("stockage.reconciliation.heures", "0").trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Réconcilie sous le verrou nommé, tenu par une connexion dédiée pendant tout le parcours
+     */
+    private void reconcilierSousVerrou(Path racine, boolean automatique) {
+        try (Connection verrou = databaseService.getConnection()) {
+            if (!prendreVerrou(verrou)) {
+                System.out.println("ℹ Réconciliation du registre déjà en cours sur un autre poste");
+                return;
+            }
+            try {
+                if (automatique && estReconcilieRecemment(verrou)) {
+                    return;
+                }
+                reconcilier(racine);
+            } finally {
+                libererVerrou(verrou);
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Erreur réconciliation du registre de stockage: " + e.getMessage());
+        }
+    }
+
+    private static boolean prendreVerrou(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            stmt.setString(1, VERROU_RECONCILIATION);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void libererVerrou(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, VERROU_RECONCILIATION);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("⚠ Verrou du registre de stockage non libéré: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Réconciliation terminée par un poste pendant l'intervalle planifié (ou jamais, sans planification)
+     */
+    private static boolean estReconcilieRecemment(Connection conn) throws SQLException {
+        long heures = lireIntervalleHeures();
+        String query = heures > 0
+            ? "SELECT COUNT(*) FROM config_serveur WHERE cle = ? AND valeur > NOW() - INTERVAL ? HOUR"
+            : "SELECT COUNT(*) FROM config_serveur WHERE cle = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, CLE_RECONCILIATION);
+            if (heures > 0) {
+                // Marge d'un dixième : deux postes planifiés à quelques minutes d'écart ne scannent pas deux fois
+                stmt.setLong(2, Math.max(1, heures - Math.max(1, heures / 10)));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    /**
+     * Année et extension de chaque blob (hash -> "annee|extension"), lues dans blobs_stockage
+     */
+    private Map<String, String> lireAttributionsBlobs() throws SQLException {
+        Map<String, String> attributions = new HashMap<>();
+        try (Connection conn = databaseService.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT hash_fichier, YEAR(date_creation), extension FROM blobs_stockage")) {
+            while (rs.next()) {
+                int annee = rs.getInt(2);
+                attributions.put(rs.getString(1),
+                    (rs.wasNull() ? CATEGORIE_BLOBS : String.valueOf(annee)) + "|" + rs.getString(3));
+            }
+        }
+        return attributions;
+    }
+
+    /**
+     * Parcourt le stockage puis remplace le registre en une transaction
+     */
+    private void reconcilier(Path racine) {
+        if (racine == null || !Files.isDirectory(racine)) {
+            System.err.println("⚠ Réconciliation du registre impossible, stockage inaccessible: " + racine);
+            return;
+        }
+
+        long debut = System.currentTimeMillis();
+        Map<String, Compteur> parCle = new HashMap<>();
+
+        try {
+            Map<String, String> attributionsBlobs = lireAttributionsBlobs();
+
+            Files.walkFileTree(racine, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path fichier, BasicFileAttributes attributs) {
+                    // Copies de blobs en cours d'écriture (.part) : pas encore stockées
+                    if (attributs.isRegularFile() && !fichier.getFileName().toString().endsWith(".part")) {
+                        String categorie = categorie(racine, fichier);
+                        // Blob sans ligne dans blobs_stockage (orphelin) : reste dans la catégorie "blobs"
+                        String cle = CATEGORIE_BLOBS.equals(categorie)
+                            ? attributionsBlobs.getOrDefault(fichier.getFileName().toString(), CATEGORIE_BLOBS + "|")
+                            : categorie + "|" + extension(fichier);
+                        parCle.computeIfAbsent(cle, k -> new Compteur()).ajouter(1, attributs.size());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path fichier, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            remplacerRegistre(parCle);
+
+            long fichiers = parCle.values().stream().mapToLong(Compteur::getNombreFichiers).sum();
+            System.out.println("✓ Registre de stockage réconcilié: " + fichiers + " fichier(s) en " +
+                              (System.currentTimeMillis() - debut) / 1000 + " s");
+
+        } catch (IOException | SQLException e) {
+            System.err.println("❌ Erreur réconciliation du registre de stockage: " + e.getMessage());
+        }
+    }
+
+    private void remplacerRegistre(Map<String, Compteur> parCle) throws SQLException {
+        try (Connection conn = databaseService.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("DELETE FROM registre_stockage");
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO registre_stockage (annee, extension, nb_fichiers, taille_totale) VALUES (?, ?, ?, ?)")) {
+                    for (Map.Entry<String, Compteur> entree : parCle.entrySet()) {
+                        String[] cle = entree.getKey().split("\\|", 2);
+                        stmt.setString(1, cle[0]);
+                        stmt.setString(2, cle[1]);
+                        stmt.setLong(3, entree.getValue().getNombreFichiers());
+                        stmt.setLong(4, entree.getValue().getTaille());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO config_serveur (cle, valeur) VALUES (?, NOW()) " +
+                        "ON DUPLICATE KEY UPDATE valeur = VALUES(valeur)")) {
+                    stmt.setString(1, CLE_RECONCILIATION);
+                    stmt.executeUpdate();
+                }
+
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+}
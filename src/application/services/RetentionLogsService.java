@@ -0,0 +1,405 @@
+package application.services;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rétention des logs d'activité
+ *
+ * logs_activite est partitionnée par mois (pAAAAMM, plus p_futur pour les dates au-delà) :
+ * purger un mois revient à supprimer sa partition, sans parcourir ni verrouiller les lignes.
+ *
+ * - Les partitions des mois à venir sont créées à l'avance (logs.partitions.mois_avance, 3 par défaut)
+ * - Une table vide (nouvelle installation) est partitionnée dès le démarrage, la conversion étant immédiate
+ * - La conversion d'une table qui contient des logs (copie complète, clé primaire reconstruite : les
+ *   écritures de logs attendent pendant ce temps) n'est jamais faite au démarrage : c'est une action
+ *   explicite de l'administrateur (convertirEnPartitions), refusée au-delà de logs.partitions.migration_max
+ *   lignes (200 000 par défaut)
+ * - Les DDL sont sérialisées entre postes par un verrou MySQL nommé (GET_LOCK) : un seul poste
+ *   modifie les partitions à la fois
+ * - Sans partitionnement (logs.partitions = non, conversion impossible ou refusée par le serveur),
+ *   la purge supprime par lots de clés primaires (logs.purge.lot, 5 000 par défaut) avec une pause
+ *   entre les lots (logs.purge.pause_ms, 100 par défaut) : les écritures des postes ne sont jamais
+ *   bloquées longtemps
+ * - Le mois partiellement expiré est toujours purgé par lots
+ */
+public class RetentionLogsService {
+
+    private static RetentionLogsService instance;
+
+    private static final String PARTITION_FUTUR = "p_futur";
+    private static final String VERROU_PARTITIONS = "logs_activite.partitions";
+    private static final DateTimeFormatter FORMAT_PARTITION = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter FORMAT_BORNE = DateTimeFormatter.ofPattern("yyyy-MM-dd 00:00:00");
+
+    private final DatabaseService databaseService;
+
+    private RetentionLogsService() {
+        this.databaseService = DatabaseService.getInstance();
+    }
+
+    public static synchronized RetentionLogsService getInstance() {
+        if (instance == null) {
+            instance = new RetentionLogsService();
+        }
+        return instance;
+    }
+
+    // ==================== PARTITIONS ====================
+
+    /**
+     * Crée les partitions des mois à venir si logs_activite est partitionnée, ou la partitionne si elle est vide
+     * Appelé à la création des tables : une table non partitionnée qui contient des logs est laissée
+     * telle quelle (purge par lots) jusqu'à ce que l'administrateur la convertisse.
+     */
+    public synchronized void preparerPartitions() {
+        if (!partitionsActivees()) {
+            return;
+        }
+
+        try (Connection conn = databaseService.getConnection()) {
+            if (!estPartitionnee(conn) && !estVide(conn)) {
+                System.out.println("ℹ logs_activite non partitionnée : purge par lots (conversion depuis l'administration)");
+                return;
+            }
+            // Un autre poste prépare déjà les partitions : rien à faire ici
+            if (!prendreVerrou(conn, 0)) {
+                return;
+            }
+            try {
+                // Relu sous le verrou : un autre poste a pu convertir la table entre-temps
+                if (!estPartitionnee(conn)) {
+                    partitionner(conn);
+                }
+                ajouterPartitionsFutures(conn);
+            } finally {
+                libererVerrou(conn);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("⚠ Partitionnement des logs indisponible, purge par lots: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Convertit logs_activite en table partitionnée par mois (action d'administration)
+     * La table est copiée entièrement : les écritures de logs des postes attendent la fin de la conversion.
+     * @return Le nombre de lignes converties (0 si la table était déjà partitionnée)
+     * @throws SQLException si la conversion est désactivée, en cours sur un autre poste,
+     *         si la table dépasse logs.partitions.migration_max lignes ou si le serveur la refuse
+     */
+    public synchronized long convertirEnPartitions() throws SQLException {
+        if (!partitionsActivees()) {
+            throw new SQLException("Partitionnement des logs désactivé (logs.partitions = non)");
+        }
+
+        try (Connection conn = databaseService.getConnection()) {
+            if (!prendreVerrou(conn, 5)) {
+                throw new SQLException("Conversion des logs déjà en cours sur un autre poste");
+            }
+            try {
+                if (estPartitionnee(conn)) {
+                    ajouterPartitionsFutures(conn);
+                    return 0;
+                }
+                long lignes = partitionner(conn);
+                ajouterPartitionsFutures(conn);
+                return lignes;
+            } finally {
+                libererVerrou(conn);
+            }
+        }
+    }
+
+    /**
+     * Indique si logs_activite est partitionnée (purge par partitions)
+     */
+    public boolean isPartitionnee() {
+        try (Connection conn = databaseService.getConnection()) {
+            return estPartitionnee(conn);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static boolean partitionsActivees() {
+        return "oui".equalsIgnoreCase(DatabaseService.getPropriete("logs.partitions", "oui").trim());
+    }
+
+    /**
+     * Verrou nommé MySQL, tenu par la connexion (libéré aussi si elle est fermée)
+     */
+    private static boolean prendreVerrou(Connection conn, int attenteSecondes) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, VERROU_PARTITIONS);
+            stmt.setInt(2, attenteSecondes);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void libererVerrou(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, VERROU_PARTITIONS);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("⚠ Verrou des partitions de logs non libéré: " + e.getMessage());
+        }
+    }
+
+    private boolean estPartitionnee(Connection conn) throws SQLException {
+        return !lirePartitions(conn).isEmpty();
+    }
+
+    private static boolean estVide(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1 FROM logs_activite LIMIT 1")) {
+            return !rs.next();
+        }
+    }
+
+    /**
+     * Partitions mensuelles existantes, de la plus ancienne à la plus récente (p_futur exclue)
+     */
+    private List<YearMonth> lirePartitions(Connection conn) throws SQLException {
+        String query = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                      "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'logs_activite' " +
+                      "AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION";
+        List<YearMonth> mois = new ArrayList<>();
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                YearMonth m = moisPartition(rs.getString(1));
+                if (m != null) {
+                    mois.add(m);
+                }
+            }
+        }
+        return mois;
+    }
+
+    /**
+     * Convertit la table existante : une partition par mois depuis le plus ancien log
+     * MySQL impose la colonne de partitionnement dans la clé primaire et interdit les clés
+     * étrangères sur une table partitionnée : la clé devient (id, timestamp) et la contrainte
+     * vers users est retirée (un log d'utilisateur supprimé s'affiche comme « Système »).
+     * @return Le nombre de lignes converties
+     */
+    private long partitionner(Connection conn) throws SQLException {
+        long lignes = 0;
+        YearMonth premier = YearMonth.now();
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*), MIN(timestamp) FROM logs_activite")) {
+            if (rs.next()) {
+                lignes = rs.getLong(1);
+                Timestamp plusAncien = rs.getTimestamp(2);
+                if (plusAncien != null) {
+                    premier = YearMonth.from(plusAncien.toLocalDateTime());
+                }
+            }
+        }
+
+        long maximum = lireEntier("logs.partitions.migration_max", 200_000);
+        if (lignes > maximum) {
+            throw new SQLException("logs_activite compte " + lignes + " lignes (> logs.partitions.migration_max = " +
+                                  maximum + ") : purger les anciens logs avant de convertir");
+        }
+
+        List<String> clesEtrangeres = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS " +
+                 "WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'logs_activite'")) {
+            while (rs.next()) {
+                clesEtrangeres.add(rs.getString(1));
+            }
+        }
+
+        StringBuilder partitions = new StringBuilder();
+        for (YearMonth m = premier; !m.isAfter(YearMonth.now()); m = m.plusMonths(1)) {
+            partitions.append(definitionPartition(m)).append(", ");
+        }
+        partitions.append("PARTITION ").append(PARTITION_FUTUR).append(" VALUES LESS THAN MAXVALUE");
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String cle : clesEtrangeres) {
+                stmt.executeUpdate("ALTER TABLE logs_activite DROP FOREIGN KEY `" + cle + "`");
+            }
+            stmt.executeUpdate(
+                "ALTER TABLE logs_activite " +
+                "MODIFY timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                "DROP PRIMARY KEY, ADD PRIMARY KEY (id, timestamp) " +
+                "PARTITION BY RANGE (UNIX_TIMESTAMP(timestamp)) (" + partitions + ")");
+        }
+
+        System.out.println("✓ logs_activite partitionnée par mois (" + lignes + " lignes converties)");
+        return lignes;
+    }
+
+    /**
+     * Découpe p_futur pour que chaque mois jusqu'à logs.partitions.mois_avance ait sa partition
+     */
+    private void ajouterPartitionsFutures(Connection conn) throws SQLException {
+        List<YearMonth> existantes = lirePartitions(conn);
+        YearMonth dernier = existantes.isEmpty() ? YearMonth.now().minusMonths(1) : existantes.get(existantes.size() - 1);
+        YearMonth horizon = YearMonth.now().plusMonths(lireEntier("logs.partitions.mois_avance", 3));
+
+        if (!dernier.isBefore(horizon)) {
+            return;
+        }
+
+        StringBuilder partitions = new StringBuilder();
+        for (YearMonth m = dernier.plusMonths(1); !m.isAfter(horizon); m = m.plusMonths(1)) {
+            partitions.append(definitionPartition(m)).append(", ");
+        }
+        partitions.append("PARTITION ").append(PARTITION_FUTUR).append(" VALUES LESS THAN MAXVALUE");
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE logs_activite REORGANIZE PARTITION " + PARTITION_FUTUR +
+                              " INTO (" + partitions + ")");
+        }
+        System.out.println("✓ Partitions de logs créées jusqu'à " + horizon);
+    }
+
+    private static String definitionPartition(YearMonth mois) {
+        return "PARTITION " + mois.format(FORMAT_PARTITION) +
+               " VALUES LESS THAN (UNIX_TIMESTAMP('" + mois.plusMonths(1).atDay(1).format(FORMAT_BORNE) + "'))";
+    }
+
+    private static YearMonth moisPartition(String nom) {
+        if (nom == null || !nom.matches("p\\d{6}")) {
+            return null;
+        }
+        return YearMonth.parse(nom, FORMAT_PARTITION);
+    }
+
+    // ==================== PURGE ====================
+
+    /**
+     * Supprime les logs antérieurs à la limite
+     * Les mois entièrement expirés sont retirés partition par partition, le reste par lots.
+     * @return Le nombre de logs supprimés
+     */
+    public synchronized long purger(LocalDateTime limite) throws SQLException {
+        preparerPartitions();
+
+        long supprimes = 0;
+        try (Connection conn = databaseService.getConnection()) {
+            // Partitions modifiées par un autre poste en ce moment : tout est purgé par lots
+            if (estPartitionnee(conn) && prendreVerrou(conn, 0)) {
+                try {
+                    supprimes += supprimerPartitions(conn, limite);
+                } catch (SQLException e) {
+                    System.err.println("⚠ Suppression des partitions de logs impossible, purge par lots: " + e.getMessage());
+                } finally {
+                    libererVerrou(conn);
+                }
+            }
+            supprimes += supprimerParLots(conn, limite);
+        }
+
+        System.out.println("✓ " + supprimes + " logs supprimés (antérieurs au " + limite.toLocalDate() + ")");
+        return supprimes;
+    }
+
+    /**
+     * Retire les partitions dont tous les logs sont antérieurs à la limite
+     */
+    private long supprimerPartitions(Connection conn, LocalDateTime limite) throws SQLException {
+        List<String> expirees = new ArrayList<>();
+        for (YearMonth m : lirePartitions(conn)) {
+            if (!m.plusMonths(1).atDay(1).atStartOfDay().isAfter(limite)) {
+                expirees.add(m.format(FORMAT_PARTITION));
+            }
+        }
+        if (expirees.isEmpty()) {
+            return 0;
+        }
+
+        long lignes = 0;
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                     "SELECT COUNT(*) FROM logs_activite PARTITION (" + String.join(", ", expirees) + ")")) {
+                if (rs.next()) {
+                    lignes = rs.getLong(1);
+                }
+            }
+            stmt.executeUpdate("ALTER TABLE logs_activite DROP PARTITION " + String.join(", ", expirees));
+        }
+
+        System.out.println("✓ " + expirees.size() + " partition(s) de logs supprimée(s)");
+        return lignes;
+    }
+
+    /**
+     * Supprime les logs restants par tranches consécutives de clés primaires
+     * Chaque lot est une transaction courte ; la pause laisse passer les écritures concurrentes.
+     */
+    private long supprimerParLots(Connection conn, LocalDateTime limite) throws SQLException {
+        int lot = lireEntier("logs.purge.lot", 5_000);
+        long pause = lirePause();
+        Timestamp borne = Timestamp.valueOf(limite);
+        long supprimes = 0;
+        long debut = Long.MIN_VALUE;
+
+        String queryFin = "SELECT MAX(id) FROM (SELECT id FROM logs_activite " +
+                         "WHERE id > ? AND timestamp < ? ORDER BY id LIMIT ?) lot";
+        String queryDelete = "DELETE FROM logs_activite WHERE id > ? AND id <= ? AND timestamp < ?";
+
+        try (PreparedStatement stmtFin = conn.prepareStatement(queryFin);
+             PreparedStatement stmtDelete = conn.prepareStatement(queryDelete)) {
+
+            while (true) {
+                stmtFin.setLong(1, debut);
+                stmtFin.setTimestamp(2, borne);
+                stmtFin.setInt(3, lot);
+
+                long fin;
+                try (ResultSet rs = stmtFin.executeQuery()) {
+                    if (!rs.next()) break;
+                    fin = rs.getLong(1);
+                    if (rs.wasNull()) break;
+                }
+
+                stmtDelete.setLong(1, debut);
+                stmtDelete.setLong(2, fin);
+                stmtDelete.setTimestamp(3, borne);
+                supprimes += stmtDelete.executeUpdate();
+                debut = fin;
+
+                if (pause > 0) {
+                    try {
+                        Thread.sleep(pause);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        }
+        return supprimes;
+    }
+
+    private static int lireEntier(String cle, int defaut) {
+        try {
+            return Math.max(1, Integer.parseInt(DatabaseService.getPropriete(cle, String.valueOf(defaut)).trim()));
+        } catch (NumberFormatException e) {
+            return defaut;
+        }
+    }
+
+    private static long lirePause() {
+        try {
+            return Math.max(0, Long.parseLong(DatabaseService.getPropriete("logs.purge.pause_ms", "100").trim()));
+        } catch (NumberFormatException e) {
+            return 100;
+        }
+    }
+}
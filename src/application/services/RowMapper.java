@@ -0,0 +1,70 @@
+package application.services;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Conversion des lignes d'un ResultSet en objets, en deux temps :
+ *
+ * 1. preparer() reçoit les colonnes du ResultSet et résout les index une seule fois
+ * 2. le Lecteur retourné lit chaque ligne par index (getInt, getLong... sans boxing)
+ *
+ * Exemple :
+ *   RowMapper<Dossier> mapper = colonnes -> {
+ *       int id = colonnes.index("id");
+ *       int nom = colonnes.index("nom_dossier");
+ *       return rs -> { Dossier d = new Dossier(); d.setId(rs.getInt(id)); ... return d; };
+ *   };
+ *   List<Dossier> dossiers = RowMapper.lireTout(rs, mapper);
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Résout les index des colonnes utilisées (appelé une fois par ResultSet)
+     */
+    Lecteur<T> preparer(Colonnes colonnes) throws SQLException;
+
+    /**
+     * Lecture d'une ligne, index déjà résolus
+     */
+    @FunctionalInterface
+    interface Lecteur<T> {
+        T lire(ResultSet rs) throws SQLException;
+    }
+
+    // ==================== PARCOURS ====================
+
+    /**
+     * Lit toutes les lignes restantes du ResultSet
+     */
+    static <T> List<T> lireTout(ResultSet rs, RowMapper<T> mapper) throws SQLException {
+        List<T> resultats = new ArrayList<>();
+        parcourir(rs, mapper, resultats::add);
+        return resultats;
+    }
+
+    /**
+     * Lit la ligne suivante, ou null si le ResultSet est épuisé
+     */
+    static <T> T lirePremier(ResultSet rs, RowMapper<T> mapper) throws SQLException {
+        if (!rs.next()) {
+            return null;
+        }
+        return mapper.preparer(Colonnes.de(rs)).lire(rs);
+    }
+
+    /**
+     * Transmet chaque ligne au consommateur sans les conserver
+     * (avec OptionsLecture.flux(), la mémoire reste constante quel que soit le nombre de lignes)
+     */
+    static <T> void parcourir(ResultSet rs, RowMapper<T> mapper, Consumer<? super T> consommateur) throws SQLException {
+        Lecteur<T> lecteur = mapper.preparer(Colonnes.de(rs));
+        while (rs.next()) {
+            consommateur.accept(lecteur.lire(rs));
+        }
+    }
+}
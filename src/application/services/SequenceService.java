@@ -0,0 +1,196 @@
+package application.services;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service de séquences par blocs (hi/lo) pour les codes documents et courriers
+ *
+ * La table sequences_codes garde, par préfixe et par année, la prochaine valeur non réservée.
+ * Chaque poste réserve un bloc de valeurs en une transaction (SELECT ... FOR UPDATE + UPDATE),
+ * puis distribue ces valeurs en mémoire : générer un code ne coûte plus de requête, et deux postes
+ * ne peuvent jamais recevoir la même valeur.
+ *
+ * Contrepartie : les valeurs d'un bloc non utilisées à la fermeture de l'application sont perdues
+ * (trous dans la numérotation, jamais de doublons).
+ */
+public class SequenceService {
+
+    private static SequenceService instance;
+
+    private static final int TAILLE_BLOC_DEFAUT = 10;
+    private static final int MAX_TENTATIVES = 3;
+
+    private final DatabaseService databaseService;
+    private final int tailleBloc;
+    private final Map<String, Bloc> blocs = new ConcurrentHashMap<>();
+
+    /**
+     * Valeur de départ d'une séquence absente de la table (plus grande valeur déjà utilisée + 1)
+     * N'est appelée qu'une fois par préfixe et par année, tous postes confondus.
+     */
+    @FunctionalInterface
+    public interface Amorce {
+        long premiereValeur() throws SQLException;
+    }
+
+    private SequenceService() {
+        this.databaseService = DatabaseService.getInstance();
+        this.tailleBloc = lireTailleBloc();
+    }
+
+    public static synchronized SequenceService getInstance() {
+        if (instance == null) {
+            instance = new SequenceService();
+        }
+        return instance;
+    }
+
+    private int lireTailleBloc() {
+        try {
+            return Math.max(1, Integer.parseInt(DatabaseService.getPropriete(
+                "sequences.bloc.taille", String.valueOf(TAILLE_BLOC_DEFAUT)).trim()));
+        } catch (NumberFormatException e) {
+            return TAILLE_BLOC_DEFAUT;
+        }
+    }
+
+    // ==================== ATTRIBUTION ====================
+
+    /**
+     * Prochaine valeur de la séquence (préfixe, année)
+     * Incrément en mémoire ; un accès base seulement quand le bloc courant est épuisé.
+     */
+    public long prochaineValeur(String prefixe, int annee, Amorce amorce) throws SQLException {
+        Bloc bloc = blocs.computeIfAbsent(prefixe + "|" + annee, k -> new Bloc());
+
+        synchronized (bloc) {
+            if (bloc.suivante >= bloc.fin) {
+                long debut = reserverBlocAvecReprise(prefixe, annee, amorce);
+                bloc.suivante = debut;
+                bloc.fin = debut + tailleBloc;
+            }
+            return bloc.suivante++;
+        }
+    }
+
+    /**
+     * Code formaté PREFIXE + séquence sur 4 chiffres (ex: COU-2025-0042)
+     */
+    public String prochainCode(String prefixe, int annee, Amorce amorce) throws SQLException {
+        return prefixe + String.format("%04d", prochaineValeur(prefixe, annee, amorce));
+    }
+
+    /**
+     * Deux postes qui amorcent la même séquence en même temps peuvent s'interbloquer
+     * (verrous d'intervalle InnoDB) : la transaction annulée est rejouée.
+     */
+    private long reserverBlocAvecReprise(String prefixe, int annee, Amorce amorce) throws SQLException {
+        for (int tentative = 1; ; tentative++) {
+            try {
+                return reserverBloc(prefixe, annee, amorce);
+            } catch (SQLTransactionRollbackException e) {
+                if (tentative >= MAX_TENTATIVES) throw e;
+                System.err.println("⚠ Réservation de séquence rejouée (" + prefixe + annee + "): " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Réserve [debut, debut + tailleBloc) dans la table et retourne debut
+     */
+    private long reserverBloc(String prefixe, int annee, Amorce amorce) throws SQLException {
+        try (Connection conn = databaseService.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try {
+                Long debut = lireCompteurVerrouille(conn, prefixe, annee);
+
+                if (debut == null) {
+                    // Première utilisation : amorcer depuis les codes existants.
+                    // INSERT IGNORE : si un autre poste amorce en même temps, sa ligne est conservée.
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "INSERT IGNORE INTO sequences_codes (prefixe, annee, prochaine_valeur) VALUES (?, ?, ?)")) {
+                        stmt.setString(1, prefixe);
+                        stmt.setInt(2, annee);
+                        stmt.setLong(3, Math.max(1, amorce.premiereValeur()));
+                        stmt.executeUpdate();
+                    }
+                    debut = lireCompteurVerrouille(conn, prefixe, annee);
+                    if (debut == null) {
+                        throw new SQLException("Séquence introuvable après amorçage: " + prefixe + annee);
+                    }
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE sequences_codes SET prochaine_valeur = ? WHERE prefixe = ? AND annee = ?")) {
+                    stmt.setLong(1, debut + tailleBloc);
+                    stmt.setString(2, prefixe);
+                    stmt.setInt(3, annee);
+                    stmt.executeUpdate();
+                }
+
+                conn.commit();
+                return debut;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private Long lireCompteurVerrouille(Connection conn, String prefixe, int annee) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT prochaine_valeur FROM sequences_codes WHERE prefixe = ? AND annee = ? FOR UPDATE")) {
+            stmt.setString(1, prefixe);
+            stmt.setInt(2, annee);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    // ==================== AMORCES ====================
+
+    /**
+     * Amorce à partir des codes existants d'une table : MAX(séquence) + 1 parmi les codes PREFIXE%
+     * (parcours complet, exécuté une seule fois par séquence)
+     */
+    public Amorce depuisCodesExistants(String table, String colonne, String prefixe) {
+        return () -> {
+            String query = "SELECT MAX(CAST(SUBSTRING(" + colonne + ", ?) AS UNSIGNED)) " +
+                          "FROM " + table + " WHERE " + colonne + " LIKE ?";
+
+            try (Connection conn = databaseService.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
+
+                stmt.setInt(1, prefixe.length() + 1);
+                stmt.setString(2, prefixe + "%");
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        long max = rs.getLong(1);
+                        if (!rs.wasNull()) {
+                            return max + 1;
+                        }
+                    }
+                }
+            }
+            return 1;
+        };
+    }
+
+    /**
+     * Bloc de valeurs réservé par ce poste : [suivante, fin)
+     */
+    private static class Bloc {
+        long suivante;
+        long fin;
+    }
+}
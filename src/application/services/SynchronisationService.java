@@ -0,0 +1,497 @@
+package application.services;
+
+import application.models.Courrier;
+import application.models.Document;
+import application.models.Dossier;
+import application.services.NetworkService.Invalidation;
+import application.services.NetworkService.Operation;
+import application.services.NetworkService.TypeEntite;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * Synchronisation différentielle des données partagées entre postes
+ *
+ * Remplace le rechargement complet périodique des vues : pour chaque entité (documents, dossiers,
+ * courriers), le service retient un repère haut (plus grande date_modification déjà vue) et ne
+ * récupère que les lignes modifiées depuis. Une requête de signature (MAX(date_modification), lu dans
+ * l'index) évite toute lecture quand rien n'a changé, sauf dans les CHEVAUCHEMENT_SECONDES qui suivent
+ * une modification : date_modification étant à la seconde, la fenêtre est relue à chaque cycle.
+ * Les suppressions définitives de documents et de dossiers sont suivies de la même façon dans la table
+ * suppressions (DatabaseService.enregistrerSuppression), sans compter les lignes des tables.
+ *
+ * Les invalidations typées reçues par multicast (NetworkService) sont appliquées au cycle suivant :
+ * les entités désignées sont relues par id, les suppressions annoncées retirent les lignes.
+ * Les documents changés sont aussi reportés dans l'index de recherche local.
+ *
+ * Un rechargement complet n'est demandé que si :
+ * - un poste l'a demandé par multicast (REFRESH_REQUEST)
+ * - trop de changements sont détectés d'un coup
+ */
+public class SynchronisationService {
+    
+    private static SynchronisationService instance;
+    private final DatabaseService databaseService;
+    
+    // Nombre maximal de lignes modifiées par cycle : au-delà, un rechargement complet coûte moins cher
+    private static final int LIMITE_DELTA = 1000;
+    
+    // Les horloges des postes et l'ordre des commits peuvent décaler date_modification de quelques secondes
+    private static final int CHEVAUCHEMENT_SECONDES = 5;
+    
+    private final Suivi<Document> suiviDocuments;
+    private final Suivi<Dossier> suiviDossiers;
+    private final Suivi<Courrier> suiviCourriers;
+    private final Suivi<Suppression> suiviSuppressions;
+    
+    private volatile boolean rechargementDemande = false;
+    private boolean initialise = false;
+    
+    private final ConcurrentLinkedQueue<Invalidation> invalidationsEnAttente = new ConcurrentLinkedQueue<>();
+    
+    private final DocumentService documentService;
+    private final DossierService dossierService;
+    private final CourrierService courrierService;
+    
+    private SynchronisationService() {
+        this.databaseService = DatabaseService.getInstance();
+        
+        this.documentService = DocumentService.getInstance();
+        this.dossierService = DossierService.getInstance();
+        this.courrierService = CourrierService.getInstance();
+        
+        this.suiviDocuments = new Suivi<>("documents", documentService::getDocumentsModifiesDepuis,
+            Document::getId, Document::getDateModification);
+        this.suiviDossiers = new Suivi<>("dossiers", dossierService::getDossiersModifiesDepuis,
+            Dossier::getId, Dossier::getDateModification);
+        this.suiviCourriers = new Suivi<>("courriers", courrierService::getCourriersModifiesDepuis,
+            Courrier::getId, Courrier::getDateModification);
+        this.suiviSuppressions = new Suivi<>("suppressions", this::lireSuppressions,
+            Suppression::getId, Suppression::getDateSuppression);
+    }
+    
+    public static synchronized SynchronisationService getInstance() {
+        if (instance == null) {
+            instance = new SynchronisationService();
+        }
+        return instance;
+    }
+    
+    // ==================== RÉSULTAT D'UN CYCLE ====================
+    
+    /**
+     * Changements détectés lors d'un cycle de synchronisation
+     */
+    public static class Changements {
+        private final List<Document> documents;
+        private final List<Dossier> dossiers;
+        private final List<Courrier> courriers;
+        private final Set<Integer> documentsRetires;
+        private final Set<Integer> dossiersRetires;
+        private final boolean notificationsModifiees;
+        private final boolean rechargementComplet;
+        private final String raison;
+        
+        private Changements(List<Document> documents, List<Dossier> dossiers, List<Courrier> courriers,
+                           Set<Integer> documentsRetires, Set<Integer> dossiersRetires,
+                           boolean notificationsModifiees, boolean rechargementComplet, String raison) {
+            this.documents = documents;
+            this.dossiers = dossiers;
+            this.courriers = courriers;
+            this.documentsRetires = documentsRetires;
+            this.dossiersRetires = dossiersRetires;
+            this.notificationsModifiees = notificationsModifiees;
+            this.rechargementComplet = rechargementComplet;
+            this.raison = raison;
+        }
+        
+        static Changements aucun() {
+            return new Changements(List.of(), List.of(), List.of(), Set.of(), Set.of(), false, false, null);
+        }
+        
+        static Changements rechargement(String raison) {
+            return new Changements(List.of(), List.of(), List.of(), Set.of(), Set.of(), false, true, raison);
+        }
+        
+        /** Documents modifiés (les documents au statut "supprime" doivent être retirés des vues) */
+        public List<Document> getDocuments() { return documents; }
+        public List<Dossier> getDossiers() { return dossiers; }
+        public List<Courrier> getCourriers() { return courriers; }
+        /** Documents supprimés définitivement */
+        public Set<Integer> getDocumentsRetires() { return documentsRetires; }
+        /** Dossiers supprimés (désactivés) */
+        public Set<Integer> getDossiersRetires() { return dossiersRetires; }
+        public boolean isNotificationsModifiees() { return notificationsModifiees; }
+        public boolean isRechargementComplet() { return rechargementComplet; }
+        public String getRaison() { return raison; }
+        
+        public boolean isVide() {
+            return !rechargementComplet && !notificationsModifiees && getNombre() == 0;
+        }
+        
+        public int getNombre() {
+            return documents.size() + dossiers.size() + courriers.size() +
+                   documentsRetires.size() + dossiersRetires.size();
+        }
+    }
+    
+    // ==================== SYNCHRONISATION ====================
+    
+    /**
+     * Demande un rechargement complet au prochain cycle (événement multicast REFRESH_REQUEST)
+     */
+    public void demanderRechargementComplet() {
+        rechargementDemande = true;
+    }
+    
+    /**
+     * Mémorise une invalidation reçue d'un autre poste ; appliquée au prochain cycle
+     */
+    public void enregistrerInvalidation(Invalidation invalidation) {
+        if (invalidation != null) {
+            invalidationsEnAttente.offer(invalidation);
+        }
+    }
+    
+    /**
+     * Exécute un cycle de synchronisation (à appeler hors du thread JavaFX)
+     * Le premier appel pose les repères sans rien retourner : les vues viennent d'être chargées.
+     * @return Les changements à appliquer aux vues
+     */
+    public synchronized Changements detecterChangements() {
+        try {
+            Map<String, LocalDateTime> signatures = lireSignatures();
+            
+            List<Invalidation> invalidations = new ArrayList<>();
+            Invalidation invalidation;
+            while ((invalidation = invalidationsEnAttente.poll()) != null) {
+                invalidations.add(invalidation);
+            }
+            
+            if (!initialise || rechargementDemande) {
+                boolean demande = rechargementDemande;
+                rechargementDemande = false;
+                poserReperes(signatures);
+                initialise = true;
+                if (demande) {
+                    dossierService.invaliderArborescence();
+                    documentService.reconstruireIndexRecherche();
+                }
+                
+                return demande ? Changements.rechargement("demande réseau") : Changements.aucun();
+            }
+            
+            // Suppressions annoncées par multicast, complétées par la table suppressions (message perdu)
+            Set<Integer> documentsRetires = idsSupprimes(invalidations, TypeEntite.DOCUMENT);
+            Set<Integer> dossiersRetires = idsSupprimes(invalidations, TypeEntite.DOSSIER);
+            
+            List<Suppression> suppressions = suiviSuppressions.lireDelta(signatures.get("suppressions"));
+            List<Document> documents = suiviDocuments.lireDelta(signatures.get("documents"));
+            List<Dossier> dossiers = suiviDossiers.lireDelta(signatures.get("dossiers"));
+            List<Courrier> courriers = suiviCourriers.lireDelta(signatures.get("courriers"));
+            
+            if (suppressions == null || documents == null || dossiers == null || courriers == null) {
+                dossierService.invaliderArborescence();
+                poserReperes(signatures);
+                documentService.reconstruireIndexRecherche();
+                return Changements.rechargement("trop de changements");
+            }
+            
+            for (Suppression suppression : suppressions) {
+                if ("documents".equals(suppression.entite)) {
+                    documentsRetires.add(suppression.entiteId);
+                } else if ("dossiers".equals(suppression.entite)) {
+                    dossiersRetires.add(suppression.entiteId);
+                }
+            }
+            if (!documentsRetires.isEmpty()) {
+                documents = sansRetires(documents, documentsRetires, Document::getId);
+            }
+            if (!dossiersRetires.isEmpty()) {
+                dossiers = sansRetires(dossiers, dossiersRetires, Dossier::getId);
+            }
+            
+            // Lignes modifiées sans invalidation reçue (message perdu) : la copie en cache est périmée
+            for (Document document : documents) {
+                CacheEntites.invaliderPartout(TypeEntite.DOCUMENT, document.getId());
+            }
+            
+            // Entités invalidées absentes du delta (modification sans date_modification) : relecture par id
+            documents = completer(documents, invalidations, TypeEntite.DOCUMENT, Document::getId,
+                                  documentService::getDocumentById, documentsRetires);
+            dossiers = completer(dossiers, invalidations, TypeEntite.DOSSIER, Dossier::getId,
+                                 dossierService::getDossierById, dossiersRetires);
+            courriers = completer(courriers, invalidations, TypeEntite.COURRIER, Courrier::getId,
+                                  courrierService::getCourrierById, new HashSet<>());
+            
+            // Index de recherche local : les autres postes n'y ont pas accès
+            documentService.appliquerChangementsDistants(documents, documentsRetires);
+            
+            if (!documents.isEmpty() || !dossiers.isEmpty() || !documentsRetires.isEmpty() || !dossiersRetires.isEmpty()) {
+                dossierService.invaliderArborescence();
+            }
+            
+            boolean notifications = invalidations.stream().anyMatch(i -> i.getType() == TypeEntite.NOTIFICATION);
+            
+            return new Changements(documents, dossiers, courriers, documentsRetires, dossiersRetires,
+                                   notifications, false, null);
+            
+        } catch (SQLException e) {
+            // Base momentanément indisponible : les repères ne bougent pas, on réessaiera au prochain cycle
+            System.err.println("⚠ Synchronisation différentielle impossible: " + e.getMessage());
+            return Changements.aucun();
+        }
+    }
+    
+    private static Set<Integer> idsSupprimes(List<Invalidation> invalidations, TypeEntite type) {
+        Set<Integer> ids = new HashSet<>();
+        for (Invalidation invalidation : invalidations) {
+            if (invalidation.getType() == type && invalidation.getOperation() == Operation.SUPPRESSION) {
+                ids.add(invalidation.getEntiteId());
+            }
+        }
+        return ids;
+    }
+    
+    /**
+     * Ajoute au delta les entités invalidées qu'il ne contient pas encore
+     * Une entité introuvable est considérée comme retirée
+     */
+    private static <T> List<T> completer(List<T> delta, List<Invalidation> invalidations, TypeEntite type,
+                                         Function<T, Integer> id, Function<Integer, T> lecture, Set<Integer> retires) {
+        Set<Integer> presents = new HashSet<>();
+        for (T ligne : delta) {
+            presents.add(id.apply(ligne));
+        }
+        
+        List<T> complet = null;
+        for (Invalidation invalidation : invalidations) {
+            int entiteId = invalidation.getEntiteId();
+            if (invalidation.getType() != type || invalidation.getOperation() == Operation.SUPPRESSION ||
+                presents.contains(entiteId) || retires.contains(entiteId)) {
+                continue;
+            }
+            presents.add(entiteId);
+            
+            T ligne = lecture.apply(entiteId);
+            if (ligne == null) {
+                retires.add(entiteId);
+                continue;
+            }
+            if (complet == null) {
+                complet = new ArrayList<>(delta);
+            }
+            complet.add(ligne);
+        }
+        
+        return complet != null ? complet : delta;
+    }
+    
+    /**
+     * Retire du delta les lignes supprimées entre-temps (une ligne modifiée puis supprimée dans le même cycle)
+     */
+    private static <T> List<T> sansRetires(List<T> delta, Set<Integer> retires, Function<T, Integer> id) {
+        List<T> restantes = new ArrayList<>(delta.size());
+        for (T ligne : delta) {
+            if (!retires.contains(id.apply(ligne))) {
+                restantes.add(ligne);
+            }
+        }
+        return restantes;
+    }
+    
+    private void poserReperes(Map<String, LocalDateTime> signatures) {
+        suiviDocuments.poserRepere(signatures.get("documents"));
+        suiviDossiers.poserRepere(signatures.get("dossiers"));
+        suiviCourriers.poserRepere(signatures.get("courriers"));
+        suiviSuppressions.poserRepere(signatures.get("suppressions"));
+    }
+    
+    /**
+     * Lit en une seule requête la dernière modification de chaque table et la dernière suppression
+     * Chaque MAX est résolu dans un index (idx_modification_id, idx_date_suppression) sans parcourir la table
+     */
+    private Map<String, LocalDateTime> lireSignatures() throws SQLException {
+        String query = "SELECT (SELECT MAX(date_modification) FROM documents), " +
+                      "(SELECT MAX(date_modification) FROM dossiers), " +
+                      "(SELECT MAX(date_modification) FROM courriers), " +
+                      "(SELECT MAX(date_suppression) FROM suppressions)";
+        String[] entites = {"documents", "dossiers", "courriers", "suppressions"};
+        
+        Map<String, LocalDateTime> signatures = new HashMap<>();
+        
+        try (Connection conn = databaseService.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            
+            if (rs.next()) {
+                for (int i = 0; i < entites.length; i++) {
+                    Timestamp max = rs.getTimestamp(i + 1);
+                    signatures.put(entites[i], max != null ? max.toLocalDateTime() : null);
+                }
+            }
+        }
+        
+        return signatures;
+    }
+    
+    /**
+     * Lit les suppressions enregistrées depuis une date (même fenêtre de chevauchement que les entités)
+     */
+    private List<Suppression> lireSuppressions(LocalDateTime depuis, int limite) throws SQLException {
+        String query = "SELECT id, entite, entite_id, date_suppression FROM suppressions " +
+                      "WHERE date_suppression >= ? ORDER BY date_suppression, id LIMIT ?";
+        
+        List<Suppression> suppressions = new ArrayList<>();
+        
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setTimestamp(1, Timestamp.valueOf(depuis));
+            stmt.setInt(2, limite);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    suppressions.add(new Suppression(rs.getInt("id"), rs.getString("entite"),
+                        rs.getInt("entite_id"), rs.getTimestamp("date_suppression").toLocalDateTime()));
+                }
+            }
+        }
+        
+        return suppressions;
+    }
+    
+    // ==================== SUIVI PAR ENTITÉ ====================
+    
+    /**
+     * Ligne de la table suppressions
+     */
+    private static final class Suppression {
+        final int id;
+        final String entite;
+        final int entiteId;
+        final LocalDateTime dateSuppression;
+        
+        Suppression(int id, String entite, int entiteId, LocalDateTime dateSuppression) {
+            this.id = id;
+            this.entite = entite;
+            this.entiteId = entiteId;
+            this.dateSuppression = dateSuppression;
+        }
+        
+        int getId() { return id; }
+        LocalDateTime getDateSuppression() { return dateSuppression; }
+    }
+    
+    @FunctionalInterface
+    private interface LecteurDelta<T> {
+        List<T> lire(LocalDateTime depuis, int limite) throws SQLException;
+    }
+    
+    /**
+     * Repère haut et lignes déjà livrées pour une entité
+     */
+    private static final class Suivi<T> {
+        private final String nom;
+        private final LecteurDelta<T> lecteur;
+        private final Function<T, Integer> id;
+        private final Function<T, LocalDateTime> dateModification;
+        
+        // Dernière modification lue par la requête de signature
+        private LocalDateTime signature;
+        private LocalDateTime repere;
+        
+        // Instant (horloge locale) où la dernière modification actuelle a été vue pour la première fois
+        private long repereVuNanos = System.nanoTime();
+        
+        // Lignes déjà livrées dans la fenêtre de chevauchement (id -> date_modification)
+        private final Map<Integer, LocalDateTime> dejaLivres = new HashMap<>();
+        
+        Suivi(String nom, LecteurDelta<T> lecteur, Function<T, Integer> id, Function<T, LocalDateTime> dateModification) {
+            this.nom = nom;
+            this.lecteur = lecteur;
+            this.id = id;
+            this.dateModification = dateModification;
+        }
+        
+        void poserRepere(LocalDateTime nouvelle) {
+            signature = nouvelle;
+            repere = nouvelle;
+            repereVuNanos = System.nanoTime();
+            dejaLivres.clear();
+        }
+        
+        /**
+         * date_modification est à la seconde : tant que la seconde de la dernière modification peut encore
+         * recevoir des écritures (et leurs commits retardés), une modification de la même seconde ne change
+         * pas le maximum. La signature ne suffit pas pendant cette fenêtre.
+         */
+        private boolean fenetreOuverte() {
+            return System.nanoTime() - repereVuNanos < CHEVAUCHEMENT_SECONDES * 1_000_000_000L;
+        }
+        
+        /**
+         * @return Les lignes modifiées depuis le repère, ou null si un rechargement complet est nécessaire
+         */
+        List<T> lireDelta(LocalDateTime nouvelle) throws SQLException {
+            boolean fenetre = fenetreOuverte();
+            if (nouvelle == null || (nouvelle.equals(signature) && !fenetre)) {
+                return List.of();
+            }
+            
+            LocalDateTime depuis = repere != null
+                ? repere.minusSeconds(CHEVAUCHEMENT_SECONDES)
+                : LocalDateTime.of(1970, 1, 1, 0, 0);
+            
+            List<T> lignes = lecteur.lire(depuis, LIMITE_DELTA);
+            
+            if (lignes.size() >= LIMITE_DELTA) {
+                System.out.println("🔄 Synchronisation " + nom + ": trop de changements (" + lignes.size() + ")");
+                return null;
+            }
+            
+            List<T> nouvelles = new ArrayList<>();
+            LocalDateTime nouveauRepere = repere;
+            
+            for (T ligne : lignes) {
+                LocalDateTime date = dateModification.apply(ligne);
+                Integer cle = id.apply(ligne);
+                
+                // Une ligne de la seconde encore ouverte est relivrée : elle a pu changer dans la même seconde
+                boolean secondeOuverte = fenetre && date != null && repere != null && !date.isBefore(repere);
+                if (date != null && date.equals(dejaLivres.get(cle)) && !secondeOuverte) {
+                    continue;
+                }
+                
+                nouvelles.add(ligne);
+                dejaLivres.put(cle, date);
+                
+                if (date != null && (nouveauRepere == null || date.isAfter(nouveauRepere))) {
+                    nouveauRepere = date;
+                }
+            }
+            
+            if (!Objects.equals(nouveauRepere, repere)) {
+                repereVuNanos = System.nanoTime();
+            }
+            repere = nouveauRepere;
+            signature = nouvelle;
+            
+            // Ne garder que les lignes encore dans la fenêtre de chevauchement
+            if (repere != null) {
+                LocalDateTime limite = repere.minusSeconds(CHEVAUCHEMENT_SECONDES);
+                dejaLivres.values().removeIf(d -> d == null || d.isBefore(limite));
+            }
+            
+            if (!nouvelles.isEmpty()) {
+                System.out.println("🔄 Synchronisation " + nom + ": " + nouvelles.size() + " ligne(s) modifiée(s)");
+            }
+            
+            return nouvelles;
+        }
+    }
+}
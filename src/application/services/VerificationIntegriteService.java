@@ -0,0 +1,530 @@
+package application.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vérification d'intégrité du stockage en arrière-plan
+ *
+ * Relit les fichiers du serveur et compare leur SHA-256 au hash_fichier des documents :
+ * une copie tronquée ou altérée est détectée sans attendre qu'un utilisateur l'ouvre.
+ *
+ * - Débit limité (stockage.verification.mo_par_seconde, 10 par défaut ; 0 : désactivée) et
+ *   thread de basse priorité : la vérification ne concurrence pas les postes
+ * - Un seul poste vérifie à la fois (bail renouvelé dans config_serveur)
+ * - Avancement enregistré (dernier document vérifié) : un redémarrage reprend où le tour s'était arrêté
+ * - Les fichiers différents, manquants ou illisibles sont inscrits dans anomalies_stockage ;
+ *   une anomalie disparaît quand le fichier est retrouvé intact
+ * - Un tour terminé, le suivant commence après stockage.verification.pause_heures (24 par défaut)
+ */
+public class VerificationIntegriteService {
+
+    private static VerificationIntegriteService instance;
+
+    public static final String ANOMALIE_DIFFERENT = "different";
+    public static final String ANOMALIE_MANQUANT = "manquant";
+    public static final String ANOMALIE_ILLISIBLE = "illisible";
+
+    private static final String CLE_CURSEUR = "verification_integrite_curseur";
+    private static final String CLE_FIN_TOUR = "verification_integrite_fin_tour";
+    private static final String CLE_BAIL = "verification_integrite_bail";
+
+    private static final int TAILLE_LOT = 100;
+    private static final long DUREE_BAIL_MS = 10 * 60 * 1000;
+    private static final long INTERVALLE_SAUVEGARDE_MS = 30 * 1000;
+    private static final long ATTENTE_BAIL_MS = 15 * 60 * 1000;
+
+    private final DatabaseService databaseService;
+    private final String poste;
+    private volatile Thread thread;
+    // Dernière prise du bail (thread vérificateur uniquement)
+    private long bailPrisA = 0;
+
+    private VerificationIntegriteService() {
+        this.databaseService = DatabaseService.getInstance();
+        this.poste = nomPoste();
+    }
+
+    public static synchronized VerificationIntegriteService getInstance() {
+        if (instance == null) {
+            instance = new VerificationIntegriteService();
+        }
+        return instance;
+    }
+
+    /**
+     * Fichier en anomalie (table anomalies_stockage)
+     */
+    public static class Anomalie {
+        private final int documentId;
+        private final String codeDocument;
+        private final String chemin;
+        private final String type;
+        private final String hashAttendu;
+        private final String hashTrouve;
+        private final String detecteeLe;
+
+        Anomalie(int documentId, String codeDocument, String chemin, String type,
+                 String hashAttendu, String hashTrouve, String detecteeLe) {
+            this.documentId = documentId;
+            this.codeDocument = codeDocument;
+            this.chemin = chemin;
+            this.type = type;
+            this.hashAttendu = hashAttendu;
+            this.hashTrouve = hashTrouve;
+            this.detecteeLe = detecteeLe;
+        }
+
+        public int getDocumentId() { return documentId; }
+        public String getCodeDocument() { return codeDocument; }
+        public String getChemin() { return chemin; }
+        public String getType() { return type; }
+        public String getHashAttendu() { return hashAttendu; }
+        public String getHashTrouve() { return hashTrouve; }
+        public String getDetecteeLe() { return detecteeLe; }
+    }
+
+    private static String nomPoste() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "poste-" + ProcessHandle.current().pid();
+        }
+    }
+
+    // ==================== DÉMARRAGE ====================
+
+    /**
+     * Démarre (ou redémarre) la vérification selon la configuration
+     */
+    public synchronized void demarrer(Path racine) {
+        arreter();
+
+        double moParSeconde = lireReel("stockage.verification.mo_par_seconde", 10);
+        if (moParSeconde <= 0 || racine == null) return;
+
+        long pauseMs = (long) (lireReel("stockage.verification.pause_heures", 24) * 3600 * 1000);
+        long octetsParSeconde = (long) (moParSeconde * 1024 * 1024);
+
+        thread = new Thread(() -> boucler(racine, octetsParSeconde, Math.max(60_000, pauseMs)),
+                            "verification-integrite");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        System.out.println("✓ Vérification d'intégrité du stockage à " + moParSeconde + " Mo/s");
+    }
+
+    public synchronized void arreter() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    public boolean isActive() {
+        return thread != null;
+    }
+
+    /**
+     * Le thread courant est toujours le vérificateur (pas arrêté ni remplacé par un redémarrage)
+     */
+    private boolean enService() {
+        return thread == Thread.currentThread();
+    }
+
+    private static double lireReel(String cle, double defaut) {
+        try {
+            return Double.parseDouble(DatabaseService.getPropriete(cle, String.valueOf(defaut)).trim());
+        } catch (NumberFormatException e) {
+            return defaut;
+        }
+    }
+
+    // ==================== BOUCLE ====================
+
+    private void boucler(Path racine, long octetsParSeconde, long pauseMs) {
+        while (enService()) {
+            try {
+                if (!prendreBail()) {
+                    // Un autre poste vérifie : réessayer plus tard
+                    Thread.sleep(ATTENTE_BAIL_MS);
+                    continue;
+                }
+
+                boolean tourTermine;
+                try {
+                    tourTermine = verifierJusquaFinDeTour(racine, new Limiteur(octetsParSeconde));
+                } finally {
+                    libererBail();
+                }
+
+                if (tourTermine) {
+                    Thread.sleep(pauseMs);
+                } else {
+                    Thread.sleep(ATTENTE_BAIL_MS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (SQLException e) {
+                System.err.println("❌ Erreur vérification d'intégrité: " + e.getMessage());
+                try {
+                    Thread.sleep(ATTENTE_BAIL_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reprend au curseur enregistré et vérifie les documents par lots
+     * @return true si le tour est allé jusqu'au dernier document
+     */
+    private boolean verifierJusquaFinDeTour(Path racine, Limiteur limiteur) throws SQLException, InterruptedException {
+        long curseur = lireCurseur();
+        long derniereSauvegarde = System.currentTimeMillis();
+        int verifies = 0;
+        int anomalies = 0;
+
+        if (curseur == 0) {
+            System.out.println("🔎 Début d'un tour de vérification d'intégrité du stockage");
+        }
+
+        while (enService()) {
+            List<Object[]> lot = lireLot(curseur);
+            if (lot.isEmpty()) {
+                enregistrerFinDeTour();
+                System.out.println("✓ Tour de vérification d'intégrité terminé: " + verifies +
+                                  " fichier(s) vérifié(s), " + anomalies + " anomalie(s)");
+                return true;
+            }
+
+            for (Object[] doc : lot) {
+                if (!enService() || Thread.currentThread().isInterrupted()) {
+                    enregistrerCurseur(curseur);
+                    return false;
+                }
+
+                int documentId = (int) doc[0];
+                try {
+                    if (!verifierDocument(documentId, (String) doc[1], (String) doc[2], (String) doc[3], racine, limiteur)) {
+                        anomalies++;
+                    }
+                } catch (BailPerdu e) {
+                    // Ce document sera repris par le poste qui détient le bail
+                    enregistrerCurseur(curseur);
+                    return false;
+                } catch (InterruptedException e) {
+                    enregistrerCurseur(curseur);
+                    throw e;
+                }
+                verifies++;
+                curseur = documentId;
+
+                if (System.currentTimeMillis() - derniereSauvegarde > INTERVALLE_SAUVEGARDE_MS) {
+                    enregistrerCurseur(curseur);
+                    if (!prendreBail()) {
+                        return false;
+                    }
+                    derniereSauvegarde = System.currentTimeMillis();
+                }
+            }
+            enregistrerCurseur(curseur);
+        }
+        return false;
+    }
+
+    private List<Object[]> lireLot(long curseur) throws SQLException {
+        List<Object[]> lot = new ArrayList<>();
+        String query = "SELECT id, code_document, chemin_serveur, hash_fichier FROM documents " +
+                      "WHERE id > ? AND statut != 'supprime' AND chemin_serveur IS NOT NULL " +
+                      "AND hash_fichier IS NOT NULL ORDER BY id LIMIT " + TAILLE_LOT;
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setLong(1, curseur);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lot.add(new Object[] { rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4) });
+                }
+            }
+        }
+        return lot;
+    }
+
+    // ==================== VÉRIFICATION D'UN FICHIER ====================
+
+    /**
+     * @return true si le fichier est intact
+     */
+    private boolean verifierDocument(int documentId, String code, String chemin, String hashAttendu,
+                                     Path racine, Limiteur limiteur) throws SQLException, InterruptedException, BailPerdu {
+        Path fichier = Paths.get(chemin);
+        // Stockage déplacé ou reconfiguré : ces chemins ne sont pas sur ce serveur
+        if (!fichier.startsWith(racine)) {
+            return true;
+        }
+
+        String hashTrouve;
+        try {
+            hashTrouve = hacher(fichier, limiteur);
+        } catch (NoSuchFileException e) {
+            enregistrerAnomalie(documentId, code, chemin, ANOMALIE_MANQUANT, hashAttendu, null);
+            return false;
+        } catch (ClosedByInterruptException e) {
+            // arreter() interrompt la lecture en cours : annulation, le fichier n'est pas en cause
+            throw new InterruptedException("Vérification arrêtée");
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted() || !enService()) {
+                throw new InterruptedException("Vérification arrêtée");
+            }
+            enregistrerAnomalie(documentId, code, chemin, ANOMALIE_ILLISIBLE, hashAttendu, null);
+            return false;
+        }
+
+        if (!hashTrouve.equalsIgnoreCase(hashAttendu)) {
+            System.err.println("⚠ Fichier altéré sur le serveur: " + code + " (" + chemin + ")");
+            enregistrerAnomalie(documentId, code, chemin, ANOMALIE_DIFFERENT, hashAttendu, hashTrouve);
+            return false;
+        }
+
+        supprimerAnomalie(documentId);
+        return true;
+    }
+
+    /**
+     * Hache le fichier au débit du limiteur ; le bail est renouvelé pendant la lecture
+     * (un gros fichier peut demander plus que DUREE_BAIL_MS à débit réduit)
+     */
+    private String hacher(Path fichier, Limiteur limiteur)
+            throws IOException, InterruptedException, SQLException, BailPerdu {
+        MessageDigest digest = MoteurSauvegarde.sha256();
+        byte[] tampon = new byte[256 * 1024];
+
+        try (InputStream in = Files.newInputStream(fichier)) {
+            int lus;
+            while ((lus = in.read(tampon)) > 0) {
+                digest.update(tampon, 0, lus);
+                limiteur.consommer(lus);
+
+                if (System.currentTimeMillis() - bailPrisA > INTERVALLE_SAUVEGARDE_MS && !prendreBail()) {
+                    throw new BailPerdu();
+                }
+            }
+        }
+        return NetworkStorageService.versHexadecimal(digest.digest());
+    }
+
+    /**
+     * Un autre poste a repris le bail (expiré) : ce poste cesse de vérifier
+     */
+    private static class BailPerdu extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        BailPerdu() {
+            super("Bail de vérification repris par un autre poste");
+        }
+    }
+
+    /**
+     * Limite le débit de lecture : après chaque bloc, attend le temps que le budget impose
+     */
+    private static class Limiteur {
+        private final long octetsParSeconde;
+        private final long debut = System.nanoTime();
+        private long octets = 0;
+
+        Limiteur(long octetsParSeconde) {
+            this.octetsParSeconde = octetsParSeconde;
+        }
+
+        void consommer(long n) throws InterruptedException {
+            octets += n;
+            long attenduNanos = octets * 1_000_000_000L / octetsParSeconde;
+            long ecouleNanos = System.nanoTime() - debut;
+            if (attenduNanos > ecouleNanos) {
+                Thread.sleep((attenduNanos - ecouleNanos) / 1_000_000);
+            }
+        }
+    }
+
+    // ==================== ANOMALIES ====================
+
+    private void enregistrerAnomalie(int documentId, String code, String chemin, String type,
+                                     String hashAttendu, String hashTrouve) throws SQLException {
+        String query = "INSERT INTO anomalies_stockage (document_id, code_document, chemin, type_anomalie, " +
+                      "hash_attendu, hash_trouve) VALUES (?, ?, ?, ?, ?, ?) " +
+                      "ON DUPLICATE KEY UPDATE code_document = VALUES(code_document), chemin = VALUES(chemin), " +
+                      "type_anomalie = VALUES(type_anomalie), hash_attendu = VALUES(hash_attendu), " +
+                      "hash_trouve = VALUES(hash_trouve), detectee_le = NOW()";
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setInt(1, documentId);
+            stmt.setString(2, code);
+            stmt.setString(3, chemin);
+            stmt.setString(4, type);
+            stmt.setString(5, hashAttendu);
+            stmt.setString(6, hashTrouve);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void supprimerAnomalie(int documentId) throws SQLException {
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM anomalies_stockage WHERE document_id = ?")) {
+            stmt.setInt(1, documentId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Anomalies relevées, les plus récentes d'abord
+     */
+    public List<Anomalie> getAnomalies(int limite) throws SQLException {
+        List<Anomalie> anomalies = new ArrayList<>();
+        String query = "SELECT document_id, code_document, chemin, type_anomalie, hash_attendu, hash_trouve, " +
+                      "DATE_FORMAT(detectee_le, '%d/%m/%Y %H:%i') FROM anomalies_stockage " +
+                      "ORDER BY detectee_le DESC LIMIT ?";
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setInt(1, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    anomalies.add(new Anomalie(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                                               rs.getString(5), rs.getString(6), rs.getString(7)));
+                }
+            }
+        }
+        return anomalies;
+    }
+
+    /**
+     * Avancement du tour en cours et date du dernier tour complet
+     */
+    public String getAvancement() throws SQLException {
+        long curseur = lireCurseur();
+        String finTour = lireValeur(CLE_FIN_TOUR);
+        long total = 0;
+        long faits = 0;
+
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT COUNT(*), COALESCE(SUM(id <= ?), 0) FROM documents " +
+                 "WHERE statut != 'supprime' AND chemin_serveur IS NOT NULL AND hash_fichier IS NOT NULL")) {
+
+            stmt.setLong(1, curseur);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    total = rs.getLong(1);
+                    faits = rs.getLong(2);
+                }
+            }
+        }
+
+        return String.format("Tour en cours : %,d / %,d fichiers — dernier tour complet : %s",
+            faits, total, finTour != null ? finTour : "jamais");
+    }
+
+    // ==================== AVANCEMENT ET BAIL ====================
+
+    private long lireCurseur() throws SQLException {
+        String valeur = lireValeur(CLE_CURSEUR);
+        try {
+            return valeur != null ? Long.parseLong(valeur) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void enregistrerCurseur(long curseur) throws SQLException {
+        ecrireValeur(CLE_CURSEUR, String.valueOf(curseur));
+    }
+
+    private void enregistrerFinDeTour() throws SQLException {
+        ecrireValeur(CLE_CURSEUR, "0");
+        ecrireValeur(CLE_FIN_TOUR, java.time.LocalDateTime.now()
+            .format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+    }
+
+    private String lireValeur(String cle) throws SQLException {
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT valeur FROM config_serveur WHERE cle = ?")) {
+
+            stmt.setString(1, cle);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private void ecrireValeur(String cle, String valeur) throws SQLException {
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO config_serveur (cle, valeur) VALUES (?, ?) ON DUPLICATE KEY UPDATE valeur = VALUES(valeur)")) {
+
+            stmt.setString(1, cle);
+            stmt.setString(2, valeur);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Prend ou renouvelle le bail de vérification (valeur "poste|expiration en ms")
+     * @return false si un autre poste détient un bail non expiré
+     */
+    private boolean prendreBail() throws SQLException {
+        long maintenant = System.currentTimeMillis();
+
+        try (Connection conn = databaseService.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT IGNORE INTO config_serveur (cle, valeur) VALUES (?, '')")) {
+                stmt.setString(1, CLE_BAIL);
+                stmt.executeUpdate();
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE config_serveur SET valeur = ? WHERE cle = ? AND (valeur = '' OR valeur LIKE ? " +
+                    "OR CAST(SUBSTRING_INDEX(valeur, '|', -1) AS UNSIGNED) < ?)")) {
+                stmt.setString(1, poste + "|" + (maintenant + DUREE_BAIL_MS));
+                stmt.setString(2, CLE_BAIL);
+                stmt.setString(3, poste.replace("%", "\\%").replace("_", "\\_") + "|%");
+                stmt.setLong(4, maintenant);
+                if (stmt.executeUpdate() != 1) {
+                    return false;
+                }
+                bailPrisA = maintenant;
+                return true;
+            }
+        }
+    }
+
+    private void libererBail() {
+        try (Connection conn = databaseService.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "UPDATE config_serveur SET valeur = '' WHERE cle = ? AND valeur LIKE ?")) {
+
+            stmt.setString(1, CLE_BAIL);
+            stmt.setString(2, poste.replace("%", "\\%").replace("_", "\\_") + "|%");
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            System.err.println("⚠ Bail de vérification non libéré: " + e.getMessage());
+        }
+    }
+}
@@ -5,8 +5,12 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
 
 import application.services.DatabaseService;
+import application.services.CacheEntites;
+import application.services.MetriquesBaseService;
+import application.services.NetworkService;
 
 /**
  * Utilitaires de diagnostic complet du système
@@ -302,6 +306,12 @@ public class DiagnosticUtils {
             boolean connected = dbService.testConnection();
             afficherInfo("Test connexion", connected ? "✓ OK" : "✗ Échec");
             
+            // NetworkService : regroupement des messages multicast
+            Map<String, Long> emission = NetworkService.getInstance().getStatistiquesEmission();
+            afficherInfo("Multicast", emission.get("messagesEmis") + " message(s), " +
+                emission.get("datagrammesEmis") + " datagramme(s), " +
+                emission.get("messagesSupprimes") + " supprimé(s)");
+            
         } catch (Exception e) {
             afficherErreur("Erreur: " + e.getMessage());
         }
@@ -437,6 +447,43 @@ public class DiagnosticUtils {
         System.out.println();
     }
     
+    /**
+     * Affiche les métriques SQL : pool, requêtes les plus coûteuses, requêtes lentes récentes
+     */
+    public static void afficherMetriquesBase() {
+        afficherTitre("MÉTRIQUES SQL");
+        System.out.println(MetriquesBaseService.getInstance().getInstantane().formater(15));
+        System.out.println(CacheEntites.rapport());
+        System.out.println(NetworkService.getInstance().rapportEmission());
+    }
+    
+    /**
+     * Mesure le coût du hachage des mots de passe sur ce poste et propose le nombre d'itérations
+     * PBKDF2 correspondant à la latence visée (securite.mot_de_passe.latence_ms)
+     * @return Le nombre d'itérations recommandé
+     */
+    public static int calibrerHachageMotsDePasse() {
+        afficherTitre("HACHAGE DES MOTS DE PASSE");
+        
+        HacheurPbkdf2 courant = PasswordUtils.getHacheurCourant();
+        long cible = PasswordUtils.lireLatenceCibleMs();
+        
+        afficherInfo("Schéma", courant.getIdentifiant());
+        afficherInfo("Itérations", String.format("%,d", courant.getIterations()));
+        afficherInfo("Latence mesurée", courant.mesurerLatenceMs() + " ms");
+        
+        int recommande = HacheurPbkdf2.calibrer(cible);
+        afficherInfo("Latence visée", cible + " ms");
+        afficherInfo("Recommandé", String.format("%,d", recommande) + " itérations (securite.mot_de_passe.iterations)");
+        
+        if (recommande < courant.getIterations() / 2) {
+            afficherWarning("Coût actuel plus de deux fois supérieur à la cible sur ce poste");
+        }
+        
+        System.out.println();
+        return recommande;
+    }
+    
     /**
      * Vérifie la santé globale du système
      * @return true si tous les composants sont opérationnels
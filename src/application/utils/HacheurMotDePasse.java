@@ -0,0 +1,25 @@
+package application.utils;
+
+/**
+ * Schéma de hachage des mots de passe
+ *
+ * Chaque schéma reconnaît ses propres hashs : PasswordUtils choisit le bon pour vérifier un hash
+ * stocké, et n'utilise que le schéma courant pour hacher.
+ */
+public interface HacheurMotDePasse {
+
+    /** Nom du schéma (ex. "pbkdf2-sha256") */
+    String getIdentifiant();
+
+    /** Vrai si le hash stocké a été produit par ce schéma */
+    boolean reconnait(String hash);
+
+    /** Hache le mot de passe avec un sel aléatoire ; le résultat décrit ses propres paramètres */
+    String hacher(String motDePasse);
+
+    /** Vérifie le mot de passe (comparaison en temps constant) */
+    boolean verifier(String motDePasse, String hash);
+
+    /** Vrai si le hash a été produit avec les paramètres actuels (sinon, rehacher à la connexion) */
+    boolean estAJour(String hash);
+}
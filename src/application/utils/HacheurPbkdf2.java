@@ -0,0 +1,150 @@
+package application.utils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * PBKDF2-HMAC-SHA256 (JDK uniquement), coût réglable
+ *
+ * Format stocké : $pbkdf2-sha256$<itérations>$<sel>$<hash> (Base64 sans remplissage)
+ * Le hash porte son nombre d'itérations : augmenter le coût ne casse pas les comptes existants,
+ * ils sont rehachés à leur prochaine connexion.
+ */
+public class HacheurPbkdf2 implements HacheurMotDePasse {
+
+    public static final String IDENTIFIANT = "pbkdf2-sha256";
+    public static final int ITERATIONS_MINIMUM = 100_000;
+
+    private static final String ALGORITHME = "PBKDF2WithHmacSHA256";
+    private static final String PREFIXE = "$" + IDENTIFIANT + "$";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    private static final SecureRandom secureRandom = new SecureRandom();
+
+    private final int iterations;
+
+    public HacheurPbkdf2(int iterations) {
+        this.iterations = Math.max(ITERATIONS_MINIMUM, iterations);
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String getIdentifiant() {
+        return IDENTIFIANT;
+    }
+
+    @Override
+    public boolean reconnait(String hash) {
+        return hash != null && hash.startsWith(PREFIXE);
+    }
+
+    @Override
+    public String hacher(String motDePasse) {
+        byte[] salt = new byte[SALT_LENGTH];
+        secureRandom.nextBytes(salt);
+
+        Base64.Encoder encodeur = Base64.getEncoder().withoutPadding();
+        return PREFIXE + iterations + "$" + encodeur.encodeToString(salt) + "$" +
+               encodeur.encodeToString(deriver(motDePasse, salt, iterations, HASH_LENGTH));
+    }
+
+    @Override
+    public boolean verifier(String motDePasse, String hash) {
+        String[] parties = hash.substring(PREFIXE.length()).split("\\$");
+        if (parties.length != 3) {
+            return false;
+        }
+
+        int iterationsHash = Integer.parseInt(parties[0]);
+        byte[] salt = Base64.getDecoder().decode(parties[1]);
+        byte[] attendu = Base64.getDecoder().decode(parties[2]);
+
+        return MessageDigest.isEqual(attendu, deriver(motDePasse, salt, iterationsHash, attendu.length));
+    }
+
+    /**
+     * À jour si le coût du hash atteint le coût courant : des postes réglés différemment
+     * ne se renvoient pas le rehachage d'un même compte
+     */
+    @Override
+    public boolean estAJour(String hash) {
+        if (!reconnait(hash)) {
+            return false;
+        }
+        try {
+            String cout = hash.substring(PREFIXE.length(), hash.indexOf('$', PREFIXE.length()));
+            return Integer.parseInt(cout) >= iterations;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static byte[] deriver(String motDePasse, byte[] salt, int iterations, int longueur) {
+        char[] caracteres = motDePasse.toCharArray();
+        PBEKeySpec spec = new PBEKeySpec(caracteres, salt, iterations, longueur * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHME).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Algorithme de hachage non disponible", e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(caracteres, '\0');
+        }
+    }
+
+    // ==================== CALIBRATION ====================
+
+    /**
+     * Mesure le coût de ce poste et retourne le nombre d'itérations pour la latence visée
+     * Dérivations d'échauffement, puis médiane de plusieurs mesures à un coût de référence ;
+     * le temps étant proportionnel aux itérations, le résultat est extrapolé puis arrondi
+     * au millier (jamais sous ITERATIONS_MINIMUM).
+     */
+    public static int calibrer(long latenceCibleMs) {
+        final int reference = 20_000;
+        final int mesures = 5;
+        byte[] salt = new byte[SALT_LENGTH];
+        secureRandom.nextBytes(salt);
+
+        for (int i = 0; i < 3; i++) {
+            deriver("calibration", salt, reference, HASH_LENGTH);
+        }
+
+        long[] durees = new long[mesures];
+        for (int i = 0; i < mesures; i++) {
+            long debut = System.nanoTime();
+            deriver("calibration", salt, reference, HASH_LENGTH);
+            durees[i] = System.nanoTime() - debut;
+        }
+        Arrays.sort(durees);
+
+        double nanosParIteration = (double) durees[mesures / 2] / reference;
+        long iterations = Math.round(latenceCibleMs * 1_000_000.0 / nanosParIteration / 1_000) * 1_000;
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(ITERATIONS_MINIMUM, iterations));
+    }
+
+    /**
+     * Latence mesurée d'une vérification au coût de ce hacheur (médiane de trois), en millisecondes
+     */
+    public long mesurerLatenceMs() {
+        byte[] salt = new byte[SALT_LENGTH];
+        secureRandom.nextBytes(salt);
+
+        long[] durees = new long[3];
+        for (int i = 0; i < durees.length; i++) {
+            long debut = System.nanoTime();
+            deriver("calibration", salt, iterations, HASH_LENGTH);
+            durees[i] = System.nanoTime() - debut;
+        }
+        Arrays.sort(durees);
+        return durees[1] / 1_000_000;
+    }
+}
@@ -0,0 +1,77 @@
+package application.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Ancien schéma : SHA-256 d'un sel de 32 octets suivi du mot de passe, un seul tour
+ * Base64(sel || hash), sans préfixe. Conservé pour vérifier les comptes existants, qui sont
+ * rehachés avec le schéma courant à leur prochaine connexion.
+ */
+public class HacheurSha256Historique implements HacheurMotDePasse {
+
+    private static final int SALT_LENGTH = 32;
+    private static final int HASH_LENGTH = 32;
+    private static final SecureRandom secureRandom = new SecureRandom();
+
+    @Override
+    public String getIdentifiant() {
+        return "sha256";
+    }
+
+    @Override
+    public boolean reconnait(String hash) {
+        if (hash == null || hash.startsWith("$")) {
+            return false;
+        }
+        try {
+            return Base64.getDecoder().decode(hash).length == SALT_LENGTH + HASH_LENGTH;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String hacher(String motDePasse) {
+        byte[] salt = new byte[SALT_LENGTH];
+        secureRandom.nextBytes(salt);
+
+        byte[] hash = hacherAvecSel(motDePasse, salt);
+        byte[] combined = new byte[salt.length + hash.length];
+        System.arraycopy(salt, 0, combined, 0, salt.length);
+        System.arraycopy(hash, 0, combined, salt.length, hash.length);
+
+        return Base64.getEncoder().encodeToString(combined);
+    }
+
+    @Override
+    public boolean verifier(String motDePasse, String hash) {
+        byte[] combined = Base64.getDecoder().decode(hash);
+
+        byte[] salt = new byte[SALT_LENGTH];
+        System.arraycopy(combined, 0, salt, 0, SALT_LENGTH);
+
+        byte[] attendu = new byte[combined.length - SALT_LENGTH];
+        System.arraycopy(combined, SALT_LENGTH, attendu, 0, attendu.length);
+
+        return MessageDigest.isEqual(attendu, hacherAvecSel(motDePasse, salt));
+    }
+
+    @Override
+    public boolean estAJour(String hash) {
+        return false;
+    }
+
+    private static byte[] hacherAvecSel(String motDePasse, byte[] salt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return digest.digest(motDePasse.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Algorithme de hachage non disponible", e);
+        }
+    }
+}
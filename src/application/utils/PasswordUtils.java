@@ -1,20 +1,26 @@
 package application.utils;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import application.services.DatabaseService;
+
 import java.security.SecureRandom;
-import java.util.Base64;
+import java.util.List;
 import java.util.regex.Pattern;
 
 /**
  * Utilitaires pour la gestion sécurisée des mots de passe
+ *
+ * Hachage : PBKDF2-HMAC-SHA256 (HacheurPbkdf2), hashs auto-descriptifs. Les hashs de l'ancien
+ * schéma SHA-256 restent vérifiables et sont signalés par necessiteRehachage().
+ *
+ * Réglage (config/database.properties) :
+ * - securite.mot_de_passe.iterations : coût PBKDF2 (600000 par défaut) ou « auto » pour calibrer
+ *   ce poste sur securite.mot_de_passe.latence_ms (250 par défaut)
  */
 public class PasswordUtils {
     
-    private static final String HASH_ALGORITHM = "SHA-256";
-    private static final int SALT_LENGTH = 32;
     private static final SecureRandom secureRandom = new SecureRandom();
+    private static final HacheurMotDePasse HISTORIQUE = new HacheurSha256Historique();
+    private static volatile HacheurPbkdf2 hacheurCourant;
     
     // Critères de validation des mots de passe
     private static final int MIN_LENGTH = 8;
@@ -25,35 +31,19 @@ public class PasswordUtils {
     private static final Pattern SPECIAL_CHAR_PATTERN = Pattern.compile(".*[!@#$%^&*()_+\\-=\\[\\]{};':\"\\\\|,.<>/?].*");
     
     /**
-     * Hache un mot de passe avec un sel généré aléatoirement
+     * Hache un mot de passe avec le schéma courant (sel aléatoire)
      */
     public static String hashPassword(String password) {
         if (password == null || password.isEmpty()) {
             throw new IllegalArgumentException("Le mot de passe ne peut pas être vide");
         }
         
-        try {
-            // Génération d'un sel aléatoire
-            byte[] salt = generateSalt();
-            
-            // Hachage du mot de passe avec le sel
-            byte[] hashedPassword = hashPasswordWithSalt(password, salt);
-            
-            // Combinaison du sel et du hash pour le stockage
-            byte[] combined = new byte[salt.length + hashedPassword.length];
-            System.arraycopy(salt, 0, combined, 0, salt.length);
-            System.arraycopy(hashedPassword, 0, combined, salt.length, hashedPassword.length);
-            
-            // Encodage en Base64 pour le stockage
-            return Base64.getEncoder().encodeToString(combined);
-            
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Algorithme de hachage non disponible", e);
-        }
+        return getHacheurCourant().hacher(password);
     }
     
     /**
-     * Vérifie si un mot de passe correspond au hash stocké
+     * Vérifie si un mot de passe correspond au hash stocké (quel que soit son schéma)
+     * Coûteux par construction : à appeler hors du thread JavaFX.
      */
     public static boolean verifyPassword(String password, String storedHash) {
         if (password == null || storedHash == null) {
@@ -61,26 +51,13 @@ public class PasswordUtils {
         }
         
         try {
-            // Décodage du hash stocké
-            byte[] combined = Base64.getDecoder().decode(storedHash);
-            
-            if (combined.length < SALT_LENGTH) {
-                return false;
+            for (HacheurMotDePasse hacheur : List.of(getHacheurCourant(), HISTORIQUE)) {
+                if (hacheur.reconnait(storedHash)) {
+                    return hacheur.verifier(password, storedHash);
+                }
             }
-            
-            // Extraction du sel
-            byte[] salt = new byte[SALT_LENGTH];
-            System.arraycopy(combined, 0, salt, 0, SALT_LENGTH);
-            
-            // Extraction du hash
-            byte[] storedPasswordHash = new byte[combined.length - SALT_LENGTH];
-            System.arraycopy(combined, SALT_LENGTH, storedPasswordHash, 0, storedPasswordHash.length);
-            
-            // Hachage du mot de passe fourni avec le même sel
-            byte[] computedHash = hashPasswordWithSalt(password, salt);
-            
-            // Comparaison sécurisée des hashs
-            return MessageDigest.isEqual(storedPasswordHash, computedHash);
+            System.err.println("Erreur lors de la vérification du mot de passe: format de hash inconnu");
+            return false;
             
         } catch (Exception e) {
             System.err.println("Erreur lors de la vérification du mot de passe: " + e.getMessage());
@@ -88,6 +65,56 @@ public class PasswordUtils {
         }
     }
     
+    /**
+     * Vrai si le hash stocké n'utilise pas le schéma ou le coût courants
+     * (à remplacer par hashPassword() après une vérification réussie)
+     */
+    public static boolean necessiteRehachage(String storedHash) {
+        return !getHacheurCourant().estAJour(storedHash);
+    }
+    
+    /**
+     * Schéma courant, lu dans la configuration au premier usage
+     */
+    public static HacheurPbkdf2 getHacheurCourant() {
+        HacheurPbkdf2 hacheur = hacheurCourant;
+        if (hacheur == null) {
+            synchronized (PasswordUtils.class) {
+                hacheur = hacheurCourant;
+                if (hacheur == null) {
+                    hacheur = new HacheurPbkdf2(lireIterations());
+                    hacheurCourant = hacheur;
+                    System.out.println("✓ Hachage des mots de passe: " + hacheur.getIdentifiant() +
+                                       ", " + hacheur.getIterations() + " itérations");
+                }
+            }
+        }
+        return hacheur;
+    }
+    
+    private static int lireIterations() {
+        String valeur = DatabaseService.getPropriete("securite.mot_de_passe.iterations", "600000").trim();
+        try {
+            if ("auto".equalsIgnoreCase(valeur)) {
+                return HacheurPbkdf2.calibrer(lireLatenceCibleMs());
+            }
+            return Integer.parseInt(valeur);
+        } catch (NumberFormatException e) {
+            return 600_000;
+        }
+    }
+    
+    /**
+     * Latence visée pour une vérification de mot de passe (calibration)
+     */
+    public static long lireLatenceCibleMs() {
+        try {
+            return Math.max(1, Long.parseLong(DatabaseService.getPropriete("securite.mot_de_passe.latence_ms", "250").trim()));
+        } catch (NumberFormatException e) {
+            return 250;
+        }
+    }
+    
     /**
      * Valide qu'un mot de passe respecte les critères de sécurité
      */
@@ -196,28 +223,6 @@ public class PasswordUtils {
         return shuffleString(password.toString());
     }
     
-    /**
-     * Génère un sel aléatoire
-     */
-    private static byte[] generateSalt() {
-        byte[] salt = new byte[SALT_LENGTH];
-        secureRandom.nextBytes(salt);
-        return salt;
-    }
-    
-    /**
-     * Hache un mot de passe avec un sel spécifique
-     */
-    private static byte[] hashPasswordWithSalt(String password, byte[] salt) throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
-        
-        // Ajout du sel au digest
-        digest.update(salt);
-        
-        // Hachage du mot de passe
-        return digest.digest(password.getBytes(StandardCharsets.UTF_8));
-    }
-    
     /**
      * Mélange les caractères d'une chaîne
      */
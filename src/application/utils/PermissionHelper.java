@@ -1,6 +1,7 @@
 package application.utils;
 
 import application.models.Permission;
+import java.util.EnumSet;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.stream.Collectors;
@@ -43,12 +44,14 @@ public class PermissionHelper {
             return new HashSet<>();
         }
         
-        String[] permNames = cleaned.split(",");
-        return java.util.Arrays.stream(permNames)
-                .map(String::trim)
-                .map(Permission::fromString)
-                .filter(p -> p != null)
-                .collect(Collectors.toSet());
+        Set<Permission> permissions = EnumSet.noneOf(Permission.class);
+        for (String permName : cleaned.split(",")) {
+            Permission permission = Permission.resoudre(permName.trim());
+            if (permission != null) {
+                permissions.add(permission);
+            }
+        }
+        return permissions;
     }
     
     /**
@@ -86,10 +89,42 @@ public class PermissionHelper {
             return false;
         }
         
-        Permission perm = Permission.fromString(permissionName);
+        Permission perm = Permission.resoudre(permissionName);
         return perm != null && permissions.contains(perm);
     }
     
+    /**
+     * Vérifie une permission dans un masque (Role.getMasquePermissions()) : un ET, sans allocation
+     */
+    public static boolean hasPermission(long masque, Permission permission) {
+        return permission != null && (masque & permission.masque()) != 0;
+    }
+    
+    /**
+     * Masque regroupant plusieurs permissions, à calculer une fois (ex. constante d'un contrôleur)
+     */
+    public static long masque(Permission... permissions) {
+        long masque = 0L;
+        for (Permission permission : permissions) {
+            masque |= permission.masque();
+        }
+        return masque;
+    }
+    
+    /**
+     * Vérifie que le masque contient toutes les permissions du masque requis
+     */
+    public static boolean hasAllPermissions(long masque, long requis) {
+        return (masque & requis) == requis;
+    }
+    
+    /**
+     * Vérifie que le masque contient au moins une des permissions du masque requis
+     */
+    public static boolean hasAnyPermission(long masque, long requis) {
+        return (masque & requis) != 0;
+    }
+    
     /**
      * Vérifie si toutes les permissions requises sont présentes
      */
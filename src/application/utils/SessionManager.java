@@ -65,6 +65,15 @@ public class SessionManager {
                currentUser.getRole().hasPermission(permission);
     }
     
+    /**
+     * Masque des permissions de l'utilisateur connecté (0 sans session)
+     * Pour les vérifications répétées (fabriques de cellules) : PermissionHelper.hasPermission(masque, p)
+     */
+    public long getMasquePermissions() {
+        User user = currentUser;
+        return user != null && user.getRole() != null ? user.getRole().getMasquePermissions() : 0L;
+    }
+    
     /**
      * Vérifie si l'utilisateur a une permission par nom
      */
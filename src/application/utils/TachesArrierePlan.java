@@ -0,0 +1,275 @@
+package application.utils;
+
+import application.services.DatabaseService;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Exécution des lectures des contrôleurs hors du thread JavaFX
+ *
+ * - Chaque tâche tourne sur un thread virtuel ; un sémaphore borne les tâches simultanées
+ *   pour laisser des connexions du pool à la synchronisation et aux services
+ * - Un Canal ne garde que sa dernière demande : une nouvelle soumission annule la précédente
+ *   (en attente ou différée), et le résultat d'une tâche déjà lancée est ignoré
+ * - soumettreDiffere() regroupe les frappes : seule la dernière demande du délai est exécutée
+ * - Les résultats sont remis au thread JavaFX par lots : un seul Platform.runLater applique
+ *   tous les résultats arrivés entre deux impulsions d'affichage
+ * - Temps d'attente et d'exécution relevés par nom de tâche (rapport())
+ *
+ * Réglage (config/database.properties) : taches.simultanees
+ */
+public final class TachesArrierePlan {
+
+    private static final ExecutorService EXECUTEUR =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tache-ui-", 0).factory());
+
+    private static final ScheduledExecutorService MINUTERIE = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "taches-ui-minuterie");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Semaphore SIMULTANEES = new Semaphore(lireSimultanees());
+
+    // Résultats en attente d'application sur le thread JavaFX
+    private static final ConcurrentLinkedQueue<Runnable> LIVRAISONS = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean LIVRAISON_PLANIFIEE = new AtomicBoolean(false);
+
+    private static final Map<String, Statistiques> STATISTIQUES = new ConcurrentHashMap<>();
+
+    private TachesArrierePlan() {}
+
+    /**
+     * Lecture exécutée hors du thread JavaFX
+     */
+    @FunctionalInterface
+    public interface Travail<T> {
+        T executer() throws Exception;
+    }
+
+    private static int lireSimultanees() {
+        try {
+            return Math.max(1, Integer.parseInt(DatabaseService.getPropriete("taches.simultanees", "4").trim()));
+        } catch (NumberFormatException e) {
+            return 4;
+        }
+    }
+
+    // ==================== SOUMISSION ====================
+
+    /**
+     * Canal de tâches d'un contrôleur (une recherche, un chargement de liste...)
+     */
+    public static Canal canal(String nom) {
+        return new Canal(nom);
+    }
+
+    /**
+     * Tâche isolée, jamais remplacée (comptage, chargement initial d'un panneau)
+     */
+    public static <T> void executer(String nom, Travail<T> travail, Consumer<T> surSucces) {
+        executer(nom, travail, surSucces, null);
+    }
+
+    public static <T> void executer(String nom, Travail<T> travail, Consumer<T> surSucces, Consumer<Throwable> surErreur) {
+        lancer(nom, travail, surSucces, surErreur, () -> true);
+    }
+
+    private static <T> Future<?> lancer(String nom, Travail<T> travail, Consumer<T> surSucces,
+                                        Consumer<Throwable> surErreur, BooleanSupplier courante) {
+        Statistiques stats = STATISTIQUES.computeIfAbsent(nom, n -> new Statistiques());
+        stats.soumises.increment();
+        long soumiseA = System.nanoTime();
+
+        return EXECUTEUR.submit(() -> {
+            try {
+                SIMULTANEES.acquire();
+            } catch (InterruptedException e) {
+                stats.annulees.increment();
+                return;
+            }
+            try {
+                // Remplacée pendant l'attente d'une place : inutile de solliciter la base
+                if (!courante.getAsBoolean()) {
+                    stats.annulees.increment();
+                    return;
+                }
+                long debut = System.nanoTime();
+                stats.attente(debut - soumiseA);
+
+                T resultat;
+                try {
+                    resultat = travail.executer();
+                } catch (Exception e) {
+                    stats.echecs.increment();
+                    stats.execution(System.nanoTime() - debut);
+                    livrer(() -> {
+                        if (courante.getAsBoolean()) {
+                            signalerErreur(nom, e, surErreur);
+                        }
+                    });
+                    return;
+                }
+                stats.execution(System.nanoTime() - debut);
+
+                livrer(() -> {
+                    if (courante.getAsBoolean()) {
+                        surSucces.accept(resultat);
+                    } else {
+                        stats.annulees.increment();
+                    }
+                });
+            } finally {
+                SIMULTANEES.release();
+            }
+        });
+    }
+
+    private static void signalerErreur(String nom, Throwable erreur, Consumer<Throwable> surErreur) {
+        if (surErreur != null) {
+            surErreur.accept(erreur);
+        } else {
+            System.err.println("❌ Tâche " + nom + ": " + erreur.getMessage());
+        }
+    }
+
+    // ==================== LIVRAISON SUR LE THREAD JAVAFX ====================
+
+    private static void livrer(Runnable application) {
+        LIVRAISONS.add(application);
+        if (LIVRAISON_PLANIFIEE.compareAndSet(false, true)) {
+            Platform.runLater(TachesArrierePlan::appliquerLivraisons);
+        }
+    }
+
+    private static void appliquerLivraisons() {
+        // Remis à false avant de vider : un résultat arrivé pendant le vidage replanifie un passage
+        LIVRAISON_PLANIFIEE.set(false);
+
+        Runnable application;
+        while ((application = LIVRAISONS.poll()) != null) {
+            try {
+                application.run();
+            } catch (Exception e) {
+                System.err.println("❌ Erreur application résultat de tâche: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // ==================== CANAL ====================
+
+    /**
+     * Suite de demandes dont seule la dernière compte
+     * Méthodes à appeler depuis le thread JavaFX.
+     */
+    public static final class Canal {
+
+        private final String nom;
+        private final AtomicLong generation = new AtomicLong();
+        private Future<?> enCours;
+
+        private Canal(String nom) {
+            this.nom = nom;
+        }
+
+        public <T> void soumettre(Travail<T> travail, Consumer<T> surSucces) {
+            soumettre(travail, surSucces, null);
+        }
+
+        public <T> void soumettre(Travail<T> travail, Consumer<T> surSucces, Consumer<Throwable> surErreur) {
+            long demande = remplacer();
+            enCours = lancer(nom, travail, surSucces, surErreur, () -> generation.get() == demande);
+        }
+
+        /**
+         * Exécute la demande après un délai sans nouvelle soumission (saisie au clavier)
+         */
+        public <T> void soumettreDiffere(long delaiMs, Travail<T> travail, Consumer<T> surSucces, Consumer<Throwable> surErreur) {
+            long demande = remplacer();
+            enCours = MINUTERIE.schedule(() -> {
+                if (generation.get() == demande) {
+                    lancer(nom, travail, surSucces, surErreur, () -> generation.get() == demande);
+                }
+            }, delaiMs, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Abandonne la demande en cours : son résultat ne sera pas appliqué
+         */
+        public void annuler() {
+            remplacer();
+        }
+
+        private long remplacer() {
+            long demande = generation.incrementAndGet();
+            if (enCours != null) {
+                // Sans interruption : un thread interrompu en pleine lecture JDBC ferme la connexion
+                enCours.cancel(false);
+                enCours = null;
+            }
+            return demande;
+        }
+    }
+
+    // ==================== STATISTIQUES ====================
+
+    private static final class Statistiques {
+        final LongAdder soumises = new LongAdder();
+        final LongAdder annulees = new LongAdder();
+        final LongAdder echecs = new LongAdder();
+        final LongAdder executees = new LongAdder();
+        final LongAdder attenteTotaleNanos = new LongAdder();
+        final LongAdder executionTotaleNanos = new LongAdder();
+        final LongAccumulator executionMaxNanos = new LongAccumulator(Math::max, 0);
+
+        void attente(long nanos) {
+            attenteTotaleNanos.add(nanos);
+        }
+
+        void execution(long nanos) {
+            executees.increment();
+            executionTotaleNanos.add(nanos);
+            executionMaxNanos.accumulate(nanos);
+        }
+    }
+
+    /**
+     * Une ligne par nom de tâche : nombres, attente et durée d'exécution (ms)
+     */
+    public static String rapport() {
+        StringBuilder sb = new StringBuilder("== Tâches d'arrière-plan des vues ==\n");
+        sb.append(String.format("%-28s %8s %8s %7s %10s %10s %10s%n",
+            "Tâche", "soumises", "annulées", "échecs", "attente", "moyenne", "max"));
+
+        List<String> noms = new ArrayList<>(STATISTIQUES.keySet());
+        noms.sort(null);
+        for (String nom : noms) {
+            Statistiques s = STATISTIQUES.get(nom);
+            long executees = s.executees.sum();
+            sb.append(String.format("%-28s %8d %8d %7d %10.1f %10.1f %10.1f%n",
+                nom, s.soumises.sum(), s.annulees.sum(), s.echecs.sum(),
+                executees == 0 ? 0.0 : s.attenteTotaleNanos.sum() / 1e6 / executees,
+                executees == 0 ? 0.0 : s.executionTotaleNanos.sum() / 1e6 / executees,
+                s.executionMaxNanos.get() / 1e6));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,278 @@
+package application.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Utilitaires d'extraction du texte brut des fichiers stockés (pour l'indexation du contenu)
+ *
+ * Formats pris en charge sans dépendance externe :
+ * - Texte : txt, csv, md, log, xml, html, json
+ * - Office Open XML : docx, xlsx, pptx (XML contenu dans l'archive)
+ * - OpenDocument : odt, ods, odp (content.xml)
+ * - PDF : extraction best-effort des opérateurs de texte (Tj / TJ), flux FlateDecode inclus
+ *
+ * Le texte retourné est tronqué à MAX_CARACTERES pour borner la mémoire. Les PDF sont lus
+ * en flux : seul le flux PDF courant est en mémoire (MAX_FLUX_PDF compressé,
+ * MAX_FLUX_DECOMPRESSE une fois décompressé), quelle que soit la taille du fichier.
+ */
+public class TextExtractionUtils {
+
+    public static final int MAX_CARACTERES = 2_000_000;
+    private static final int MAX_FLUX_PDF = 8 * 1024 * 1024;
+    private static final int MAX_FLUX_DECOMPRESSE = 16 * 1024 * 1024;
+    private static final int MAX_DICTIONNAIRE_PDF = 512;
+
+    private static final byte[] PDF_DEBUT_FLUX = "stream".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] PDF_FIN_FLUX = "endstream".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final Pattern BALISES_XML = Pattern.compile("<[^>]+>");
+    private static final Pattern PDF_TEXTE = Pattern.compile("\\((.*?)(?<!\\\\)\\)\\s*(?:Tj|'|\")|\\[(.*?)\\]\\s*TJ", Pattern.DOTALL);
+    private static final Pattern PDF_CHAINE = Pattern.compile("\\((.*?)(?<!\\\\)\\)", Pattern.DOTALL);
+
+    /**
+     * Indique si l'extension est supportée par l'extracteur
+     */
+    public static boolean estSupporte(String extension) {
+        if (extension == null) return false;
+        return switch (extension.toLowerCase(Locale.ROOT)) {
+            case "txt", "csv", "md", "log", "xml", "html", "htm", "json",
+                 "docx", "xlsx", "pptx", "odt", "ods", "odp", "pdf" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Extrait le texte brut d'un fichier (format déduit de son extension)
+     * @return Le texte extrait, ou une chaîne vide si le format n'est pas supporté
+     */
+    public static String extraireTexte(Path fichier) throws IOException {
+        return extraireTexte(fichier, null);
+    }
+
+    /**
+     * Extrait le texte brut d'un fichier dont le nom ne porte pas le format (blobs du stockage dédupliqué)
+     * @param extension Extension d'origine du document, ou null pour la déduire du nom du fichier
+     * @return Le texte extrait, ou une chaîne vide si le format n'est pas supporté
+     */
+    public static String extraireTexte(Path fichier, String extension) throws IOException {
+        String format = extension != null && !extension.isBlank()
+            ? extension.trim().toLowerCase(Locale.ROOT)
+            : getExtension(fichier.getFileName().toString());
+
+        return switch (format) {
+            case "txt", "csv", "md", "log", "json" -> lireTexte(fichier);
+            case "xml", "html", "htm" -> retirerBalises(lireTexte(fichier));
+            case "docx" -> extraireZipXml(fichier, "word/document.xml");
+            case "xlsx" -> extraireZipXml(fichier, "xl/sharedStrings.xml");
+            case "pptx" -> extraireZipXml(fichier, "ppt/slides/");
+            case "odt", "ods", "odp" -> extraireZipXml(fichier, "content.xml");
+            case "pdf" -> extrairePdf(fichier);
+            default -> "";
+        };
+    }
+
+    // ==================== FORMATS ====================
+
+    private static String lireTexte(Path fichier) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(fichier), StandardCharsets.UTF_8)) {
+            return lireBorne(reader);
+        }
+    }
+
+    /**
+     * Concatène le texte des entrées XML dont le nom commence par le préfixe donné
+     */
+    private static String extraireZipXml(Path fichier, String prefixeEntree) throws IOException {
+        StringBuilder sb = new StringBuilder();
+
+        try (ZipFile zip = new ZipFile(fichier.toFile())) {
+            var entrees = zip.entries();
+            while (entrees.hasMoreElements() && sb.length() < MAX_CARACTERES) {
+                ZipEntry entree = entrees.nextElement();
+                if (!entree.getName().startsWith(prefixeEntree) || !entree.getName().endsWith(".xml")) {
+                    continue;
+                }
+                try (Reader reader = new InputStreamReader(zip.getInputStream(entree), StandardCharsets.UTF_8)) {
+                    sb.append(retirerBalises(lireBorne(reader))).append(' ');
+                }
+            }
+        }
+
+        return tronquer(sb);
+    }
+
+    /**
+     * Extraction simplifiée : parcourt les flux du PDF (décompressés si FlateDecode)
+     * et récupère les chaînes passées aux opérateurs d'affichage de texte.
+     * Le fichier est lu séquentiellement ; un flux de plus de MAX_FLUX_PDF octets est ignoré.
+     * Les PDF scannés (images) ne produisent pas de texte.
+     */
+    private static String extrairePdf(Path fichier) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        DerniersOctets avant = new DerniersOctets(MAX_DICTIONNAIRE_PDF);
+        DerniersOctets fin = new DerniersOctets(PDF_FIN_FLUX.length);
+        ByteArrayOutputStream flux = new ByteArrayOutputStream(65536);
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(fichier), 65536)) {
+            int b;
+            while (sb.length() < MAX_CARACTERES && (b = in.read()) != -1) {
+                avant.ajouter(b);
+                if (!avant.terminePar(PDF_DEBUT_FLUX)) continue;
+
+                // Mot-clé "stream" suivi d'une fin de ligne : début des données
+                int suivant = in.read();
+                if (suivant == '\r') suivant = in.read();
+                if (suivant != '\n') {
+                    if (suivant == -1) break;
+                    avant.ajouter(suivant);
+                    continue;
+                }
+
+                String dictionnaire = avant.enTexte();
+                avant.vider();
+                fin.vider();
+                flux.reset();
+                boolean tropGrand = false;
+
+                while ((b = in.read()) != -1) {
+                    fin.ajouter(b);
+                    if (fin.terminePar(PDF_FIN_FLUX)) break;
+                    if (flux.size() < MAX_FLUX_PDF) {
+                        flux.write(b);
+                    } else {
+                        tropGrand = true;
+                    }
+                }
+                if (b == -1) break;
+                if (tropGrand) continue;
+
+                // Le début de "endstream" a été copié avant d'être reconnu
+                byte[] donnees = Arrays.copyOf(flux.toByteArray(), Math.max(0, flux.size() - (PDF_FIN_FLUX.length - 1)));
+                String texteFlux = dictionnaire.contains("/FlateDecode")
+                    ? new String(inflater(donnees), StandardCharsets.ISO_8859_1)
+                    : new String(donnees, StandardCharsets.ISO_8859_1);
+
+                extraireOperateursTexte(texteFlux, sb);
+            }
+        }
+
+        return tronquer(sb);
+    }
+
+    private static void extraireOperateursTexte(String flux, StringBuilder sb) {
+        Matcher m = PDF_TEXTE.matcher(flux);
+        while (m.find()) {
+            if (m.group(1) != null) {
+                sb.append(decoderChainePdf(m.group(1)));
+            } else if (m.group(2) != null) {
+                Matcher chaines = PDF_CHAINE.matcher(m.group(2));
+                while (chaines.find()) {
+                    sb.append(decoderChainePdf(chaines.group(1)));
+                }
+            }
+            sb.append(' ');
+        }
+    }
+
+    private static String decoderChainePdf(String s) {
+        return s.replace("\\(", "(").replace("\\)", ")").replace("\\n", " ").replace("\\\\", "\\");
+    }
+
+    private static byte[] inflater(byte[] donnees) {
+        Inflater inflater = new Inflater();
+        inflater.setInput(donnees);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(donnees.length * 2, MAX_FLUX_DECOMPRESSE));
+        byte[] tampon = new byte[8192];
+
+        try {
+            // Borné : un flux très compressible (bombe de décompression) est tronqué
+            while (!inflater.finished() && out.size() < MAX_FLUX_DECOMPRESSE) {
+                int n = inflater.inflate(tampon);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                out.write(tampon, 0, Math.min(n, MAX_FLUX_DECOMPRESSE - out.size()));
+            }
+        } catch (Exception e) {
+            // Flux corrompu ou non supporté : on garde ce qui a été décompressé
+        } finally {
+            inflater.end();
+        }
+
+        return out.toByteArray();
+    }
+
+    // ==================== OUTILS ====================
+
+    private static String lireBorne(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] tampon = new char[8192];
+        int n;
+        while ((n = reader.read(tampon)) != -1 && sb.length() < MAX_CARACTERES) {
+            sb.append(tampon, 0, n);
+        }
+        return tronquer(sb);
+    }
+
+    private static String retirerBalises(String xml) {
+        return BALISES_XML.matcher(xml).replaceAll(" ");
+    }
+
+    private static String tronquer(StringBuilder sb) {
+        return sb.length() > MAX_CARACTERES ? sb.substring(0, MAX_CARACTERES) : sb.toString();
+    }
+
+    /**
+     * Derniers octets lus (tampon circulaire), pour reconnaître les mots-clés sans garder le fichier
+     */
+    private static final class DerniersOctets {
+        private final byte[] tampon;
+        private int position = 0;
+        private int taille = 0;
+
+        DerniersOctets(int capacite) {
+            this.tampon = new byte[capacite];
+        }
+
+        void ajouter(int octet) {
+            tampon[position] = (byte) octet;
+            position = (position + 1) % tampon.length;
+            if (taille < tampon.length) taille++;
+        }
+
+        void vider() {
+            position = 0;
+            taille = 0;
+        }
+
+        boolean terminePar(byte[] motif) {
+            if (taille < motif.length) return false;
+            for (int i = 0; i < motif.length; i++) {
+                int j = Math.floorMod(position - motif.length + i, tampon.length);
+                if (tampon[j] != motif[i]) return false;
+            }
+            return true;
+        }
+
+        String enTexte() {
+            byte[] octets = new byte[taille];
+            for (int i = 0; i < taille; i++) {
+                octets[i] = tampon[Math.floorMod(position - taille + i, tampon.length)];
+            }
+            return new String(octets, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static String getExtension(String nomFichier) {
+        int point = nomFichier.lastIndexOf('.');
+        return point > 0 ? nomFichier.substring(point + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}